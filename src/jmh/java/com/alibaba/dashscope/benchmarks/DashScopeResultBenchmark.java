@@ -0,0 +1,90 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.HalfDuplexTestParam;
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.NetworkResponse;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Decoding of one generation response, from the network response to the GenerationResult. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DashScopeResultBenchmark {
+  private HalfDuplexRequest request;
+  private NetworkResponse httpResponse;
+  private NetworkResponse streamEvent;
+  private NetworkResponse webSocketEvent;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    request =
+        new HalfDuplexRequest(
+            HalfDuplexTestParam.builder().model("qwen-turbo").build(),
+            ApiServiceOption.builder()
+                .protocol(Protocol.HTTP)
+                .streamingMode(StreamingMode.OUT)
+                .outputMode(OutputMode.ACCUMULATE)
+                .taskGroup("aigc")
+                .task("text-generation")
+                .function("generation")
+                .build());
+    httpResponse =
+        NetworkResponse.builder()
+            .headers(Collections.emptyMap())
+            .message(Payloads.GENERATION_RESPONSE)
+            .httpStatusCode(200)
+            .build();
+    streamEvent =
+        NetworkResponse.builder()
+            .headers(Collections.emptyMap())
+            .message(Payloads.GENERATION_RESPONSE)
+            .httpStatusCode(200)
+            .streamEvent(true)
+            .build();
+    webSocketEvent = NetworkResponse.builder().message(Payloads.WEBSOCKET_EVENT).build();
+  }
+
+  @Benchmark
+  public GenerationResult http() {
+    DashScopeResult result =
+        new DashScopeResult().fromResponse(Protocol.HTTP, httpResponse, false, request);
+    return GenerationResult.fromDashScopeResult(result);
+  }
+
+  @Benchmark
+  public GenerationResult httpStreamEvent() {
+    DashScopeResult result =
+        new DashScopeResult().fromResponse(Protocol.HTTP, streamEvent, false, request);
+    return GenerationResult.fromDashScopeResult(result);
+  }
+
+  @Benchmark
+  public GenerationResult webSocket() {
+    DashScopeResult result =
+        new DashScopeResult().fromResponse(Protocol.WEBSOCKET, webSocketEvent, false);
+    return GenerationResult.fromDashScopeResult(result);
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.utils.EncryptionUtils;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The AES-GCM input and output encryption and the RSA wrap of the AES key. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncryptionBenchmark {
+  private SecretKey secretKey;
+  private byte[] iv;
+  private String base64PublicKey;
+  private String base64SecretKey;
+  private String cipherText;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    secretKey = EncryptionUtils.generateAESKey();
+    iv = new byte[12];
+    new SecureRandom().nextBytes(iv);
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    base64PublicKey =
+        Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded());
+    base64SecretKey = Base64.getEncoder().encodeToString(secretKey.getEncoded());
+    cipherText = EncryptionUtils.AESEncrypt(Payloads.GENERATION_OUTPUT, secretKey, iv);
+  }
+
+  @Benchmark
+  public String aesEncrypt() {
+    return EncryptionUtils.AESEncrypt(Payloads.GENERATION_OUTPUT, secretKey, iv);
+  }
+
+  @Benchmark
+  public String aesDecrypt() {
+    return EncryptionUtils.AESDecrypt(cipherText, secretKey, iv);
+  }
+
+  @Benchmark
+  public String rsaEncrypt() {
+    return EncryptionUtils.RSAEncrypt(base64SecretKey, base64PublicKey);
+  }
+}
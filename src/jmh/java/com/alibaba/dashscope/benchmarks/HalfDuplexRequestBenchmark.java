@@ -0,0 +1,82 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.common.Role;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.protocol.HttpRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Building the http request, headers and json body, of a multi turn generation call. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HalfDuplexRequestBenchmark {
+  private HalfDuplexRequest request;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    List<Message> messages = new ArrayList<>();
+    messages.add(
+        Message.builder()
+            .role(Role.SYSTEM.getValue())
+            .content("You are a helpful assistant.")
+            .build());
+    for (int i = 0; i < 8; ++i) {
+      messages.add(
+          Message.builder()
+              .role(i % 2 == 0 ? Role.USER.getValue() : Role.ASSISTANT.getValue())
+              .content("The quick brown fox jumps over the lazy dog, turn " + i + ".")
+              .build());
+    }
+    GenerationParam param =
+        GenerationParam.builder()
+            .apiKey("1234")
+            .model("qwen-plus")
+            .messages(messages)
+            .resultFormat(GenerationParam.ResultFormat.MESSAGE)
+            .topP(0.8)
+            .incrementalOutput(true)
+            .build();
+    ApiServiceOption serviceOption =
+        ApiServiceOption.builder()
+            .protocol(Protocol.HTTP)
+            .httpMethod(HttpMethod.POST)
+            .streamingMode(StreamingMode.OUT)
+            .outputMode(OutputMode.ACCUMULATE)
+            .taskGroup("aigc")
+            .task("text-generation")
+            .function("generation")
+            .isSSE(true)
+            .build();
+    request = new HalfDuplexRequest(param, serviceOption);
+  }
+
+  @Benchmark
+  public HttpRequest getHttpRequest() throws Exception {
+    return request.getHttpRequest();
+  }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.HalfDuplexTestParam;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpHttpClient;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 512 concurrent streamed generation calls against a local mockwebserver, over http/1.1 or h2c
+ * with the default connection configurations of each. The events are throttled like generated
+ * tokens. Throughput is the completed streams per second, the sample time mode reports the p99
+ * latency of a stream.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(512)
+@Fork(1)
+@State(Scope.Benchmark)
+public class Http2StreamBenchmark {
+  @Param({ConnectionConfigurations.HTTP_1_1, ConnectionConfigurations.H2C})
+  public String httpProtocol;
+
+  @Param({"16"})
+  public int events;
+
+  private MockWebServer server;
+  private OkHttpClient okHttpClient;
+  private OkHttpHttpClient client;
+  private HalfDuplexRequest request;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < events; ++i) {
+      body.append("id:").append(i).append("\nevent:result\n:HTTP_STATUS/200\ndata:");
+      body.append(Payloads.GENERATION_RESPONSE).append("\n\n");
+    }
+    String stream = body.toString();
+    server = new MockWebServer();
+    if (ConnectionConfigurations.H2C.equals(httpProtocol)) {
+      server.setProtocols(Collections.singletonList(okhttp3.Protocol.H2_PRIOR_KNOWLEDGE));
+    }
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest recorded) {
+            return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(stream)
+                .throttleBody(stream.length() / 8, 10, TimeUnit.MILLISECONDS);
+          }
+        });
+    server.start();
+    okHttpClient =
+        OkHttpClientFactory.createOkHttpClient(
+            ConnectionConfigurations.builder().httpProtocol(httpProtocol).build());
+    client = new OkHttpHttpClient(okHttpClient);
+    request =
+        new HalfDuplexRequest(
+            HalfDuplexTestParam.builder().apiKey("1234").model("qwen-turbo").build(),
+            ApiServiceOption.builder()
+                .protocol(Protocol.HTTP)
+                .streamingMode(StreamingMode.OUT)
+                .outputMode(OutputMode.ACCUMULATE)
+                .taskGroup("aigc")
+                .task("text-generation")
+                .function("generation")
+                .isSSE(true)
+                .baseHttpUrl(server.url("/api/v1").toString())
+                .build());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    okHttpClient.dispatcher().cancelAll();
+    okHttpClient.connectionPool().evictAll();
+    server.shutdown();
+  }
+
+  @Benchmark
+  public long streamOut() throws Exception {
+    return client.streamOut(request).count().blockingGet();
+  }
+}
@@ -0,0 +1,102 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.aigc.completion.ChatCompletionChunk;
+import com.alibaba.dashscope.aigc.generation.GenerationOutput;
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.MessageAdapter;
+import com.alibaba.dashscope.embeddings.TextEmbeddingOutput;
+import com.alibaba.dashscope.tools.ToolCallBase;
+import com.alibaba.dashscope.tools.ToolCallGsonDeserializer;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Hand-written result adapters of `JsonUtils.gson` against the reflective binding of Gson. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBindingBenchmark {
+  private static final String GENERATION_OUTPUT =
+      "{\"choices\":[{\"finish_reason\":\"null\",\"index\":0,\"message\":{\"role\":\"assistant\","
+          + "\"content\":\"The quick brown fox jumps over the lazy dog.\"}}],"
+          + "\"model_name\":\"qwen-plus\"}";
+  private static final String CHAT_COMPLETION_CHUNK =
+      "{\"id\":\"chatcmpl-5f3c\",\"choices\":[{\"finish_reason\":null,\"index\":0,"
+          + "\"delta\":{\"content\":\"The quick brown fox\"}}],\"created\":1700000000,"
+          + "\"model\":\"qwen-plus\",\"object\":\"chat.completion.chunk\"}";
+
+  @Param({"typed", "reflective"})
+  public String binding;
+
+  private Gson gson;
+  private String textEmbeddingOutput;
+  private GenerationOutput generationOutput;
+  private TextEmbeddingOutput embeddingOutput;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    if ("typed".equals(binding)) {
+      gson = JsonUtils.gson;
+    } else {
+      // JsonUtils.gson without the result adapters.
+      gson =
+          new GsonBuilder()
+              .registerTypeAdapter(Message.class, new MessageAdapter())
+              .registerTypeAdapter(ToolCallBase.class, new ToolCallGsonDeserializer())
+              .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+              .disableHtmlEscaping()
+              .create();
+    }
+    StringBuilder builder = new StringBuilder("{\"embeddings\":[{\"text_index\":0,\"embedding\":[");
+    for (int i = 0; i < 1024; ++i) {
+      builder.append(i == 0 ? "" : ",").append(Math.sin(i) / 10);
+    }
+    textEmbeddingOutput = builder.append("]}]}").toString();
+    generationOutput = gson.fromJson(GENERATION_OUTPUT, GenerationOutput.class);
+    embeddingOutput = gson.fromJson(textEmbeddingOutput, TextEmbeddingOutput.class);
+  }
+
+  @Benchmark
+  public GenerationOutput readGenerationOutput() {
+    return gson.fromJson(GENERATION_OUTPUT, GenerationOutput.class);
+  }
+
+  @Benchmark
+  public ChatCompletionChunk readChatCompletionChunk() {
+    return gson.fromJson(CHAT_COMPLETION_CHUNK, ChatCompletionChunk.class);
+  }
+
+  @Benchmark
+  public TextEmbeddingOutput readTextEmbeddingOutput() {
+    return gson.fromJson(textEmbeddingOutput, TextEmbeddingOutput.class);
+  }
+
+  @Benchmark
+  public String writeGenerationOutput() {
+    return gson.toJson(generationOutput);
+  }
+
+  @Benchmark
+  public String writeTextEmbeddingOutput() {
+    return gson.toJson(embeddingOutput);
+  }
+}
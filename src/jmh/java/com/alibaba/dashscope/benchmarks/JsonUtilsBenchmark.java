@@ -0,0 +1,60 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.Role;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JsonUtils toJson of a message list and parse of a generation response. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonUtilsBenchmark {
+  private List<Message> messages;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    messages = new ArrayList<>();
+    messages.add(
+        Message.builder()
+            .role(Role.SYSTEM.getValue())
+            .content("You are a helpful assistant.")
+            .build());
+    for (int i = 0; i < 8; ++i) {
+      messages.add(
+          Message.builder()
+              .role(i % 2 == 0 ? Role.USER.getValue() : Role.ASSISTANT.getValue())
+              .content("The quick brown fox jumps over the lazy dog, turn " + i + ".")
+              .build());
+    }
+  }
+
+  @Benchmark
+  public String toJson() {
+    return JsonUtils.toJson(messages);
+  }
+
+  @Benchmark
+  public JsonObject parse() {
+    return JsonUtils.parse(Payloads.GENERATION_RESPONSE);
+  }
+}
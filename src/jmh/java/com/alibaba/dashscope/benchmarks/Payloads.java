@@ -0,0 +1,30 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+/** Responses shared by the benchmarks, shaped like the service output. */
+final class Payloads {
+  static final String GENERATION_OUTPUT =
+      "{\"choices\":[{\"finish_reason\":\"null\",\"message\":{\"role\":\"assistant\","
+          + "\"content\":\"The quick brown fox jumps over the lazy dog.\"}}]}";
+
+  static final String GENERATION_USAGE =
+      "{\"total_tokens\":27,\"input_tokens\":26,\"output_tokens\":1}";
+
+  static final String GENERATION_RESPONSE =
+      "{\"output\":"
+          + GENERATION_OUTPUT
+          + ",\"usage\":"
+          + GENERATION_USAGE
+          + ",\"request_id\":\"975de90c-a678-98d1-a4dd-eb48e7736ec4\"}";
+
+  static final String WEBSOCKET_EVENT =
+      "{\"header\":{\"task_id\":\"975de90c-a678-98d1-a4dd-eb48e7736ec4\","
+          + "\"event\":\"result-generated\",\"attributes\":{}},\"payload\":{\"output\":"
+          + GENERATION_OUTPUT
+          + ",\"usage\":"
+          + GENERATION_USAGE
+          + "}}";
+
+  private Payloads() {}
+}
@@ -0,0 +1,169 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.HalfDuplexTestParam;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpHttpClient;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.EncryptionUtils;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One streamed generation call through OkHttpHttpClient against a local mockwebserver, covers the
+ * request, the SSE parsing and the decoding of every event. With encrypted, the request input and
+ * the output of every event are encrypted, the public key is cached after the first call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SseStreamBenchmark {
+  @Param({"64"})
+  public int events;
+
+  @Param({"false", "true"})
+  public boolean encrypted;
+
+  private MockWebServer server;
+  private OkHttpHttpClient client;
+  private HalfDuplexRequest request;
+  private String plainBody;
+  private KeyPair keyPair;
+  // the unwrapped AES key of each encrypt_key header, the session key is reused by requests.
+  private final Map<String, SecretKey> secretKeys = new ConcurrentHashMap<>();
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+    plainBody = body(Payloads.GENERATION_RESPONSE);
+    server = new MockWebServer();
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest recorded) {
+            if (recorded.getPath().endsWith("public-keys/latest")) {
+              return new MockResponse()
+                  .setHeader("Content-Type", "application/json")
+                  .setBody(
+                      String.format(
+                          "{\"data\":{\"public_key_id\":\"1\",\"public_key\":\"%s\"},"
+                              + "\"request_id\":\"1\"}",
+                          Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded())));
+            }
+            return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(encryptedBody(recorded.getHeader("X-DashScope-EncryptionKey")));
+          }
+        });
+    server.start();
+    Constants.baseHttpApiUrl = server.url("/api/v1/").toString();
+    Constants.encryptionSessionKeyMaxUses = Integer.MAX_VALUE;
+    Constants.encryptionSessionKeyTtl = 3600;
+    client = new OkHttpHttpClient(OkHttpClientFactory.getOkHttpClient());
+    request =
+        new HalfDuplexRequest(
+            HalfDuplexTestParam.builder()
+                .apiKey("1234")
+                .model("qwen-turbo")
+                .prompt("hello")
+                .enableEncrypt(encrypted)
+                .build(),
+            ApiServiceOption.builder()
+                .protocol(Protocol.HTTP)
+                .streamingMode(StreamingMode.OUT)
+                .outputMode(OutputMode.ACCUMULATE)
+                .taskGroup("aigc")
+                .task("text-generation")
+                .function("generation")
+                .isSSE(true)
+                .baseHttpUrl(server.url("/api/v1").toString())
+                .build());
+  }
+
+  /** The events of a response encrypted with the key and iv of the request, plain without. */
+  private String encryptedBody(String encryptionKey) {
+    if (encryptionKey == null) {
+      return plainBody;
+    }
+    JsonObject header = JsonUtils.parse(encryptionKey);
+    SecretKey secretKey =
+        secretKeys.computeIfAbsent(header.get("encrypt_key").getAsString(), this::unwrap);
+    byte[] iv = Base64.getDecoder().decode(header.get("iv").getAsString());
+    return body(
+        String.format(
+            "{\"output\":\"%s\",\"usage\":%s,\"request_id\":\"1\"}",
+            EncryptionUtils.AESEncrypt(Payloads.GENERATION_OUTPUT, secretKey, iv),
+            Payloads.GENERATION_USAGE));
+  }
+
+  private String body(String event) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < events; ++i) {
+      builder.append("id:").append(i).append("\nevent:result\n:HTTP_STATUS/200\ndata:");
+      builder.append(event).append("\n\n");
+    }
+    return builder.toString();
+  }
+
+  private SecretKey unwrap(String encryptKey) {
+    try {
+      Cipher cipher = Cipher.getInstance("RSA");
+      cipher.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
+      byte[] base64Key = cipher.doFinal(Base64.getDecoder().decode(encryptKey));
+      return new SecretKeySpec(
+          Base64.getDecoder().decode(new String(base64Key, StandardCharsets.UTF_8)), "AES");
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    server.shutdown();
+  }
+
+  @Benchmark
+  public long streamOut() throws Exception {
+    return client.streamOut(request).count().blockingGet();
+  }
+}
@@ -0,0 +1,67 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.benchmarks;
+
+import com.alibaba.dashscope.tokenizers.QwenTokenizer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** QwenTokenizer encode and decode on mixed english, chinese and code text. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizerBenchmark {
+  private static final String SAMPLE =
+      "<|im_start|>system\nYou are a helpful assistant.<|im_end|>\n<|im_start|>user\n"
+          + "通义千问是阿里云研发的超大规模语言模型，能够回答问题、创作文字。"
+          + "The quick brown fox jumps over the lazy dog, 1234567890 times!\n"
+          + "for (int i = 0; i < tokens.size(); ++i) { sum += tokens.get(i); }<|im_end|>\n";
+
+  @Param({"1", "16"})
+  public int repeat;
+
+  private QwenTokenizer tokenizer;
+  private String text;
+  private List<Integer> tokens;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    tokenizer = new QwenTokenizer();
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < repeat; ++i) {
+      builder.append(SAMPLE);
+    }
+    text = builder.toString();
+    tokens = tokenizer.encode(text, "all");
+  }
+
+  @Benchmark
+  public List<Integer> encode() throws Exception {
+    return tokenizer.encode(text, "all");
+  }
+
+  @Benchmark
+  public List<Integer> encodeOrdinary() {
+    return tokenizer.encodeOrdinary(text);
+  }
+
+  @Benchmark
+  public String decode() {
+    return tokenizer.decode(tokens);
+  }
+}
@@ -85,9 +85,8 @@ public class CodeGeneration {
   public CodeGenerationResult call(CodeGenerationParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
-    return CodeGenerationResult.fromDashScopeResult(syncApi.call(param));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    return CodeGenerationResult.fromDashScopeResult(syncApi.call(param, option));
   }
 
   /**
@@ -102,10 +101,10 @@ public class CodeGeneration {
   public void call(CodeGenerationParam param, ResultCallback<CodeGenerationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
     syncApi.call(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult message) {
@@ -136,9 +135,10 @@ public class CodeGeneration {
   public Flowable<CodeGenerationResult> streamCall(CodeGenerationParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
-    return syncApi.streamCall(param).map(item -> CodeGenerationResult.fromDashScopeResult(item));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
+    return syncApi
+        .streamCall(param, option)
+        .map(item -> CodeGenerationResult.fromDashScopeResult(item));
   }
 
   /**
@@ -153,10 +153,10 @@ public class CodeGeneration {
   public void streamCall(CodeGenerationParam param, ResultCallback<CodeGenerationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
     syncApi.streamCall(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult msg) {
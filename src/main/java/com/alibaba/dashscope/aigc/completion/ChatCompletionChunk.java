@@ -2,8 +2,6 @@ package com.alibaba.dashscope.aigc.completion;
 
 import com.alibaba.dashscope.common.DashScopeResult;
 import com.alibaba.dashscope.tools.ToolCallBase;
-import com.alibaba.dashscope.utils.JsonUtils;
-import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 import java.util.List;
 import lombok.Data;
@@ -51,6 +49,6 @@ public class ChatCompletionChunk {
   private ChatCompletionUsage usage;
 
   public static ChatCompletionChunk fromDashScopeResult(DashScopeResult dashscopeResult) {
-    return JsonUtils.fromJson((JsonObject) dashscopeResult.getOutput(), ChatCompletionChunk.class);
+    return dashscopeResult.getOutputAs(ChatCompletionChunk.class);
   }
 }
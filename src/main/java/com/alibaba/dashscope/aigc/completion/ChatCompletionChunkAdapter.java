@@ -0,0 +1,149 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.aigc.completion;
+
+import com.alibaba.dashscope.tools.ToolCallBase;
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+
+public class ChatCompletionChunkAdapter extends ObjectTypeAdapter<ChatCompletionChunk> {
+  private final TypeAdapter<ChatCompletionLogProbabilities> logprobsAdapter;
+  private final TypeAdapter<ChatCompletionUsage> usageAdapter;
+  private final TypeAdapter<List<ToolCallBase>> toolCallsAdapter;
+
+  public ChatCompletionChunkAdapter(Gson gson) {
+    this.logprobsAdapter = gson.getAdapter(ChatCompletionLogProbabilities.class);
+    this.usageAdapter = gson.getAdapter(ChatCompletionUsage.class);
+    this.toolCallsAdapter = gson.getAdapter(new TypeToken<List<ToolCallBase>>() {});
+  }
+
+  @Override
+  protected ChatCompletionChunk newInstance() {
+    return new ChatCompletionChunk();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, ChatCompletionChunk value)
+      throws IOException {
+    switch (name) {
+      case "id":
+        value.setId(readString(in));
+        return true;
+      case "choices":
+        value.setChoices(readList(in, reader -> readChoice(reader, value)));
+        return true;
+      case "created":
+        value.setCreated(readInteger(in));
+        return true;
+      case "model":
+        value.setModel(readString(in));
+        return true;
+      case "service_tier":
+        value.setServiceTier(readString(in));
+        return true;
+      case "system_fingerprint":
+        value.setSystemFingerprint(readString(in));
+        return true;
+      case "object":
+        value.setObject(readString(in));
+        return true;
+      case "usage":
+        value.setUsage(usageAdapter.read(in));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // Choice is an inner class, it is created from the chunk.
+  private ChatCompletionChunk.Choice readChoice(JsonReader in, ChatCompletionChunk chunk)
+      throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    ChatCompletionChunk.Choice choice = chunk.new Choice();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "finish_reason":
+          choice.setFinishReason(readString(in));
+          break;
+        case "index":
+          choice.setIndex(readInteger(in));
+          break;
+        case "delta":
+          choice.setDelta(readDelta(in));
+          break;
+        case "logprobs":
+          choice.setLogprobs(logprobsAdapter.read(in));
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return choice;
+  }
+
+  private ChatCompletionChunk.Delta readDelta(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    ChatCompletionChunk.Delta delta = new ChatCompletionChunk.Delta();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "role":
+          delta.setRole(readString(in));
+          break;
+        case "content":
+          delta.setContent(readString(in));
+          break;
+        case "tool_calls":
+          delta.setToolCalls(toolCallsAdapter.read(in));
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return delta;
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, ChatCompletionChunk value) throws IOException {
+    writeField(out, "id", value.getId());
+    writeList(out, "choices", value.getChoices(), this::writeChoice);
+    writeField(out, "created", value.getCreated());
+    writeField(out, "model", value.getModel());
+    writeField(out, "service_tier", value.getServiceTier());
+    writeField(out, "system_fingerprint", value.getSystemFingerprint());
+    writeField(out, "object", value.getObject());
+    writeField(out, "usage", usageAdapter, value.getUsage());
+  }
+
+  private void writeChoice(JsonWriter out, ChatCompletionChunk.Choice choice) throws IOException {
+    out.beginObject();
+    writeField(out, "finish_reason", choice.getFinishReason());
+    writeField(out, "index", choice.getIndex());
+    ChatCompletionChunk.Delta delta = choice.getDelta();
+    if (delta != null) {
+      out.name("delta").beginObject();
+      writeField(out, "role", delta.getRole());
+      writeField(out, "content", delta.getContent());
+      writeField(out, "tool_calls", toolCallsAdapter, delta.getToolCalls());
+      out.endObject();
+    }
+    writeField(out, "logprobs", logprobsAdapter, choice.getLogprobs());
+    out.endObject();
+  }
+}
@@ -42,20 +42,18 @@ public final class ChatCompletions {
   public ChatCompletion call(ChatCompletionParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    DashScopeResult result = api.call(param, option);
     return ChatCompletion.fromDashScopeResult(result);
   }
 
   public void call(ChatCompletionParam param, ResultCallback<ChatCompletion> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    GeneralServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
     api.call(
         param,
-        serviceOption,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult message) {
@@ -77,20 +75,18 @@ public final class ChatCompletions {
   public Flowable<ChatCompletionChunk> streamCall(ChatCompletionParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
-    return api.streamCall(param, serviceOption)
+    GeneralServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
+    return api.streamCall(param, option)
         .map(item -> ChatCompletionChunk.fromDashScopeResult(item));
   }
 
   public void streamCall(ChatCompletionParam param, ResultCallback<ChatCompletionChunk> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    GeneralServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
     api.streamCall(
         param,
-        serviceOption,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult msg) {
@@ -84,9 +84,8 @@ public final class Conversation {
   public ConversationResult call(ConversationParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
-    return ConversationResult.fromDashScopeResult(syncApi.call(param));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    return ConversationResult.fromDashScopeResult(syncApi.call(param, option));
   }
 
   /**
@@ -101,10 +100,10 @@ public final class Conversation {
   public void call(ConversationParam param, ResultCallback<ConversationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
     syncApi.call(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult message) {
@@ -135,9 +134,10 @@ public final class Conversation {
   public Flowable<ConversationResult> streamCall(ConversationParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
-    return syncApi.streamCall(param).map(item -> ConversationResult.fromDashScopeResult(item));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
+    return syncApi
+        .streamCall(param, option)
+        .map(item -> ConversationResult.fromDashScopeResult(item));
   }
 
   /**
@@ -152,10 +152,10 @@ public final class Conversation {
   public void streamCall(ConversationParam param, ResultCallback<ConversationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
     syncApi.streamCall(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult msg) {
@@ -17,7 +17,10 @@ import com.alibaba.dashscope.protocol.ConnectionOptions;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.FutureUtils;
 import io.reactivex.Flowable;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -97,9 +100,41 @@ public final class Generation {
   public GenerationResult call(HalfDuplexServiceParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
-    return GenerationResult.fromDashScopeResult(syncApi.call(param));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    return GenerationResult.fromDashScopeResult(syncApi.call(param, option));
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `GenerationParam`.
+   * @return Completes with the `GenerationResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<GenerationResult> callAsync(HalfDuplexServiceParam param)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    return callAsync(param, null);
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `GenerationParam`.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the `GenerationResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<GenerationResult> callAsync(
+      HalfDuplexServiceParam param, Duration timeout)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    param.validate();
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    return FutureUtils.map(
+        syncApi.callAsync(param, option, timeout), GenerationResult::fromDashScopeResult);
   }
 
   /**
@@ -114,10 +149,10 @@ public final class Generation {
   public void call(HalfDuplexServiceParam param, ResultCallback<GenerationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
     syncApi.call(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult message) {
@@ -148,18 +183,19 @@ public final class Generation {
   public Flowable<GenerationResult> streamCall(HalfDuplexServiceParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
-    return syncApi.streamCall(param).map(item -> GenerationResult.fromDashScopeResult(item));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
+    return syncApi
+        .streamCall(param, option)
+        .map(item -> GenerationResult.fromDashScopeResult(item));
   }
 
   public void streamCall(HalfDuplexServiceParam param, ResultCallback<GenerationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
     syncApi.streamCall(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult msg) {
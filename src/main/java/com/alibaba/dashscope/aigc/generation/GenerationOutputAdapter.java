@@ -0,0 +1,102 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.aigc.generation;
+
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class GenerationOutputAdapter extends ObjectTypeAdapter<GenerationOutput> {
+  private final TypeAdapter<Message> messageAdapter;
+  private final TypeAdapter<GenerationLogprobs> logprobsAdapter;
+  private final TypeAdapter<SearchInfo> searchInfoAdapter;
+
+  public GenerationOutputAdapter(Gson gson) {
+    this.messageAdapter = gson.getAdapter(Message.class);
+    this.logprobsAdapter = gson.getAdapter(GenerationLogprobs.class);
+    this.searchInfoAdapter = gson.getAdapter(SearchInfo.class);
+  }
+
+  @Override
+  protected GenerationOutput newInstance() {
+    return new GenerationOutput();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, GenerationOutput value)
+      throws IOException {
+    switch (name) {
+      case "text":
+        value.setText(readString(in));
+        return true;
+      case "finish_reason":
+        value.setFinishReason(readString(in));
+        return true;
+      case "choices":
+        value.setChoices(readList(in, reader -> readChoice(reader, value)));
+        return true;
+      case "search_info":
+        value.setSearchInfo(searchInfoAdapter.read(in));
+        return true;
+      case "model_name":
+        value.setModelName(readString(in));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  // Choice is an inner class, it is created from the output.
+  private GenerationOutput.Choice readChoice(JsonReader in, GenerationOutput output)
+      throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    GenerationOutput.Choice choice = output.new Choice();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "finish_reason":
+          choice.setFinishReason(readString(in));
+          break;
+        case "index":
+          choice.setIndex(readInteger(in));
+          break;
+        case "message":
+          choice.setMessage(messageAdapter.read(in));
+          break;
+        case "logprobs":
+          choice.setLogprobs(logprobsAdapter.read(in));
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return choice;
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, GenerationOutput value) throws IOException {
+    writeField(out, "text", value.getText());
+    writeField(out, "finish_reason", value.getFinishReason());
+    writeList(out, "choices", value.getChoices(), this::writeChoice);
+    writeField(out, "search_info", searchInfoAdapter, value.getSearchInfo());
+    writeField(out, "model_name", value.getModelName());
+  }
+
+  private void writeChoice(JsonWriter out, GenerationOutput.Choice choice) throws IOException {
+    out.beginObject();
+    writeField(out, "finish_reason", choice.getFinishReason());
+    writeField(out, "index", choice.getIndex());
+    writeField(out, "message", messageAdapter, choice.getMessage());
+    writeField(out, "logprobs", logprobsAdapter, choice.getLogprobs());
+    out.endObject();
+  }
+}
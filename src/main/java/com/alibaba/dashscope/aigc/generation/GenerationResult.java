@@ -2,8 +2,6 @@
 package com.alibaba.dashscope.aigc.generation;
 
 import com.alibaba.dashscope.common.DashScopeResult;
-import com.alibaba.dashscope.utils.JsonUtils;
-import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -27,15 +25,11 @@ public final class GenerationResult {
     result.setStatusCode(dashScopeResult.getStatusCode());
     result.setCode(dashScopeResult.getCode());
     result.setMessage(dashScopeResult.getMessage());
-    if (dashScopeResult.getUsage() != null) {
-      result.setUsage(
-          JsonUtils.fromJsonObject(
-              dashScopeResult.getUsage().getAsJsonObject(), GenerationUsage.class));
-    }
-    if (dashScopeResult.getOutput() != null) {
-      result.setOutput(
-          JsonUtils.fromJsonObject(
-              (JsonObject) dashScopeResult.getOutput(), GenerationOutput.class));
+    // decode straight into the typed objects, stream events skip the json tree.
+    result.setUsage(dashScopeResult.getUsageAs(GenerationUsage.class));
+    GenerationOutput output = dashScopeResult.getOutputAs(GenerationOutput.class);
+    if (output != null) {
+      result.setOutput(output);
     } else {
       log.error(String.format("Result no output: %s", dashScopeResult));
     }
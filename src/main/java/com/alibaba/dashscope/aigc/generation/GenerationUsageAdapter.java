@@ -0,0 +1,60 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.aigc.generation;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class GenerationUsageAdapter extends ObjectTypeAdapter<GenerationUsage> {
+  private final TypeAdapter<GenerationOutputTokenDetails> outputTokensDetailsAdapter;
+  private final TypeAdapter<GenerationUsage.PromptTokensDetails> promptTokensDetailsAdapter;
+
+  public GenerationUsageAdapter(Gson gson) {
+    this.outputTokensDetailsAdapter = gson.getAdapter(GenerationOutputTokenDetails.class);
+    this.promptTokensDetailsAdapter = gson.getAdapter(GenerationUsage.PromptTokensDetails.class);
+  }
+
+  @Override
+  protected GenerationUsage newInstance() {
+    return GenerationUsage.builder().build();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, GenerationUsage value)
+      throws IOException {
+    switch (name) {
+      case "input_tokens":
+        value.setInputTokens(readInteger(in));
+        return true;
+      case "output_tokens":
+        value.setOutputTokens(readInteger(in));
+        return true;
+      case "total_tokens":
+        value.setTotalTokens(readInteger(in));
+        return true;
+      case "output_tokens_details":
+        value.setOutputTokensDetails(outputTokensDetailsAdapter.read(in));
+        return true;
+      case "prompt_tokens_details":
+        value.setPromptTokensDetails(promptTokensDetailsAdapter.read(in));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, GenerationUsage value) throws IOException {
+    writeField(out, "input_tokens", value.getInputTokens());
+    writeField(out, "output_tokens", value.getOutputTokens());
+    writeField(out, "total_tokens", value.getTotalTokens());
+    writeField(
+        out, "output_tokens_details", outputTokensDetailsAdapter, value.getOutputTokensDetails());
+    writeField(
+        out, "prompt_tokens_details", promptTokensDetailsAdapter, value.getPromptTokensDetails());
+  }
+}
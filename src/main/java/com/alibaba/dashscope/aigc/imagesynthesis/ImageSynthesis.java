@@ -13,6 +13,9 @@ import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
 import com.alibaba.dashscope.task.AsyncTaskListParam;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 public final class ImageSynthesis {
   /** default task, function & taskGroup */
@@ -118,7 +121,7 @@ public final class ImageSynthesis {
     }catch (UploadFileException e){
       throw new ApiException(e);
     }
-    ApiServiceOption serviceOption = createServiceOptions;
+    ApiServiceOption serviceOption = createServiceOptions.toBuilder().build();
     if (param.getModel().contains("imageedit") || param.getModel().contains("wan2.5-i2i")) {
       serviceOption.setTask("image2image");
     }
@@ -138,7 +141,7 @@ public final class ImageSynthesis {
     }catch (UploadFileException e){
       throw new ApiException(e);
     }
-    ApiServiceOption serviceOption = createServiceOptions;
+    ApiServiceOption serviceOption = createServiceOptions.toBuilder().build();
     serviceOption.setIsAsyncTask(false);
     return ImageSynthesisResult.fromDashScopeResult(
             syncApi.call(param, serviceOption));
@@ -160,7 +163,7 @@ public final class ImageSynthesis {
     }catch (UploadFileException e){
       throw new ApiException(e);
     }
-    ApiServiceOption serviceOption = createServiceOptions;
+    ApiServiceOption serviceOption = createServiceOptions.toBuilder().build();
     if (param.getModel().contains("imageedit") || param.getModel().contains("wan2.5-i2i")) {
       serviceOption.setTask("image2image");
     }
@@ -168,6 +171,46 @@ public final class ImageSynthesis {
             asyncApi.call(param, serviceOption));
   }
 
+  /**
+   * Create the task and wait for its result without holding a thread, the task is polled by the
+   * shared `TaskPoller`.
+   *
+   * @param param The input param of class `ImageSynthesisParam`.
+   * @return Completes with the image synthesis result, canceling it stops polling.
+   * @throws NoApiKeyException Can not find api key.
+   * @throws ApiException The request can not be built or the file upload failed.
+   */
+  public CompletableFuture<ImageSynthesisResult> callAsync(ImageSynthesisParam param)
+      throws ApiException, NoApiKeyException {
+    return callAsync(param, null);
+  }
+
+  /**
+   * Create the task and wait for its result without holding a thread.
+   *
+   * @param param The input param of class `ImageSynthesisParam`.
+   * @param timeout Fail if the task is not finished in time, null to wait until it finishes.
+   * @return Completes with the image synthesis result, canceling it stops polling.
+   * @throws NoApiKeyException Can not find api key.
+   * @throws ApiException The request can not be built or the file upload failed.
+   */
+  public CompletableFuture<ImageSynthesisResult> callAsync(
+      ImageSynthesisParam param, Duration timeout) throws ApiException, NoApiKeyException {
+    // add local file support
+    try {
+      param.checkAndUpload();
+    } catch (UploadFileException e) {
+      throw new ApiException(e);
+    }
+    ApiServiceOption serviceOption = createServiceOptions.toBuilder().build();
+    if (param.getModel().contains("imageedit") || param.getModel().contains("wan2.5-i2i")) {
+      serviceOption.setTask("image2image");
+    }
+    return FutureUtils.map(
+        asyncApi.callAsync(param, serviceOption, timeout),
+        ImageSynthesisResult::fromDashScopeResult);
+  }
+
   /**
    * @param param The input param of class `SketchImageSynthesisParam`
    * @return The image synthesis result `ImageSynthesisResult`
@@ -8,8 +8,11 @@ import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.exception.UploadFileException;
 import com.alibaba.dashscope.protocol.*;
+import com.alibaba.dashscope.utils.FutureUtils;
 import com.alibaba.dashscope.utils.PreprocessMessageInput;
 import io.reactivex.Flowable;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -78,10 +81,45 @@ public final class MultiModalConversation {
    */
   public MultiModalConversationResult call(MultiModalConversationParam param)
       throws ApiException, NoApiKeyException, UploadFileException {
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
     preprocessInput(param);
-    return MultiModalConversationResult.fromDashScopeResult(syncApi.call(param));
+    return MultiModalConversationResult.fromDashScopeResult(syncApi.call(param, option));
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `MultiModalConversationParam`.
+   * @return Completes with the `MultiModalConversationResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws UploadFileException File upload failed.
+   */
+  public CompletableFuture<MultiModalConversationResult> callAsync(
+      MultiModalConversationParam param)
+      throws ApiException, NoApiKeyException, UploadFileException {
+    return callAsync(param, null);
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `MultiModalConversationParam`.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the `MultiModalConversationResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws UploadFileException File upload failed.
+   */
+  public CompletableFuture<MultiModalConversationResult> callAsync(
+      MultiModalConversationParam param, Duration timeout)
+      throws ApiException, NoApiKeyException, UploadFileException {
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    // local files are uploaded before the call is sent.
+    preprocessInput(param);
+    return FutureUtils.map(
+        syncApi.callAsync(param, option, timeout),
+        MultiModalConversationResult::fromDashScopeResult);
   }
 
   /**
@@ -97,11 +135,11 @@ public final class MultiModalConversation {
   public void call(
       MultiModalConversationParam param, ResultCallback<MultiModalConversationResult> callback)
       throws ApiException, NoApiKeyException, UploadFileException {
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
     preprocessInput(param);
     syncApi.call(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult message) {
@@ -131,8 +169,7 @@ public final class MultiModalConversation {
    */
   public Flowable<MultiModalConversationResult> streamCall(MultiModalConversationParam param)
       throws ApiException, NoApiKeyException, UploadFileException {
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
     preprocessInput(param);
     return syncApi
         .streamCall(param)
@@ -153,11 +190,11 @@ public final class MultiModalConversation {
       MultiModalConversationParam param, ResultCallback<MultiModalConversationResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException, UploadFileException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.OUT, true);
     preprocessInput(param);
     syncApi.streamCall(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult msg) {
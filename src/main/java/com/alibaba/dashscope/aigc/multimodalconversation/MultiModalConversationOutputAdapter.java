@@ -0,0 +1,85 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.aigc.multimodalconversation;
+
+import com.alibaba.dashscope.common.MultiModalMessage;
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class MultiModalConversationOutputAdapter
+    extends ObjectTypeAdapter<MultiModalConversationOutput> {
+  private final TypeAdapter<MultiModalMessage> messageAdapter;
+  private final TypeAdapter<AudioResult> audioAdapter;
+
+  public MultiModalConversationOutputAdapter(Gson gson) {
+    this.messageAdapter = gson.getAdapter(MultiModalMessage.class);
+    this.audioAdapter = gson.getAdapter(AudioResult.class);
+  }
+
+  @Override
+  protected MultiModalConversationOutput newInstance() {
+    return new MultiModalConversationOutput();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, MultiModalConversationOutput value)
+      throws IOException {
+    switch (name) {
+      case "choices":
+        value.setChoices(readList(in, this::readChoice));
+        return true;
+      case "audio":
+        value.setAudio(audioAdapter.read(in));
+        return true;
+      case "finish_reason":
+        value.setFinishReason(readString(in));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private MultiModalConversationOutput.Choice readChoice(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    MultiModalConversationOutput.Choice choice = new MultiModalConversationOutput.Choice();
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "finish_reason":
+          choice.setFinishReason(readString(in));
+          break;
+        case "message":
+          choice.setMessage(messageAdapter.read(in));
+          break;
+        default:
+          in.skipValue();
+      }
+    }
+    in.endObject();
+    return choice;
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, MultiModalConversationOutput value)
+      throws IOException {
+    writeList(out, "choices", value.getChoices(), this::writeChoice);
+    writeField(out, "audio", audioAdapter, value.getAudio());
+    writeField(out, "finish_reason", value.getFinishReason());
+  }
+
+  private void writeChoice(JsonWriter out, MultiModalConversationOutput.Choice choice)
+      throws IOException {
+    out.beginObject();
+    writeField(out, "finish_reason", choice.getFinishReason());
+    writeField(out, "message", messageAdapter, choice.getMessage());
+    out.endObject();
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.aigc.multimodalconversation;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class MultiModalConversationUsageAdapter
+    extends ObjectTypeAdapter<MultiModalConversationUsage> {
+  private final TypeAdapter<MultiModalConversationTokensDetails> tokensDetailsAdapter;
+
+  public MultiModalConversationUsageAdapter(Gson gson) {
+    this.tokensDetailsAdapter = gson.getAdapter(MultiModalConversationTokensDetails.class);
+  }
+
+  @Override
+  protected MultiModalConversationUsage newInstance() {
+    return new MultiModalConversationUsage();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, MultiModalConversationUsage value)
+      throws IOException {
+    switch (name) {
+      case "input_tokens":
+        value.setInputTokens(readInteger(in));
+        return true;
+      case "output_tokens":
+        value.setOutputTokens(readInteger(in));
+        return true;
+      case "total_tokens":
+        value.setTotalTokens(readInteger(in));
+        return true;
+      case "image_tokens":
+        value.setImageTokens(readInteger(in));
+        return true;
+      case "video_tokens":
+        value.setVideoTokens(readInteger(in));
+        return true;
+      case "audio_tokens":
+        value.setAudioTokens(readInteger(in));
+        return true;
+      case "image_count":
+        value.setImageCount(readInteger(in));
+        return true;
+      case "width":
+        value.setWidth(readInteger(in));
+        return true;
+      case "height":
+        value.setHeight(readInteger(in));
+        return true;
+      case "seconds":
+        value.setSeconds(readInteger(in));
+        return true;
+      case "input_tokens_details":
+        value.setInputTokensDetails(tokensDetailsAdapter.read(in));
+        return true;
+      case "output_tokens_details":
+        value.setOutputTokensDetails(tokensDetailsAdapter.read(in));
+        return true;
+      case "characters":
+        value.setCharacters(readInteger(in));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, MultiModalConversationUsage value)
+      throws IOException {
+    writeField(out, "input_tokens", value.getInputTokens());
+    writeField(out, "output_tokens", value.getOutputTokens());
+    writeField(out, "total_tokens", value.getTotalTokens());
+    writeField(out, "image_tokens", value.getImageTokens());
+    writeField(out, "video_tokens", value.getVideoTokens());
+    writeField(out, "audio_tokens", value.getAudioTokens());
+    writeField(out, "image_count", value.getImageCount());
+    writeField(out, "width", value.getWidth());
+    writeField(out, "height", value.getHeight());
+    writeField(out, "seconds", value.getSeconds());
+    writeField(out, "input_tokens_details", tokensDetailsAdapter, value.getInputTokensDetails());
+    writeField(out, "output_tokens_details", tokensDetailsAdapter, value.getOutputTokensDetails());
+    writeField(out, "characters", value.getCharacters());
+  }
+}
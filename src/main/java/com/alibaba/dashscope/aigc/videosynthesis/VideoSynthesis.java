@@ -138,7 +138,7 @@ public final class VideoSynthesis {
     }catch (UploadFileException e){
       throw new InputRequiredException(e.getMessage());
     }
-    ApiServiceOption serviceOption = createServiceOptions;
+    ApiServiceOption serviceOption = createServiceOptions.toBuilder().build();
     if (param.getModel().contains("kf2v")) {
       serviceOption.setTask("image2video");
     }
@@ -164,7 +164,7 @@ public final class VideoSynthesis {
     }catch (UploadFileException e){
       throw new InputRequiredException(e.getMessage());
     }
-    ApiServiceOption serviceOption = createServiceOptions;
+    ApiServiceOption serviceOption = createServiceOptions.toBuilder().build();
     if (param.getModel().contains("kf2v")) {
       serviceOption.setTask("image2video");
     }
@@ -2,20 +2,19 @@
 
 package com.alibaba.dashscope.api;
 
-import static com.alibaba.dashscope.utils.ApiKeywords.TASK_STATUS;
-
 import com.alibaba.dashscope.base.HalfDuplexParamBase;
 import com.alibaba.dashscope.common.DashScopeResult;
-import com.alibaba.dashscope.common.TaskStatus;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.task.AsyncTaskListParam;
 import com.alibaba.dashscope.task.AsyncTaskParam;
 import com.google.gson.JsonObject;
-import java.net.HttpURLConnection;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /** Support DashScope async task CRUD. */
 public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
@@ -24,7 +23,7 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
 
   /** Create default http client. */
   public AsynchronousApi() {
-    this.client = ClientProviders.getHalfDuplexClient("https");
+    this.client = ClientProviders.getHalfDuplexClient(ClientProfile.TASK, null, "https");
     this.connectionOptions = null;
   }
 
@@ -34,7 +33,8 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
    * @param connectionOptions The client option.
    */
   public AsynchronousApi(ConnectionOptions connectionOptions) {
-    this.client = ClientProviders.getHalfDuplexClient(connectionOptions, "https");
+    this.client =
+        ClientProviders.getHalfDuplexClient(ClientProfile.TASK, connectionOptions, "https");
     this.connectionOptions = connectionOptions;
   }
 
@@ -50,7 +50,99 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
   public DashScopeResult call(ParamT param, ServiceOption serviceOption)
       throws ApiException, NoApiKeyException {
     DashScopeResult task = this.asyncCall(param, serviceOption);
-    return this.wait(getTaskId(task), param.getApiKey(), serviceOption.getBaseHttpUrl());
+    return await(
+        TaskPoller.getInstance()
+            .poll(
+                client,
+                getTaskId(task),
+                param.getApiKey(),
+                serviceOption.getBaseHttpUrl(),
+                null,
+                modelOf(param),
+                null));
+  }
+
+  /**
+   * Create the async task and wait for its result, without blocking a thread.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option.
+   * @return Completes with the task result, see {@link TaskPoller}. Canceling it stops polling.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(ParamT param, ServiceOption serviceOption)
+      throws ApiException, NoApiKeyException {
+    return callAsync(param, serviceOption, null);
+  }
+
+  /**
+   * Create the async task and wait for its result, without blocking a thread.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option.
+   * @param timeout Fail if the task is not finished in time, null to wait until it finishes.
+   * @return Completes with the task result, see {@link TaskPoller}. Canceling it stops polling.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(
+      ParamT param, ServiceOption serviceOption, Duration timeout)
+      throws ApiException, NoApiKeyException {
+    long start = System.currentTimeMillis();
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
+    // measured from the task creation to its result.
+    MeteredCall metered = MeteredCall.of(req, false);
+    CompletableFuture<DashScopeResult> task;
+    try {
+      task = client.sendAsync(req, timeout);
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
+    CompletableFuture<DashScopeResult> result = metered.meter(new CompletableFuture<>());
+    result.whenComplete(
+        (r, e) -> {
+          if (result.isCancelled()) {
+            task.cancel(false);
+          }
+        });
+    task.whenComplete(
+        (created, error) -> {
+          if (error != null) {
+            result.completeExceptionally(error);
+            return;
+          }
+          CompletableFuture<DashScopeResult> polled;
+          try {
+            polled =
+                TaskPoller.getInstance()
+                    .poll(
+                        client,
+                        getTaskId(created),
+                        param.getApiKey(),
+                        serviceOption.getBaseHttpUrl(),
+                        null,
+                        modelOf(param),
+                        timeout == null
+                            ? null
+                            : timeout.minusMillis(System.currentTimeMillis() - start));
+          } catch (Exception e) {
+            result.completeExceptionally(new ApiException(e));
+            return;
+          }
+          // canceling the result stops polling.
+          result.whenComplete((r, e) -> polled.cancel(false));
+          polled.whenComplete(
+              (r, e) -> {
+                if (e != null) {
+                  result.completeExceptionally(e);
+                } else {
+                  result.complete(r);
+                }
+              });
+        });
+    return result;
   }
 
   /**
@@ -65,7 +157,13 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
   public DashScopeResult asyncCall(ParamT param, ServiceOption serviceOption)
       throws ApiException, NoApiKeyException {
     HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
-    return client.send(req);
+    MeteredCall metered = MeteredCall.of(req, false);
+    try {
+      return metered.completed(client.send(req));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -82,55 +180,47 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
   public DashScopeResult wait(
       String taskId, String apiKey, String baseUrl, Map<String, String> customHeaders)
       throws ApiException, NoApiKeyException {
-    AsyncTaskOption serviceOption =
-        AsyncTaskOption.builder()
-            .protocol(Protocol.HTTP)
-            .httpMethod(HttpMethod.GET)
-            .url(String.format("/tasks/%s", taskId))
-            .baseHttpUrl(baseUrl)
-            .build();
+    return await(waitAsync(taskId, apiKey, baseUrl, customHeaders));
+  }
 
-    AsyncTaskParam getParam =
-        AsyncTaskParam.builder().taskId(taskId).apiKey(apiKey).headers(customHeaders).build();
-    HalfDuplexRequest req = new HalfDuplexRequest(getParam, serviceOption);
-    int waitMilliseconds = 1000;
-    int maxWaitMilliseconds = 5 * 1000;
-    int incrementSteps = 3;
-    int step = 0;
-    while (true) {
-      try {
-        DashScopeResult taskResult = client.send(req);
-        JsonObject output = (JsonObject) taskResult.getOutput();
-        String taskStatus =
-            output.get(TASK_STATUS) == null ? null : output.get(TASK_STATUS).getAsString();
-        if (TaskStatus.FAILED.getValue().equals(taskStatus)
-            || TaskStatus.CANCELED.getValue().equals(taskStatus)
-            || TaskStatus.UNKNOWN.getValue().equals(taskStatus)) {
-          return taskResult;
-        } else if (TaskStatus.SUCCEEDED.getValue().equals(taskStatus)) {
-          return taskResult;
-        } else {
-          // we start by querying once every second, and double the query interval after
-          // every 3(increment_steps) intervals, until we hit the max waiting interval of 5(seconds）
-          // TODO: investigate if we can use long-poll (server side return immediately when ready)
-          step += 1;
-          if (waitMilliseconds < maxWaitMilliseconds && step % incrementSteps == 0) {
-            waitMilliseconds =
-                waitMilliseconds * 2 > maxWaitMilliseconds
-                    ? maxWaitMilliseconds
-                    : waitMilliseconds * 2;
-          }
-          try {
-            Thread.sleep(waitMilliseconds);
-          } catch (InterruptedException ignored) {
-          }
-        }
-      } catch (ApiException e) {
-        if (e.getStatus().getStatusCode() != HttpURLConnection.HTTP_UNAVAILABLE
-            && e.getStatus().getStatusCode() != HttpURLConnection.HTTP_GATEWAY_TIMEOUT) {
-          throw e;
-        }
+  /**
+   * Wait for async task completed without blocking a thread, the task is polled by the shared
+   * {@link TaskPoller}.
+   *
+   * @param taskId The async task id.
+   * @param apiKey The api-key.
+   * @param baseUrl The base http url.
+   * @param customHeaders The custom headers.
+   * @return Completes with the task result, cancel it to stop polling.
+   */
+  public CompletableFuture<DashScopeResult> waitAsync(
+      String taskId, String apiKey, String baseUrl, Map<String, String> customHeaders) {
+    return TaskPoller.getInstance()
+        .poll(client, taskId, apiKey, baseUrl, customHeaders, null, null);
+  }
+
+  private static String modelOf(HalfDuplexParamBase param) {
+    try {
+      return param.getModel();
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  private static DashScopeResult await(CompletableFuture<DashScopeResult> future)
+      throws ApiException, NoApiKeyException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(false);
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof NoApiKeyException) {
+        throw (NoApiKeyException) cause;
       }
+      throw cause instanceof ApiException ? (ApiException) cause : new ApiException(cause);
     }
   }
 
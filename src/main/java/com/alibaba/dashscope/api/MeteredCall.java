@@ -0,0 +1,206 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.api;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ErrorType;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.SdkMetrics;
+import com.alibaba.dashscope.protocol.SdkMetrics.Tags;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonObject;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The metrics of one call in `Constants.sdkMetrics`: its latency and error, the first token and
+ * inter-token latency of streams, and the usage of its last result. Without metrics it does
+ * nothing.
+ */
+@Slf4j
+final class MeteredCall {
+  private static final MeteredCall DISABLED = new MeteredCall(null, null, false);
+
+  private final SdkMetrics metrics;
+  private final Tags tags;
+  private final boolean stream;
+  private final long startedAt = System.nanoTime();
+  private final AtomicBoolean finished = new AtomicBoolean(false);
+  // the results of a call arrive one after the other.
+  private volatile boolean received = false;
+  private volatile long receivedAt;
+  private volatile JsonObject usage;
+
+  private MeteredCall(SdkMetrics metrics, Tags tags, boolean stream) {
+    this.metrics = metrics;
+    this.tags = tags;
+    this.stream = stream;
+  }
+
+  static MeteredCall of(HalfDuplexRequest req, boolean stream) {
+    SdkMetrics metrics = Constants.sdkMetrics;
+    return metrics == null ? DISABLED : new MeteredCall(metrics, Tags.of(req, stream), stream);
+  }
+
+  static MeteredCall of(FullDuplexRequest req, boolean stream) {
+    SdkMetrics metrics = Constants.sdkMetrics;
+    return metrics == null ? DISABLED : new MeteredCall(metrics, Tags.of(req), stream);
+  }
+
+  void onResult(DashScopeResult result) {
+    if (metrics == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    if (stream) {
+      if (received) {
+        metrics.interTokenLatency(tags, Duration.ofNanos(now - receivedAt));
+      } else {
+        metrics.firstToken(tags, Duration.ofNanos(now - startedAt));
+      }
+    }
+    received = true;
+    receivedAt = now;
+    try {
+      JsonObject resultUsage = result.getUsageAs(JsonObject.class);
+      if (resultUsage != null) {
+        usage = resultUsage;
+      }
+    } catch (RuntimeException e) {
+      log.debug("Read usage for metrics failed: {}", e.getMessage());
+    }
+  }
+
+  void completed() {
+    finish(null);
+  }
+
+  /** Record the result of a call with one result. */
+  DashScopeResult completed(DashScopeResult result) {
+    onResult(result);
+    finish(null);
+    return result;
+  }
+
+  void failed(Throwable e) {
+    if (metrics != null) {
+      finish(errorCode(e));
+    }
+  }
+
+  /**
+   * Record the call of a future once it completes, a cancelled one fails with `request_cancelled`.
+   */
+  CompletableFuture<DashScopeResult> meter(CompletableFuture<DashScopeResult> future) {
+    if (metrics != null) {
+      future.whenComplete(
+          (result, e) -> {
+            if (e != null) {
+              failed(e);
+            } else {
+              completed(result);
+            }
+          });
+    }
+    return future;
+  }
+
+  /** Record the results of a flowable, a cancelled one fails with `request_cancelled`. */
+  Flowable<DashScopeResult> meter(Flowable<DashScopeResult> flowable) {
+    if (metrics == null) {
+      return flowable;
+    }
+    return flowable
+        .doOnNext(this::onResult)
+        .doOnError(this::failed)
+        .doOnComplete(this::completed)
+        .doOnCancel(() -> finish(ErrorType.REQUEST_CANCELLED.getValue()));
+  }
+
+  ResultCallback<DashScopeResult> wrap(ResultCallback<DashScopeResult> callback) {
+    if (metrics == null) {
+      return callback;
+    }
+    return new ResultCallback<DashScopeResult>() {
+      @Override
+      public void onOpen(Status status) {
+        callback.onOpen(status);
+      }
+
+      @Override
+      public void onEvent(DashScopeResult message) {
+        onResult(message);
+        callback.onEvent(message);
+      }
+
+      @Override
+      public void onComplete() {
+        completed();
+        callback.onComplete();
+      }
+
+      @Override
+      public void onError(Exception e) {
+        failed(e);
+        callback.onError(e);
+      }
+    };
+  }
+
+  private void finish(String errorCode) {
+    if (metrics == null || !finished.compareAndSet(false, true)) {
+      return;
+    }
+    metrics.requestFinished(tags, errorCode, Duration.ofNanos(System.nanoTime() - startedAt));
+    JsonObject lastUsage = usage;
+    if (lastUsage == null) {
+      return;
+    }
+    int input = JsonUtils.getInt(lastUsage, "input_tokens", -1);
+    int output = JsonUtils.getInt(lastUsage, "output_tokens", -1);
+    if (input < 0 && output < 0) {
+      // embeddings and rerank only report their total tokens.
+      input = JsonUtils.getInt(lastUsage, "total_tokens", -1);
+    }
+    if (input >= 0 || output >= 0) {
+      metrics.tokenUsage(tags, Math.max(input, 0), Math.max(output, 0));
+    }
+  }
+
+  /**
+   * The code of the status of an error, network errors are `network error`, cancelled calls are
+   * `request_cancelled`.
+   */
+  private static String errorCode(Throwable e) {
+    Throwable error = e;
+    while (error.getCause() != null
+        && !(error instanceof ApiException)
+        && !(error instanceof CancellationException)) {
+      error = error.getCause();
+    }
+    if (error instanceof CancellationException) {
+      return ErrorType.REQUEST_CANCELLED.getValue();
+    }
+    if (error instanceof ApiException && ((ApiException) error).getStatus() != null) {
+      Status status = ((ApiException) error).getStatus();
+      if (status.getCode() != null && !status.getCode().isEmpty()) {
+        return status.getCode();
+      }
+      return String.valueOf(status.getStatusCode());
+    }
+    if (error instanceof IOException) {
+      return ErrorType.NETWORK_ERROR.getValue();
+    }
+    return ErrorType.UNKNOWN_ERROR.getValue();
+  }
+}
@@ -68,7 +68,13 @@ public final class SynchronizeFullDuplexApi<ParamT extends FullDuplexServicePara
    */
   public DashScopeResult streamIn(ParamT param) throws ApiException, NoApiKeyException {
     FullDuplexRequest req = new FullDuplexRequest(param, serviceOptions);
-    return client.streamIn(req);
+    MeteredCall metered = MeteredCall.of(req, false);
+    try {
+      return metered.completed(client.streamIn(req));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -82,7 +88,13 @@ public final class SynchronizeFullDuplexApi<ParamT extends FullDuplexServicePara
   public void streamIn(ParamT param, ResultCallback<DashScopeResult> callback)
       throws ApiException, NoApiKeyException {
     FullDuplexRequest req = new FullDuplexRequest(param, serviceOptions);
-    client.streamIn(req, callback);
+    MeteredCall metered = MeteredCall.of(req, false);
+    try {
+      client.streamIn(req, metered.wrap(callback));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -95,7 +107,13 @@ public final class SynchronizeFullDuplexApi<ParamT extends FullDuplexServicePara
    */
   public Flowable<DashScopeResult> duplexCall(ParamT param) throws ApiException, NoApiKeyException {
     FullDuplexRequest req = new FullDuplexRequest(param, serviceOptions);
-    return client.duplex(req);
+    MeteredCall metered = MeteredCall.of(req, true);
+    try {
+      return metered.meter(client.duplex(req));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -109,6 +127,12 @@ public final class SynchronizeFullDuplexApi<ParamT extends FullDuplexServicePara
   public void duplexCall(ParamT param, ResultCallback<DashScopeResult> callback)
       throws ApiException, NoApiKeyException {
     FullDuplexRequest req = new FullDuplexRequest(param, serviceOptions);
-    client.duplex(req, callback);
+    MeteredCall metered = MeteredCall.of(req, true);
+    try {
+      client.duplex(req, metered.wrap(callback));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 }
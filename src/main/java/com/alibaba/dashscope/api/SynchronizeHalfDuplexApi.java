@@ -7,12 +7,15 @@ import com.alibaba.dashscope.common.DashScopeResult;
 import com.alibaba.dashscope.common.ResultCallback;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ClientProfile;
 import com.alibaba.dashscope.protocol.ClientProviders;
 import com.alibaba.dashscope.protocol.ConnectionOptions;
 import com.alibaba.dashscope.protocol.HalfDuplexClient;
 import com.alibaba.dashscope.protocol.HalfDuplexRequest;
 import com.alibaba.dashscope.protocol.ServiceOption;
 import io.reactivex.Flowable;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 /** Dashscope synchronize half duplex request processing, both http and websocket support. */
 public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase> {
@@ -25,7 +28,9 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
    * @param serviceOptions The service option.
    */
   public SynchronizeHalfDuplexApi(ServiceOption serviceOptions) {
-    this.client = ClientProviders.getHalfDuplexClient(serviceOptions.getProtocol().getValue());
+    this.client =
+        ClientProviders.getHalfDuplexClient(
+            ClientProfile.of(serviceOptions), null, serviceOptions.getProtocol().getValue());
     this.connectionOptions = null;
     this.serviceOptions = serviceOptions;
   }
@@ -40,7 +45,9 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
       ConnectionOptions connectionOptions, ServiceOption serviceOptions) {
     this.client =
         ClientProviders.getHalfDuplexClient(
-            connectionOptions, serviceOptions.getProtocol().getValue());
+            ClientProfile.of(serviceOptions),
+            connectionOptions,
+            serviceOptions.getProtocol().getValue());
     this.connectionOptions = connectionOptions;
     this.serviceOptions = serviceOptions;
   }
@@ -54,8 +61,66 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
    * @throws ApiException The request failed, possibly due to a network or data error.
    */
   public DashScopeResult call(ParamT param) throws ApiException, NoApiKeyException {
-    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOptions);
-    return client.send(req);
+    return call(param, serviceOptions);
+  }
+
+  /**
+   * Call the server to get the whole result, with the service option of this call.
+   *
+   * @param param The input param, should be the subclass of `ConversationParam`.
+   * @param serviceOption The service option of the call, not changed by the call.
+   * @return The output structure, should be the subclass of `ConversationResult`.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request failed, possibly due to a network or data error.
+   */
+  public DashScopeResult call(ParamT param, ServiceOption serviceOption)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
+    MeteredCall metered = MeteredCall.of(req, false);
+    try {
+      return metered.completed(client.send(req));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Call the server without holding a thread until the response.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the output structure, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(ParamT param, Duration timeout)
+      throws ApiException, NoApiKeyException {
+    return callAsync(param, serviceOptions, timeout);
+  }
+
+  /**
+   * Call the server without holding a thread until the response, with the service option of this
+   * call.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option of the call, not changed by the call.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the output structure, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(
+      ParamT param, ServiceOption serviceOption, Duration timeout)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
+    MeteredCall metered = MeteredCall.of(req, false);
+    try {
+      return metered.meter(client.sendAsync(req, timeout));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -68,8 +133,30 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
    */
   public void call(ParamT param, ResultCallback<DashScopeResult> callback)
       throws ApiException, NoApiKeyException {
-    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOptions);
-    client.send(req, callback);
+    call(param, serviceOptions, callback);
+  }
+
+  /**
+   * Call the server to get the result in the callback function, with the service option of this
+   * call.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option of the call, not changed by the call.
+   * @param callback The callback to receive response, should be the subclass of `Result`.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request failed, possibly due to a network or data error.
+   */
+  public void call(
+      ParamT param, ServiceOption serviceOption, ResultCallback<DashScopeResult> callback)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
+    MeteredCall metered = MeteredCall.of(req, false);
+    try {
+      client.send(req, metered.wrap(callback));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -81,8 +168,28 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
    * @throws ApiException The request failed, possibly due to a network or data error.
    */
   public Flowable<DashScopeResult> streamCall(ParamT param) throws ApiException, NoApiKeyException {
-    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOptions);
-    return client.streamOut(req);
+    return streamCall(param, serviceOptions);
+  }
+
+  /**
+   * Call the server to get the result by stream, with the service option of this call.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option of the call, not changed by the call.
+   * @return A `Flowable` of the output structure, which is the subclass of `Result`.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request failed, possibly due to a network or data error.
+   */
+  public Flowable<DashScopeResult> streamCall(ParamT param, ServiceOption serviceOption)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
+    MeteredCall metered = MeteredCall.of(req, true);
+    try {
+      return metered.meter(client.streamOut(req));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   /**
@@ -95,8 +202,29 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
    */
   public void streamCall(ParamT param, ResultCallback<DashScopeResult> callback)
       throws ApiException, NoApiKeyException {
-    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOptions);
-    client.streamOut(req, callback);
+    streamCall(param, serviceOptions, callback);
+  }
+
+  /**
+   * Call the server to get the result by stream, with the service option of this call.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option of the call, not changed by the call.
+   * @param callback The result callback.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request failed, possibly due to a network or data error.
+   */
+  public void streamCall(
+      ParamT param, ServiceOption serviceOption, ResultCallback<DashScopeResult> callback)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOption);
+    MeteredCall metered = MeteredCall.of(req, true);
+    try {
+      client.streamOut(req, metered.wrap(callback));
+    } catch (RuntimeException | NoApiKeyException e) {
+      metered.failed(e);
+      throw e;
+    }
   }
 
   public boolean close(int code, String reason) {
@@ -0,0 +1,404 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.api;
+
+import static com.alibaba.dashscope.utils.ApiKeywords.TASK_STATUS;
+
+import com.alibaba.dashscope.common.AsyncTaskInfo;
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.common.TaskStatus;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.AsyncTaskOption;
+import com.alibaba.dashscope.protocol.HalfDuplexClient;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.task.AsyncTaskListParam;
+import com.alibaba.dashscope.task.AsyncTaskListResult;
+import com.alibaba.dashscope.task.AsyncTaskParam;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.net.HttpURLConnection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Polls async tasks until they finish, for all tasks of the process on one scheduler thread.
+ * Requests are sent with the non-blocking client and their results are handled back on the
+ * scheduler, so no thread is parked per task.
+ *
+ * <p>Each task is polled every second, doubling every 3 polls up to 5 seconds. The first poll of a
+ * task waits 3/4 of the average duration of its model, once some tasks of the model finished. When
+ * many tasks of the same model and api key are due, one list request filtered by SUCCEEDED status
+ * finds the finished ones and only those are fetched. The list is read up to 3 pages, tasks it may
+ * hide beyond them are fetched directly. List requests do not show failed tasks, so every task is
+ * still fetched at least every 30 seconds.
+ */
+@Slf4j
+public final class TaskPoller {
+  private static final long TICK_MILLIS = 200;
+  private static final long MIN_INTERVAL_MILLIS = 1000;
+  private static final long MAX_INTERVAL_MILLIS = 5 * 1000;
+  private static final int INCREMENT_STEPS = 3;
+  private static final int LIST_THRESHOLD = 4;
+  private static final int LIST_PAGE_SIZE = 100;
+  private static final int MAX_LIST_PAGES = 3;
+  private static final long MAX_UNFETCHED_MILLIS = 30 * 1000;
+
+  private final ScheduledExecutorService scheduler;
+  // tasks and models are only changed on the scheduler thread.
+  private final Set<PolledTask> tasks = ConcurrentHashMap.newKeySet();
+  private final Map<String, Long> modelDurations = new HashMap<>();
+
+  private static class Holder {
+    private static final TaskPoller INSTANCE = new TaskPoller();
+  }
+
+  /**
+   * The process wide poller.
+   *
+   * @return The shared poller.
+   */
+  public static TaskPoller getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  private TaskPoller() {
+    scheduler = SdkExecutors.newScheduler("dashscope-task-poller");
+    scheduler.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * The number of tasks being polled.
+   *
+   * @return The number of outstanding tasks.
+   */
+  public int getPendingTasks() {
+    return tasks.size();
+  }
+
+  /**
+   * Start polling a task.
+   *
+   * @param client The client the task requests are sent with.
+   * @param taskId The async task id.
+   * @param apiKey The api key.
+   * @param baseUrl The base http url.
+   * @param customHeaders The custom headers.
+   * @param model The model of the task, null if unknown.
+   * @param timeout Stop polling and fail after this long, null to poll until the task finishes.
+   * @return Completes with the task result once the task succeeded, failed or was canceled, or
+   *     exceptionally if a poll request failed. Cancel it to stop polling.
+   */
+  CompletableFuture<DashScopeResult> poll(
+      HalfDuplexClient client,
+      String taskId,
+      String apiKey,
+      String baseUrl,
+      Map<String, String> customHeaders,
+      String model,
+      Duration timeout) {
+    PolledTask task =
+        new PolledTask(
+            taskId,
+            new GroupKey(
+                client,
+                apiKey,
+                baseUrl,
+                customHeaders == null ? new HashMap<>() : customHeaders,
+                model == null ? "" : model),
+            System.currentTimeMillis());
+    if (timeout != null) {
+      task.deadline = task.submittedAt + timeout.toMillis();
+    }
+    scheduler.execute(
+        () -> {
+          Long duration = modelDurations.get(task.group.model);
+          long delay = duration == null ? 0 : duration * 3 / 4;
+          task.nextPollAt = task.submittedAt + Math.max(MIN_INTERVAL_MILLIS, delay);
+          tasks.add(task);
+        });
+    return task.future;
+  }
+
+  private void tick() {
+    try {
+      long now = System.currentTimeMillis();
+      Map<GroupKey, List<PolledTask>> due = new HashMap<>();
+      for (Iterator<PolledTask> it = tasks.iterator(); it.hasNext(); ) {
+        PolledTask task = it.next();
+        if (task.future.isDone()) {
+          // canceled by the caller.
+          it.remove();
+        } else if (task.deadline <= now) {
+          it.remove();
+          task.future.completeExceptionally(
+              new ApiException(
+                  new TimeoutException(
+                      String.format("Task %s not finished in time.", task.taskId))));
+        } else if (!task.inFlight && task.nextPollAt <= now) {
+          due.computeIfAbsent(task.group, k -> new ArrayList<>()).add(task);
+        }
+      }
+      for (Map.Entry<GroupKey, List<PolledTask>> entry : due.entrySet()) {
+        List<PolledTask> listed = new ArrayList<>();
+        for (PolledTask task : entry.getValue()) {
+          if (entry.getValue().size() < LIST_THRESHOLD
+              || task.lastFetchAt + MAX_UNFETCHED_MILLIS <= now) {
+            fetch(task);
+          } else {
+            listed.add(task);
+          }
+        }
+        if (!listed.isEmpty()) {
+          for (PolledTask task : listed) {
+            task.inFlight = true;
+          }
+          list(entry.getKey(), listed, 1);
+        }
+      }
+    } catch (Throwable e) {
+      log.error("Poll tasks failed: " + e.getMessage(), e);
+    }
+  }
+
+  private void fetch(PolledTask task) {
+    task.inFlight = true;
+    task.lastFetchAt = System.currentTimeMillis();
+    GroupKey group = task.group;
+    HalfDuplexRequest req =
+        new HalfDuplexRequest(
+            AsyncTaskParam.builder()
+                .taskId(task.taskId)
+                .apiKey(group.apiKey)
+                .headers(group.headers)
+                .build(),
+            AsyncTaskOption.builder()
+                .protocol(Protocol.HTTP)
+                .httpMethod(HttpMethod.GET)
+                .url(String.format("/tasks/%s", task.taskId))
+                .baseHttpUrl(group.baseUrl)
+                .build());
+    send(
+        group.client,
+        req,
+        Collections.singletonList(task),
+        result -> onFetched(task, result),
+        e -> {
+          task.inFlight = false;
+          if (isRetryable(e)) {
+            reschedule(task);
+          } else {
+            complete(task, null, e);
+          }
+        });
+  }
+
+  /** Look for the listed tasks, which are in flight, in a page of the succeeded tasks. */
+  private void list(GroupKey group, List<PolledTask> listed, int pageNo) {
+    HalfDuplexRequest req =
+        new HalfDuplexRequest(
+            AsyncTaskListParam.builder()
+                .apiKey(group.apiKey)
+                .headers(group.headers)
+                .modelName(group.model.isEmpty() ? null : group.model)
+                .status(TaskStatus.SUCCEEDED.getValue())
+                .pageNo(pageNo)
+                .pageSize(LIST_PAGE_SIZE)
+                .build(),
+            AsyncTaskOption.builder()
+                .baseHttpUrl(group.baseUrl)
+                .url("/tasks")
+                .httpMethod(HttpMethod.GET)
+                .build());
+    send(
+        group.client,
+        req,
+        listed,
+        result -> {
+          Set<String> succeeded = new HashSet<>();
+          AsyncTaskListResult tasksResult = AsyncTaskListResult.fromDashScopeResult(result);
+          if (tasksResult != null && tasksResult.getData() != null) {
+            for (AsyncTaskInfo info : tasksResult.getData()) {
+              succeeded.add(info.getTaskId());
+            }
+          }
+          boolean morePages =
+              tasksResult != null
+                  && tasksResult.getTotalPage() != null
+                  && pageNo < tasksResult.getTotalPage();
+          List<PolledTask> unlisted = new ArrayList<>();
+          for (PolledTask task : listed) {
+            if (succeeded.contains(task.taskId)) {
+              // the list has no output, fetch the result.
+              task.inFlight = false;
+              fetch(task);
+            } else {
+              unlisted.add(task);
+            }
+          }
+          if (unlisted.isEmpty()) {
+            return;
+          }
+          if (morePages && pageNo < MAX_LIST_PAGES) {
+            list(group, unlisted, pageNo + 1);
+            return;
+          }
+          for (PolledTask task : unlisted) {
+            task.inFlight = false;
+            if (morePages) {
+              // may have succeeded beyond the pages read.
+              fetch(task);
+            } else {
+              reschedule(task);
+            }
+          }
+        },
+        e -> {
+          log.warn("List tasks failed, fetch them one by one: " + e.getMessage());
+          for (PolledTask task : listed) {
+            task.inFlight = false;
+            fetch(task);
+          }
+        });
+  }
+
+  /**
+   * Send without blocking, the result or error is handled on the scheduler thread. A handler that
+   * throws fails the polled tasks, they are not left in flight.
+   */
+  private void send(
+      HalfDuplexClient client,
+      HalfDuplexRequest req,
+      List<PolledTask> polled,
+      Consumer<DashScopeResult> onResult,
+      Consumer<Exception> onError) {
+    try {
+      client.send(
+          req,
+          new ResultCallback<DashScopeResult>() {
+            @Override
+            public void onEvent(DashScopeResult message) {
+              scheduler.execute(() -> handle(polled, () -> onResult.accept(message)));
+            }
+
+            @Override
+            public void onComplete() {}
+
+            @Override
+            public void onError(Exception e) {
+              scheduler.execute(() -> handle(polled, () -> onError.accept(e)));
+            }
+          });
+    } catch (Exception e) {
+      handle(polled, () -> onError.accept(e));
+    }
+  }
+
+  private void handle(List<PolledTask> polled, Runnable handler) {
+    try {
+      handler.run();
+    } catch (Throwable e) {
+      log.error("Handle task poll result failed: " + e.getMessage(), e);
+      for (PolledTask task : polled) {
+        task.inFlight = false;
+        complete(task, null, new ApiException(e));
+      }
+    }
+  }
+
+  private void onFetched(PolledTask task, DashScopeResult result) {
+    task.inFlight = false;
+    JsonObject output = (JsonObject) result.getOutput();
+    JsonElement status = output == null ? null : output.get(TASK_STATUS);
+    String taskStatus = status == null ? null : status.getAsString();
+    if (TaskStatus.SUCCEEDED.getValue().equals(taskStatus)) {
+      long duration = System.currentTimeMillis() - task.submittedAt;
+      Long average = modelDurations.get(task.group.model);
+      modelDurations.put(
+          task.group.model, average == null ? duration : (average * 7 + duration) / 8);
+      complete(task, result, null);
+    } else if (TaskStatus.FAILED.getValue().equals(taskStatus)
+        || TaskStatus.CANCELED.getValue().equals(taskStatus)
+        || TaskStatus.UNKNOWN.getValue().equals(taskStatus)) {
+      complete(task, result, null);
+    } else {
+      reschedule(task);
+    }
+  }
+
+  private void reschedule(PolledTask task) {
+    // double the interval after every 3(INCREMENT_STEPS) polls, until it reaches 5 seconds.
+    task.polls += 1;
+    if (task.intervalMillis < MAX_INTERVAL_MILLIS && task.polls % INCREMENT_STEPS == 0) {
+      task.intervalMillis = Math.min(task.intervalMillis * 2, MAX_INTERVAL_MILLIS);
+    }
+    task.nextPollAt = System.currentTimeMillis() + task.intervalMillis;
+  }
+
+  private void complete(PolledTask task, DashScopeResult result, Exception error) {
+    tasks.remove(task);
+    if (error == null) {
+      task.future.complete(result);
+    } else {
+      task.future.completeExceptionally(
+          error instanceof ApiException ? error : new ApiException(error));
+    }
+  }
+
+  private static boolean isRetryable(Exception e) {
+    if (!(e instanceof ApiException) || ((ApiException) e).getStatus() == null) {
+      return false;
+    }
+    int statusCode = ((ApiException) e).getStatus().getStatusCode();
+    return statusCode == HttpURLConnection.HTTP_UNAVAILABLE
+        || statusCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+  }
+
+  /** Tasks that can be checked with the same list request. */
+  @Value
+  private static class GroupKey {
+    HalfDuplexClient client;
+    String apiKey;
+    String baseUrl;
+    Map<String, String> headers;
+    String model;
+  }
+
+  private static final class PolledTask {
+    final String taskId;
+    final GroupKey group;
+    final long submittedAt;
+    final CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    long deadline = Long.MAX_VALUE;
+    long nextPollAt;
+    long lastFetchAt;
+    long intervalMillis = MIN_INTERVAL_MILLIS;
+    int polls = 0;
+    boolean inFlight = false;
+
+    PolledTask(String taskId, GroupKey group, long submittedAt) {
+      this.taskId = taskId;
+      this.group = group;
+      this.submittedAt = submittedAt;
+      this.lastFetchAt = submittedAt;
+    }
+  }
+}
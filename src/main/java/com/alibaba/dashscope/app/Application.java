@@ -53,11 +53,9 @@ public class Application {
   public ApplicationResult call(ApplicationParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    setRequestOption(serviceOption, param.getAppId());
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
+    ApiServiceOption option = requestOption(param.getAppId(), StreamingMode.NONE, false);
 
-    return ApplicationResult.fromDashScopeResult(syncApi.call(param));
+    return ApplicationResult.fromDashScopeResult(syncApi.call(param, option));
   }
 
   /**
@@ -72,24 +70,21 @@ public class Application {
   public Flowable<ApplicationResult> streamCall(ApplicationParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    setRequestOption(serviceOption, param.getAppId());
-    serviceOption.setIsSSE(true);
-    serviceOption.setStreamingMode(StreamingMode.OUT);
+    ApiServiceOption option = requestOption(param.getAppId(), StreamingMode.OUT, true);
 
-    return syncApi.streamCall(param).map(ApplicationResult::fromDashScopeResult);
+    return syncApi.streamCall(param, option).map(ApplicationResult::fromDashScopeResult);
   }
 
-  private void setRequestOption(ApiServiceOption serviceOption, String resourceId) {
-    if (serviceOption == null) {
-      return;
-    }
-
-    serviceOption.setIsService(false);
-    serviceOption.setTaskGroup("apps");
-    serviceOption.setTask(resourceId);
-    serviceOption.setFunction("completion");
-    //        serviceOption.setResource("apps");
-    //        serviceOption.setResourceId(resourceId);
-    //        serviceOption.setAction("completion");
+  /** The option of an app call, the shared service option is not changed. */
+  private ApiServiceOption requestOption(
+      String resourceId, StreamingMode streamingMode, Boolean isSSE) {
+    return serviceOption.toBuilder()
+        .isService(false)
+        .taskGroup("apps")
+        .task(resourceId)
+        .function("completion")
+        .streamingMode(streamingMode)
+        .isSSE(isSSE)
+        .build();
   }
 }
@@ -11,11 +11,14 @@ import com.alibaba.dashscope.common.ListResult;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ClientProfile;
 import com.alibaba.dashscope.protocol.ConnectionOptions;
 import com.alibaba.dashscope.protocol.GeneralServiceOption;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.ConnectionWarmer;
+import com.alibaba.dashscope.utils.Constants;
 import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 import java.util.HashMap;
@@ -54,9 +57,9 @@ public final class Assistants {
   }
 
   public Assistant create(AssistantParam param) throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("assistants"));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("assistants"));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, Assistant.class);
   }
 
@@ -65,17 +68,16 @@ public final class Assistants {
     if (assistantId == null || assistantId.equals("")) {
       throw new InputRequiredException("assistantId is required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("assistants/%s", assistantId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("assistants/%s", assistantId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, Assistant.class);
   }
 
   public ListResult<Assistant> list(GeneralListParam listParam)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath("assistants");
-    DashScopeResult result = api.get(listParam, serviceOption);
+    GeneralServiceOption option = serviceOption.withPath(HttpMethod.GET, "assistants");
+    DashScopeResult result = api.get(listParam, option);
     Type typeOfT = new TypeToken<ListResult<Assistant>>() {}.getType();
     return FlattenResultBase.fromDashScopeResult(result, typeOfT);
   }
@@ -95,10 +97,10 @@ public final class Assistants {
     if (assistantId == null || assistantId.isEmpty()) {
       throw new InputRequiredException("assistantId is required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("assistants/%s", assistantId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.GET, String.format("assistants/%s", assistantId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, Assistant.class);
   }
 
@@ -117,11 +119,11 @@ public final class Assistants {
     if (assistantId == null || assistantId.isEmpty()) {
       throw new InputRequiredException("assistantId is required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.DELETE);
-    serviceOption.setPath(String.format("assistants/%s", assistantId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.DELETE, String.format("assistants/%s", assistantId));
     DashScopeResult result =
         api.delete(
-            GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), serviceOption);
+            GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, DeletionStatus.class);
   }
 
@@ -130,9 +132,9 @@ public final class Assistants {
     if (assistantId == null || assistantId.isEmpty()) {
       throw new InputRequiredException("assistantId is required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("assistants/%s/files", assistantId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("assistants/%s/files", assistantId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, AssistantFile.class);
   }
 
@@ -141,9 +143,9 @@ public final class Assistants {
     if (assistantId == null || assistantId.isEmpty()) {
       throw new InputRequiredException("assistantId is required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("assistants/%s/files", assistantId));
-    DashScopeResult result = api.get(listParam, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.GET, String.format("assistants/%s/files", assistantId));
+    DashScopeResult result = api.get(listParam, option);
     Type typeOfT = new TypeToken<ListResult<AssistantFile>>() {}.getType();
     return FlattenResultBase.fromDashScopeResult(result, typeOfT);
   }
@@ -164,37 +166,33 @@ public final class Assistants {
     if (assistantId == null || assistantId.isEmpty() || fileId == null || fileId.isEmpty()) {
       throw new InputRequiredException("assistantId and fileId are required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("assistants/%s/files/%s", assistantId, fileId));
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET, String.format("assistants/%s/files/%s", assistantId, fileId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, AssistantFile.class);
   }
 
   /**
-   * Pre-warm the HTTP connection to reduce latency for first API call.
-   * Uses a lightweight list request to establish connection pool.
+   * Pre-warm the HTTP connection to reduce latency for first API call, without blocking the
+   * constructor.
    */
   private void preWarmConnection() {
     if (connectionPreWarmed.compareAndSet(false, true)) {
-      try {
-        // Lightweight GET request to establish connection
-        GeneralServiceOption warmupOption = GeneralServiceOption.builder()
-            .protocol(Protocol.HTTP)
-            .httpMethod(HttpMethod.GET)
-            .streamingMode(StreamingMode.OUT)
-            .path("assistants")
-            .build();
-        
-        if (serviceOption.getBaseHttpUrl() != null) {
-          warmupOption.setBaseHttpUrl(serviceOption.getBaseHttpUrl());
-        }
-        
-        api.get(GeneralListParam.builder().limit(1L).build(), warmupOption);
-      } catch (Exception e) {
-        // Reset flag to allow retry if pre-warming failed
-        connectionPreWarmed.set(false);
-      }
+      String baseUrl =
+          serviceOption.getBaseHttpUrl() != null
+              ? serviceOption.getBaseHttpUrl()
+              : Constants.baseHttpApiUrl;
+      ConnectionWarmer.getInstance()
+          .warmHttp(ClientProfile.of(serviceOption), baseUrl, 1)
+          .whenComplete(
+              (v, e) -> {
+                if (e != null) {
+                  // Reset flag to allow retry if pre-warming failed
+                  connectionPreWarmed.set(false);
+                }
+              });
     }
   }
 }
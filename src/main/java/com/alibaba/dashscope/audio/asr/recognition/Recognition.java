@@ -11,13 +11,14 @@ import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.ApiServiceOption;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.MappedFileFrames;
+import com.alibaba.dashscope.utils.SdkExecutors;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Emitter;
 import io.reactivex.Flowable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -279,15 +280,13 @@ public final class Recognition {
     Flowable<ByteBuffer> audioFrames =
         Flowable.create(
             emitter -> {
-              new Thread(
+              SdkExecutors.blocking()
+                  .execute(
                       () -> {
                         try {
-                          try (val channel = new FileInputStream(file).getChannel()) {
-                            ByteBuffer buffer = ByteBuffer.allocate(4096 * 4);
-                            while (channel.read(buffer) != -1 && !cancel.get()) {
-                              buffer.flip();
-                              emitter.onNext(buffer);
-                              buffer = ByteBuffer.allocate(4096 * 4);
+                          try (val frames = new MappedFileFrames(file, 4096 * 4)) {
+                            while (frames.hasNext() && !cancel.get()) {
+                              emitter.onNext(frames.next());
                               Thread.sleep(100);
                             }
                           }
@@ -296,8 +295,7 @@ public final class Recognition {
                         } catch (Exception e) {
                           emitter.onError(e);
                         }
-                      })
-                  .start();
+                      });
             },
             BackpressureStrategy.BUFFER);
     preRequestId = UUID.randomUUID().toString();
@@ -0,0 +1,117 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.audio.asr.recognition.timestamp;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class SentenceAdapter extends ObjectTypeAdapter<Sentence> {
+  private final TypeAdapter<Word> wordAdapter;
+  private final TypeAdapter<Stash> stashAdapter;
+
+  public SentenceAdapter(Gson gson) {
+    this.wordAdapter = gson.getAdapter(Word.class);
+    this.stashAdapter = gson.getAdapter(Stash.class);
+  }
+
+  @Override
+  protected Sentence newInstance() {
+    return new Sentence();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, Sentence value) throws IOException {
+    Boolean flag;
+    switch (name) {
+      case "begin_time":
+        value.setBeginTime(readLong(in));
+        return true;
+      case "end_time":
+        value.setEndTime(readLong(in));
+        return true;
+      case "text":
+        value.setText(readString(in));
+        return true;
+      case "words":
+        value.setWords(readList(in, wordAdapter::read));
+        return true;
+      case "stash":
+        value.setStash(stashAdapter.read(in));
+        return true;
+      case "emo_tag":
+        value.setEmoTag(readString(in));
+        return true;
+      case "emo_confidence":
+        value.setEmoConfidence(readDouble(in));
+        return true;
+      case "heartbeat":
+        flag = readBoolean(in);
+        if (flag != null) {
+          value.setHeartbeat(flag);
+        }
+        return true;
+      case "sentence_id":
+        value.setSentenceId(readLong(in));
+        return true;
+      case "vad_pre_end":
+        flag = readBoolean(in);
+        if (flag != null) {
+          value.setVadPreEnd(flag);
+        }
+        return true;
+      case "pre_end_failed":
+        flag = readBoolean(in);
+        if (flag != null) {
+          value.setPreEndFailed(flag);
+        }
+        return true;
+      case "pre_end_timemillis":
+        value.setPreEndTimemillis(readLong(in));
+        return true;
+      case "pre_end_start_time":
+        value.setPreEndStartTime(readLong(in));
+        return true;
+      case "pre_end_end_time":
+        value.setPreEndEndTime(readLong(in));
+        return true;
+      case "sentence_begin":
+        flag = readBoolean(in);
+        if (flag != null) {
+          value.setSentenceBegin(flag);
+        }
+        return true;
+      case "sentence_end":
+        flag = readBoolean(in);
+        if (flag != null) {
+          value.setSentenceEnd(flag);
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, Sentence value) throws IOException {
+    writeField(out, "begin_time", value.getBeginTime());
+    writeField(out, "end_time", value.getEndTime());
+    writeField(out, "text", value.getText());
+    writeList(out, "words", value.getWords(), wordAdapter::write);
+    writeField(out, "stash", stashAdapter, value.getStash());
+    writeField(out, "emo_tag", value.getEmoTag());
+    writeField(out, "emo_confidence", value.getEmoConfidence());
+    out.name("heartbeat").value(value.isHeartbeat());
+    writeField(out, "sentence_id", value.getSentenceId());
+    out.name("vad_pre_end").value(value.isVadPreEnd());
+    out.name("pre_end_failed").value(value.isPreEndFailed());
+    writeField(out, "pre_end_timemillis", value.getPreEndTimemillis());
+    writeField(out, "pre_end_start_time", value.getPreEndStartTime());
+    writeField(out, "pre_end_end_time", value.getPreEndEndTime());
+    out.name("sentence_begin").value(value.isSentenceBegin());
+    out.name("sentence_end").value(value.isSentenceEnd());
+  }
+}
@@ -0,0 +1,56 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.audio.asr.recognition.timestamp;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class WordAdapter extends ObjectTypeAdapter<Word> {
+  @Override
+  protected Word newInstance() {
+    return new Word();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, Word value) throws IOException {
+    switch (name) {
+      case "begin_time":
+        Long beginTime = readLong(in);
+        if (beginTime != null) {
+          value.setBeginTime(beginTime);
+        }
+        return true;
+      case "end_time":
+        Long endTime = readLong(in);
+        if (endTime != null) {
+          value.setEndTime(endTime);
+        }
+        return true;
+      case "text":
+        value.setText(readString(in));
+        return true;
+      case "punctuation":
+        value.setPunctuation(readString(in));
+        return true;
+      case "fixed":
+        Boolean fixed = readBoolean(in);
+        if (fixed != null) {
+          value.setFixed(fixed);
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, Word value) throws IOException {
+    out.name("begin_time").value(value.getBeginTime());
+    out.name("end_time").value(value.getEndTime());
+    writeField(out, "text", value.getText());
+    writeField(out, "punctuation", value.getPunctuation());
+    out.name("fixed").value(value.isFixed());
+  }
+}
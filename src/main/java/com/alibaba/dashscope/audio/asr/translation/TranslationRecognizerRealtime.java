@@ -13,11 +13,12 @@ import com.alibaba.dashscope.protocol.ApiServiceOption;
 import com.alibaba.dashscope.protocol.ConnectionOptions;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.MappedFileFrames;
+import com.alibaba.dashscope.utils.SdkExecutors;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Emitter;
 import io.reactivex.Flowable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Queue;
@@ -332,15 +333,13 @@ public final class TranslationRecognizerRealtime {
     Flowable<ByteBuffer> audioFrames =
         Flowable.create(
             emitter -> {
-              new Thread(
+              SdkExecutors.blocking()
+                  .execute(
                       () -> {
                         try {
-                          try (val channel = new FileInputStream(file).getChannel()) {
-                            ByteBuffer buffer = ByteBuffer.allocate(4096 * 4);
-                            while (channel.read(buffer) != -1 && !cancel.get()) {
-                              buffer.flip();
-                              emitter.onNext(buffer);
-                              buffer = ByteBuffer.allocate(4096 * 4);
+                          try (val frames = new MappedFileFrames(file, 4096 * 4)) {
+                            while (frames.hasNext() && !cancel.get()) {
+                              emitter.onNext(frames.next());
                               Thread.sleep(100);
                             }
                           }
@@ -349,8 +348,7 @@ public final class TranslationRecognizerRealtime {
                         } catch (Exception e) {
                           emitter.onError(e);
                         }
-                      })
-                  .start();
+                      });
             },
             BackpressureStrategy.BUFFER);
     preRequestId = UUID.randomUUID().toString();
@@ -10,6 +10,8 @@ import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.threads.runs.Run;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.SdkExecutors;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Emitter;
@@ -262,6 +264,7 @@ public final class SpeechSynthesizer {
                         + recvAudioLength
                         + " ms, current_rtf: "
                         + currentRtf);
+                recordRealTimeFactor(currentRtf);
               }
             });
   }
@@ -283,12 +286,12 @@ public final class SpeechSynthesizer {
                 this.parameters,
                 Flowable.create(
                     emitter -> {
-                      new Thread(
+                      SdkExecutors.blocking()
+                          .execute(
                               () -> {
                                 emitter.onNext(text);
                                 emitter.onComplete();
-                              })
-                          .start();
+                              });
                     },
                     BackpressureStrategy.BUFFER),
                 preRequestId,
@@ -314,6 +317,7 @@ public final class SpeechSynthesizer {
                         + recvAudioLength
                         + " ms, current_rtf: "
                         + currentRtf);
+                recordRealTimeFactor(currentRtf);
               }
             });
   }
@@ -419,6 +423,7 @@ public final class SpeechSynthesizer {
                           + recvAudioLength
                           + " ms, current_rtf: "
                           + currentRtf);
+                  recordRealTimeFactor(currentRtf);
                   if (!asyncCall) {
                     try {
                       channel.write(speechSynthesisResult.getAudioFrame());
@@ -791,6 +796,17 @@ public final class SpeechSynthesizer {
     }
   }
 
+  /** Record the real time factor so far in `Constants.sdkMetrics`. */
+  private void recordRealTimeFactor(double currentRtf) {
+    SdkMetrics metrics = Constants.sdkMetrics;
+    if (metrics != null) {
+      metrics.realTimeFactor(
+          SdkMetrics.Tags.of(
+              serviceOption.getTask(), parameters.getModel(), SdkMetrics.Tags.WEBSOCKET),
+          currentRtf);
+    }
+  }
+
   /** First Package Delay is the time between start sending text and receive first audio package */
   public long getFirstPackageDelay() {
     return this.firstPackageTimeStamp - this.startStreamTimeStamp;
@@ -9,19 +9,325 @@ import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.utils.ApiKeywords;
 import com.alibaba.dashscope.utils.EncryptionUtils;
 import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 @EqualsAndHashCode(callSuper = true)
+@JsonAdapter(DashScopeResult.ParsingAdapterFactory.class)
 public class DashScopeResult extends Result {
   private Object output;
   private String event;
 
+  // the unparsed response text of a stream event, the json tree of output and usage is built from
+  // it on first access, typed readers decode straight from it.
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  private transient volatile RawResponse raw;
+
+  private static final class RawResponse {
+    final String text;
+    final boolean isFlatten;
+    final boolean hasData;
+
+    RawResponse(String text, boolean isFlatten, boolean hasData) {
+      this.text = text;
+      this.isFlatten = isFlatten;
+      this.hasData = hasData;
+    }
+  }
+
+  /** Build the json tree of a stream event before the result is serialized, `raw` is transient. */
+  static final class ParsingAdapterFactory implements TypeAdapterFactory {
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+      return new TypeAdapter<T>() {
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+          if (value instanceof DashScopeResult) {
+            ((DashScopeResult) value).parseRaw();
+          }
+          delegate.write(out, value);
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+          return delegate.read(in);
+        }
+      };
+    }
+  }
+
   public Boolean isBinaryOutput() {
-    return output instanceof ByteBuffer;
+    return getOutput() instanceof ByteBuffer;
+  }
+
+  public Object getOutput() {
+    parseRaw();
+    return output;
+  }
+
+  public void setOutput(Object output) {
+    parseRaw();
+    this.output = output;
+  }
+
+  @Override
+  public JsonElement getUsage() {
+    parseRaw();
+    return super.getUsage();
+  }
+
+  @Override
+  public void setUsage(JsonElement usage) {
+    parseRaw();
+    super.setUsage(usage);
+  }
+
+  /**
+   * Decode the output into the given type. For stream events it reads straight from the response
+   * text, without building the json tree.
+   *
+   * @param clazz The output type.
+   * @param <T> The output type.
+   * @return The output, null if there is none.
+   */
+  public <T> T getOutputAs(Class<T> clazz) {
+    RawResponse current = raw;
+    if (current == null || current.hasData) {
+      Object out = getOutput();
+      return out == null ? null : JsonUtils.fromJsonObject((JsonElement) out, clazz);
+    }
+    if (current.isFlatten) {
+      return JsonUtils.fromJson(current.text, clazz);
+    }
+    return readField(current.text, ApiKeywords.OUTPUT, clazz);
+  }
+
+  /**
+   * Decode the usage into the given type. For stream events it reads straight from the response
+   * text, without building the json tree.
+   *
+   * @param clazz The usage type.
+   * @param <T> The usage type.
+   * @return The usage, null if there is none.
+   */
+  public <T> T getUsageAs(Class<T> clazz) {
+    RawResponse current = raw;
+    if (current == null || current.isFlatten) {
+      JsonElement usage = getUsage();
+      return usage == null ? null : JsonUtils.fromJsonObject(usage, clazz);
+    }
+    return readField(current.text, ApiKeywords.USAGE, clazz);
+  }
+
+  private static <T> T readField(String text, String field, Class<T> clazz) {
+    try (JsonReader reader = new JsonReader(new StringReader(text))) {
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (field.equals(reader.nextName())) {
+          return JsonUtils.gson.fromJson(reader, clazz);
+        }
+        reader.skipValue();
+      }
+      return null;
+    } catch (IOException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  /** Build the json tree of output and usage from the raw stream event, once. */
+  private void parseRaw() {
+    if (raw == null) {
+      return;
+    }
+    synchronized (this) {
+      RawResponse current = raw;
+      if (current == null) {
+        return;
+      }
+      JsonObject jsonObject = JsonUtils.parse(current.text);
+      if (current.isFlatten) {
+        this.output = jsonObject;
+      } else {
+        if (jsonObject.has(ApiKeywords.OUTPUT)) {
+          this.output =
+              jsonObject.get(ApiKeywords.OUTPUT).isJsonNull()
+                  ? null
+                  : jsonObject.get(ApiKeywords.OUTPUT).getAsJsonObject();
+        }
+        if (jsonObject.has(ApiKeywords.USAGE)) {
+          super.setUsage(
+              jsonObject.get(ApiKeywords.USAGE).isJsonNull()
+                  ? null
+                  : jsonObject.get(ApiKeywords.USAGE).getAsJsonObject());
+        }
+        if (current.hasData) {
+          jsonObject.remove(ApiKeywords.REQUEST_ID);
+          this.output = jsonObject;
+        }
+      }
+      raw = null;
+    }
+  }
+
+  /**
+   * Read the status fields of a http stream event in one streaming pass, output and usage are
+   * skipped and parsed on demand.
+   */
+  private void fromStreamEvent(NetworkResponse response, boolean isFlattenResult) {
+    if (isFlattenResult) {
+      // a malformed event fails here, as its json tree would.
+      try (JsonReader reader = new JsonReader(new StringReader(response.getMessage()))) {
+        reader.setLenient(true);
+        expectObject(reader);
+        reader.skipValue();
+      } catch (IOException | IllegalStateException e) {
+        throw new JsonSyntaxException(e);
+      }
+      this.event = response.getEvent();
+      this.raw = new RawResponse(response.getMessage(), true, false);
+      return;
+    }
+    if (response.getHttpStatusCode() != null) {
+      this.setStatusCode(response.getHttpStatusCode());
+    }
+    // Set default empty string for successful responses
+    this.setCode("");
+    this.setMessage("");
+    boolean hasData = false;
+    try (JsonReader reader = new JsonReader(new StringReader(response.getMessage()))) {
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        boolean isNull = reader.peek() == JsonToken.NULL;
+        switch (name) {
+          case ApiKeywords.REQUEST_ID:
+            this.setRequestId(isNull ? null : reader.nextString());
+            break;
+          case ApiKeywords.STATUS_CODE:
+            this.setStatusCode(isNull ? null : reader.nextInt());
+            break;
+          case ApiKeywords.CODE:
+            this.setCode(isNull ? "" : reader.nextString());
+            break;
+          case ApiKeywords.MESSAGE:
+            this.setMessage(isNull ? "" : reader.nextString());
+            break;
+          case ApiKeywords.DATA:
+            hasData = true;
+            reader.skipValue();
+            break;
+          case ApiKeywords.OUTPUT:
+          case ApiKeywords.USAGE:
+            if (!isNull) {
+              expectObject(reader);
+              reader.skipValue();
+            }
+            break;
+          default:
+            reader.skipValue();
+        }
+        if (isNull && reader.peek() == JsonToken.NULL) {
+          reader.nextNull();
+        }
+      }
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+    this.raw = new RawResponse(response.getMessage(), false, hasData);
+  }
+
+  private static void expectObject(JsonReader reader) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      throw new IllegalStateException("Not a JSON Object: " + reader.peek());
+    }
+  }
+
+  /**
+   * Read an encrypted http stream event in one streaming pass. The output is decrypted from its
+   * bytes and parsed from the plain bytes, with the cipher of the stream, without building the
+   * event json tree or the plain text.
+   */
+  private void fromEncryptedStreamEvent(NetworkResponse response, HalfDuplexRequest req) {
+    if (response.getHttpStatusCode() != null) {
+      this.setStatusCode(response.getHttpStatusCode());
+    }
+    // Set default empty string for successful responses
+    this.setCode("");
+    this.setMessage("");
+    try (JsonReader reader = new JsonReader(new StringReader(response.getMessage()))) {
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        boolean isNull = reader.peek() == JsonToken.NULL;
+        switch (name) {
+          case ApiKeywords.OUTPUT:
+            this.output = isNull ? null : decryptOutput(reader.nextString(), req);
+            break;
+          case ApiKeywords.USAGE:
+            super.setUsage(isNull ? null : JsonUtils.parseReader(reader).getAsJsonObject());
+            break;
+          case ApiKeywords.REQUEST_ID:
+            this.setRequestId(isNull ? null : reader.nextString());
+            break;
+          case ApiKeywords.STATUS_CODE:
+            this.setStatusCode(isNull ? null : reader.nextInt());
+            break;
+          case ApiKeywords.CODE:
+            this.setCode(isNull ? "" : reader.nextString());
+            break;
+          case ApiKeywords.MESSAGE:
+            this.setMessage(isNull ? "" : reader.nextString());
+            break;
+          default:
+            reader.skipValue();
+        }
+        if (isNull && reader.peek() == JsonToken.NULL) {
+          reader.nextNull();
+        }
+      }
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  private static JsonObject decryptOutput(String encryptedOutput, HalfDuplexRequest req) {
+    byte[] plain =
+        EncryptionUtils.AESDecrypt(
+            Base64.getDecoder().decode(encryptedOutput),
+            req.getEncryptionConfig().getAESEncryptKey(),
+            req.getGcmParameterSpec());
+    return JsonUtils.parseReader(
+            new InputStreamReader(new ByteArrayInputStream(plain), StandardCharsets.UTF_8))
+        .getAsJsonObject();
   }
 
   @Override
@@ -172,6 +478,10 @@ public class DashScopeResult extends Result {
     if ((response.getHeaders().containsKey("X-DashScope-OutputEncrypted".toLowerCase())
             || req.isEncryptRequest())
         && protocol == Protocol.HTTP) {
+      if (response.isStreamEvent()) {
+        fromEncryptedStreamEvent(response, req);
+        return (T) this;
+      }
       // Set HTTP status code if available
       if (response.getHttpStatusCode() != null) {
         this.setStatusCode(response.getHttpStatusCode());
@@ -231,6 +541,10 @@ public class DashScopeResult extends Result {
       }
       return (T) this;
     }
+    if (protocol == Protocol.HTTP && response.isStreamEvent()) {
+      fromStreamEvent(response, isFlattenResult);
+      return (T) this;
+    }
     return fromResponse(protocol, response, isFlattenResult);
   }
 }
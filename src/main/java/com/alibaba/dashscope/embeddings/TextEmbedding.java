@@ -15,6 +15,9 @@ import com.alibaba.dashscope.protocol.ApiServiceOption;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 public class TextEmbedding {
   private final SynchronizeHalfDuplexApi<TextEmbeddingParam> syncApi;
@@ -91,4 +94,33 @@ public class TextEmbedding {
   public TextEmbeddingResult call(TextEmbeddingParam param) throws ApiException, NoApiKeyException {
     return TextEmbeddingResult.fromDashScopeResult(syncApi.call(param));
   }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `TextEmbeddingParam`.
+   * @return Completes with the `TextEmbeddingResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  public CompletableFuture<TextEmbeddingResult> callAsync(TextEmbeddingParam param)
+      throws ApiException, NoApiKeyException {
+    return callAsync(param, null);
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `TextEmbeddingParam`.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the `TextEmbeddingResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  public CompletableFuture<TextEmbeddingResult> callAsync(
+      TextEmbeddingParam param, Duration timeout)
+      throws ApiException, NoApiKeyException {
+    return FutureUtils.map(
+        syncApi.callAsync(param, timeout), TextEmbeddingResult::fromDashScopeResult);
+  }
 }
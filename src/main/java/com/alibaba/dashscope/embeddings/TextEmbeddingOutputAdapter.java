@@ -0,0 +1,38 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.embeddings;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class TextEmbeddingOutputAdapter extends ObjectTypeAdapter<TextEmbeddingOutput> {
+  private final TypeAdapter<TextEmbeddingResultItem> itemAdapter;
+
+  public TextEmbeddingOutputAdapter(Gson gson) {
+    this.itemAdapter = gson.getAdapter(TextEmbeddingResultItem.class);
+  }
+
+  @Override
+  protected TextEmbeddingOutput newInstance() {
+    return new TextEmbeddingOutput();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, TextEmbeddingOutput value)
+      throws IOException {
+    if ("embeddings".equals(name)) {
+      value.setEmbeddings(readList(in, itemAdapter::read));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, TextEmbeddingOutput value) throws IOException {
+    writeList(out, "embeddings", value.getEmbeddings(), itemAdapter::write);
+  }
+}
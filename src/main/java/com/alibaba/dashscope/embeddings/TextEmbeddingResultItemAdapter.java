@@ -0,0 +1,52 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.embeddings;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.List;
+
+public class TextEmbeddingResultItemAdapter extends ObjectTypeAdapter<TextEmbeddingResultItem> {
+  private final TypeAdapter<List<TextEmbeddingSparseEmbedding>> sparseEmbeddingAdapter;
+
+  public TextEmbeddingResultItemAdapter(Gson gson) {
+    this.sparseEmbeddingAdapter =
+        gson.getAdapter(new TypeToken<List<TextEmbeddingSparseEmbedding>>() {});
+  }
+
+  @Override
+  protected TextEmbeddingResultItem newInstance() {
+    return new TextEmbeddingResultItem();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, TextEmbeddingResultItem value)
+      throws IOException {
+    switch (name) {
+      case "text_index":
+        value.setTextIndex(readInteger(in));
+        return true;
+      case "embedding":
+        // the vector dominates the payload, read it directly instead of via the list adapter.
+        value.setEmbedding(readList(in, ObjectTypeAdapter::readDouble));
+        return true;
+      case "sparse_embedding":
+        value.setSparseEmbedding(sparseEmbeddingAdapter.read(in));
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, TextEmbeddingResultItem value) throws IOException {
+    writeField(out, "text_index", value.getTextIndex());
+    writeList(out, "embedding", value.getEmbedding(), (writer, v) -> writer.value(v));
+    writeField(out, "sparse_embedding", sparseEmbeddingAdapter, value.getSparseEmbedding());
+  }
+}
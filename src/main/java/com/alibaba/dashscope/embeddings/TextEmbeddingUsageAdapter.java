@@ -0,0 +1,30 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.embeddings;
+
+import com.alibaba.dashscope.utils.ObjectTypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+
+public class TextEmbeddingUsageAdapter extends ObjectTypeAdapter<TextEmbeddingUsage> {
+  @Override
+  protected TextEmbeddingUsage newInstance() {
+    return new TextEmbeddingUsage();
+  }
+
+  @Override
+  protected boolean readField(JsonReader in, String name, TextEmbeddingUsage value)
+      throws IOException {
+    if ("total_tokens".equals(name)) {
+      value.setTotalTokens(readInteger(in));
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected void writeFields(JsonWriter out, TextEmbeddingUsage value) throws IOException {
+    writeField(out, "total_tokens", value.getTotalTokens());
+  }
+}
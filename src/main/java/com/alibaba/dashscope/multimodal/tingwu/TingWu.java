@@ -64,8 +64,7 @@ public final class TingWu {
     public DashScopeResult call(HalfDuplexServiceParam param)
             throws ApiException, NoApiKeyException, InputRequiredException {
         param.validate();
-        serviceOption.setIsSSE(false);
-        return syncApi.call(param);
+        return syncApi.call(param, serviceOption.toBuilder().isSSE(false).build());
     }
 
 }
@@ -6,6 +6,9 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -67,6 +70,38 @@ public class Understanding {
     return UnderstandingResult.fromDashScopeResult(syncApi.call(param));
   }
 
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `UnderstandingParam`.
+   * @return Completes with the `UnderstandingResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<UnderstandingResult> callAsync(UnderstandingParam param)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    return callAsync(param, null);
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `UnderstandingParam`.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the `UnderstandingResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<UnderstandingResult> callAsync(
+      UnderstandingParam param, Duration timeout)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    param.validate();
+    return FutureUtils.map(
+        syncApi.callAsync(param, timeout), UnderstandingResult::fromDashScopeResult);
+  }
+
   /**
    * Call the server to get the result in the callback function.
    *
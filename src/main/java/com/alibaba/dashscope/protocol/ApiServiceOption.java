@@ -8,7 +8,7 @@ import lombok.Data;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 public final class ApiServiceOption implements ServiceOption {
   // set websocket service stream mode[NONE, IN, OUT, DUPLEX]
   @Default private StreamingMode streamingMode = StreamingMode.NONE;
@@ -59,4 +59,16 @@ public final class ApiServiceOption implements ServiceOption {
     }
     return sb.toString();
   }
+
+  /**
+   * A copy of the option for one call, services keep their option unchanged so an instance can
+   * serve concurrent calls.
+   *
+   * @param streamingMode The streaming mode of the call.
+   * @param isSSE Whether the call is streamed by SSE.
+   * @return The option of the call.
+   */
+  public ApiServiceOption withStreaming(StreamingMode streamingMode, Boolean isSSE) {
+    return toBuilder().streamingMode(streamingMode).isSSE(isSSE).build();
+  }
 }
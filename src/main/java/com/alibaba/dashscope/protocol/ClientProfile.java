@@ -0,0 +1,53 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.protocol;
+
+import com.alibaba.dashscope.common.TaskGroup;
+
+/**
+ * The service families that can be given their own http client, see
+ * ConnectionConfigurations.profiles. A profile without configurations uses the default client.
+ */
+public enum ClientProfile {
+  /** Services not in another family. */
+  DEFAULT,
+
+  /** Generation and chat, mostly long running SSE streams. */
+  GENERATION,
+
+  /** Short embedding and rerank calls. */
+  EMBEDDING,
+
+  /** The websocket audio services, tts, asr and translation. */
+  AUDIO,
+
+  /** Async task submission and polling. */
+  TASK,
+  ;
+
+  /**
+   * The profile of a service.
+   *
+   * @param serviceOption The service option.
+   * @return The profile.
+   */
+  public static ClientProfile of(ServiceOption serviceOption) {
+    if (serviceOption == null) {
+      return DEFAULT;
+    }
+    if (serviceOption.getProtocol() == Protocol.WEBSOCKET) {
+      return AUDIO;
+    }
+    if (Boolean.TRUE.equals(serviceOption.getIsAsyncTask())) {
+      return TASK;
+    }
+    String taskGroup = serviceOption.getTaskGroup();
+    if (TaskGroup.EMBEDDINGS.getValue().equals(taskGroup)
+        || TaskGroup.RERANK.getValue().equals(taskGroup)) {
+      return EMBEDDING;
+    }
+    if (TaskGroup.AIGC.getValue().equals(taskGroup)) {
+      return GENERATION;
+    }
+    return DEFAULT;
+  }
+}
@@ -0,0 +1,39 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.protocol;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** A snapshot of the dispatcher and connection pool of a client profile. */
+@Data
+@Builder
+public final class ClientProfileStats {
+  private ClientProfile profile;
+
+  /** The async and blocking calls running now. */
+  private int runningCalls;
+
+  /** The async calls waiting for a request slot now. */
+  private int queuedCalls;
+
+  private int maximumRequests;
+  private int maximumRequestsPerHost;
+  private int maximumQueuedRequests;
+  private int connections;
+  private int idleConnections;
+
+  /** The async calls that had to wait for a request slot, since start. */
+  private long saturatedCalls;
+
+  /** The async calls rejected with the queue full, since start. */
+  private long rejectedCalls;
+
+  /** The http attempts retried after a retryable failure, since start. */
+  private long retries;
+
+  /** The hedged requests sent for slow idempotent calls, since start. */
+  private long hedges;
+
+  /** The hedged requests that answered before the request they hedged, since start. */
+  private long hedgeWins;
+}
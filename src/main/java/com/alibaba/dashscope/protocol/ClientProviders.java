@@ -2,11 +2,44 @@
 
 package com.alibaba.dashscope.protocol;
 
+import com.alibaba.dashscope.protocol.okhttp.MultiplexedWebSocketClient;
 import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
 import com.alibaba.dashscope.protocol.okhttp.OkHttpHttpClient;
 import com.alibaba.dashscope.protocol.okhttp.OkHttpWebSocketClient;
+import com.alibaba.dashscope.protocol.okhttp.PooledWebSocketClient;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool;
+import com.alibaba.dashscope.utils.Constants;
 
 public class ClientProviders {
+  private static ConnectionConfigurations getConnectionConfigurations() {
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    if (configurations == null) {
+      configurations = ConnectionConfigurations.builder().build();
+    }
+    return configurations;
+  }
+
+  private static boolean isWebSocketPoolEnabled() {
+    return getConnectionConfigurations().getWebSocketPoolEnabled();
+  }
+
+  private static boolean isWebSocketMultiplexEnabled() {
+    return getConnectionConfigurations().getWebSocketMultiplexEnabled();
+  }
+
+  private static MultiplexedWebSocketClient getMultiplexedWebSocketClient(
+      ClientProfile profile, ConnectionOptions options, boolean passTaskStarted) {
+    ConnectionConfigurations configurations = getConnectionConfigurations();
+    // shares the profile client's dispatcher, ping frames keep the shared connections alive.
+    return new MultiplexedWebSocketClient(
+        profile,
+        options,
+        configurations.getWebSocketPingInterval(),
+        passTaskStarted,
+        configurations.getWebSocketMaxTasksPerConnection(),
+        configurations.getWebSocketTaskFinishTimeout());
+  }
+
   public static HalfDuplexClient getHalfDuplexClient(String protocol) {
     return getHalfDuplexClient(null, protocol);
   }
@@ -23,21 +56,41 @@ public class ClientProviders {
    * @return The half duplex client.
    */
   public static HalfDuplexClient getHalfDuplexClient(ConnectionOptions options, String protocol) {
+    return getHalfDuplexClient(ClientProfile.DEFAULT, options, protocol);
+  }
+
+  /**
+   * Create a dashscope half duplex client on the http client of a service family.
+   *
+   * @param profile The service family, see ConnectionConfigurations.profiles.
+   * @param options The client connection options.
+   * @param protocol The protocol to use, one of "http|https|websocket"
+   * @return The half duplex client.
+   */
+  public static HalfDuplexClient getHalfDuplexClient(
+      ClientProfile profile, ConnectionOptions options, String protocol) {
     if (protocol == null) {
       protocol = "https";
     }
+    if (!protocol.toLowerCase().startsWith("http") && isWebSocketMultiplexEnabled()) {
+      return getMultiplexedWebSocketClient(profile, options, false);
+    }
+    if (!protocol.toLowerCase().startsWith("http") && isWebSocketPoolEnabled()) {
+      return new PooledWebSocketClient(WebSocketSessionPool.getInstance(), false, profile, options);
+    }
     if (options == null) {
       // create default config client, create default http client.
       if (protocol.toLowerCase().startsWith("http")) {
-        return new OkHttpHttpClient(OkHttpClientFactory.getOkHttpClient());
+        return new OkHttpHttpClient(OkHttpClientFactory.getOkHttpClient(profile));
       } else {
-        return new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(), false);
+        return new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(profile), false);
       }
     } else {
       if (protocol.toLowerCase().startsWith("http")) {
-        return new OkHttpHttpClient(OkHttpClientFactory.getNewOkHttpClient(options));
+        return new OkHttpHttpClient(OkHttpClientFactory.getNewOkHttpClient(profile, options));
       } else {
-        return new OkHttpWebSocketClient(OkHttpClientFactory.getNewOkHttpClient(options), false);
+        return new OkHttpWebSocketClient(
+            OkHttpClientFactory.getNewOkHttpClient(profile, options), false);
       }
     }
   }
@@ -46,16 +99,29 @@ public class ClientProviders {
    * Create a dashscope full duplex client. only websocket is supported.
    *
    * @param connectionOptions The client options.
+   * @param passTaskStarted Pass the task-started event to the caller.
    * @return The full duplex client.
    */
   public static FullDuplexClient getFullDuplexClient(
       ConnectionOptions connectionOptions, boolean passTaskStarted) {
+    if (isWebSocketMultiplexEnabled()) {
+      return getMultiplexedWebSocketClient(ClientProfile.AUDIO, connectionOptions, passTaskStarted);
+    }
+    if (isWebSocketPoolEnabled()) {
+      return new PooledWebSocketClient(
+          WebSocketSessionPool.getInstance(),
+          passTaskStarted,
+          ClientProfile.AUDIO,
+          connectionOptions);
+    }
     if (connectionOptions == null) {
       // create default config client, create default http client.
-      return new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(), passTaskStarted);
+      return new OkHttpWebSocketClient(
+          OkHttpClientFactory.getOkHttpClient(ClientProfile.AUDIO), passTaskStarted);
     } else {
       return new OkHttpWebSocketClient(
-          OkHttpClientFactory.getNewOkHttpClient(connectionOptions), passTaskStarted);
+          OkHttpClientFactory.getNewOkHttpClient(ClientProfile.AUDIO, connectionOptions),
+          passTaskStarted);
     }
   }
 }
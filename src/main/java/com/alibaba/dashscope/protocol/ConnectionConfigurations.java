@@ -5,7 +5,9 @@ package com.alibaba.dashscope.protocol;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.time.Duration;
+import java.util.Map;
 import lombok.Data;
+import lombok.Singular;
 import lombok.experimental.SuperBuilder;
 import okhttp3.Authenticator;
 
@@ -39,10 +41,111 @@ public final class ConnectionConfigurations {
   private static final String MAXIMUM_ASYNC_REQUESTS_PER_HOST_ENV =
       "DASHSCOPE_MAXIMUM_ASYNC_REQUESTS_PER_HOST";
 
+  /**
+   * The http protocol of the REST API, http/1.1 by default. With h2, HTTP/2 is negotiated over tls
+   * and http/1.1 is the fallback, h2c is HTTP/2 without tls, for local stand-ins of the service.
+   * Over HTTP/2 the concurrent requests and SSE streams to a host share few connections, so the
+   * maximum async requests default to a higher limit.
+   */
+  private static final String HTTP_PROTOCOL_ENV = "DASHSCOPE_HTTP_PROTOCOL";
+
+  public static final String HTTP_1_1 = "http/1.1";
+  public static final String H2 = "h2";
+  public static final String H2C = "h2c";
+
+  /**
+   * Async requests beyond the maximum wait in the dispatcher queue of their client, calls over
+   * the maximum queued requests are rejected instead of waiting.
+   */
+  private static final String MAXIMUM_QUEUED_REQUESTS_ENV = "DASHSCOPE_MAXIMUM_QUEUED_REQUESTS";
+
+  /**
+   * The executor of blocking SDK work, virtual for virtual threads on JDK 21+, platform for a
+   * bounded pool of platform threads, which is also used without virtual threads.
+   */
+  private static final String BLOCKING_EXECUTOR_ENV = "DASHSCOPE_BLOCKING_EXECUTOR";
+
+  private static final String BLOCKING_POOL_SIZE_ENV = "DASHSCOPE_BLOCKING_POOL_SIZE";
+
+  public static final String VIRTUAL_THREADS = "virtual";
+  public static final String PLATFORM_THREADS = "platform";
+
   private static final String WRITE_TIMEOUT_ENV = "DASHSCOPE_WRITE_TIMEOUT";
   private static final String READ_TIMEOUT_ENV = "DASHSCOPE_READ_TIMEOUT";
   private static final String CONNECTION_TIMEOUT_ENV = "DASHSCOPE_CONNECTION_TIMEOUT";
 
+  /**
+   * Keep warm websocket sessions and lease them to duplex audio services(tts, asr, translation)
+   * task by task, instead of a new handshake per task.
+   */
+  private static final String WEBSOCKET_POOL_ENABLED_ENV = "DASHSCOPE_WEBSOCKET_POOL_ENABLED";
+
+  private static final String WEBSOCKET_POOL_MAX_SIZE_ENV = "DASHSCOPE_WEBSOCKET_POOL_MAX_SIZE";
+  private static final String WEBSOCKET_POOL_MAX_SIZE_PER_KEY_ENV =
+      "DASHSCOPE_WEBSOCKET_POOL_MAX_SIZE_PER_KEY";
+  private static final String WEBSOCKET_POOL_IDLE_TIMEOUT_ENV =
+      "DASHSCOPE_WEBSOCKET_POOL_IDLE_TIMEOUT";
+  private static final String WEBSOCKET_PING_INTERVAL_ENV = "DASHSCOPE_WEBSOCKET_PING_INTERVAL";
+
+  /**
+   * Run concurrent websocket tasks over shared connections, routed by task id, instead of one
+   * connection per task. Takes precedence over the websocket pool. A canceled task using binary
+   * frames holds the binary lane of its connection until the server ends it, at most for the task
+   * finish timeout.
+   */
+  private static final String WEBSOCKET_MULTIPLEX_ENABLED_ENV =
+      "DASHSCOPE_WEBSOCKET_MULTIPLEX_ENABLED";
+
+  private static final String WEBSOCKET_MAX_TASKS_PER_CONNECTION_ENV =
+      "DASHSCOPE_WEBSOCKET_MAX_TASKS_PER_CONNECTION";
+  private static final String WEBSOCKET_TASK_FINISH_TIMEOUT_ENV =
+      "DASHSCOPE_WEBSOCKET_TASK_FINISH_TIMEOUT";
+
+  /**
+   * Websocket connect retry, attempts are spaced by exponential backoff with jitter and all of
+   * them must finish within the connect deadline. After a number of consecutive failed connects to
+   * a host, the circuit breaker fails new connects fast for the open time.
+   */
+  private static final String WEBSOCKET_RECONNECT_MAX_ATTEMPTS_ENV =
+      "DASHSCOPE_WEBSOCKET_RECONNECT_MAX_ATTEMPTS";
+
+  private static final String WEBSOCKET_RECONNECT_INITIAL_BACKOFF_ENV =
+      "DASHSCOPE_WEBSOCKET_RECONNECT_INITIAL_BACKOFF";
+  private static final String WEBSOCKET_RECONNECT_MAX_BACKOFF_ENV =
+      "DASHSCOPE_WEBSOCKET_RECONNECT_MAX_BACKOFF";
+  private static final String WEBSOCKET_CONNECT_DEADLINE_ENV =
+      "DASHSCOPE_WEBSOCKET_CONNECT_DEADLINE";
+  private static final String WEBSOCKET_CIRCUIT_BREAKER_THRESHOLD_ENV =
+      "DASHSCOPE_WEBSOCKET_CIRCUIT_BREAKER_THRESHOLD";
+  private static final String WEBSOCKET_CIRCUIT_BREAKER_OPEN_TIME_ENV =
+      "DASHSCOPE_WEBSOCKET_CIRCUIT_BREAKER_OPEN_TIME";
+
+  /**
+   * ConnectionWarmer, the number of http connections opened to each base url, the number of idle
+   * websocket sessions kept in the pool, and how often they are pinged and topped up.
+   */
+  private static final String WARM_HTTP_CONNECTIONS_ENV = "DASHSCOPE_WARM_HTTP_CONNECTIONS";
+
+  private static final String WARM_WEBSOCKET_SESSIONS_ENV = "DASHSCOPE_WARM_WEBSOCKET_SESSIONS";
+  private static final String WARM_KEEP_ALIVE_INTERVAL_ENV = "DASHSCOPE_WARM_KEEP_ALIVE_INTERVAL";
+
+  /**
+   * Http request retry, off by default with a single attempt. With more attempts, failed attempts
+   * with 429, 5xx or a reset connection are retried with exponential backoff and jitter, and all
+   * retries of a call must start within the retry budget. A blocking call waits for the backoff on
+   * the calling thread. With hedging, which also needs more than one attempt, idempotent calls such
+   * as embeddings, rerank and task fetches send a second request once the first one is slower than
+   * the p95 latency of its client, the first response wins. The backoffs are in milliseconds, the
+   * retry budget in seconds.
+   */
+  private static final String HTTP_RETRY_MAX_ATTEMPTS_ENV = "DASHSCOPE_HTTP_RETRY_MAX_ATTEMPTS";
+
+  private static final String HTTP_RETRY_INITIAL_BACKOFF_ENV =
+      "DASHSCOPE_HTTP_RETRY_INITIAL_BACKOFF";
+  private static final String HTTP_RETRY_MAX_BACKOFF_ENV = "DASHSCOPE_HTTP_RETRY_MAX_BACKOFF";
+  private static final String HTTP_RETRY_BUDGET_ENV = "DASHSCOPE_HTTP_RETRY_BUDGET";
+  private static final String HTTP_HEDGING_ENABLED_ENV = "DASHSCOPE_HTTP_HEDGING_ENABLED";
+
   private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(120);
   private static final Duration DEFAULT_WRITE_TIMEOUT = Duration.ofSeconds(60);
   private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(300);
@@ -50,6 +153,29 @@ public final class ConnectionConfigurations {
   private static final Integer DEFAULT_CONNECTION_POOL_SIZE = 32;
   private static final Integer DEFAULT_MAXIMUM_ASYNC_REQUESTS = 32;
   private static final Integer DEFAULT_MAXIMUM_ASYNC_REQUESTS_PER_HOST = 32;
+  private static final Integer DEFAULT_HTTP2_MAXIMUM_ASYNC_REQUESTS = 1024;
+  private static final Integer DEFAULT_MAXIMUM_QUEUED_REQUESTS = Integer.MAX_VALUE;
+  private static final Integer DEFAULT_BLOCKING_POOL_SIZE = 256;
+  private static final Integer DEFAULT_WEBSOCKET_POOL_MAX_SIZE = 64;
+  private static final Integer DEFAULT_WEBSOCKET_POOL_MAX_SIZE_PER_KEY = 16;
+  private static final Duration DEFAULT_WEBSOCKET_POOL_IDLE_TIMEOUT = Duration.ofSeconds(60);
+  private static final Duration DEFAULT_WEBSOCKET_PING_INTERVAL = Duration.ofSeconds(20);
+  private static final Integer DEFAULT_WEBSOCKET_MAX_TASKS_PER_CONNECTION = 32;
+  private static final Duration DEFAULT_WEBSOCKET_TASK_FINISH_TIMEOUT = Duration.ofSeconds(10);
+  private static final Integer DEFAULT_WEBSOCKET_RECONNECT_MAX_ATTEMPTS = 3;
+  private static final Duration DEFAULT_WEBSOCKET_RECONNECT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+  private static final Duration DEFAULT_WEBSOCKET_RECONNECT_MAX_BACKOFF = Duration.ofSeconds(10);
+  private static final Duration DEFAULT_WEBSOCKET_CONNECT_DEADLINE = Duration.ofSeconds(30);
+  private static final Integer DEFAULT_WEBSOCKET_CIRCUIT_BREAKER_THRESHOLD = 5;
+  private static final Duration DEFAULT_WEBSOCKET_CIRCUIT_BREAKER_OPEN_TIME =
+      Duration.ofSeconds(30);
+  private static final Integer DEFAULT_WARM_HTTP_CONNECTIONS = 4;
+  private static final Integer DEFAULT_WARM_WEBSOCKET_SESSIONS = 0;
+  private static final Duration DEFAULT_WARM_KEEP_ALIVE_INTERVAL = Duration.ofSeconds(60);
+  private static final Integer DEFAULT_HTTP_RETRY_MAX_ATTEMPTS = 1;
+  private static final Duration DEFAULT_HTTP_RETRY_INITIAL_BACKOFF = Duration.ofMillis(500);
+  private static final Duration DEFAULT_HTTP_RETRY_MAX_BACKOFF = Duration.ofSeconds(8);
+  private static final Duration DEFAULT_HTTP_RETRY_BUDGET = Duration.ofSeconds(30);
 
   private Duration connectTimeout;
   private Duration writeTimeout;
@@ -59,6 +185,39 @@ public final class ConnectionConfigurations {
   private Integer connectionPoolSize;
   private Integer maximumAsyncRequests;
   private Integer maximumAsyncRequestsPerHost;
+  private Integer maximumQueuedRequests;
+  private String httpProtocol;
+  private String blockingExecutor;
+  private Integer blockingPoolSize;
+
+  /**
+   * The configurations of the service families with their own client, its dispatcher, connection
+   * pool and timeouts, so long SSE streams do not hold the request slots of short calls. Unset
+   * values of a profile fall back to the environment and defaults, not to these configurations.
+   */
+  @Singular private Map<ClientProfile, ConnectionConfigurations> profiles;
+  private Boolean webSocketPoolEnabled;
+  private Integer webSocketPoolMaxSize;
+  private Integer webSocketPoolMaxSizePerKey;
+  private Duration webSocketPoolIdleTimeout;
+  private Duration webSocketPingInterval;
+  private Boolean webSocketMultiplexEnabled;
+  private Integer webSocketMaxTasksPerConnection;
+  private Duration webSocketTaskFinishTimeout;
+  private Integer webSocketReconnectMaxAttempts;
+  private Duration webSocketReconnectInitialBackoff;
+  private Duration webSocketReconnectMaxBackoff;
+  private Duration webSocketConnectDeadline;
+  private Integer webSocketCircuitBreakerThreshold;
+  private Duration webSocketCircuitBreakerOpenTime;
+  private Integer warmHttpConnections;
+  private Integer warmWebSocketSessions;
+  private Duration warmKeepAliveInterval;
+  private Integer httpRetryMaxAttempts;
+  private Duration httpRetryInitialBackoff;
+  private Duration httpRetryMaxBackoff;
+  private Duration httpRetryBudget;
+  private Boolean httpHedgingEnabled;
 
   public Duration getConnectTimeout() {
     return getDuration(connectTimeout, DEFAULT_CONNECT_TIMEOUT, CONNECTION_TIMEOUT_ENV);
@@ -97,7 +256,7 @@ public final class ConnectionConfigurations {
       Integer n = Integer.parseInt(System.getenv(MAXIMUM_ASYNC_REQUESTS_ENV));
       return n;
     } catch (NumberFormatException e) {
-      return DEFAULT_MAXIMUM_ASYNC_REQUESTS;
+      return isHttp2() ? DEFAULT_HTTP2_MAXIMUM_ASYNC_REQUESTS : DEFAULT_MAXIMUM_ASYNC_REQUESTS;
     }
   }
 
@@ -109,10 +268,243 @@ public final class ConnectionConfigurations {
       Integer n = Integer.parseInt(System.getenv(MAXIMUM_ASYNC_REQUESTS_PER_HOST_ENV));
       return n;
     } catch (NumberFormatException e) {
-      return DEFAULT_MAXIMUM_ASYNC_REQUESTS_PER_HOST;
+      return isHttp2()
+          ? DEFAULT_HTTP2_MAXIMUM_ASYNC_REQUESTS
+          : DEFAULT_MAXIMUM_ASYNC_REQUESTS_PER_HOST;
+    }
+  }
+
+  public Integer getMaximumQueuedRequests() {
+    try {
+      if (maximumQueuedRequests != null) {
+        return maximumQueuedRequests;
+      }
+      Integer n = Integer.parseInt(System.getenv(MAXIMUM_QUEUED_REQUESTS_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_MAXIMUM_QUEUED_REQUESTS;
+    }
+  }
+
+  public String getHttpProtocol() {
+    if (httpProtocol != null) {
+      return httpProtocol;
+    }
+    String envProtocol = System.getenv(HTTP_PROTOCOL_ENV);
+    return envProtocol == null ? HTTP_1_1 : envProtocol;
+  }
+
+  public String getBlockingExecutor() {
+    if (blockingExecutor != null) {
+      return blockingExecutor;
+    }
+    String envExecutor = System.getenv(BLOCKING_EXECUTOR_ENV);
+    return envExecutor == null ? VIRTUAL_THREADS : envExecutor;
+  }
+
+  public Integer getBlockingPoolSize() {
+    try {
+      if (blockingPoolSize != null) {
+        return blockingPoolSize;
+      }
+      Integer n = Integer.parseInt(System.getenv(BLOCKING_POOL_SIZE_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_BLOCKING_POOL_SIZE;
+    }
+  }
+
+  /** Whether the REST API is called over HTTP/2, h2 or h2c. */
+  public boolean isHttp2() {
+    String protocol = getHttpProtocol();
+    return H2.equalsIgnoreCase(protocol) || H2C.equalsIgnoreCase(protocol);
+  }
+
+  public Boolean getWebSocketPoolEnabled() {
+    if (webSocketPoolEnabled != null) {
+      return webSocketPoolEnabled;
+    }
+    return Boolean.parseBoolean(System.getenv(WEBSOCKET_POOL_ENABLED_ENV));
+  }
+
+  public Integer getWebSocketPoolMaxSize() {
+    try {
+      if (webSocketPoolMaxSize != null) {
+        return webSocketPoolMaxSize;
+      }
+      Integer n = Integer.parseInt(System.getenv(WEBSOCKET_POOL_MAX_SIZE_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WEBSOCKET_POOL_MAX_SIZE;
+    }
+  }
+
+  public Integer getWebSocketPoolMaxSizePerKey() {
+    try {
+      if (webSocketPoolMaxSizePerKey != null) {
+        return webSocketPoolMaxSizePerKey;
+      }
+      Integer n = Integer.parseInt(System.getenv(WEBSOCKET_POOL_MAX_SIZE_PER_KEY_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WEBSOCKET_POOL_MAX_SIZE_PER_KEY;
+    }
+  }
+
+  public Duration getWebSocketPoolIdleTimeout() {
+    return getDuration(
+        webSocketPoolIdleTimeout,
+        DEFAULT_WEBSOCKET_POOL_IDLE_TIMEOUT,
+        WEBSOCKET_POOL_IDLE_TIMEOUT_ENV);
+  }
+
+  public Duration getWebSocketPingInterval() {
+    return getDuration(
+        webSocketPingInterval, DEFAULT_WEBSOCKET_PING_INTERVAL, WEBSOCKET_PING_INTERVAL_ENV);
+  }
+
+  public Boolean getWebSocketMultiplexEnabled() {
+    if (webSocketMultiplexEnabled != null) {
+      return webSocketMultiplexEnabled;
+    }
+    return Boolean.parseBoolean(System.getenv(WEBSOCKET_MULTIPLEX_ENABLED_ENV));
+  }
+
+  public Integer getWebSocketMaxTasksPerConnection() {
+    try {
+      if (webSocketMaxTasksPerConnection != null) {
+        return webSocketMaxTasksPerConnection;
+      }
+      Integer n = Integer.parseInt(System.getenv(WEBSOCKET_MAX_TASKS_PER_CONNECTION_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WEBSOCKET_MAX_TASKS_PER_CONNECTION;
     }
   }
 
+  public Duration getWebSocketTaskFinishTimeout() {
+    return getDuration(
+        webSocketTaskFinishTimeout,
+        DEFAULT_WEBSOCKET_TASK_FINISH_TIMEOUT,
+        WEBSOCKET_TASK_FINISH_TIMEOUT_ENV);
+  }
+
+  public Integer getWebSocketReconnectMaxAttempts() {
+    try {
+      if (webSocketReconnectMaxAttempts != null) {
+        return webSocketReconnectMaxAttempts;
+      }
+      Integer n = Integer.parseInt(System.getenv(WEBSOCKET_RECONNECT_MAX_ATTEMPTS_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WEBSOCKET_RECONNECT_MAX_ATTEMPTS;
+    }
+  }
+
+  public Duration getWebSocketReconnectInitialBackoff() {
+    return getDuration(
+        webSocketReconnectInitialBackoff,
+        DEFAULT_WEBSOCKET_RECONNECT_INITIAL_BACKOFF,
+        WEBSOCKET_RECONNECT_INITIAL_BACKOFF_ENV);
+  }
+
+  public Duration getWebSocketReconnectMaxBackoff() {
+    return getDuration(
+        webSocketReconnectMaxBackoff,
+        DEFAULT_WEBSOCKET_RECONNECT_MAX_BACKOFF,
+        WEBSOCKET_RECONNECT_MAX_BACKOFF_ENV);
+  }
+
+  public Duration getWebSocketConnectDeadline() {
+    return getDuration(
+        webSocketConnectDeadline,
+        DEFAULT_WEBSOCKET_CONNECT_DEADLINE,
+        WEBSOCKET_CONNECT_DEADLINE_ENV);
+  }
+
+  public Integer getWebSocketCircuitBreakerThreshold() {
+    try {
+      if (webSocketCircuitBreakerThreshold != null) {
+        return webSocketCircuitBreakerThreshold;
+      }
+      Integer n = Integer.parseInt(System.getenv(WEBSOCKET_CIRCUIT_BREAKER_THRESHOLD_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WEBSOCKET_CIRCUIT_BREAKER_THRESHOLD;
+    }
+  }
+
+  public Duration getWebSocketCircuitBreakerOpenTime() {
+    return getDuration(
+        webSocketCircuitBreakerOpenTime,
+        DEFAULT_WEBSOCKET_CIRCUIT_BREAKER_OPEN_TIME,
+        WEBSOCKET_CIRCUIT_BREAKER_OPEN_TIME_ENV);
+  }
+
+  public Integer getWarmHttpConnections() {
+    try {
+      if (warmHttpConnections != null) {
+        return warmHttpConnections;
+      }
+      Integer n = Integer.parseInt(System.getenv(WARM_HTTP_CONNECTIONS_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WARM_HTTP_CONNECTIONS;
+    }
+  }
+
+  public Integer getWarmWebSocketSessions() {
+    try {
+      if (warmWebSocketSessions != null) {
+        return warmWebSocketSessions;
+      }
+      Integer n = Integer.parseInt(System.getenv(WARM_WEBSOCKET_SESSIONS_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_WARM_WEBSOCKET_SESSIONS;
+    }
+  }
+
+  public Duration getWarmKeepAliveInterval() {
+    return getDuration(
+        warmKeepAliveInterval, DEFAULT_WARM_KEEP_ALIVE_INTERVAL, WARM_KEEP_ALIVE_INTERVAL_ENV);
+  }
+
+  public Integer getHttpRetryMaxAttempts() {
+    try {
+      if (httpRetryMaxAttempts != null) {
+        return httpRetryMaxAttempts;
+      }
+      Integer n = Integer.parseInt(System.getenv(HTTP_RETRY_MAX_ATTEMPTS_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_HTTP_RETRY_MAX_ATTEMPTS;
+    }
+  }
+
+  public Duration getHttpRetryInitialBackoff() {
+    return getMillisDuration(
+        httpRetryInitialBackoff,
+        DEFAULT_HTTP_RETRY_INITIAL_BACKOFF,
+        HTTP_RETRY_INITIAL_BACKOFF_ENV);
+  }
+
+  public Duration getHttpRetryMaxBackoff() {
+    return getMillisDuration(
+        httpRetryMaxBackoff, DEFAULT_HTTP_RETRY_MAX_BACKOFF, HTTP_RETRY_MAX_BACKOFF_ENV);
+  }
+
+  public Duration getHttpRetryBudget() {
+    return getDuration(httpRetryBudget, DEFAULT_HTTP_RETRY_BUDGET, HTTP_RETRY_BUDGET_ENV);
+  }
+
+  public Boolean getHttpHedgingEnabled() {
+    if (httpHedgingEnabled != null) {
+      return httpHedgingEnabled;
+    }
+    return Boolean.parseBoolean(System.getenv(HTTP_HEDGING_ENABLED_ENV));
+  }
+
   private Duration getDuration(Duration target, Duration defaultValue, String env) {
     if (target == null) {
       try {
@@ -126,6 +518,19 @@ public final class ConnectionConfigurations {
     }
   }
 
+  private Duration getMillisDuration(Duration target, Duration defaultValue, String env) {
+    if (target == null) {
+      try {
+        long dur = Long.parseLong(System.getenv(env));
+        return Duration.ofMillis(dur);
+      } catch (NumberFormatException e) {
+        return defaultValue;
+      }
+    } else {
+      return target;
+    }
+  }
+
   public String getProxyHost() {
     if (proxyHost != null) {
       return proxyHost;
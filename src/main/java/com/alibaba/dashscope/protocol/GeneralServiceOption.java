@@ -7,7 +7,7 @@ import lombok.Data;
 import lombok.experimental.SuperBuilder;
 
 @Data
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 public final class GeneralServiceOption implements ServiceOption {
   // set websocket service stream mode[NONE, IN, OUT, DUPLEX]
   @Default private StreamingMode streamingMode = StreamingMode.NONE;
@@ -46,4 +46,27 @@ public final class GeneralServiceOption implements ServiceOption {
   public boolean getIsFlatten() {
     return true;
   }
+
+  /**
+   * A copy of the option for one call, services keep their option unchanged so an instance can
+   * serve concurrent calls.
+   *
+   * @param httpMethod The http method of the call.
+   * @param path The path of the call.
+   * @return The option of the call.
+   */
+  public GeneralServiceOption withPath(HttpMethod httpMethod, String path) {
+    return toBuilder().httpMethod(httpMethod).path(path).build();
+  }
+
+  /**
+   * A copy of the option for one call with its streaming mode.
+   *
+   * @param streamingMode The streaming mode of the call.
+   * @param isSSE Whether the call is streamed by SSE.
+   * @return The option of the call.
+   */
+  public GeneralServiceOption withStreaming(StreamingMode streamingMode, Boolean isSSE) {
+    return toBuilder().streamingMode(streamingMode).isSSE(isSSE).build();
+  }
 }
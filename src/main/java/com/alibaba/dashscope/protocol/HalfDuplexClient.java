@@ -7,6 +7,8 @@ import com.alibaba.dashscope.common.ResultCallback;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import io.reactivex.Flowable;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 public interface HalfDuplexClient {
   /**
@@ -24,6 +26,38 @@ public interface HalfDuplexClient {
   void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
       throws NoApiKeyException, ApiException;
 
+  /**
+   * Send without holding a thread until the response.
+   *
+   * @param req the user input data and parameters.
+   * @param timeout The timeout of the whole call, null for the client default. Only applied by
+   *     the http client.
+   * @return Completes with the `DashScopeResult`, canceling it cancels the http call.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   */
+  default CompletableFuture<DashScopeResult> sendAsync(HalfDuplexRequest req, Duration timeout)
+      throws NoApiKeyException, ApiException {
+    CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    send(
+        req,
+        new ResultCallback<DashScopeResult>() {
+          @Override
+          public void onEvent(DashScopeResult message) {
+            future.complete(message);
+          }
+
+          @Override
+          public void onComplete() {}
+
+          @Override
+          public void onError(Exception e) {
+            future.completeExceptionally(e instanceof ApiException ? e : new ApiException(e));
+          }
+        });
+    return future;
+  }
+
   /*
    * Multiple outputs, for http sse and websocket streamOut mode.
    */
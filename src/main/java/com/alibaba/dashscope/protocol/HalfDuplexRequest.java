@@ -16,6 +16,7 @@ import java.nio.ByteBuffer;
 import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
+import javax.crypto.spec.GCMParameterSpec;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -23,6 +24,7 @@ public class HalfDuplexRequest {
   HalfDuplexParamBase param;
   ServiceOption serviceOption;
   EncryptionConfig encryptionConfig;
+  GCMParameterSpec gcmParameterSpec;
 
   public HalfDuplexRequest(HalfDuplexParamBase param, ServiceOption option) {
     this.param = param;
@@ -30,6 +32,10 @@ public class HalfDuplexRequest {
     encryptionConfig = null;
   }
 
+  public HalfDuplexParamBase getParam() {
+    return param;
+  }
+
   public boolean getIsFlatten() {
     return serviceOption.getIsFlatten();
   }
@@ -61,6 +67,15 @@ public class HalfDuplexRequest {
     return baseUrl + serviceOption.httpUrl();
   }
 
+  /**
+   * Whether sending the request twice has the effect of sending it once, so it can be hedged and
+   * retried after a timeout: reads, embeddings and rerank.
+   */
+  public boolean isIdempotent() {
+    return getHttpMethod() == HttpMethod.GET
+        || ClientProfile.of(serviceOption) == ClientProfile.EMBEDDING;
+  }
+
   public boolean isSecurityCheck() {
     return param.isSecurityCheck();
   }
@@ -77,13 +92,25 @@ public class HalfDuplexRequest {
     return encryptionConfig;
   }
 
+  /** The GCM parameters of the encryption iv, shared by all the events of a stream. */
+  public GCMParameterSpec getGcmParameterSpec() {
+    if (gcmParameterSpec == null && encryptionConfig != null) {
+      gcmParameterSpec = new GCMParameterSpec(128, encryptionConfig.getIv());
+    }
+    return gcmParameterSpec;
+  }
+
   private String getEncryptionKeyHeader(EncryptionConfig encryptionConfig) throws ApiException {
-    byte[] cipherBytes = encryptionConfig.getAESEncryptKey().getEncoded();
-    String base64Cipher = Base64.getEncoder().encodeToString(cipherBytes);
+    String encryptKey = encryptionConfig.getEncryptedAESKey();
+    if (encryptKey == null) {
+      byte[] cipherBytes = encryptionConfig.getAESEncryptKey().getEncoded();
+      String base64Cipher = Base64.getEncoder().encodeToString(cipherBytes);
+      encryptKey = EncryptionUtils.RSAEncrypt(base64Cipher, encryptionConfig.getBase64PublicKey());
+    }
     return String.format(
         "{\"public_key_id\":\"%s\",\"encrypt_key\":\"%s\",\"iv\":\"%s\"}",
         encryptionConfig.getPublicKeyId(),
-        EncryptionUtils.RSAEncrypt(base64Cipher, encryptionConfig.getBase64PublicKey()),
+        encryptKey,
         Base64.getEncoder().encodeToString(encryptionConfig.getIv()));
   }
 
@@ -110,6 +137,7 @@ public class HalfDuplexRequest {
       JsonObject body = param.getHttpBody();
       if (isEncryptRequest() && body != null) { // we need to encrypt the input
         this.encryptionConfig = EncryptionUtils.generateEncryptionConfig(param.getApiKey());
+        this.gcmParameterSpec = null;
         requestHeaders.put("X-DashScope-EncryptionKey", getEncryptionKeyHeader(encryptionConfig));
         JsonObject input = body.get("input").getAsJsonObject();
         String chiperInput =
@@ -27,4 +27,7 @@ public class NetworkResponse {
 
   /** The HTTP status code */
   private Integer httpStatusCode;
+
+  /** Whether it's an event of a http stream, whose output is parsed on demand. */
+  private boolean streamEvent;
 }
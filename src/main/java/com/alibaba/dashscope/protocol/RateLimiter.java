@@ -0,0 +1,46 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntSupplier;
+
+/**
+ * Client side quota of http requests, by api key and model. Set `Constants.rateLimiter` to limit
+ * the requests of the sdk, see `TokenBucketRateLimiter`.
+ *
+ * <p>A request takes its quota before it is sent and reports the tokens it used once it finished,
+ * a 429 of the server is reported with its Retry-After.
+ */
+public interface RateLimiter {
+  /**
+   * Take the quota of a request.
+   *
+   * @param apiKey The api key of the request.
+   * @param model The model of the request.
+   * @param estimatedTokens The estimated prompt tokens, only called if the model has a token quota.
+   * @return Completes with the tokens taken once the request has quota, or with an `ApiException`
+   *     of status 429 if it would wait too long.
+   */
+  CompletableFuture<Integer> acquire(String apiKey, String model, IntSupplier estimatedTokens);
+
+  /**
+   * Report the tokens a request used, the difference to the tokens it took is refunded or charged.
+   *
+   * @param apiKey The api key of the request.
+   * @param model The model of the request.
+   * @param takenTokens The tokens taken by `acquire`.
+   * @param usedTokens The total tokens of the usage, or the taken tokens if it has no usage.
+   */
+  void release(String apiKey, String model, int takenTokens, int usedTokens);
+
+  /**
+   * Report a request rejected by the server for its rate limit.
+   *
+   * @param apiKey The api key of the request.
+   * @param model The model of the request.
+   * @param retryAfter The Retry-After of the response, null if it has none.
+   */
+  void rateLimited(String apiKey, String model, Duration retryAfter);
+}
@@ -0,0 +1,118 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import java.time.Duration;
+import lombok.Value;
+
+/**
+ * Metrics of the requests of the sdk. Set `Constants.sdkMetrics` to record them, for example with
+ * an implementation backed by a Micrometer `MeterRegistry` or an OpenTelemetry `Meter`. Nothing
+ * is measured while it is null.
+ *
+ * <p>All methods are called on the threads of the requests and must not block. The gauges of the
+ * dispatchers and connection pools are read from `OkHttpClientFactory.getStats(profile)`.
+ */
+public interface SdkMetrics {
+  /**
+   * A request finished.
+   *
+   * @param tags The tags of the request.
+   * @param errorCode The code of the error, null if the request succeeded.
+   * @param latency From the call to the last result or the error.
+   */
+  default void requestFinished(Tags tags, String errorCode, Duration latency) {}
+
+  /**
+   * The response headers of an http request arrived, after the retries of failed attempts.
+   *
+   * @param tags The tags of the request.
+   * @param delay From the call to the response headers.
+   */
+  default void firstByte(Tags tags, Duration delay) {}
+
+  /**
+   * The first result of a streaming request arrived.
+   *
+   * @param tags The tags of the request.
+   * @param delay From the call to the first result.
+   */
+  default void firstToken(Tags tags, Duration delay) {}
+
+  /**
+   * Another result of a streaming request arrived.
+   *
+   * @param tags The tags of the request.
+   * @param latency From the previous result.
+   */
+  default void interTokenLatency(Tags tags, Duration latency) {}
+
+  /**
+   * The bytes of an http request and its response.
+   *
+   * @param tags The tags of the request.
+   * @param sent The bytes of the request body.
+   * @param received The bytes of the response body or the data of its events.
+   */
+  default void bytes(Tags tags, long sent, long received) {}
+
+  /**
+   * The token usage of a finished request, from its last result.
+   *
+   * @param tags The tags of the request.
+   * @param inputTokens The input tokens, or the total tokens if the usage has no input tokens.
+   * @param outputTokens The output tokens, 0 if the usage has none.
+   */
+  default void tokenUsage(Tags tags, int inputTokens, int outputTokens) {}
+
+  /**
+   * The real time factor of synthesized audio, the time it took divided by the audio duration.
+   *
+   * @param tags The tags of the request.
+   * @param realTimeFactor The real time factor so far.
+   */
+  default void realTimeFactor(Tags tags, double realTimeFactor) {}
+
+  /** The tags of a request: its service, model and protocol of `http`, `sse` or `websocket`. */
+  @Value(staticConstructor = "of")
+  class Tags {
+    public static final String HTTP = "http";
+    public static final String SSE = "sse";
+    public static final String WEBSOCKET = "websocket";
+
+    String service;
+    String model;
+    String protocol;
+
+    /**
+     * The tags of a request.
+     *
+     * @param req The request.
+     * @param stream Whether the results are streamed, over sse for http.
+     */
+    public static Tags of(HalfDuplexRequest req, boolean stream) {
+      String protocol = HTTP;
+      if (req.serviceOption.getProtocol() == Protocol.WEBSOCKET) {
+        protocol = WEBSOCKET;
+      } else if (stream) {
+        protocol = SSE;
+      }
+      String model;
+      try {
+        model = req.param.getModel();
+      } catch (UnsupportedOperationException e) {
+        // task polling has no model.
+        model = null;
+      }
+      return of(service(req.serviceOption), model, protocol);
+    }
+
+    public static Tags of(FullDuplexRequest req) {
+      return of(service(req.serviceOption), req.param.getModel(), WEBSOCKET);
+    }
+
+    private static String service(ServiceOption option) {
+      return option.getTask() != null ? option.getTask() : option.getFunction();
+    }
+  }
+}
@@ -0,0 +1,332 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/**
+ * Token buckets of requests and tokens per minute, for each api key and model with a quota. A
+ * bucket holds up to one minute of quota and refills continuously.
+ *
+ * <p>Requests waiting for quota are served in order, a request is rejected with 429 instead if the
+ * requests ahead of it and its own would take longer than the maximum wait to get quota, so
+ * `maxWait(Duration.ZERO)` fails fast. The estimated prompt tokens are taken up front and
+ * corrected by the total tokens of the usage, so the output tokens are charged once a request
+ * finished. A 429 of the server pauses the bucket for its Retry-After.
+ */
+public final class TokenBucketRateLimiter implements RateLimiter {
+  private static final long MILLIS_PER_MINUTE = 60 * 1000;
+  private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+  private final Map<String, Quota> quotas;
+  private final Quota defaultQuota;
+  private final long maxWaitMillis;
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * @param quotas The quota of each model.
+   * @param defaultQuota The quota of the models without one, null to not limit them.
+   * @param maxWait The longest a request waits for quota, null to wait as long as it takes.
+   */
+  @Builder
+  public TokenBucketRateLimiter(
+      @Singular Map<String, Quota> quotas, Quota defaultQuota, Duration maxWait) {
+    this.quotas = quotas;
+    this.defaultQuota = defaultQuota;
+    this.maxWaitMillis = maxWait == null ? Long.MAX_VALUE : maxWait.toMillis();
+    this.scheduler = SdkExecutors.newScheduler("dashscope-rate-limiter");
+  }
+
+  /** The requests and tokens per minute of a model, 0 for no limit. */
+  @Value(staticConstructor = "of")
+  public static class Quota {
+    int requestsPerMinute;
+    int tokensPerMinute;
+  }
+
+  @Override
+  public CompletableFuture<Integer> acquire(
+      String apiKey, String model, IntSupplier estimatedTokens) {
+    Bucket bucket = bucket(apiKey, model);
+    if (bucket == null) {
+      return CompletableFuture.completedFuture(0);
+    }
+    int tokens = 0;
+    if (bucket.quota.tokensPerMinute > 0) {
+      // a prompt larger than the bucket waits for a full bucket.
+      tokens = Math.min(Math.max(estimatedTokens.getAsInt(), 0), bucket.quota.tokensPerMinute);
+    }
+    return bucket.acquire(tokens);
+  }
+
+  @Override
+  public void release(String apiKey, String model, int takenTokens, int usedTokens) {
+    Bucket bucket = bucket(apiKey, model);
+    if (bucket != null && bucket.quota.tokensPerMinute > 0 && usedTokens != takenTokens) {
+      bucket.charge(usedTokens - takenTokens);
+    }
+  }
+
+  @Override
+  public void rateLimited(String apiKey, String model, Duration retryAfter) {
+    Bucket bucket = bucket(apiKey, model);
+    if (bucket != null) {
+      bucket.pause(retryAfter == null ? DEFAULT_RETRY_AFTER : retryAfter);
+    }
+  }
+
+  /**
+   * The number of requests waiting for quota.
+   *
+   * @param apiKey The api key.
+   * @param model The model.
+   * @return The number of waiting requests.
+   */
+  public int getWaitingRequests(String apiKey, String model) {
+    Bucket bucket = bucket(apiKey, model);
+    return bucket == null ? 0 : bucket.waiting();
+  }
+
+  private Bucket bucket(String apiKey, String model) {
+    Quota quota = model == null ? null : quotas.get(model);
+    if (quota == null) {
+      quota = defaultQuota;
+    }
+    if (quota == null) {
+      return null;
+    }
+    Quota bucketQuota = quota;
+    return buckets.computeIfAbsent(
+        String.join("\n", apiKey, String.valueOf(model)), k -> new Bucket(model, bucketQuota));
+  }
+
+  private static final class Waiter {
+    final int tokens;
+    final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+    Waiter(int tokens) {
+      this.tokens = tokens;
+    }
+  }
+
+  private final class Bucket {
+    private final String model;
+    private final Quota quota;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    // requests and tokens available, tokens go negative when a request used more than it took.
+    private double requests;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil = 0;
+    private long waitingTokens = 0;
+    private ScheduledFuture<?> drainTask;
+
+    Bucket(String model, Quota quota) {
+      this.model = model;
+      this.quota = quota;
+      this.requests = quota.requestsPerMinute;
+      this.tokens = quota.tokensPerMinute;
+      this.refilledAt = System.currentTimeMillis();
+    }
+
+    CompletableFuture<Integer> acquire(int requestTokens) {
+      Waiter waiter;
+      synchronized (this) {
+        long now = System.currentTimeMillis();
+        refill(now);
+        if (waiters.isEmpty() && now >= pausedUntil && available(1, requestTokens)) {
+          take(requestTokens);
+          return CompletableFuture.completedFuture(requestTokens);
+        }
+        // the requests ahead are served first.
+        long wait = waitMillis(waiters.size() + 1, waitingTokens + requestTokens, now);
+        if (wait > maxWaitMillis) {
+          CompletableFuture<Integer> rejected = new CompletableFuture<>();
+          rejected.completeExceptionally(
+              new ApiException(
+                  Status.builder()
+                      .statusCode(429)
+                      .code("RateLimited")
+                      .message(
+                          String.format(
+                              "The quota of model %s is used up for %d ms, retry later.",
+                              model, wait))
+                      .build()));
+          return rejected;
+        }
+        waiter = new Waiter(requestTokens);
+        waiters.addLast(waiter);
+        waitingTokens += requestTokens;
+        scheduleDrain(now);
+      }
+      // a canceled waiter gives up its place, the ones behind it may have quota now.
+      waiter.future.whenComplete(
+          (granted, e) -> {
+            if (waiter.future.isCancelled() && remove(waiter)) {
+              drain();
+            }
+          });
+      return waiter.future;
+    }
+
+    private synchronized boolean remove(Waiter waiter) {
+      if (!waiters.remove(waiter)) {
+        return false;
+      }
+      waitingTokens -= waiter.tokens;
+      return true;
+    }
+
+    void charge(int chargedTokens) {
+      synchronized (this) {
+        refill(System.currentTimeMillis());
+        tokens -= chargedTokens;
+      }
+      if (chargedTokens < 0) {
+        // refunded, the first waiter may have quota now.
+        drain();
+      }
+    }
+
+    void pause(Duration retryAfter) {
+      synchronized (this) {
+        long now = System.currentTimeMillis();
+        pausedUntil = Math.max(pausedUntil, now + retryAfter.toMillis());
+        if (drainTask != null) {
+          drainTask.cancel(false);
+          drainTask = null;
+        }
+        scheduleDrain(now);
+      }
+    }
+
+    synchronized int waiting() {
+      return waiters.size();
+    }
+
+    private void drain() {
+      List<Waiter> granted = new ArrayList<>();
+      synchronized (this) {
+        drainTask = null;
+        long now = System.currentTimeMillis();
+        refill(now);
+        Waiter head;
+        while (now >= pausedUntil && (head = waiters.peekFirst()) != null) {
+          if (head.future.isDone()) {
+            // canceled, its callback may not have removed it yet.
+            waiters.pollFirst();
+            waitingTokens -= head.tokens;
+            continue;
+          }
+          if (!available(1, head.tokens)) {
+            break;
+          }
+          waiters.pollFirst();
+          waitingTokens -= head.tokens;
+          take(head.tokens);
+          granted.add(head);
+        }
+        scheduleDrain(now);
+      }
+      // complete outside the lock, callers start their requests in the callbacks.
+      boolean refunded = false;
+      for (Waiter waiter : granted) {
+        if (!waiter.future.complete(waiter.tokens)) {
+          // canceled meanwhile, the quota it took is given back.
+          refund(waiter.tokens);
+          refunded = true;
+        }
+      }
+      if (refunded) {
+        drain();
+      }
+    }
+
+    private synchronized void refund(int requestTokens) {
+      if (quota.requestsPerMinute > 0) {
+        requests = Math.min(quota.requestsPerMinute, requests + 1);
+      }
+      if (quota.tokensPerMinute > 0) {
+        tokens = Math.min(quota.tokensPerMinute, tokens + requestTokens);
+      }
+    }
+
+    /** Schedule a drain when the first waiter has quota, holding the lock. */
+    private void scheduleDrain(long now) {
+      Waiter head = waiters.peekFirst();
+      if (head == null || drainTask != null) {
+        return;
+      }
+      long delay = Math.max(1, waitMillis(1, head.tokens, now));
+      drainTask = scheduler.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** Add the quota since the last refill, holding the lock. */
+    private void refill(long now) {
+      long elapsed = now - refilledAt;
+      if (elapsed <= 0) {
+        // the wall clock went back, wait until it passes the last refill again.
+        return;
+      }
+      refilledAt = now;
+      if (quota.requestsPerMinute > 0) {
+        requests =
+            Math.min(
+                quota.requestsPerMinute,
+                requests + (double) elapsed * quota.requestsPerMinute / MILLIS_PER_MINUTE);
+      }
+      if (quota.tokensPerMinute > 0) {
+        tokens =
+            Math.min(
+                quota.tokensPerMinute,
+                tokens + (double) elapsed * quota.tokensPerMinute / MILLIS_PER_MINUTE);
+      }
+    }
+
+    private boolean available(int requestCount, long tokenCount) {
+      return (quota.requestsPerMinute <= 0 || requests >= requestCount)
+          && (quota.tokensPerMinute <= 0 || tokens >= tokenCount);
+    }
+
+    private void take(int requestTokens) {
+      if (quota.requestsPerMinute > 0) {
+        requests -= 1;
+      }
+      if (quota.tokensPerMinute > 0) {
+        tokens -= requestTokens;
+      }
+    }
+
+    /** How long until the bucket has the given requests and tokens, holding the lock. */
+    private long waitMillis(int requestCount, long tokenCount, long now) {
+      double wait = Math.max(0, pausedUntil - now);
+      if (quota.requestsPerMinute > 0 && requests < requestCount) {
+        wait =
+            Math.max(
+                wait, (requestCount - requests) * MILLIS_PER_MINUTE / quota.requestsPerMinute);
+      }
+      if (quota.tokensPerMinute > 0 && tokens < tokenCount) {
+        wait = Math.max(wait, (tokenCount - tokens) * MILLIS_PER_MINUTE / quota.tokensPerMinute);
+      }
+      return (long) Math.ceil(wait);
+    }
+  }
+}
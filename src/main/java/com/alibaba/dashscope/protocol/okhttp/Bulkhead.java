@@ -0,0 +1,119 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ClientProfileStats;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Bounds the async calls waiting in the dispatcher of a client profile. The dispatcher runs them
+ * in order, skipping calls to a host at its limit, a full queue rejects new calls instead of
+ * letting them wait.
+ *
+ * <p>It also counts the retries and hedges of the profile, and keeps the latencies of its last
+ * idempotent calls for the hedge delay.
+ */
+final class Bulkhead {
+  private static final int LATENCY_SAMPLES = 128;
+  private static final int MIN_LATENCY_SAMPLES = 20;
+  private static final long DEFAULT_HEDGE_DELAY_MILLIS = 1000;
+  private static final long MIN_HEDGE_DELAY_MILLIS = 50;
+
+  private final ClientProfile profile;
+  private final OkHttpClient client;
+  private final int maximumQueuedRequests;
+  private final AtomicLong saturated = new AtomicLong(0);
+  private final AtomicLong rejected = new AtomicLong(0);
+  private final AtomicLong retries = new AtomicLong(0);
+  private final AtomicLong hedges = new AtomicLong(0);
+  private final AtomicLong hedgeWins = new AtomicLong(0);
+  private final long[] latencies = new long[LATENCY_SAMPLES];
+  private int latencyCount = 0;
+
+  Bulkhead(ClientProfile profile, OkHttpClient client, int maximumQueuedRequests) {
+    this.profile = profile;
+    this.client = client;
+    this.maximumQueuedRequests = maximumQueuedRequests;
+  }
+
+  /**
+   * Admit an async call before it is enqueued.
+   *
+   * @throws ApiException The queue of the profile is full.
+   */
+  void admit() throws ApiException {
+    Dispatcher dispatcher = client.dispatcher();
+    int queued = dispatcher.queuedCallsCount();
+    if (queued >= maximumQueuedRequests) {
+      rejected.incrementAndGet();
+      throw new ApiException(
+          Status.builder()
+              .statusCode(429)
+              .code("RequestQueueFull")
+              .message(
+                  String.format(
+                      "The %s client has %d requests queued, retry later.", profile, queued))
+              .build());
+    }
+    if (queued > 0 || dispatcher.runningCallsCount() >= dispatcher.getMaxRequests()) {
+      saturated.incrementAndGet();
+    }
+  }
+
+  void retried() {
+    retries.incrementAndGet();
+  }
+
+  void hedged() {
+    hedges.incrementAndGet();
+  }
+
+  void hedgeWon() {
+    hedgeWins.incrementAndGet();
+  }
+
+  /** Record the latency of a successful idempotent call. */
+  synchronized void recordLatency(long millis) {
+    latencies[latencyCount % LATENCY_SAMPLES] = millis;
+    latencyCount++;
+  }
+
+  /** The p95 latency of the last idempotent calls, a default until there are enough of them. */
+  long hedgeDelayMillis() {
+    long[] samples;
+    synchronized (this) {
+      if (latencyCount < MIN_LATENCY_SAMPLES) {
+        return DEFAULT_HEDGE_DELAY_MILLIS;
+      }
+      samples = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+    }
+    Arrays.sort(samples);
+    long p95 = samples[(int) Math.ceil(samples.length * 0.95) - 1];
+    return Math.max(p95, MIN_HEDGE_DELAY_MILLIS);
+  }
+
+  ClientProfileStats stats() {
+    Dispatcher dispatcher = client.dispatcher();
+    return ClientProfileStats.builder()
+        .profile(profile)
+        .runningCalls(dispatcher.runningCallsCount())
+        .queuedCalls(dispatcher.queuedCallsCount())
+        .maximumRequests(dispatcher.getMaxRequests())
+        .maximumRequestsPerHost(dispatcher.getMaxRequestsPerHost())
+        .maximumQueuedRequests(maximumQueuedRequests)
+        .connections(client.connectionPool().connectionCount())
+        .idleConnections(client.connectionPool().idleConnectionCount())
+        .saturatedCalls(saturated.get())
+        .rejectedCalls(rejected.get())
+        .retries(retries.get())
+        .hedges(hedges.get())
+        .hedgeWins(hedgeWins.get())
+        .build();
+  }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consecutive failure circuit breaker. After `threshold` failures in a row the circuit opens and
+ * rejects calls for `openTime`, then lets a single trial call through: its success closes the
+ * circuit, its failure opens it again.
+ */
+@Slf4j
+public final class CircuitBreaker {
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+  private final String name;
+  private final int threshold;
+  private final long openTimeMillis;
+  private State state = State.CLOSED;
+  private int failures = 0;
+  private long openedAt = 0;
+
+  public CircuitBreaker(String name, int threshold, Duration openTime) {
+    this.name = name;
+    this.threshold = threshold;
+    this.openTimeMillis = openTime.toMillis();
+  }
+
+  /**
+   * The breaker shared by all connections to an endpoint with the same breaker configuration.
+   *
+   * @param host The host name.
+   * @param port The port.
+   * @param configurations The configurations of the client, null for the defaults.
+   * @return The breaker of the endpoint.
+   */
+  public static CircuitBreaker forEndpoint(
+      String host, int port, ConnectionConfigurations configurations) {
+    if (configurations == null) {
+      configurations = ConnectionConfigurations.builder().build();
+    }
+    int threshold = configurations.getWebSocketCircuitBreakerThreshold();
+    Duration openTime = configurations.getWebSocketCircuitBreakerOpenTime();
+    String name = host + ":" + port;
+    // clients configured differently do not share a breaker.
+    return breakers.computeIfAbsent(
+        String.format("%s/%d/%d", name, threshold, openTime.toMillis()),
+        k -> new CircuitBreaker(name, threshold, openTime));
+  }
+
+  /** Drop all shared breakers, the next connections start with closed circuits. */
+  public static void resetAll() {
+    breakers.clear();
+  }
+
+  /**
+   * Whether a call may go ahead, an open circuit past its open time admits one trial call.
+   *
+   * @return False if the call should fail fast.
+   */
+  public synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (System.currentTimeMillis() - openedAt >= openTimeMillis) {
+          state = State.HALF_OPEN;
+          return true;
+        }
+        return false;
+      default:
+        // a trial call is in flight.
+        return false;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    failures = 0;
+    state = State.CLOSED;
+  }
+
+  /**
+   * The call ended without telling whether the endpoint is healthy, e.g. it was rejected for its
+   * credentials. The failure count is kept, a trial call frees its place for the next one.
+   */
+  public synchronized void onIgnored() {
+    if (state == State.HALF_OPEN) {
+      // still past the open time, the next call is a trial again.
+      state = State.OPEN;
+    }
+  }
+
+  public synchronized void onFailure() {
+    failures += 1;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= threshold)) {
+      log.warn(String.format("Circuit %s opened after %d consecutive failures.", name, failures));
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+}
@@ -0,0 +1,305 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Pays DNS, TCP, TLS and the websocket upgrade before the first request. A warm resolves the hosts
+ * of the base urls, opens a number of pooled http connections on every http client, see
+ * `OkHttpClientFactory.getOkHttpClient(ClientProfile)`, and optionally a number of idle sessions
+ * in the `WebSocketSessionPool`.
+ *
+ * <p>Once started, the warm is repeated every keep alive interval. The http connections are used
+ * by concurrent HEAD requests, so none of them reaches the idle timeout of the pool, websocket
+ * sessions are marked used and topped up. `isReady` is true while the last warm succeeded, for
+ * readiness probes.
+ */
+@Slf4j
+public final class ConnectionWarmer {
+  private final ConnectionConfigurations configurations;
+  private final ScheduledExecutorService scheduler;
+  private final AtomicBoolean warming = new AtomicBoolean(false);
+  private ScheduledFuture<?> keepAlive;
+  private volatile boolean ready = false;
+  private volatile long lastWarmedAt = 0;
+  private volatile String lastError;
+
+  private static class Holder {
+    private static final ConnectionWarmer INSTANCE = createInstance();
+
+    private static ConnectionWarmer createInstance() {
+      ConnectionConfigurations connectionConfigurations = Constants.connectionConfigurations;
+      if (connectionConfigurations == null) {
+        connectionConfigurations = ConnectionConfigurations.builder().build();
+      }
+      return new ConnectionWarmer(connectionConfigurations);
+    }
+  }
+
+  /**
+   * The process wide warmer, configured by `Constants.connectionConfigurations`.
+   *
+   * @return The shared warmer.
+   */
+  public static ConnectionWarmer getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  public ConnectionWarmer(ConnectionConfigurations configurations) {
+    this.configurations = configurations;
+    this.scheduler = SdkExecutors.newScheduler("dashscope-connection-warmer");
+  }
+
+  /** Warm now and then every keep alive interval, until stopped. */
+  public synchronized void start() {
+    if (keepAlive != null) {
+      return;
+    }
+    long period = configurations.getWarmKeepAliveInterval().toMillis();
+    keepAlive =
+        scheduler.scheduleWithFixedDelay(
+            () -> {
+              // a slow warm is not overlapped by the next one.
+              if (warming.compareAndSet(false, true)) {
+                warm().whenComplete((v, e) -> warming.set(false));
+              }
+            },
+            0,
+            period,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /** Stop the keep alive, the connections are left to the idle timeout of their pools. */
+  public synchronized void stop() {
+    if (keepAlive != null) {
+      keepAlive.cancel(false);
+      keepAlive = null;
+    }
+  }
+
+  /**
+   * Warm the base urls of Constants once, with the configured numbers of connections and sessions.
+   *
+   * @return Completes when all connections and sessions are open, or with the first error.
+   */
+  public CompletableFuture<Void> warm() {
+    List<CompletableFuture<Void>> steps = new ArrayList<>();
+    int connections = configurations.getWarmHttpConnections();
+    if (connections > 0) {
+      for (OkHttpClient client : httpClients()) {
+        steps.add(warmHttp(client, Constants.baseHttpApiUrl, connections));
+      }
+    }
+    int sessions = configurations.getWarmWebSocketSessions();
+    if (sessions > 0 && configurations.getWebSocketPoolEnabled()) {
+      steps.add(warmWebSocket(Constants.baseWebsocketApiUrl, null, sessions));
+    }
+    return CompletableFuture.allOf(steps.toArray(new CompletableFuture<?>[0]))
+        .whenComplete(
+            (v, e) -> {
+              if (e == null) {
+                lastWarmedAt = System.currentTimeMillis();
+                lastError = null;
+                ready = true;
+              } else {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                lastError = cause.getMessage();
+                ready = false;
+                log.warn("Warm connections failed: {}", lastError);
+              }
+            });
+  }
+
+  /**
+   * Resolve the host of a base url and open connections to it on the client of a service family.
+   *
+   * @param profile The service family.
+   * @param baseHttpUrl The base http url.
+   * @param connections The number of connections to open.
+   * @return Completes when the connections are open and idle in the pool.
+   */
+  public CompletableFuture<Void> warmHttp(
+      ClientProfile profile, String baseHttpUrl, int connections) {
+    return warmHttp(OkHttpClientFactory.getOkHttpClient(profile), baseHttpUrl, connections);
+  }
+
+  /**
+   * Open idle sessions in the `WebSocketSessionPool`, used by tasks with the same url and api key
+   * and no workspace or custom headers, of full duplex services without connection options.
+   *
+   * @param baseWebSocketUrl The websocket url.
+   * @param apiKey The api key, null for the default.
+   * @param sessions The number of idle sessions to keep.
+   * @return Completes when the sessions are open.
+   */
+  public CompletableFuture<Void> warmWebSocket(
+      String baseWebSocketUrl, String apiKey, int sessions) {
+    return warmWebSocket(baseWebSocketUrl, apiKey, null, sessions);
+  }
+
+  /**
+   * Open idle sessions in the `WebSocketSessionPool` for the full duplex services created with the
+   * given connection options, their tasks lease sessions of the audio client with these options.
+   *
+   * @param baseWebSocketUrl The websocket url.
+   * @param apiKey The api key, null for the default.
+   * @param options The connection options of the services, null for the default.
+   * @param sessions The number of idle sessions to keep.
+   * @return Completes when the sessions are open.
+   */
+  public CompletableFuture<Void> warmWebSocket(
+      String baseWebSocketUrl, String apiKey, ConnectionOptions options, int sessions) {
+    WebSocketSessionPool pool = WebSocketSessionPool.getInstance();
+    WebSocketSessionPool.SessionKey key;
+    try {
+      key =
+          WebSocketSessionPool.SessionKey.of(baseWebSocketUrl, apiKey)
+              .withSettings(WebSocketSessionPool.ClientSettings.of(ClientProfile.AUDIO, options));
+    } catch (NoApiKeyException e) {
+      CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    return resolve(pool.clientOf(key.getSettings()), toHttpUrl(key.getUrl()))
+        .thenCompose(v -> pool.prewarm(key, sessions));
+  }
+
+  /**
+   * Whether the last warm succeeded, a readiness probe can fail while it is false.
+   *
+   * @return True if ready.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  public Readiness getReadiness() {
+    int connections = 0;
+    for (OkHttpClient client : httpClients()) {
+      connections += client.connectionPool().connectionCount();
+    }
+    return Readiness.builder()
+        .ready(ready)
+        .lastWarmedAt(lastWarmedAt)
+        .lastError(lastError)
+        .httpConnections(connections)
+        .webSocketSessions(WebSocketSessionPool.getInstance().getMetrics().getIdleSessions())
+        .build();
+  }
+
+  @Data
+  @Builder
+  public static class Readiness {
+    /** Whether the last warm succeeded. */
+    private boolean ready;
+    /** When the last warm succeeded, in epoch millis, 0 if never. */
+    private long lastWarmedAt;
+    /** The error of the last warm, null if it succeeded. */
+    private String lastError;
+    /** Number of connections in the pools of the http clients. */
+    private int httpConnections;
+    /** Number of idle sessions in the websocket pool. */
+    private int webSocketSessions;
+  }
+
+  /** The http clients of all service families, once each. */
+  private static List<OkHttpClient> httpClients() {
+    Map<ConnectionPool, OkHttpClient> clients = new IdentityHashMap<>();
+    for (ClientProfile profile : ClientProfile.values()) {
+      OkHttpClient client = OkHttpClientFactory.getOkHttpClient(profile);
+      clients.putIfAbsent(client.connectionPool(), client);
+    }
+    return new ArrayList<>(clients.values());
+  }
+
+  private static CompletableFuture<Void> warmHttp(
+      OkHttpClient client, String baseHttpUrl, int connections) {
+    HttpUrl url = toHttpUrl(baseHttpUrl);
+    return resolve(client, url).thenCompose(v -> openConnections(client, url, connections));
+  }
+
+  /** Resolve on the blocking executor, the jvm caches the addresses for the next connect. */
+  private static CompletableFuture<Void> resolve(OkHttpClient client, HttpUrl url) {
+    if (client.proxy() != null) {
+      // the proxy resolves the host.
+      return CompletableFuture.completedFuture(null);
+    }
+    return CompletableFuture.runAsync(
+        () -> {
+          try {
+            client.dns().lookup(url.host());
+          } catch (UnknownHostException e) {
+            throw new CompletionException(e);
+          }
+        },
+        SdkExecutors.blocking());
+  }
+
+  /**
+   * Concurrent HEAD requests, each of them takes an idle connection of the pool or opens a new
+   * one. Any response counts, the request is not authenticated.
+   */
+  private static CompletableFuture<Void> openConnections(
+      OkHttpClient client, HttpUrl url, int connections) {
+    Request request = new Request.Builder().url(url).head().build();
+    CompletableFuture<?>[] calls = new CompletableFuture<?>[connections];
+    for (int i = 0; i < connections; i++) {
+      CompletableFuture<Void> call = new CompletableFuture<>();
+      client
+          .newCall(request)
+          .enqueue(
+              new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                  call.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call c, Response response) {
+                  response.close();
+                  call.complete(null);
+                }
+              });
+      calls[i] = call;
+    }
+    return CompletableFuture.allOf(calls);
+  }
+
+  /** The http url of a base url, websocket urls are connected over http(s). */
+  private static HttpUrl toHttpUrl(String url) {
+    if (url.regionMatches(true, 0, "ws:", 0, 3)) {
+      url = "http:" + url.substring(3);
+    } else if (url.regionMatches(true, 0, "wss:", 0, 4)) {
+      url = "https:" + url.substring(4);
+    }
+    return HttpUrl.get(url);
+  }
+}
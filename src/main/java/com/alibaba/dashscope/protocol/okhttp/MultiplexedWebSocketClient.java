@@ -0,0 +1,375 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.common.TaskGroup;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.FullDuplexClient;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.HalfDuplexClient;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketMultiplexer.TaskEntry;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool.ClientSettings;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool.SessionKey;
+import com.alibaba.dashscope.utils.ApiKeywords;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import com.google.gson.JsonObject;
+import io.reactivex.Flowable;
+import io.reactivex.functions.Action;
+import io.reactivex.processors.UnicastProcessor;
+import io.reactivex.schedulers.Schedulers;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okio.ByteString;
+
+/**
+ * Websocket client running its tasks over connections shared by all multiplexed clients of the
+ * same url, api key, workspace and headers. A new connection is opened only when every existing
+ * one is full, or, for a task using binary frames, has its binary lane taken.
+ */
+@Slf4j
+public class MultiplexedWebSocketClient implements HalfDuplexClient, FullDuplexClient {
+  private static final Map<SessionKey, List<WebSocketMultiplexer>> connections =
+      new ConcurrentHashMap<>();
+
+  private final OkHttpClient client;
+  private final boolean passTaskStarted;
+  private final int maxTasksPerConnection;
+  private final Duration taskFinishTimeout;
+  private final ClientSettings settings;
+  // tasks started by this client, for close and cancel.
+  private final Map<String, WebSocketMultiplexer> inflight = new ConcurrentHashMap<>();
+
+  public MultiplexedWebSocketClient(
+      OkHttpClient client,
+      boolean passTaskStarted,
+      int maxTasksPerConnection,
+      Duration taskFinishTimeout) {
+    this(client, ClientSettings.DEFAULT, passTaskStarted, maxTasksPerConnection, taskFinishTimeout);
+  }
+
+  /**
+   * A client whose connections use the http client of a service family and connection options,
+   * they are shared only with clients of the same profile and options.
+   *
+   * @param profile The service family.
+   * @param options The connection options, null for the defaults of the profile.
+   * @param pingInterval The interval of the ping frames keeping the connections alive.
+   * @param passTaskStarted Pass the task-started event to the caller.
+   * @param maxTasksPerConnection The maximum concurrent tasks on one connection.
+   * @param taskFinishTimeout How long a canceled task using binary frames holds the binary lane of
+   *     its connection while waiting for the server to end it.
+   */
+  public MultiplexedWebSocketClient(
+      ClientProfile profile,
+      ConnectionOptions options,
+      Duration pingInterval,
+      boolean passTaskStarted,
+      int maxTasksPerConnection,
+      Duration taskFinishTimeout) {
+    this(
+        ClientSettings.of(profile, options).newClient(pingInterval),
+        ClientSettings.of(profile, options),
+        passTaskStarted,
+        maxTasksPerConnection,
+        taskFinishTimeout);
+  }
+
+  private MultiplexedWebSocketClient(
+      OkHttpClient client,
+      ClientSettings settings,
+      boolean passTaskStarted,
+      int maxTasksPerConnection,
+      Duration taskFinishTimeout) {
+    this.client = client;
+    this.settings = settings;
+    this.passTaskStarted = passTaskStarted;
+    this.maxTasksPerConnection = maxTasksPerConnection;
+    this.taskFinishTimeout = taskFinishTimeout;
+  }
+
+  private WebSocketMultiplexer register(SessionKey key, String taskId, TaskEntry entry)
+      throws NoApiKeyException, ApiException {
+    List<WebSocketMultiplexer> group =
+        connections.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+    WebSocketMultiplexer mux = tryRegister(group, taskId, entry);
+    if (mux == null) {
+      synchronized (group) {
+        // another task may have opened a connection while we were waiting.
+        mux = tryRegister(group, taskId, entry);
+        if (mux == null) {
+          mux = new WebSocketMultiplexer(client, key, maxTasksPerConnection, taskFinishTimeout);
+          mux.open();
+          mux.register(taskId, entry);
+          group.add(mux);
+        }
+      }
+    }
+    // the upgrade is waited for outside the lock, other tasks can join the connection meanwhile.
+    try {
+      mux.awaitOpen(Duration.ofMillis(client.connectTimeoutMillis()));
+    } catch (ApiException e) {
+      mux.unregister(taskId);
+      throw e;
+    }
+    return mux;
+  }
+
+  private WebSocketMultiplexer tryRegister(
+      List<WebSocketMultiplexer> group, String taskId, TaskEntry entry) {
+    for (WebSocketMultiplexer mux : group) {
+      if (!mux.isUsable()) {
+        group.remove(mux);
+      } else if (mux.register(taskId, entry)) {
+        return mux;
+      }
+    }
+    return null;
+  }
+
+  private static String getTaskId(JsonObject startMessage) {
+    return startMessage
+        .getAsJsonObject(ApiKeywords.HEADER)
+        .get(ApiKeywords.TASKID)
+        .getAsString();
+  }
+
+  private static boolean isAudioTask(JsonObject startMessage) {
+    JsonObject payload = startMessage.getAsJsonObject(ApiKeywords.PAYLOAD);
+    return payload != null
+        && payload.has(ApiKeywords.TASK_GROUP)
+        && !payload.get(ApiKeywords.TASK_GROUP).isJsonNull()
+        && TaskGroup.AUDIO.getValue().equals(payload.get(ApiKeywords.TASK_GROUP).getAsString());
+  }
+
+  /**
+   * Register the task and send its run-task message.
+   *
+   * @param finishMessage The finish-task message sent if the task is terminated locally, null if
+   *     the server ends the task by itself.
+   * @return The task result stream, buffered until subscribed.
+   */
+  private Flowable<DashScopeResult> startTask(
+      SessionKey key,
+      JsonObject startMessage,
+      boolean isFlatten,
+      boolean usesBinary,
+      JsonObject finishMessage,
+      TaskConsumer afterStart)
+      throws NoApiKeyException {
+    String taskId = getTaskId(startMessage);
+    UnicastProcessor<DashScopeResult> processor = UnicastProcessor.create();
+    TaskEntry entry =
+        new TaskEntry(
+            processor,
+            isFlatten,
+            passTaskStarted,
+            usesBinary,
+            finishMessage == null ? null : JsonUtils.toJson(finishMessage),
+            () -> inflight.remove(taskId));
+    WebSocketMultiplexer mux = register(key, taskId, entry);
+    inflight.put(taskId, mux);
+    // a result stream disposed before its end terminates the task.
+    Flowable<DashScopeResult> results = processor.doFinally(() -> mux.abort(taskId, null));
+    try {
+      mux.sendText(JsonUtils.toJson(startMessage));
+      afterStart.accept(mux, taskId, entry);
+    } catch (Throwable e) {
+      mux.abort(taskId, e);
+    }
+    return results;
+  }
+
+  private interface TaskConsumer {
+    void accept(WebSocketMultiplexer mux, String taskId, TaskEntry entry);
+  }
+
+  private Flowable<DashScopeResult> startHalfDuplex(HalfDuplexRequest req)
+      throws NoApiKeyException {
+    JsonObject startMessage = req.getStartTaskMessage();
+    ByteBuffer binaryData = req.getWebsocketBinaryData();
+    return startTask(
+        SessionKey.of(req).withSettings(settings),
+        startMessage,
+        req.getIsFlatten(),
+        binaryData != null || isAudioTask(startMessage),
+        null,
+        (mux, taskId, entry) -> {
+          if (binaryData != null) {
+            mux.sendBinary(ByteString.of(binaryData));
+          }
+        });
+  }
+
+  private Flowable<DashScopeResult> startFullDuplex(FullDuplexRequest req)
+      throws NoApiKeyException {
+    JsonObject startMessage = req.getStartTaskMessage();
+    String taskId = getTaskId(startMessage);
+    return startTask(
+        SessionKey.of(req).withSettings(settings),
+        startMessage,
+        req.getIsFlatten(),
+        isAudioTask(startMessage),
+        req.getFinishedTaskMessage(taskId),
+        (mux, id, entry) ->
+            entry.setStreaming(
+                req.getStreamingData()
+                    .subscribeOn(Schedulers.from(SdkExecutors.blocking()))
+                    .subscribe(
+                        data -> {
+                          if (data instanceof byte[]) {
+                            mux.sendBinary(ByteString.of((byte[]) data));
+                          } else if (data instanceof ByteBuffer) {
+                            mux.sendBinary(ByteString.of((ByteBuffer) data));
+                          } else {
+                            mux.sendText(JsonUtils.toJson(req.getContinueMessage(data, id)));
+                          }
+                        },
+                        err -> {
+                          log.error(String.format("Get stream data error: %s", err.getMessage()));
+                          mux.abort(id, err);
+                        },
+                        () -> {
+                          if (entry.markFinishSent()) {
+                            mux.sendText(entry.finishMessage);
+                          }
+                        })));
+  }
+
+  private static ApiException invalidCall() {
+    return new ApiException(
+        Status.builder()
+            .code("Invalid call")
+            .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+            .message("Please use streamOut interface of websocket.")
+            .build());
+  }
+
+  private static void subscribe(
+      Flowable<DashScopeResult> flowable, ResultCallback<DashScopeResult> callback) {
+    flowable.subscribe(
+        msg -> {
+          callback.onEvent(msg);
+        },
+        err -> {
+          callback.onError(new ApiException(err));
+        },
+        new Action() {
+          @Override
+          public void run() throws Exception {
+            callback.onComplete();
+          }
+        });
+  }
+
+  @Override
+  public DashScopeResult send(HalfDuplexRequest req) throws NoApiKeyException, ApiException {
+    if (req.getStreamingMode() != StreamingMode.NONE
+        && req.getStreamingMode() != StreamingMode.IN) {
+      throw invalidCall();
+    }
+    return startHalfDuplex(req).blockingSingle();
+  }
+
+  @Override
+  public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    if (req.getStreamingMode() != StreamingMode.NONE
+        && req.getStreamingMode() != StreamingMode.IN) {
+      throw invalidCall();
+    }
+    subscribe(startHalfDuplex(req), callback);
+  }
+
+  @Override
+  public Flowable<DashScopeResult> streamOut(HalfDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    return startHalfDuplex(req);
+  }
+
+  @Override
+  public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    subscribe(startHalfDuplex(req), callback);
+  }
+
+  @Override
+  public DashScopeResult streamIn(FullDuplexRequest req) throws NoApiKeyException, ApiException {
+    return startFullDuplex(req).blockingFirst();
+  }
+
+  @Override
+  public void streamIn(FullDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    DashScopeResult res = streamIn(req);
+    callback.onEvent(res);
+    callback.onComplete();
+  }
+
+  @Override
+  public Flowable<DashScopeResult> duplex(FullDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    return startFullDuplex(req);
+  }
+
+  @Override
+  public void duplex(FullDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    subscribe(startFullDuplex(req), callback);
+  }
+
+  /**
+   * Complete the in flight tasks of this client and ask the server to end them, the shared
+   * connections stay open.
+   */
+  @Override
+  public boolean close(int code, String reason) {
+    for (Map.Entry<String, WebSocketMultiplexer> entry : inflight.entrySet()) {
+      entry.getValue().abort(entry.getKey(), null);
+    }
+    return true;
+  }
+
+  @Override
+  public void cancel() {
+    for (Map.Entry<String, WebSocketMultiplexer> entry : inflight.entrySet()) {
+      entry
+          .getValue()
+          .abort(
+              entry.getKey(),
+              new ApiException(
+                  Status.builder()
+                      .code("Canceled")
+                      .message("Task canceled by client.")
+                      .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+                      .build()));
+    }
+  }
+
+  /** Close all shared connections without in flight tasks. */
+  public static void closeIdleConnections() {
+    for (List<WebSocketMultiplexer> group : connections.values()) {
+      for (WebSocketMultiplexer mux : group) {
+        if (mux.isIdle()) {
+          group.remove(mux);
+          mux.close(1000, "bye");
+        }
+      }
+    }
+  }
+}
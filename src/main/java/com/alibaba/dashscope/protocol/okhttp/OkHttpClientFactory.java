@@ -2,11 +2,18 @@
 
 package com.alibaba.dashscope.protocol.okhttp;
 
+import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.protocol.ClientOptions;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ClientProfileStats;
 import com.alibaba.dashscope.protocol.ConnectionConfigurations;
 import com.alibaba.dashscope.protocol.ConnectionOptions;
 import com.alibaba.dashscope.utils.Constants;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.ConnectionPool;
@@ -19,6 +26,10 @@ import okhttp3.logging.HttpLoggingInterceptor.Level;
 
 @Slf4j
 public class OkHttpClientFactory {
+  private static final Map<ClientProfile, OkHttpClient> profileClients = new ConcurrentHashMap<>();
+  // the bulkhead of each profile, by the dispatcher its clients share.
+  private static final Map<Dispatcher, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
   private OkHttpClientFactory() {
     if (Holder.INSTANCE != null) {
       throw new IllegalStateException();
@@ -34,39 +45,82 @@ public class OkHttpClientFactory {
         // build default configuration
         connectionConfigurations = ConnectionConfigurations.builder().build();
       }
+      return register(
+          ClientProfile.DEFAULT,
+          createOkHttpClient(connectionConfigurations),
+          connectionConfigurations);
+    }
+  }
 
-      ClientOptions defaultOptions = ClientOptions.builder().build();
-      HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-      logging.setLevel(Level.valueOf(defaultOptions.getNetworkLoggingLevel()));
-      int connectionPoolSize = connectionConfigurations.getConnectionPoolSize();
-      log.debug("[connectionPool Config] connectionPoolSize: {}", connectionPoolSize);
-      Dispatcher dispatcher = new Dispatcher();
-      dispatcher.setMaxRequests(connectionConfigurations.getMaximumAsyncRequests());
-      log.debug("[connectionPool Config] maxRequests: {}", dispatcher.getMaxRequests());
-      dispatcher.setMaxRequestsPerHost(connectionConfigurations.getMaximumAsyncRequestsPerHost());
-      log.debug(
-          "[connectionPool Config] maxRequestsPerHost: {}", dispatcher.getMaxRequestsPerHost());
-      Builder clientBuilder = new OkHttpClient.Builder();
-      clientBuilder
-          .connectTimeout(connectionConfigurations.getConnectTimeout())
-          .readTimeout(connectionConfigurations.getReadTimeout())
-          .writeTimeout(connectionConfigurations.getWriteTimeout())
-          .addInterceptor(logging)
-          .dispatcher(dispatcher)
-          .protocols(Collections.singletonList(Protocol.HTTP_1_1))
-          .connectionPool(
-              new ConnectionPool(
-                  connectionPoolSize,
-                  connectionConfigurations.getConnectionIdleTimeout().getSeconds(),
-                  TimeUnit.SECONDS));
-      if (connectionConfigurations.getProxy() != null) {
-        clientBuilder.proxy(connectionConfigurations.getProxy());
-      }
-      if (connectionConfigurations.getProxyAuthenticator() != null) {
-        clientBuilder.proxyAuthenticator(connectionConfigurations.getProxyAuthenticator());
-      }
-      return clientBuilder.build();
+  private static OkHttpClient register(
+      ClientProfile profile, OkHttpClient client, ConnectionConfigurations configurations) {
+    bulkheads.put(
+        client.dispatcher(),
+        new Bulkhead(profile, client, configurations.getMaximumQueuedRequests()));
+    return client;
+  }
+
+  static ConnectionConfigurations profileConfigurations(ClientProfile profile) {
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    if (configurations == null || configurations.getProfiles() == null) {
+      return null;
+    }
+    return configurations.getProfiles().get(profile);
+  }
+
+  /**
+   * Create a client with its own connection pool and dispatcher, the default client is created by
+   * Constants.connectionConfigurations.
+   *
+   * @param connectionConfigurations The connection configurations.
+   * @return The client.
+   */
+  public static OkHttpClient createOkHttpClient(
+      ConnectionConfigurations connectionConfigurations) {
+    ClientOptions defaultOptions = ClientOptions.builder().build();
+    HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
+    logging.setLevel(Level.valueOf(defaultOptions.getNetworkLoggingLevel()));
+    int connectionPoolSize = connectionConfigurations.getConnectionPoolSize();
+    log.debug("[connectionPool Config] connectionPoolSize: {}", connectionPoolSize);
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(connectionConfigurations.getMaximumAsyncRequests());
+    log.debug("[connectionPool Config] maxRequests: {}", dispatcher.getMaxRequests());
+    dispatcher.setMaxRequestsPerHost(connectionConfigurations.getMaximumAsyncRequestsPerHost());
+    log.debug(
+        "[connectionPool Config] maxRequestsPerHost: {}", dispatcher.getMaxRequestsPerHost());
+    Builder clientBuilder = new OkHttpClient.Builder();
+    clientBuilder
+        .connectTimeout(connectionConfigurations.getConnectTimeout())
+        .readTimeout(connectionConfigurations.getReadTimeout())
+        .writeTimeout(connectionConfigurations.getWriteTimeout())
+        .addInterceptor(logging)
+        .dispatcher(dispatcher)
+        .protocols(protocols(connectionConfigurations.getHttpProtocol()))
+        .connectionPool(
+            new ConnectionPool(
+                connectionPoolSize,
+                connectionConfigurations.getConnectionIdleTimeout().getSeconds(),
+                TimeUnit.SECONDS));
+    if (connectionConfigurations.getProxy() != null) {
+      clientBuilder.proxy(connectionConfigurations.getProxy());
+    }
+    if (connectionConfigurations.getProxyAuthenticator() != null) {
+      clientBuilder.proxyAuthenticator(connectionConfigurations.getProxyAuthenticator());
+    }
+    return clientBuilder.build();
+  }
+
+  private static List<Protocol> protocols(String httpProtocol) {
+    log.debug("[connectionPool Config] httpProtocol: {}", httpProtocol);
+    if (ConnectionConfigurations.H2.equalsIgnoreCase(httpProtocol)) {
+      // concurrent calls to a host are multiplexed, and coalesced across hosts of a certificate.
+      return Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    } else if (ConnectionConfigurations.H2C.equalsIgnoreCase(httpProtocol)) {
+      return Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+    } else if (!ConnectionConfigurations.HTTP_1_1.equalsIgnoreCase(httpProtocol)) {
+      log.warn("Unknown http protocol: {}, use http/1.1", httpProtocol);
     }
+    return Collections.singletonList(Protocol.HTTP_1_1);
   }
 
   public static OkHttpClient getOkHttpClient() {
@@ -74,8 +128,71 @@ public class OkHttpClientFactory {
     return Holder.INSTANCE;
   }
 
+  /**
+   * The client of a service family, with its own dispatcher and connection pool if the family has
+   * configurations in Constants.connectionConfigurations, otherwise the default client.
+   *
+   * @param profile The service family.
+   * @return The client.
+   */
+  public static OkHttpClient getOkHttpClient(ClientProfile profile) {
+    ConnectionConfigurations configurations = profileConfigurations(profile);
+    if (configurations == null) {
+      return getOkHttpClient();
+    }
+    return profileClients.computeIfAbsent(
+        profile, key -> register(key, createOkHttpClient(configurations), configurations));
+  }
+
+  /**
+   * The saturation of the client of a service family, the default client's if the family has no
+   * client of its own.
+   *
+   * @param profile The service family.
+   * @return The stats.
+   */
+  public static ClientProfileStats getStats(ClientProfile profile) {
+    return bulkheads.get(getOkHttpClient(profile).dispatcher()).stats();
+  }
+
+  /**
+   * Admit an async call of a client, rejects it if the queue of the client's profile is full.
+   *
+   * @param client The client of the call.
+   * @throws ApiException The queue is full.
+   */
+  static void admit(OkHttpClient client) throws ApiException {
+    Bulkhead bulkhead = bulkhead(client);
+    if (bulkhead != null) {
+      bulkhead.admit();
+    }
+  }
+
+  /**
+   * The bulkhead of a client's profile, by the dispatcher it shares.
+   *
+   * @param client The client.
+   * @return The bulkhead, null if the client was not created by the factory.
+   */
+  static Bulkhead bulkhead(OkHttpClient client) {
+    return bulkheads.get(client.dispatcher());
+  }
+
   public static OkHttpClient getNewOkHttpClient(ConnectionOptions connectionOptions) {
-    return Holder.INSTANCE
+    return getNewOkHttpClient(ClientProfile.DEFAULT, connectionOptions);
+  }
+
+  /**
+   * A client of a service family with the timeouts of the connection options, sharing the
+   * dispatcher and connection pool of the family.
+   *
+   * @param profile The service family.
+   * @param connectionOptions The connection options.
+   * @return The client.
+   */
+  public static OkHttpClient getNewOkHttpClient(
+      ClientProfile profile, ConnectionOptions connectionOptions) {
+    return getOkHttpClient(profile)
         .newBuilder()
         .connectTimeout(connectionOptions.getConnectTimeout())
         .readTimeout(connectionOptions.getReadTimeout())
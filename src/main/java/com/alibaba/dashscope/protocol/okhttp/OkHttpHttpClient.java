@@ -9,20 +9,36 @@ import com.alibaba.dashscope.common.ResultCallback;
 import com.alibaba.dashscope.common.Status;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
 import com.alibaba.dashscope.protocol.HalfDuplexClient;
 import com.alibaba.dashscope.protocol.HalfDuplexRequest;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.HttpRequest;
 import com.alibaba.dashscope.protocol.NetworkResponse;
 import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.SdkMetrics;
+import com.alibaba.dashscope.protocol.SdkMetrics.Tags;
 import com.alibaba.dashscope.utils.ApiKeywords;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.EncryptionKeyCache;
 import com.alibaba.dashscope.utils.JsonUtils;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.FlowableEmitter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -43,6 +59,8 @@ import org.jetbrains.annotations.NotNull;
 @Slf4j
 public final class OkHttpHttpClient implements HalfDuplexClient {
   private final OkHttpClient client;
+  // null for the policy of Constants.connectionConfigurations at the time of each request.
+  private final RetryPolicy retryPolicy;
   private static final MediaType MEDIA_TYPE_APPLICATION_JSON =
       MediaType.parse("application/json; charset=utf-8");
 
@@ -110,6 +128,30 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
     }
   }
 
+  /**
+   * Parse the failure of a request, a rejected encrypted request may use a rotated key and a 429
+   * pauses the rate limiter.
+   */
+  private Status requestFailed(
+      HalfDuplexRequest req, RateLimitedRequest limited, Response response, Throwable th) {
+    limited.rejected(response);
+    Status status = parseFailed(response, th);
+    if (req.isEncryptRequest() && isEncryptionKeyRejected(status)) {
+      EncryptionKeyCache.getInstance().invalidate(req.getApiKey());
+    }
+    return status;
+  }
+
+  /** Whether the server rejected the encryption key of a request, not just its input. */
+  private static boolean isEncryptionKeyRejected(Status status) {
+    if (status.getStatusCode() == 401 || status.getStatusCode() == 403) {
+      return true;
+    }
+    String code = status.getCode() == null ? "" : status.getCode().toLowerCase();
+    return status.getStatusCode() == 400
+        && (code.contains("encrypt") || code.contains("publickey"));
+  }
+
   private Status parseFailed(Response response, Throwable th) {
     if (response == null) {
       String message = th == null ? "Get response failed!" : th.getMessage();
@@ -171,7 +213,113 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
   }
 
   public OkHttpHttpClient(OkHttpClient client) {
+    this(client, null);
+  }
+
+  public OkHttpHttpClient(OkHttpClient client, RetryPolicy retryPolicy) {
     this.client = client;
+    this.retryPolicy = retryPolicy;
+  }
+
+  private RetryPolicy retryPolicy() {
+    if (retryPolicy != null) {
+      return retryPolicy;
+    }
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    if (configurations == null) {
+      configurations = ConnectionConfigurations.builder().build();
+    }
+    return RetryPolicy.of(configurations);
+  }
+
+  private RetryingCall newCall(
+      HalfDuplexRequest req,
+      Request request,
+      RateLimitedRequest limited,
+      Duration timeout,
+      Callback callback) {
+    return new RetryingCall(
+        client, request, retryPolicy(), req.isIdempotent(), timeout, limited::rejected, callback);
+  }
+
+  /**
+   * Execute a request on the calling thread, retrying failed attempts. A hedged request is sent
+   * with the async client instead, so its attempts can run concurrently.
+   */
+  private Response execute(HalfDuplexRequest req, Request request, RateLimitedRequest limited)
+      throws IOException, InterruptedException {
+    RetryPolicy policy = retryPolicy();
+    boolean idempotent = req.isIdempotent();
+    if (idempotent && policy.isHedging()) {
+      CompletableFuture<Response> future = new CompletableFuture<>();
+      RetryingCall call =
+          newCall(
+              req,
+              request,
+              limited,
+              null,
+              new Callback() {
+                @Override
+                public void onFailure(Call c, IOException e) {
+                  future.completeExceptionally(e);
+                }
+
+                @Override
+                public void onResponse(Call c, Response response) {
+                  future.complete(response);
+                }
+              });
+      call.start();
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        call.cancel();
+        Thread.currentThread().interrupt();
+        throw e;
+      } catch (ExecutionException e) {
+        throw (IOException) e.getCause();
+      }
+    }
+    Bulkhead bulkhead = OkHttpClientFactory.bulkhead(client);
+    long startedAt = System.currentTimeMillis();
+    for (int attempts = 1; ; attempts++) {
+      Response response = null;
+      IOException error = null;
+      long sentAt = System.currentTimeMillis();
+      try {
+        response = client.newCall(request).execute();
+      } catch (IOException e) {
+        error = e;
+      }
+      if (response != null && response.isSuccessful()) {
+        if (idempotent && bulkhead != null) {
+          bulkhead.recordLatency(System.currentTimeMillis() - sentAt);
+        }
+        return response;
+      }
+      // -1 if the attempts or the retry budget would be exceeded after the sleep.
+      long delay = policy.retryDelayMillis(attempts, startedAt, response, error, idempotent);
+      if (delay < 0) {
+        if (response == null) {
+          throw error;
+        }
+        return response;
+      }
+      if (response != null) {
+        limited.rejected(response);
+        response.close();
+      }
+      if (bulkhead != null) {
+        bulkhead.retried();
+      }
+      try {
+        TimeUnit.MILLISECONDS.sleep(delay);
+      } catch (InterruptedException e) {
+        // stop retrying, the interrupt is kept for the caller.
+        Thread.currentThread().interrupt();
+        throw e;
+      }
+    }
   }
 
   private <T extends HalfDuplexParamBase> Request buildRequest(HttpRequest req)
@@ -231,25 +379,40 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
    */
   @Override
   public DashScopeResult send(HalfDuplexRequest req) throws NoApiKeyException, ApiException {
+    RateLimitedRequest limited = null;
     try {
       Request request = buildRequest(req.getHttpRequest());
-      Response response = client.newCall(request).execute();
+      HttpMeter meter = HttpMeter.of(req, request, false);
+      limited = RateLimitedRequest.of(req);
+      limited.acquireBlocking();
+      Response response = execute(req, request, limited);
+      meter.responded();
       if (!response.isSuccessful()) {
-        Status status = parseFailed(response, null);
+        Status status = requestFailed(req, limited, response, null);
         throw new ApiException(status);
       }
-      return new DashScopeResult()
-          .fromResponse(
-              Protocol.HTTP,
-              NetworkResponse.builder()
-                  .headers(response.headers().toMultimap())
-                  .message(response.body().string())
-                  .httpStatusCode(response.code())
-                  .build(),
-              req.getIsFlatten(),
-              req);
+      String body = response.body().string();
+      meter.received(body);
+      meter.finished();
+      DashScopeResult result =
+          new DashScopeResult()
+              .fromResponse(
+                  Protocol.HTTP,
+                  NetworkResponse.builder()
+                      .headers(response.headers().toMultimap())
+                      .message(body)
+                      .httpStatusCode(response.code())
+                      .build(),
+                  req.getIsFlatten(),
+                  req);
+      limited.onResult(result);
+      return result;
     } catch (Throwable e) {
       throw new ApiException(e);
+    } finally {
+      if (limited != null) {
+        limited.release();
+      }
     }
   }
 
@@ -257,38 +420,153 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
   public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
       throws NoApiKeyException, ApiException {
     Request request = buildRequest(req.getHttpRequest());
-    client
-        .newCall(request)
-        .enqueue(
-            new Callback() {
+    RateLimitedRequest limited = RateLimitedRequest.of(req);
+    ResultCallback<DashScopeResult> limitedCallback = limited.wrap(callback);
+    RetryingCall call =
+        newCall(req, request, limited, null, toCallback(req, request, limited, limitedCallback));
+    whenPermitted(limited, limitedCallback::onError, call::start);
+  }
+
+  /**
+   * Start a request once it has quota. With quota at hand it starts right away and its admission
+   * errors are thrown, otherwise it starts on the rate limiter and they go to onError.
+   */
+  private static void whenPermitted(
+      RateLimitedRequest limited, Consumer<Exception> onError, Runnable start) {
+    CompletableFuture<Void> permit = limited.acquire();
+    if (permit.isDone()) {
+      try {
+        permit.join();
+      } catch (CompletionException e) {
+        throw new ApiException(e.getCause());
+      }
+      try {
+        start.run();
+      } catch (RuntimeException e) {
+        limited.release();
+        throw e;
+      }
+      return;
+    }
+    permit.whenComplete(
+        (v, e) -> {
+          Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+          if (cause instanceof CancellationException) {
+            // the request was canceled while it waited.
+            return;
+          }
+          if (cause != null) {
+            onError.accept(new ApiException(cause));
+            return;
+          }
+          try {
+            start.run();
+          } catch (RuntimeException ex) {
+            limited.release();
+            onError.accept(ex);
+          }
+        });
+  }
+
+  @Override
+  public CompletableFuture<DashScopeResult> sendAsync(HalfDuplexRequest req, Duration timeout)
+      throws NoApiKeyException, ApiException {
+    Request request = buildRequest(req.getHttpRequest());
+    RateLimitedRequest limited = RateLimitedRequest.of(req);
+    CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    ResultCallback<DashScopeResult> callback =
+        limited.wrap(
+            new ResultCallback<DashScopeResult>() {
               @Override
-              public void onFailure(Call call, IOException e) {
-                callback.onError(e);
+              public void onEvent(DashScopeResult message) {
+                future.complete(message);
               }
 
               @Override
-              public void onResponse(Call call, Response response) throws IOException {
-                try (ResponseBody responseBody = response.body()) {
-                  if (!response.isSuccessful()) {
-                    Status status = parseFailed(response, null);
-                    callback.onError(new ApiException(status));
-                  } else {
-                    callback.onEvent(
-                        new DashScopeResult()
-                            .fromResponse(
-                                Protocol.HTTP,
-                                NetworkResponse.builder()
-                                    .headers(response.headers().toMultimap())
-                                    .message(response.body().string())
-                                    .httpStatusCode(response.code())
-                                    .build(),
-                                req.getIsFlatten(),
-                                req));
-                    callback.onComplete();
-                  }
-                }
+              public void onComplete() {}
+
+              @Override
+              public void onError(Exception e) {
+                future.completeExceptionally(e instanceof ApiException ? e : new ApiException(e));
               }
             });
+    RetryingCall call =
+        newCall(req, request, limited, timeout, toCallback(req, request, limited, callback));
+    future.whenComplete(
+        (result, e) -> {
+          if (future.isCancelled()) {
+            call.cancel();
+            // the callback is not called for a canceled call.
+            limited.cancel();
+          }
+        });
+    whenPermitted(limited, callback::onError, call::start);
+    return future;
+  }
+
+  private Callback toCallback(
+      HalfDuplexRequest req,
+      Request request,
+      RateLimitedRequest limited,
+      ResultCallback<DashScopeResult> callback) {
+    HttpMeter meter = HttpMeter.of(req, request, false);
+    return new Callback() {
+      @Override
+      public void onFailure(Call call, IOException e) {
+        callback.onError(e);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) throws IOException {
+        meter.responded();
+        try (ResponseBody responseBody = response.body()) {
+          if (!response.isSuccessful()) {
+            Status status = requestFailed(req, limited, response, null);
+            callback.onError(new ApiException(status));
+            return;
+          }
+          DashScopeResult result;
+          try {
+            String body = response.body().string();
+            meter.received(body);
+            meter.finished();
+            result =
+                new DashScopeResult()
+                    .fromResponse(
+                        Protocol.HTTP,
+                        NetworkResponse.builder()
+                            .headers(response.headers().toMultimap())
+                            .message(body)
+                            .httpStatusCode(response.code())
+                            .build(),
+                        req.getIsFlatten(),
+                        req);
+          } catch (Exception e) {
+            // okhttp drops exceptions thrown after the response, report it instead.
+            callback.onError(e instanceof ApiException ? e : new ApiException(e));
+            return;
+          }
+          callback.onEvent(result);
+          callback.onComplete();
+        }
+      }
+    };
+  }
+
+  private DashScopeResult toStreamResult(
+      String eventType, String data, StreamResponse response, HalfDuplexRequest req) {
+    return new DashScopeResult()
+        .fromResponse(
+            Protocol.HTTP,
+            NetworkResponse.builder()
+                .headers(response.headers)
+                .message(data)
+                .event(eventType)
+                .httpStatusCode(response.code)
+                .streamEvent(true)
+                .build(),
+            req.getIsFlatten(),
+            req);
   }
 
   private void handleSSEEvent(
@@ -296,58 +574,94 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
       String id,
       String eventType,
       String data,
-      boolean isFlattenResult,
-      Response response,
-      HalfDuplexRequest req) {
+      StreamResponse response,
+      HalfDuplexRequest req,
+      RateLimitedRequest limited) {
     log.debug(String.format("Event: id %s, type: %s, data: %s", id, eventType, data));
     if (SSEEventType.ERROR.equals(eventType)) {
       Status st = parseStreamEventData(data);
       emitter.onError(new ApiException(st));
     } else if (SSEEventType.DATA.equals(eventType) || SSEEventType.RESULT.equals(eventType)) {
-      emitter.onNext(
-          new DashScopeResult()
-              .fromResponse(
-                  Protocol.HTTP,
-                  NetworkResponse.builder()
-                      .headers(response.headers().toMultimap())
-                      .message(data)
-                      .event(eventType)
-                      .httpStatusCode(response.code())
-                      .build(),
-                  isFlattenResult,
-                  req));
+      emitter.onNext(limitedResult(limited, toStreamResult(eventType, data, response, req)));
     } else if (SSEEventType.DONE.equals(eventType)) { // event done ignore message
       log.debug(String.format("Ignore event id: %s, type: %s, data: %s", id, eventType, data));
     } else if (eventType != null) {
       // process assistant events.
-      emitter.onNext(
-          new DashScopeResult()
-              .fromResponse(
-                  Protocol.HTTP,
-                  NetworkResponse.builder()
-                      .headers(response.headers().toMultimap())
-                      .message(data)
-                      .event(eventType)
-                      .httpStatusCode(response.code())
-                      .build(),
-                  isFlattenResult,
-                  req));
+      emitter.onNext(limitedResult(limited, toStreamResult(eventType, data, response, req)));
     } else if (eventType == null) {
       if (data.equals("[DONE]")) {
         emitter.onComplete();
         return;
       }
-      emitter.onNext(
-          new DashScopeResult()
-              .fromResponse(
-                  Protocol.HTTP,
-                  NetworkResponse.builder()
-                      .headers(response.headers().toMultimap())
-                      .message(data)
-                      .httpStatusCode(response.code())
-                      .build(),
-                  isFlattenResult,
-                  req));
+      emitter.onNext(limitedResult(limited, toStreamResult(null, data, response, req)));
+    }
+  }
+
+  private static DashScopeResult limitedResult(
+      RateLimitedRequest limited, DashScopeResult result) {
+    limited.onResult(result);
+    return result;
+  }
+
+  /** The status and headers of a stream, captured once on open and shared by all its events. */
+  private static final class StreamResponse {
+    final Map<String, List<String>> headers;
+    final int code;
+
+    StreamResponse(Response response) {
+      this.headers = Collections.unmodifiableMap(response.headers().toMultimap());
+      this.code = response.code();
+    }
+  }
+
+  /** The bytes and first byte of an http request in `Constants.sdkMetrics`. */
+  private static final class HttpMeter {
+    private static final HttpMeter DISABLED = new HttpMeter(null, null, 0);
+
+    final SdkMetrics metrics;
+    final Tags tags;
+    final long sentBytes;
+    final long startedAt = System.nanoTime();
+    final AtomicLong receivedBytes = new AtomicLong(0);
+
+    private HttpMeter(SdkMetrics metrics, Tags tags, long sentBytes) {
+      this.metrics = metrics;
+      this.tags = tags;
+      this.sentBytes = sentBytes;
+    }
+
+    static HttpMeter of(HalfDuplexRequest req, Request request, boolean stream) {
+      SdkMetrics metrics = Constants.sdkMetrics;
+      if (metrics == null) {
+        return DISABLED;
+      }
+      long sentBytes = 0;
+      try {
+        if (request.body() != null) {
+          sentBytes = Math.max(request.body().contentLength(), 0);
+        }
+      } catch (IOException e) {
+        // unknown length.
+      }
+      return new HttpMeter(metrics, Tags.of(req, stream), sentBytes);
+    }
+
+    void responded() {
+      if (metrics != null) {
+        metrics.firstByte(tags, Duration.ofNanos(System.nanoTime() - startedAt));
+      }
+    }
+
+    void received(String data) {
+      if (metrics != null && data != null) {
+        receivedBytes.addAndGet(data.getBytes(StandardCharsets.UTF_8).length);
+      }
+    }
+
+    void finished() {
+      if (metrics != null) {
+        metrics.bytes(tags, sentBytes, receivedBytes.get());
+      }
     }
   }
 
@@ -358,50 +672,128 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
         Flowable.<DashScopeResult>create(
             emitter -> {
               Request request = buildRequest(req.getHttpRequest());
-              EventSources.createFactory(client)
-                  .newEventSource(
-                      request,
-                      new EventSourceListener() {
-                        private Response response;
-
-                        @java.lang.Override
-                        public void onEvent(
-                            EventSource eventSource,
-                            java.lang.String id,
-                            java.lang.String type,
-                            java.lang.String data) {
-                          handleSSEEvent(
-                              emitter, id, type, data, req.getIsFlatten(), response, req);
-                        }
-
-                        @java.lang.Override
-                        public void onOpen(
-                            @NotNull EventSource eventSource, @NotNull Response response) {
-                          this.response = response;
-                          super.onOpen(eventSource, response);
-                        }
-
-                        @java.lang.Override
-                        public void onFailure(
-                            @NotNull EventSource eventSource,
-                            java.lang.Throwable t,
-                            Response response) {
-                          this.response = response;
-                          super.onFailure(eventSource, t, response);
-                          emitter.onError(new ApiException(parseFailed(response, t), t));
-                        }
-
-                        @java.lang.Override
-                        public void onClosed(@NotNull EventSource eventSource) {
-                          super.onClosed(eventSource);
-                          emitter.onComplete();
-                        }
-                      });
+              RateLimitedRequest limited = RateLimitedRequest.of(req);
+              // released when the stream terminates or is cancelled, even while it waits.
+              emitter.setCancellable(limited::cancel);
+              whenPermitted(
+                  limited,
+                  emitter::tryOnError,
+                  () -> {
+                    if (emitter.isCancelled()) {
+                      return;
+                    }
+                    OkHttpClientFactory.admit(client);
+                    newStreamSource(emitter, new StreamAttempts(req, request, limited));
+                  });
             },
             BackpressureStrategy.BUFFER);
     return flowable;
   }
 
+  /** The attempts of a stream, it is opened again after a retryable failure before any event. */
+  private final class StreamAttempts {
+    final HalfDuplexRequest req;
+    final Request request;
+    final RateLimitedRequest limited;
+    final HttpMeter meter;
+    final RetryPolicy policy = retryPolicy();
+    final long startedAt = System.currentTimeMillis();
+    int attempts = 1;
+    volatile boolean received = false;
+    volatile boolean opened = false;
+
+    StreamAttempts(HalfDuplexRequest req, Request request, RateLimitedRequest limited) {
+      this.req = req;
+      this.request = request;
+      this.limited = limited;
+      this.meter = HttpMeter.of(req, request, true);
+    }
+
+    /**
+     * Open the stream again after the backoff, if it failed retryably before its first event.
+     *
+     * @return Whether the stream is opened again, otherwise the failure is final.
+     */
+    boolean retry(Throwable t, Response response, Runnable reopen) {
+      if (received) {
+        return false;
+      }
+      Response failed = response != null && !response.isSuccessful() ? response : null;
+      long delay =
+          policy.retryDelayMillis(
+              attempts, startedAt, failed, failed == null ? t : null, req.isIdempotent());
+      if (delay < 0) {
+        return false;
+      }
+      if (failed != null) {
+        limited.rejected(failed);
+      }
+      Bulkhead bulkhead = OkHttpClientFactory.bulkhead(client);
+      if (bulkhead != null) {
+        bulkhead.retried();
+      }
+      attempts++;
+      RetryingCall.schedule(reopen, delay);
+      return true;
+    }
+  }
+
+  private void newStreamSource(FlowableEmitter<DashScopeResult> emitter, StreamAttempts attempts) {
+    HalfDuplexRequest req = attempts.req;
+    RateLimitedRequest limited = attempts.limited;
+    EventSources.createFactory(client)
+        .newEventSource(
+            attempts.request,
+            new EventSourceListener() {
+              private StreamResponse response;
+
+              @java.lang.Override
+              public void onEvent(
+                  EventSource eventSource,
+                  java.lang.String id,
+                  java.lang.String type,
+                  java.lang.String data) {
+                attempts.received = true;
+                attempts.meter.received(data);
+                handleSSEEvent(emitter, id, type, data, response, req, limited);
+              }
+
+              @java.lang.Override
+              public void onOpen(@NotNull EventSource eventSource, @NotNull Response response) {
+                this.response = new StreamResponse(response);
+                attempts.meter.responded();
+                super.onOpen(eventSource, response);
+              }
+
+              @java.lang.Override
+              public void onFailure(
+                  @NotNull EventSource eventSource, java.lang.Throwable t, Response response) {
+                super.onFailure(eventSource, t, response);
+                boolean retried =
+                    !emitter.isCancelled()
+                        && attempts.retry(
+                            t,
+                            response,
+                            () -> {
+                              if (!emitter.isCancelled()) {
+                                newStreamSource(emitter, attempts);
+                              }
+                            });
+                if (!retried) {
+                  attempts.meter.finished();
+                  emitter.onError(new ApiException(requestFailed(req, limited, response, t), t));
+                }
+              }
+
+              @java.lang.Override
+              public void onClosed(@NotNull EventSource eventSource) {
+                super.onClosed(eventSource);
+                attempts.meter.finished();
+                emitter.onComplete();
+              }
+            });
+  }
+
   private class SSEEventType {
     public static final String ERROR = "error";
     public static final String DATA = "data";
@@ -413,11 +805,25 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
   public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
       throws NoApiKeyException, ApiException {
     Request request = buildRequest(req.getHttpRequest());
+    RateLimitedRequest limited = RateLimitedRequest.of(req);
+    ResultCallback<DashScopeResult> limitedCallback = limited.wrap(callback);
+    whenPermitted(
+        limited,
+        limitedCallback::onError,
+        () -> {
+          OkHttpClientFactory.admit(client);
+          newStreamSource(new StreamAttempts(req, request, limited), limitedCallback);
+        });
+  }
+
+  private void newStreamSource(StreamAttempts attempts, ResultCallback<DashScopeResult> callback) {
+    HalfDuplexRequest req = attempts.req;
+    RateLimitedRequest limited = attempts.limited;
     EventSources.createFactory(client)
         .newEventSource(
-            request,
+            attempts.request,
             new EventSourceListener() {
-              private Response response;
+              private StreamResponse response;
 
               @java.lang.Override
               public void onEvent(
@@ -426,65 +832,39 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                   java.lang.String type,
                   java.lang.String data) {
                 log.debug(String.format("Event: id %s, type: %s, data: %s", id, type, data));
+                attempts.received = true;
+                attempts.meter.received(data);
                 if (SSEEventType.ERROR.equals(type)) {
                   Status st = parseStreamEventData(data);
                   callback.onError(new ApiException(st));
-                } else if (SSEEventType.DATA.equals(type) || SSEEventType.RESULT.equals(type)) {
-                  callback.onEvent(
-                      new DashScopeResult()
-                          .fromResponse(
-                              Protocol.HTTP,
-                              NetworkResponse.builder()
-                                  .headers(response.headers().toMultimap())
-                                  .message(data)
-                                  .event(type)
-                                  .httpStatusCode(response.code())
-                                  .build(),
-                              req.getIsFlatten(),
-                              req));
-                } else if (type != null) {
-                  callback.onEvent(
-                      new DashScopeResult()
-                          .fromResponse(
-                              Protocol.HTTP,
-                              NetworkResponse.builder()
-                                  .headers(response.headers().toMultimap())
-                                  .message(data)
-                                  .event(type)
-                                  .httpStatusCode(response.code())
-                                  .build(),
-                              req.getIsFlatten(),
-                              req));
-                } else if (type == null) {
-                  callback.onEvent(
-                      new DashScopeResult()
-                          .fromResponse(
-                              Protocol.HTTP,
-                              NetworkResponse.builder()
-                                  .headers(response.headers().toMultimap())
-                                  .message(data)
-                                  .httpStatusCode(response.code())
-                                  .build(),
-                              req.getIsFlatten(),
-                              req));
+                } else {
+                  callback.onEvent(toStreamResult(type, data, response, req));
                 }
               }
 
               @java.lang.Override
               public void onOpen(@NotNull EventSource eventSource, @NotNull Response response) {
-                this.response = response;
-                callback.onOpen(null);
+                this.response = new StreamResponse(response);
+                attempts.meter.responded();
+                // a stream opened again is not opened twice for the callback.
+                if (!attempts.opened) {
+                  attempts.opened = true;
+                  callback.onOpen(null);
+                }
               }
 
               @java.lang.Override
               public void onFailure(
                   @NotNull EventSource eventSource, java.lang.Throwable t, Response response) {
-                this.response = response;
-                callback.onError(new ApiException(parseFailed(response, t), t));
+                if (!attempts.retry(t, response, () -> newStreamSource(attempts, callback))) {
+                  attempts.meter.finished();
+                  callback.onError(new ApiException(requestFailed(req, limited, response, t), t));
+                }
               }
 
               @java.lang.Override
               public void onClosed(EventSource eventSource) {
+                attempts.meter.finished();
                 callback.onComplete();
               }
             });
@@ -9,13 +9,14 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketConnector.ConnectFailure;
 import com.alibaba.dashscope.utils.Constants;
 import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkExecutors;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.FlowableEmitter;
-import io.reactivex.Observable;
 import io.reactivex.functions.Action;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -23,8 +24,9 @@ import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import okhttp3.Request.Builder;
@@ -33,8 +35,6 @@ import okio.ByteString;
 @Slf4j
 public class OkHttpWebSocketClient extends WebSocketListener
     implements HalfDuplexClient, FullDuplexClient {
-  // we will try 3 times for connection.
-  private static final int MAX_CONNECTION_TIMES = 3;
   private OkHttpClient client;
   private WebSocket webSocketClient;
   // indicate the websocket connection is established.
@@ -46,7 +46,12 @@ public class OkHttpWebSocketClient extends WebSocketListener
   private FlowableEmitter<DashScopeResult> responseEmitter;
   // is the result is flatten format.
   private boolean isFlattenResult;
-  private FlowableEmitter<DashScopeResult> connectionEmitter;
+  // the connect in progress or done, and its current attempt.
+  private CompletableFuture<Void> connection;
+  private volatile CompletableFuture<Void> connectionAttempt;
+  // sends are chained to keep their order while waiting for the connection.
+  private CompletableFuture<Void> sendChain = CompletableFuture.completedFuture(null);
+  private final AtomicReference<Throwable> reportedSendError = new AtomicReference<>(null);
 
   private AtomicBoolean passTaskStarted = new AtomicBoolean(false);
 
@@ -95,60 +100,129 @@ public class OkHttpWebSocketClient extends WebSocketListener
     }
   }
 
-  private void establishWebSocketClient(
+  /**
+   * Whether the underlying websocket is open and can carry another task, used by the session pool
+   * to health check a session before leasing it out again.
+   */
+  boolean isReusable() {
+    return isOpen.get() && !isClosed.get() && webSocketClient != null;
+  }
+
+  void setPassTaskStarted(boolean passTaskStarted) {
+    this.passTaskStarted.set(passTaskStarted);
+  }
+
+  private static boolean isRetryableConnectError(Throwable ex) {
+    // a rejected api key fails the same way on every attempt.
+    if (ex instanceof ConnectFailure && ((ConnectFailure) ex).getStatusCode() >= 0) {
+      return ((ConnectFailure) ex).getStatusCode() != 401;
+    }
+    // no upgrade response, only the message may tell.
+    return ex.getMessage() == null || !ex.getMessage().contains("401 Unauthorized");
+  }
+
+  /**
+   * Connect if not open, concurrent callers share the connect in progress.
+   *
+   * @return Completes when the websocket is open, or with the connect error.
+   */
+  private synchronized CompletableFuture<Void> connectAsync(
       String apiKey,
       boolean isSecurityCheck,
       String workspace,
       Map<String, String> customHeaders,
-      String baseWebSocketUrl) {
-    int reconnectionTimes = 0;
-    String errorMessage = "";
-    while (reconnectionTimes < MAX_CONNECTION_TIMES) {
-      try {
-        Flowable<DashScopeResult> flowable =
-            Flowable.<DashScopeResult>create(
-                emitter -> {
-                  this.connectionEmitter = emitter;
-                  try {
-                    client = OkHttpClientFactory.getOkHttpClient();
-                    webSocketClient =
-                        client.newWebSocket(
-                            buildConnectionRequest(
-                                apiKey,
-                                isSecurityCheck,
-                                workspace,
-                                customHeaders,
-                                baseWebSocketUrl),
-                            this);
-                  } catch (Throwable ex) {
-                    this.connectionEmitter.onError(ex);
-                  }
-                },
-                BackpressureStrategy.BUFFER);
-        // wait for connection establish
-        flowable.blockingSubscribe();
-        return;
-      } catch (Throwable ex) {
-        reconnectionTimes += 1;
-        errorMessage = ex.getMessage();
-        log.error(errorMessage);
-        if (errorMessage.contains("401 Unauthorized")) {
-          break;
-        } else if (errorMessage.contains(Constants.NO_API_KEY_ERROR)) {
-          throw ex;
-        }
-        try {
-          Thread.sleep(10000);
-        } catch (InterruptedException e) {;
-        }
-      }
+      String baseWebSocketUrl)
+      throws NoApiKeyException {
+    if (isOpen.get()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    if (connection != null && !connection.isDone()) {
+      return connection;
+    }
+    if (client == null) {
+      client = OkHttpClientFactory.getOkHttpClient();
+    }
+    Request request =
+        buildConnectionRequest(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    if (configurations == null) {
+      configurations = ConnectionConfigurations.builder().build();
     }
-    throw new ApiException(
-        Status.builder()
-            .code("ConnectionError")
-            .message(errorMessage)
-            .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
-            .build());
+    WebSocketConnector connector =
+        new WebSocketConnector(
+            ReconnectPolicy.of(configurations),
+            CircuitBreaker.forEndpoint(request.url().host(), request.url().port(), configurations),
+            OkHttpWebSocketClient::isRetryableConnectError);
+    CompletableFuture<Void> ready =
+        connector.connect(
+            () -> {
+              CompletableFuture<Void> attempt = new CompletableFuture<>();
+              connectionAttempt = attempt;
+              webSocketClient = client.newWebSocket(request, this);
+              return attempt;
+            });
+    ready.whenComplete(
+        (v, err) -> {
+          CompletableFuture<Void> attempt = connectionAttempt;
+          if (err != null && attempt != null && !attempt.isDone()) {
+            // deadline passed with an attempt in flight, abandon it.
+            webSocketClient.cancel();
+          }
+        });
+    connection = ready;
+    return ready;
+  }
+
+  private CompletableFuture<Void> connectAsync(HalfDuplexRequest req) throws NoApiKeyException {
+    return connectAsync(
+        req.getApiKey(),
+        req.isSecurityCheck(),
+        req.getWorkspace(),
+        req.getHeaders(),
+        req.getBaseWebSocketUrl());
+  }
+
+  private CompletableFuture<Void> connectAsync(FullDuplexRequest req) throws NoApiKeyException {
+    return connectAsync(
+        req.getApiKey(),
+        req.isSecurityCheck(),
+        req.getWorkspace(),
+        req.getHeaders(),
+        req.getBaseWebSocketUrl());
+  }
+
+  /**
+   * Open the websocket ahead of the first task without blocking, sends wait for the same connect.
+   *
+   * @param req The request to connect for.
+   * @return Completes when the websocket is ready, or with the connect error.
+   * @throws NoApiKeyException Can not find api key
+   */
+  public CompletableFuture<Void> connect(HalfDuplexRequest req) throws NoApiKeyException {
+    return connectAsync(req);
+  }
+
+  /**
+   * Open the websocket ahead of the first task without blocking, sends wait for the same connect.
+   *
+   * @param req The request to connect for.
+   * @return Completes when the websocket is ready, or with the connect error.
+   * @throws NoApiKeyException Can not find api key
+   */
+  public CompletableFuture<Void> connect(FullDuplexRequest req) throws NoApiKeyException {
+    return connectAsync(req);
+  }
+
+  /**
+   * Open the websocket of a pooled session ahead of its first task.
+   *
+   * @param key The key of the session.
+   * @return Completes when the websocket is ready, or with the connect error.
+   * @throws NoApiKeyException Can not find api key
+   */
+  CompletableFuture<Void> connect(WebSocketSessionPool.SessionKey key) throws NoApiKeyException {
+    return connectAsync(
+        key.getApiKey(), key.isSecurityCheck(), key.getWorkspace(), key.getHeaders(), key.getUrl());
   }
 
   @Override
@@ -182,6 +256,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
     // endpoint that understands only text data MAY send this if it receives a
     // binary message)
     webSocket.close(code, null);
+    isOpen.set(false);
     log.debug(String.format("Websocket is closing, code: %s, reasion: %s", code, reason));
     if (responseEmitter != null && !responseEmitter.isCancelled()) {
       responseEmitter.onComplete();
@@ -218,8 +293,12 @@ public class OkHttpWebSocketClient extends WebSocketListener
             t.getMessage(), t.getCause(), responseBody);
     log.error(failureMessage);
     isOpen.set(false);
-    if (connectionEmitter != null && !connectionEmitter.isCancelled()) {
-      connectionEmitter.onError(new Exception(failureMessage, t));
+    CompletableFuture<Void> attempt = connectionAttempt;
+    if (attempt != null
+        && attempt.completeExceptionally(
+            new ConnectFailure(failureMessage, t, response))) {
+      // failed to connect, the connector decides whether to retry.
+      return;
     } else if (responseEmitter != null && !responseEmitter.isCancelled()) {
       // error on request
       responseEmitter.onError(new Exception(failureMessage, t));
@@ -358,79 +437,157 @@ public class OkHttpWebSocketClient extends WebSocketListener
       return;
     }
     isOpen.set(true);
-    if (connectionEmitter != null && !connectionEmitter.isCancelled()) {
-      connectionEmitter.onComplete();
+    CompletableFuture<Void> attempt = connectionAttempt;
+    if (attempt != null) {
+      attempt.complete(null);
     }
   }
 
-  private void sendTextWithRetry(
+  /**
+   * Queue a send after the previous ones, reconnecting first if the websocket is not open. Never
+   * blocks, the order of messages is kept.
+   *
+   * @return Completes when the message is handed to the websocket, or with the connect error.
+   */
+  private synchronized CompletableFuture<Void> enqueueSend(
       String apiKey,
       boolean isSecurityCheck,
-      String message,
+      Function<WebSocket, Boolean> sender,
       String workspace,
       Map<String, String> customHeaders,
       String baseWebSocketUrl) {
-    // simple retry with fixed delay, no strategy
-    if (!isOpen.get()) {
-      establishWebSocketClient(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-    }
-    int maxRetries = 3;
-    if (passTaskStarted.get()) {
-      // when pass througn task started, no need to retry.
-      log.info("Sending message: " + message);
-      Boolean isOk = webSocketClient.send(message);
-      if (!isOk) {
-        log.warn("Send request failed, return without retry.");
-      }
-      return;
-    }
-    int retryCount = 0;
-    while (retryCount < maxRetries) {
-      log.debug("Sending message: " + message);
-      Boolean isOk = webSocketClient.send(message);
-      if (isOk) {
-        break;
-      } else {
-        establishWebSocketClient(
-            apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-        log.warn(
-            String.format(
-                "Send request failed, the connection may closed, will reconnect and send again"));
-      }
-      Observable.timer(5000, TimeUnit.MILLISECONDS).blockingSingle();
-      ++retryCount;
+    // when pass through task started, no need to retry.
+    int maxRetries = passTaskStarted.get() ? 0 : 2;
+    CompletableFuture<Void> previous = sendChain;
+    CompletableFuture<Void> sent =
+        previous.thenCompose(
+            v ->
+                trySend(
+                    apiKey,
+                    isSecurityCheck,
+                    sender,
+                    workspace,
+                    customHeaders,
+                    baseWebSocketUrl,
+                    maxRetries));
+    sendChain = sent;
+    return sent;
+  }
+
+  private CompletableFuture<Void> trySend(
+      String apiKey,
+      boolean isSecurityCheck,
+      Function<WebSocket, Boolean> sender,
+      String workspace,
+      Map<String, String> customHeaders,
+      String baseWebSocketUrl,
+      int retries) {
+    CompletableFuture<Void> connected;
+    try {
+      connected =
+          connectAsync(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
+    } catch (NoApiKeyException ex) {
+      connected = new CompletableFuture<>();
+      connected.completeExceptionally(ex);
     }
+    return connected.thenCompose(
+        v -> {
+          if (sender.apply(webSocketClient)) {
+            return CompletableFuture.completedFuture(null);
+          }
+          if (retries <= 0) {
+            log.warn("Send request failed, return without retry.");
+            return CompletableFuture.completedFuture(null);
+          }
+          log.warn("Send request failed, the connection may closed, will reconnect and send again");
+          // the websocket is closing, the retry must connect a new one.
+          isOpen.set(false);
+          return trySend(
+              apiKey,
+              isSecurityCheck,
+              sender,
+              workspace,
+              customHeaders,
+              baseWebSocketUrl,
+              retries - 1);
+        });
   }
 
-  private void sendBinaryWithRetry(
+  private CompletableFuture<Void> sendTextWithRetry(
+      String apiKey,
+      boolean isSecurityCheck,
+      String message,
+      String workspace,
+      Map<String, String> customHeaders,
+      String baseWebSocketUrl) {
+    return enqueueSend(
+        apiKey,
+        isSecurityCheck,
+        ws -> {
+          log.debug("Sending message: " + message);
+          return ws.send(message);
+        },
+        workspace,
+        customHeaders,
+        baseWebSocketUrl);
+  }
+
+  private CompletableFuture<Void> sendBinaryWithRetry(
       String apiKey,
       boolean isSecurityCheck,
       ByteString message,
       String workspace,
       Map<String, String> customHeaders,
       String baseWebSocketUrl) {
-    if (!isOpen.get()) {
-      establishWebSocketClient(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-    }
-    int maxRetries = 3;
-    int retryCount = 0;
-    while (retryCount < maxRetries) {
-      Boolean isOk = webSocketClient.send(message);
-      if (isOk) {
-        break;
-      } else {
-        establishWebSocketClient(
-            apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-        log.warn(
-            String.format(
-                "Send request failed, the connection may closed, will reconnect and send again"));
+    return enqueueSend(
+        apiKey,
+        isSecurityCheck,
+        ws -> ws.send(message),
+        workspace,
+        customHeaders,
+        baseWebSocketUrl);
+  }
+
+  /** Wait until the message is sent, for the blocking interfaces. */
+  private void awaitSent(CompletableFuture<Void> sent) throws NoApiKeyException {
+    try {
+      sent.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      if (ex.getCause() instanceof NoApiKeyException) {
+        throw (NoApiKeyException) ex.getCause();
       }
-      Observable.timer(5000, TimeUnit.MILLISECONDS).blockingSingle();
-      ++retryCount;
+      throw new ApiException(ex.getCause());
     }
   }
 
-  private void sendBatchRequest(HalfDuplexRequest req) {
+  /** Pass a failed send to the response, once for the chain of sends failed with it. */
+  private void reportSendError(CompletableFuture<Void> sent) {
+    sent.whenComplete(
+        (v, err) -> {
+          if (err == null) {
+            return;
+          }
+          Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+          if (reportedSendError.getAndSet(cause) != cause) {
+            log.error(String.format("sendStreamData exception: %s", cause.getMessage()));
+            // the stream may be canceled already.
+            responseEmitter.tryOnError(cause);
+          }
+        });
+  }
+
+  /** A new task starts, drop the failure of the previous task's sends. */
+  private synchronized void resetSendChain() {
+    if (sendChain.isCompletedExceptionally()) {
+      sendChain = CompletableFuture.completedFuture(null);
+    }
+  }
+
+  private void sendBatchRequest(HalfDuplexRequest req) throws NoApiKeyException {
+    resetSendChain();
     if (req.getWebsocketBinaryData() != null) {
       // send start-task.
       sendTextWithRetry(
@@ -441,27 +598,29 @@ public class OkHttpWebSocketClient extends WebSocketListener
           req.getHeaders(),
           req.getBaseWebSocketUrl());
       // send binary data.
-      sendBinaryWithRetry(
-          req.getApiKey(),
-          req.isSecurityCheck(),
-          ByteString.of(req.getWebsocketBinaryData()),
-          req.getWorkspace(),
-          req.getHeaders(),
-          req.getBaseWebSocketUrl());
+      awaitSent(
+          sendBinaryWithRetry(
+              req.getApiKey(),
+              req.isSecurityCheck(),
+              ByteString.of(req.getWebsocketBinaryData()),
+              req.getWorkspace(),
+              req.getHeaders(),
+              req.getBaseWebSocketUrl()));
     } else {
       // data and start-task in same package.
-      sendTextWithRetry(
-          req.getApiKey(),
-          req.isSecurityCheck(),
-          JsonUtils.toJson(req.getStartTaskMessage()),
-          req.getWorkspace(),
-          req.getHeaders(),
-          req.getBaseWebSocketUrl());
+      awaitSent(
+          sendTextWithRetry(
+              req.getApiKey(),
+              req.isSecurityCheck(),
+              JsonUtils.toJson(req.getStartTaskMessage()),
+              req.getWorkspace(),
+              req.getHeaders(),
+              req.getBaseWebSocketUrl()));
     }
   }
 
   @Override
-  public DashScopeResult send(HalfDuplexRequest req) {
+  public DashScopeResult send(HalfDuplexRequest req) throws NoApiKeyException {
     // send the request out.
     if (req.getStreamingMode() == StreamingMode.NONE
         || req.getStreamingMode() == StreamingMode.IN) {
@@ -486,7 +645,8 @@ public class OkHttpWebSocketClient extends WebSocketListener
   }
 
   @Override
-  public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback) {
+  public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException {
     if (req.getStreamingMode() == StreamingMode.NONE
         || req.getStreamingMode() == StreamingMode.IN) {
       Flowable<DashScopeResult> flowable =
@@ -522,7 +682,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
   }
 
   @Override
-  public Flowable<DashScopeResult> streamOut(HalfDuplexRequest req) {
+  public Flowable<DashScopeResult> streamOut(HalfDuplexRequest req) throws NoApiKeyException {
     // Set receive
     Flowable<DashScopeResult> flowable =
         Flowable.<DashScopeResult>create(
@@ -538,7 +698,8 @@ public class OkHttpWebSocketClient extends WebSocketListener
   }
 
   @Override
-  public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback) {
+  public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException {
     Flowable<DashScopeResult> flowable = streamOut(req);
     flowable.subscribe(
         msg -> {
@@ -561,18 +722,20 @@ public class OkHttpWebSocketClient extends WebSocketListener
             () -> {
               try {
                 isFirstMessage.set(false);
+                resetSendChain();
 
                 JsonObject startMessage = req.getStartTaskMessage();
                 String taskId =
                     startMessage.get("header").getAsJsonObject().get("task_id").getAsString();
                 // send start message out.
-                sendTextWithRetry(
-                    req.getApiKey(),
-                    req.isSecurityCheck(),
-                    JsonUtils.toJson(startMessage),
-                    req.getWorkspace(),
-                    req.getHeaders(),
-                    req.getBaseWebSocketUrl());
+                reportSendError(
+                    sendTextWithRetry(
+                        req.getApiKey(),
+                        req.isSecurityCheck(),
+                        JsonUtils.toJson(startMessage),
+                        req.getWorkspace(),
+                        req.getHeaders(),
+                        req.getBaseWebSocketUrl()));
 
                 Flowable<Object> streamingData = req.getStreamingData();
                 streamingData.subscribe(
@@ -580,38 +743,42 @@ public class OkHttpWebSocketClient extends WebSocketListener
                       try {
                         if (data instanceof String) {
                           JsonObject continueData = req.getContinueMessage((String) data, taskId);
-                          sendTextWithRetry(
-                              req.getApiKey(),
-                              req.isSecurityCheck(),
-                              JsonUtils.toJson(continueData),
-                              req.getWorkspace(),
-                              req.getHeaders(),
-                              req.getBaseWebSocketUrl());
+                          reportSendError(
+                              sendTextWithRetry(
+                                  req.getApiKey(),
+                                  req.isSecurityCheck(),
+                                  JsonUtils.toJson(continueData),
+                                  req.getWorkspace(),
+                                  req.getHeaders(),
+                                  req.getBaseWebSocketUrl()));
                         } else if (data instanceof byte[]) {
-                          sendBinaryWithRetry(
-                              req.getApiKey(),
-                              req.isSecurityCheck(),
-                              ByteString.of((byte[]) data),
-                              req.getWorkspace(),
-                              req.getHeaders(),
-                              req.getBaseWebSocketUrl());
+                          reportSendError(
+                              sendBinaryWithRetry(
+                                  req.getApiKey(),
+                                  req.isSecurityCheck(),
+                                  ByteString.of((byte[]) data),
+                                  req.getWorkspace(),
+                                  req.getHeaders(),
+                                  req.getBaseWebSocketUrl()));
                         } else if (data instanceof ByteBuffer) {
-                          sendBinaryWithRetry(
-                              req.getApiKey(),
-                              req.isSecurityCheck(),
-                              ByteString.of((ByteBuffer) data),
-                              req.getWorkspace(),
-                              req.getHeaders(),
-                              req.getBaseWebSocketUrl());
+                          reportSendError(
+                              sendBinaryWithRetry(
+                                  req.getApiKey(),
+                                  req.isSecurityCheck(),
+                                  ByteString.of((ByteBuffer) data),
+                                  req.getWorkspace(),
+                                  req.getHeaders(),
+                                  req.getBaseWebSocketUrl()));
                         } else {
                           JsonObject continueData = req.getContinueMessage(data, taskId);
-                          sendTextWithRetry(
-                              req.getApiKey(),
-                              req.isSecurityCheck(),
-                              JsonUtils.toJson(continueData),
-                              req.getWorkspace(),
-                              req.getHeaders(),
-                              req.getBaseWebSocketUrl());
+                          reportSendError(
+                              sendTextWithRetry(
+                                  req.getApiKey(),
+                                  req.isSecurityCheck(),
+                                  JsonUtils.toJson(continueData),
+                                  req.getWorkspace(),
+                                  req.getHeaders(),
+                                  req.getBaseWebSocketUrl()));
                         }
                       } catch (Throwable ex) {
                         log.error(String.format("sendStreamData exception: %s", ex.getMessage()));
@@ -626,20 +793,22 @@ public class OkHttpWebSocketClient extends WebSocketListener
                       @Override
                       public void run() throws Exception {
                         log.debug(String.format("Stream data send completed!"));
-                        sendTextWithRetry(
-                            req.getApiKey(),
-                            req.isSecurityCheck(),
-                            JsonUtils.toJson(req.getFinishedTaskMessage(taskId)),
-                            req.getWorkspace(),
-                            req.getHeaders(),
-                            req.getBaseWebSocketUrl());
+                        reportSendError(
+                            sendTextWithRetry(
+                                req.getApiKey(),
+                                req.isSecurityCheck(),
+                                JsonUtils.toJson(req.getFinishedTaskMessage(taskId)),
+                                req.getWorkspace(),
+                                req.getHeaders(),
+                                req.getBaseWebSocketUrl()));
                       }
                     });
               } catch (Throwable ex) {
                 log.error(String.format("sendStreamData exception: %s", ex.getMessage()));
                 responseEmitter.onError(ex);
               }
-            });
+            },
+            SdkExecutors.blocking());
     return future;
   }
 
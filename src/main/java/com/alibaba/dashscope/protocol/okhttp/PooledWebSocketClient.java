@@ -0,0 +1,236 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.FullDuplexClient;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.HalfDuplexClient;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool.ClientSettings;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool.SessionKey;
+import io.reactivex.Flowable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Websocket client leasing a session from `WebSocketSessionPool` for each task, the session is
+ * returned on task-finished and closed on task-failed, cancel or close.
+ */
+@Slf4j
+public class PooledWebSocketClient implements HalfDuplexClient, FullDuplexClient {
+  private final WebSocketSessionPool pool;
+  private final boolean passTaskStarted;
+  private final ClientSettings settings;
+  // the session of the in flight task, for close and cancel.
+  private final AtomicReference<Lease> current = new AtomicReference<>(null);
+
+  public PooledWebSocketClient(WebSocketSessionPool pool, boolean passTaskStarted) {
+    this(pool, passTaskStarted, ClientProfile.DEFAULT, null);
+  }
+
+  /**
+   * A client leasing sessions connected with the http client of a service family and connection
+   * options, they are shared only with clients of the same profile and options.
+   *
+   * @param pool The session pool.
+   * @param passTaskStarted Pass the task-started event to the caller.
+   * @param profile The service family.
+   * @param options The connection options, null for the defaults of the profile.
+   */
+  public PooledWebSocketClient(
+      WebSocketSessionPool pool,
+      boolean passTaskStarted,
+      ClientProfile profile,
+      ConnectionOptions options) {
+    this.pool = pool;
+    this.passTaskStarted = passTaskStarted;
+    this.settings = ClientSettings.of(profile, options);
+  }
+
+  private final class Lease {
+    private final SessionKey key;
+    private final OkHttpWebSocketClient session;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private Lease(SessionKey key, OkHttpWebSocketClient session) {
+      this.key = key;
+      this.session = session;
+    }
+
+    private boolean markReleased() {
+      if (released.compareAndSet(false, true)) {
+        current.compareAndSet(this, null);
+        return true;
+      }
+      return false;
+    }
+
+    private void release(boolean reusable) {
+      if (markReleased()) {
+        pool.release(key, session, reusable);
+      }
+    }
+  }
+
+  private Lease lease(SessionKey requestKey) {
+    SessionKey key = requestKey.withSettings(settings);
+    Lease lease = new Lease(key, pool.acquire(key, passTaskStarted));
+    current.set(lease);
+    return lease;
+  }
+
+  private ResultCallback<DashScopeResult> releaseOnFinish(
+      Lease lease, ResultCallback<DashScopeResult> callback) {
+    return new ResultCallback<DashScopeResult>() {
+      @Override
+      public void onOpen(Status status) {
+        callback.onOpen(status);
+      }
+
+      @Override
+      public void onEvent(DashScopeResult message) {
+        callback.onEvent(message);
+      }
+
+      @Override
+      public void onComplete() {
+        lease.release(true);
+        callback.onComplete();
+      }
+
+      @Override
+      public void onError(Exception e) {
+        lease.release(false);
+        callback.onError(e);
+      }
+    };
+  }
+
+  private Flowable<DashScopeResult> releaseOnFinish(Lease lease, Flowable<DashScopeResult> flow) {
+    return flow.doOnComplete(() -> lease.release(true))
+        .doOnError(err -> lease.release(false))
+        // abandoned before task-finished, late messages of the task must not reach the next lease.
+        .doOnCancel(() -> lease.release(false));
+  }
+
+  @Override
+  public DashScopeResult send(HalfDuplexRequest req) throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      DashScopeResult result = lease.session.send(req);
+      lease.release(true);
+      return result;
+    } catch (Throwable e) {
+      lease.release(false);
+      throw e;
+    }
+  }
+
+  @Override
+  public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      lease.session.send(req, releaseOnFinish(lease, callback));
+    } catch (Throwable e) {
+      lease.release(false);
+      throw e;
+    }
+  }
+
+  @Override
+  public Flowable<DashScopeResult> streamOut(HalfDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      return releaseOnFinish(lease, lease.session.streamOut(req));
+    } catch (Throwable e) {
+      lease.release(false);
+      throw e;
+    }
+  }
+
+  @Override
+  public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      lease.session.streamOut(req, releaseOnFinish(lease, callback));
+    } catch (Throwable e) {
+      lease.release(false);
+      throw e;
+    }
+  }
+
+  @Override
+  public DashScopeResult streamIn(FullDuplexRequest req) throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      return lease.session.streamIn(req);
+    } finally {
+      // streamIn returns on the first result, before task-finished, so never reuse the session.
+      lease.release(false);
+    }
+  }
+
+  @Override
+  public void streamIn(FullDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    DashScopeResult res = streamIn(req);
+    callback.onEvent(res);
+    callback.onComplete();
+  }
+
+  @Override
+  public Flowable<DashScopeResult> duplex(FullDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      return releaseOnFinish(lease, lease.session.duplex(req));
+    } catch (Throwable e) {
+      lease.release(false);
+      throw e;
+    }
+  }
+
+  @Override
+  public void duplex(FullDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    Lease lease = lease(SessionKey.of(req));
+    try {
+      lease.session.duplex(req, releaseOnFinish(lease, callback));
+    } catch (Throwable e) {
+      lease.release(false);
+      throw e;
+    }
+  }
+
+  /**
+   * Close the session of the in flight task, if any. Idle sessions stay in the pool, use
+   * `WebSocketSessionPool.clear` to close them.
+   */
+  @Override
+  public boolean close(int code, String reason) {
+    Lease lease = current.get();
+    if (lease != null && lease.markReleased()) {
+      return lease.session.close(code, reason);
+    }
+    return true;
+  }
+
+  @Override
+  public void cancel() {
+    Lease lease = current.get();
+    if (lease != null && lease.markReleased()) {
+      lease.session.cancel();
+    }
+  }
+}
@@ -0,0 +1,229 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.RateLimiter;
+import com.alibaba.dashscope.tokenizers.TokenizerFactory;
+import com.alibaba.dashscope.utils.ApiKey;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+
+/**
+ * The quota of one http request in `Constants.rateLimiter`, taken before it is sent and released
+ * with the tokens of its last usage once it finished. Without a rate limiter it does nothing.
+ */
+@Slf4j
+final class RateLimitedRequest {
+  private static final String[] NON_TEXT_PREFIXES = {
+    "http://", "https://", "oss://", "data:", "file://"
+  };
+
+  private final RateLimiter limiter;
+  private final HalfDuplexRequest req;
+  private final String apiKey;
+  private final String model;
+  private final AtomicBoolean released = new AtomicBoolean(false);
+  // the future of the rate limiter, canceled to give up the wait.
+  private volatile CompletableFuture<Integer> permit;
+  private volatile int usedTokens = -1;
+
+  private RateLimitedRequest(
+      RateLimiter limiter, HalfDuplexRequest req, String apiKey, String model) {
+    this.limiter = limiter;
+    this.req = req;
+    this.apiKey = apiKey;
+    this.model = model;
+  }
+
+  /** The quota of a request, requests without a model such as task polling are not limited. */
+  static RateLimitedRequest of(HalfDuplexRequest req) throws NoApiKeyException {
+    RateLimiter limiter = Constants.rateLimiter;
+    String model = limiter == null ? null : modelOf(req);
+    if (model == null) {
+      return new RateLimitedRequest(null, req, null, null);
+    }
+    return new RateLimitedRequest(limiter, req, ApiKey.getApiKey(req.getApiKey()), model);
+  }
+
+  private static String modelOf(HalfDuplexRequest req) {
+    try {
+      return req.getParam().getModel();
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Take the quota of the request.
+   *
+   * @return Completes once the request may be sent, already completed without a rate limiter.
+   */
+  CompletableFuture<Void> acquire() {
+    if (limiter == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    permit = limiter.acquire(apiKey, model, this::estimateTokens);
+    return permit.thenApply(tokens -> null);
+  }
+
+  /** Block until the request may be sent. */
+  void acquireBlocking() throws ApiException {
+    if (limiter == null) {
+      return;
+    }
+    try {
+      acquire().join();
+    } catch (Exception e) {
+      throw new ApiException(e.getCause() == null ? e : e.getCause());
+    }
+  }
+
+  /** Record the usage of a result, the usage of the last result is released. */
+  void onResult(DashScopeResult result) {
+    if (limiter == null) {
+      return;
+    }
+    try {
+      JsonObject usage = result.getUsageAs(JsonObject.class);
+      if (usage == null) {
+        return;
+      }
+      int total = JsonUtils.getInt(usage, "total_tokens", -1);
+      if (total < 0) {
+        total = Math.max(JsonUtils.getInt(usage, "input_tokens", -1), 0);
+        total += Math.max(JsonUtils.getInt(usage, "output_tokens", -1), 0);
+      }
+      if (total > 0) {
+        usedTokens = total;
+      }
+    } catch (RuntimeException e) {
+      log.debug("Read usage for rate limit failed: {}", e.getMessage());
+    }
+  }
+
+  /** Release the quota once, with the used tokens or the taken ones if there was no usage. */
+  void release() {
+    if (limiter == null || !released.compareAndSet(false, true)) {
+      return;
+    }
+    CompletableFuture<Integer> taken = permit;
+    // read from the permit itself, a release racing its grant still gives back what was taken.
+    int takenTokens =
+        taken == null || !taken.isDone() || taken.isCompletedExceptionally() ? 0 : taken.join();
+    limiter.release(apiKey, model, takenTokens, usedTokens < 0 ? takenTokens : usedTokens);
+  }
+
+  /** Give up the quota of a canceled request, waiting for it or already taken. */
+  void cancel() {
+    CompletableFuture<Integer> waiting = permit;
+    if (waiting != null && waiting.cancel(false)) {
+      // nothing was taken, the rate limiter drops the waiter.
+      released.set(true);
+      return;
+    }
+    release();
+  }
+
+  /** Report a 429 of the server with its Retry-After, in seconds. */
+  void rejected(Response response) {
+    if (limiter == null || response == null || response.code() != 429) {
+      return;
+    }
+    Duration retryAfter = null;
+    String header = response.header("Retry-After");
+    if (header != null) {
+      try {
+        retryAfter = Duration.ofSeconds(Long.parseLong(header.trim()));
+      } catch (NumberFormatException e) {
+        // an http date, paused for the default.
+      }
+    }
+    limiter.rateLimited(apiKey, model, retryAfter);
+  }
+
+  /** Record the usage of the results and release once the callback completes or fails. */
+  ResultCallback<DashScopeResult> wrap(ResultCallback<DashScopeResult> callback) {
+    if (limiter == null) {
+      return callback;
+    }
+    return new ResultCallback<DashScopeResult>() {
+      @Override
+      public void onOpen(Status status) {
+        callback.onOpen(status);
+      }
+
+      @Override
+      public void onEvent(DashScopeResult message) {
+        onResult(message);
+        callback.onEvent(message);
+      }
+
+      @Override
+      public void onComplete() {
+        release();
+        callback.onComplete();
+      }
+
+      @Override
+      public void onError(Exception e) {
+        release();
+        callback.onError(e);
+      }
+    };
+  }
+
+  /** The tokens of the text in the input, urls and data of images, audio and files are skipped. */
+  private int estimateTokens() {
+    JsonObject body = req.getParam().getHttpBody();
+    if (body == null || !body.has("input")) {
+      return 0;
+    }
+    StringBuilder text = new StringBuilder();
+    appendText(body.get("input"), text);
+    return TokenizerFactory.qwen().countTokens(text.toString());
+  }
+
+  private static void appendText(JsonElement element, StringBuilder text) {
+    if (element == null || element.isJsonNull()) {
+      return;
+    }
+    if (element.isJsonArray()) {
+      for (JsonElement item : element.getAsJsonArray()) {
+        appendText(item, text);
+      }
+    } else if (element.isJsonObject()) {
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        appendText(entry.getValue(), text);
+      }
+    } else {
+      JsonPrimitive primitive = element.getAsJsonPrimitive();
+      if (primitive.isString() && isText(primitive.getAsString())) {
+        text.append(primitive.getAsString()).append('\n');
+      }
+    }
+  }
+
+  private static boolean isText(String value) {
+    for (String prefix : NON_TEXT_PREFIXES) {
+      if (value.regionMatches(true, 0, prefix, 0, prefix.length())) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
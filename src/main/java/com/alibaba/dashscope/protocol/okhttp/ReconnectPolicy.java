@@ -0,0 +1,49 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Builder;
+import lombok.Data;
+
+/** How websocket connects are retried: exponential backoff with jitter under a total deadline. */
+@Data
+@Builder
+public class ReconnectPolicy {
+  /** Maximum connect attempts, including the first one. */
+  @Builder.Default private int maxAttempts = 3;
+
+  @Builder.Default private Duration initialBackoff = Duration.ofSeconds(1);
+  @Builder.Default private Duration maxBackoff = Duration.ofSeconds(10);
+  @Builder.Default private double multiplier = 2.0;
+
+  /** Fraction of the backoff randomized, 0.5 waits between half and the full backoff. */
+  @Builder.Default private double jitter = 0.5;
+
+  /** All attempts and the backoff between them must finish within the deadline. */
+  @Builder.Default private Duration connectDeadline = Duration.ofSeconds(30);
+
+  public static ReconnectPolicy of(ConnectionConfigurations configurations) {
+    return ReconnectPolicy.builder()
+        .maxAttempts(configurations.getWebSocketReconnectMaxAttempts())
+        .initialBackoff(configurations.getWebSocketReconnectInitialBackoff())
+        .maxBackoff(configurations.getWebSocketReconnectMaxBackoff())
+        .connectDeadline(configurations.getWebSocketConnectDeadline())
+        .build();
+  }
+
+  /**
+   * The delay before the next attempt.
+   *
+   * @param attempt The number of attempts already failed, starts from 1.
+   * @return The delay in milliseconds.
+   */
+  public long backoffMillis(int attempt) {
+    double backoff = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+    backoff = Math.min(backoff, maxBackoff.toMillis());
+    double randomized = backoff * jitter * ThreadLocalRandom.current().nextDouble();
+    return (long) (backoff * (1 - jitter) + randomized);
+  }
+}
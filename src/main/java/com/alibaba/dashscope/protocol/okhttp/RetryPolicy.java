@@ -0,0 +1,140 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Builder;
+import lombok.Data;
+import okhttp3.Response;
+
+/**
+ * How http requests are retried: exponential backoff with jitter under a retry budget per call,
+ * and hedging of idempotent calls.
+ */
+@Data
+@Builder
+public class RetryPolicy {
+  /** Maximum attempts of a call, including the first one and its hedge, 1 for no retry. */
+  @Builder.Default private int maxAttempts = 1;
+
+  @Builder.Default private Duration initialBackoff = Duration.ofMillis(500);
+  @Builder.Default private Duration maxBackoff = Duration.ofSeconds(8);
+  @Builder.Default private double multiplier = 2.0;
+
+  /** Fraction of the backoff randomized, 0.5 waits between half and the full backoff. */
+  @Builder.Default private double jitter = 0.5;
+
+  /** Retries of a call are only started within the budget from its first attempt. */
+  @Builder.Default private Duration retryBudget = Duration.ofSeconds(30);
+
+  @Builder.Default
+  private Set<Integer> retryableStatusCodes =
+      Collections.unmodifiableSet(new HashSet<>(Arrays.asList(429, 500, 502, 503, 504)));
+
+  /** Send a second request for idempotent calls slower than the p95 latency of their client. */
+  @Builder.Default private boolean hedging = false;
+
+  /** The hedge delay, null for the p95 latency of the client. */
+  @Builder.Default private Duration hedgeDelay = null;
+
+  public static RetryPolicy of(ConnectionConfigurations configurations) {
+    return RetryPolicy.builder()
+        .maxAttempts(configurations.getHttpRetryMaxAttempts())
+        .initialBackoff(configurations.getHttpRetryInitialBackoff())
+        .maxBackoff(configurations.getHttpRetryMaxBackoff())
+        .retryBudget(configurations.getHttpRetryBudget())
+        .hedging(configurations.getHttpHedgingEnabled())
+        .build();
+  }
+
+  /**
+   * The delay before the next attempt.
+   *
+   * @param attempt The number of attempts already failed, starts from 1.
+   * @return The delay in milliseconds.
+   */
+  public long backoffMillis(int attempt) {
+    double backoff = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+    backoff = Math.min(backoff, maxBackoff.toMillis());
+    double randomized = backoff * jitter * ThreadLocalRandom.current().nextDouble();
+    return (long) (backoff * (1 - jitter) + randomized);
+  }
+
+  /**
+   * The delay before retrying a failed attempt, at least the Retry-After of the response.
+   *
+   * @param attempts The number of attempts started.
+   * @param startedAt When the first attempt started, in epoch millis.
+   * @param response The failed response, null if the attempt failed without one.
+   * @param error The error of the attempt, null if it has a response.
+   * @param idempotent Whether the call can be sent again after the server received it.
+   * @return The delay in milliseconds, -1 if the attempt is not retried.
+   */
+  public long retryDelayMillis(
+      int attempts, long startedAt, Response response, Throwable error, boolean idempotent) {
+    if (attempts >= maxAttempts) {
+      return -1;
+    }
+    if (response != null
+        ? !isRetryable(response.code(), idempotent)
+        : !isRetryable(error, idempotent)) {
+      return -1;
+    }
+    long delay = backoffMillis(attempts);
+    if (response != null) {
+      delay = Math.max(delay, retryAfterMillis(response));
+    }
+    if (System.currentTimeMillis() + delay - startedAt > retryBudget.toMillis()) {
+      return -1;
+    }
+    return delay;
+  }
+
+  /**
+   * A retryable status of an idempotent call is retried, other calls only on 429 and 503 since
+   * the server did not work on their request.
+   */
+  public boolean isRetryable(int statusCode, boolean idempotent) {
+    if (!retryableStatusCodes.contains(statusCode)) {
+      return false;
+    }
+    return idempotent || statusCode == 429 || statusCode == 503;
+  }
+
+  /**
+   * A reset connection or a timeout is only retried for idempotent calls since the server may
+   * have received the request, other calls only when the connection was never made.
+   */
+  public boolean isRetryable(Throwable error, boolean idempotent) {
+    if (error instanceof ConnectException
+        || error instanceof NoRouteToHostException
+        || error instanceof UnknownHostException) {
+      return true;
+    }
+    return idempotent
+        && (error instanceof SocketException || error instanceof InterruptedIOException);
+  }
+
+  private static long retryAfterMillis(Response response) {
+    String retryAfter = response.header("Retry-After");
+    if (retryAfter == null) {
+      return 0;
+    }
+    try {
+      return Long.parseLong(retryAfter.trim()) * 1000;
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.utils.SdkExecutors;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * One async http call with its retries and hedge. A failed attempt is retried after the backoff of
+ * the retry policy, a hedged call sends a second attempt once the first one is slower than the
+ * hedge delay, and the first response that is not a retryable failure is passed to the callback.
+ * The other attempt in flight is canceled.
+ *
+ * <p>Only the first attempt is admitted by the bulkhead of the client, retries and hedges keep its
+ * admission.
+ */
+@Slf4j
+final class RetryingCall {
+  private static final ScheduledExecutorService scheduler =
+      SdkExecutors.newScheduler("dashscope-http-retry");
+
+  private final OkHttpClient client;
+  private final Request request;
+  private final RetryPolicy policy;
+  private final boolean idempotent;
+  private final Duration timeout;
+  private final Consumer<Response> onRetry;
+  private final Callback callback;
+  private final Bulkhead bulkhead;
+  private final long startedAt = System.currentTimeMillis();
+  // guarded by this.
+  private final List<Call> inFlight = new ArrayList<>();
+  private int attempts = 0;
+  private boolean done = false;
+  private ScheduledFuture<?> timer;
+
+  /**
+   * @param client The client of the call.
+   * @param request The request, sent as is by every attempt.
+   * @param policy The retry policy.
+   * @param idempotent Whether the request can be hedged and retried after a timeout.
+   * @param timeout The timeout of the whole call with all its attempts, null for the timeouts of
+   *     the client.
+   * @param onRetry Called with each failed response that is retried, before it is closed.
+   * @param callback Called once with the final response or failure.
+   */
+  RetryingCall(
+      OkHttpClient client,
+      Request request,
+      RetryPolicy policy,
+      boolean idempotent,
+      Duration timeout,
+      Consumer<Response> onRetry,
+      Callback callback) {
+    this.client = client;
+    this.request = request;
+    this.policy = policy;
+    this.idempotent = idempotent;
+    this.timeout = timeout;
+    this.onRetry = onRetry;
+    this.callback = callback;
+    this.bulkhead = OkHttpClientFactory.bulkhead(client);
+  }
+
+  /** Run a task on the retry scheduler after a delay. */
+  static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+    return scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /** Send the first attempt, admission errors are thrown. A canceled call is not sent. */
+  void start() {
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+    }
+    OkHttpClientFactory.admit(client);
+    synchronized (this) {
+      if (done) {
+        return;
+      }
+      send(false);
+      if (policy.isHedging() && idempotent && policy.getMaxAttempts() > 1) {
+        timer = schedule(this::hedge, hedgeDelayMillis());
+      }
+    }
+  }
+
+  /** Cancel all attempts, the callback is not called. */
+  void cancel() {
+    synchronized (this) {
+      done = true;
+      cancelTimer();
+      for (Call call : inFlight) {
+        call.cancel();
+      }
+      inFlight.clear();
+    }
+  }
+
+  private long hedgeDelayMillis() {
+    if (policy.getHedgeDelay() != null) {
+      return policy.getHedgeDelay().toMillis();
+    }
+    return bulkhead == null ? 1000 : bulkhead.hedgeDelayMillis();
+  }
+
+  private synchronized void hedge() {
+    timer = null;
+    // not while the first attempt waits for its retry.
+    if (done || inFlight.isEmpty() || attempts >= policy.getMaxAttempts()) {
+      return;
+    }
+    if (bulkhead != null) {
+      bulkhead.hedged();
+    }
+    send(true);
+  }
+
+  private synchronized void retry() {
+    timer = null;
+    if (!done) {
+      send(false);
+    }
+  }
+
+  /** Send an attempt, holding the lock. */
+  private void send(boolean hedge) {
+    Call call = client.newCall(request);
+    if (timeout != null) {
+      // an attempt past the deadline times out at once.
+      call.timeout().timeout(Math.max(remainingMillis(), 1), TimeUnit.MILLISECONDS);
+    }
+    attempts++;
+    inFlight.add(call);
+    long sentAt = System.currentTimeMillis();
+    call.enqueue(
+        new Callback() {
+          @Override
+          public void onFailure(Call c, IOException e) {
+            finished(c, hedge, sentAt, null, e);
+          }
+
+          @Override
+          public void onResponse(Call c, Response response) {
+            finished(c, hedge, sentAt, response, null);
+          }
+        });
+  }
+
+  private void finished(
+      Call call, boolean hedge, long sentAt, Response response, IOException error) {
+    boolean failed = response == null || !response.isSuccessful();
+    boolean retryable =
+        failed
+            && !call.isCanceled()
+            && (response != null
+                ? policy.isRetryable(response.code(), idempotent)
+                : policy.isRetryable(error, idempotent));
+    synchronized (this) {
+      inFlight.remove(call);
+      if (!done && retryable && !inFlight.isEmpty()) {
+        // the other attempt may still succeed.
+        if (response != null) {
+          response.close();
+        }
+        return;
+      }
+      long delay =
+          !done && retryable
+              ? policy.retryDelayMillis(attempts, startedAt, response, error, idempotent)
+              : -1;
+      if (delay >= remainingMillis()) {
+        // no time is left for another attempt.
+        delay = -1;
+      }
+      if (done || delay >= 0) {
+        if (response != null) {
+          if (delay >= 0) {
+            onRetry.accept(response);
+          }
+          response.close();
+        }
+        if (delay >= 0) {
+          if (bulkhead != null) {
+            bulkhead.retried();
+          }
+          cancelTimer();
+          timer = schedule(this::retry, delay);
+        }
+        return;
+      }
+      done = true;
+      cancelTimer();
+      for (Call other : inFlight) {
+        other.cancel();
+      }
+      inFlight.clear();
+    }
+    if (!failed && bulkhead != null) {
+      if (idempotent) {
+        bulkhead.recordLatency(System.currentTimeMillis() - sentAt);
+      }
+      if (hedge) {
+        bulkhead.hedgeWon();
+      }
+    }
+    if (response != null) {
+      try {
+        callback.onResponse(call, response);
+      } catch (IOException e) {
+        // as okhttp does for a callback that throws.
+        log.warn("Callback failure for {}", request.url().redact(), e);
+      }
+    } else {
+      callback.onFailure(call, error);
+    }
+  }
+
+  /** The millis left before the deadline of the call, Long.MAX_VALUE without a timeout. */
+  private long remainingMillis() {
+    if (timeout == null) {
+      return Long.MAX_VALUE;
+    }
+    return startedAt + timeout.toMillis() - System.currentTimeMillis();
+  }
+
+  private void cancelTimer() {
+    if (timer != null) {
+      timer.cancel(false);
+      timer = null;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+
+/**
+ * Asynchronous connect and retry. Each attempt is started by the caller's supplier and reports
+ * through its future, failed attempts are retried on a shared scheduler after the policy backoff,
+ * so no thread waits between attempts.
+ */
+@Slf4j
+final class WebSocketConnector {
+  private static final ScheduledExecutorService scheduler =
+      SdkExecutors.newScheduler("dashscope-websocket-reconnect");
+
+  private final ReconnectPolicy policy;
+  private final CircuitBreaker breaker;
+  private final Predicate<Throwable> isRetryable;
+
+  /**
+   * @param policy The retry policy.
+   * @param breaker The circuit breaker of the host.
+   * @param isRetryable Whether a failed attempt is worth retrying, e.g. not for 401.
+   */
+  WebSocketConnector(
+      ReconnectPolicy policy, CircuitBreaker breaker, Predicate<Throwable> isRetryable) {
+    this.policy = policy;
+    this.breaker = breaker;
+    this.isRetryable = isRetryable;
+  }
+
+  /**
+   * Start connecting.
+   *
+   * @param attempt Starts one connect attempt, the returned future completes when it is open.
+   * @return Completes when an attempt succeeds, or with `ConnectionError` when attempts are used
+   *     up, the deadline passes or the circuit is open.
+   */
+  CompletableFuture<Void> connect(Supplier<CompletableFuture<Void>> attempt) {
+    CompletableFuture<Void> ready = new CompletableFuture<>();
+    long deadlineMillis = policy.getConnectDeadline().toMillis();
+    long deadline = System.currentTimeMillis() + deadlineMillis;
+    ScheduledFuture<?> timeout =
+        scheduler.schedule(
+            () -> {
+              ready.completeExceptionally(
+                  connectionError(String.format("Connect not finished in %d ms.", deadlineMillis)));
+            },
+            deadlineMillis,
+            TimeUnit.MILLISECONDS);
+    ready.whenComplete((v, e) -> timeout.cancel(false));
+    tryConnect(attempt, ready, 1, deadline);
+    return ready;
+  }
+
+  private void tryConnect(
+      Supplier<CompletableFuture<Void>> attempt,
+      CompletableFuture<Void> ready,
+      int attempts,
+      long deadline) {
+    if (ready.isDone()) {
+      return;
+    }
+    if (!breaker.tryAcquire()) {
+      ready.completeExceptionally(
+          new ApiException(
+              Status.builder()
+                  .code("CircuitOpen")
+                  .message("Too many connect failures, the connect is rejected for a while.")
+                  .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+                  .build()));
+      return;
+    }
+    CompletableFuture<Void> connected;
+    try {
+      connected = attempt.get();
+    } catch (Throwable ex) {
+      connected = new CompletableFuture<>();
+      connected.completeExceptionally(ex);
+    }
+    connected.whenComplete(
+        (v, err) -> {
+          if (err == null) {
+            breaker.onSuccess();
+            ready.complete(null);
+            return;
+          }
+          Throwable cause = err instanceof CompletionException ? err.getCause() : err;
+          String errorMessage = cause.getMessage();
+          log.error(String.format("Connect attempt %d failed: %s", attempts, errorMessage));
+          if (!isRetryable.test(cause)) {
+            // e.g. 401 or 403, the connect failed but tells nothing about the host's health.
+            breaker.onIgnored();
+            ready.completeExceptionally(connectionError(errorMessage));
+            return;
+          }
+          breaker.onFailure();
+          long delay = policy.backoffMillis(attempts);
+          if (attempts >= policy.getMaxAttempts()
+              || System.currentTimeMillis() + delay >= deadline) {
+            ready.completeExceptionally(connectionError(errorMessage));
+            return;
+          }
+          scheduler.schedule(
+              () -> tryConnect(attempt, ready, attempts + 1, deadline),
+              delay,
+              TimeUnit.MILLISECONDS);
+        });
+  }
+
+  /** A failed connect attempt, with the status code of the upgrade response if there was one. */
+  static final class ConnectFailure extends Exception {
+    private final int statusCode;
+
+    ConnectFailure(String message, Throwable cause, Response response) {
+      super(message, cause);
+      this.statusCode = response == null ? -1 : response.code();
+    }
+
+    /** The status code of the upgrade response, -1 without a response. */
+    int getStatusCode() {
+      return statusCode;
+    }
+  }
+
+  private static ApiException connectionError(String message) {
+    return new ApiException(
+        Status.builder()
+            .code("ConnectionError")
+            .message(message)
+            .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+            .build());
+  }
+}
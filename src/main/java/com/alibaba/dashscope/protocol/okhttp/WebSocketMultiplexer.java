@@ -0,0 +1,473 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.DashScopeHeaders;
+import com.alibaba.dashscope.protocol.NetworkResponse;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.WebSocketEventType;
+import com.alibaba.dashscope.protocol.WebSocketResponse;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool.SessionKey;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.FlowableProcessor;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * One websocket connection carrying many concurrent tasks, text frames are routed to the task by
+ * the `task_id` in their header.
+ *
+ * <p>Binary frames carry no task id in either direction, so a connection has a single binary lane:
+ * at most one task using binary frames (audio input or output) runs on it at a time, any number of
+ * text only tasks can run beside it.
+ */
+@Slf4j
+final class WebSocketMultiplexer extends WebSocketListener {
+  private static final ScheduledExecutorService scheduler =
+      SdkExecutors.newScheduler("dashscope-websocket-multiplexer");
+
+  private final OkHttpClient client;
+  private final SessionKey key;
+  private final int maxTasks;
+  private final Duration finishTimeout;
+  private final Map<String, TaskEntry> tasks = new ConcurrentHashMap<>();
+  private final CompletableFuture<Void> opened = new CompletableFuture<>();
+  // the task id owning the binary lane, guarded by this. A started task terminated locally keeps it
+  // until the server ends the task or the finish timeout passes, so its late binary frames are not
+  // taken as another task's.
+  private volatile String binaryOwner = null;
+  private volatile boolean usable = true;
+  private volatile WebSocket webSocket;
+
+  static final class TaskEntry {
+    final FlowableProcessor<DashScopeResult> processor;
+    final boolean isFlatten;
+    final boolean passTaskStarted;
+    final boolean usesBinary;
+    // the finish-task message, sent when the task is terminated locally so the server ends it,
+    // null if the server ends the task by itself.
+    final String finishMessage;
+    final Runnable onTerminated;
+    // guarded by this.
+    private Disposable streaming = null;
+    private boolean started = false;
+    private boolean finishSent = false;
+    private boolean terminated = false;
+
+    TaskEntry(
+        FlowableProcessor<DashScopeResult> processor,
+        boolean isFlatten,
+        boolean passTaskStarted,
+        boolean usesBinary,
+        String finishMessage,
+        Runnable onTerminated) {
+      this.processor = processor;
+      this.isFlatten = isFlatten;
+      this.passTaskStarted = passTaskStarted;
+      this.usesBinary = usesBinary;
+      this.finishMessage = finishMessage;
+      this.onTerminated = onTerminated;
+    }
+
+    /** Keep the subscription sending the task's data, disposed when the task terminates. */
+    synchronized void setStreaming(Disposable streaming) {
+      if (terminated) {
+        streaming.dispose();
+      } else {
+        this.streaming = streaming;
+      }
+    }
+
+    synchronized void markStarted() {
+      started = true;
+    }
+
+    synchronized boolean isStarted() {
+      return started;
+    }
+
+    /** @return True if the finish-task message is not sent yet, it must be sent by the caller. */
+    synchronized boolean markFinishSent() {
+      if (finishSent) {
+        return false;
+      }
+      finishSent = true;
+      return true;
+    }
+
+    private synchronized void terminate() {
+      terminated = true;
+      if (streaming != null) {
+        streaming.dispose();
+        streaming = null;
+      }
+    }
+  }
+
+  /**
+   * @param client The http client opening the connection.
+   * @param key The url, api key, workspace and headers of the connection.
+   * @param maxTasks The maximum concurrent tasks on the connection.
+   * @param finishTimeout How long the binary lane of a task terminated locally waits for the
+   *     server to end the task.
+   */
+  WebSocketMultiplexer(OkHttpClient client, SessionKey key, int maxTasks, Duration finishTimeout) {
+    this.client = client;
+    this.key = key;
+    this.maxTasks = maxTasks;
+    this.finishTimeout = finishTimeout;
+  }
+
+  /**
+   * Start opening the connection, frames sent before the upgrade are queued.
+   *
+   * @throws NoApiKeyException Can not find api key
+   */
+  void open() throws NoApiKeyException {
+    Request request =
+        new Request.Builder()
+            .headers(
+                Headers.of(
+                    DashScopeHeaders.buildWebSocketHeaders(
+                        key.getApiKey(),
+                        key.isSecurityCheck(),
+                        key.getWorkspace(),
+                        key.getHeaders())))
+            .url(key.getUrl())
+            .build();
+    webSocket = client.newWebSocket(request, this);
+  }
+
+  /**
+   * Wait for the upgrade of the connection.
+   *
+   * @param timeout The maximum time to wait.
+   * @throws ApiException Connect failed.
+   */
+  void awaitOpen(Duration timeout) throws ApiException {
+    try {
+      opened.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      webSocket.cancel();
+      throw new ApiException(e);
+    } catch (ExecutionException | TimeoutException e) {
+      usable = false;
+      webSocket.cancel();
+      throw new ApiException(
+          Status.builder()
+              .code("ConnectionError")
+              .message(e.getCause() == null ? e.toString() : e.getCause().getMessage())
+              .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+              .build());
+    }
+  }
+
+  boolean isUsable() {
+    return usable;
+  }
+
+  boolean isIdle() {
+    return tasks.isEmpty();
+  }
+
+  /**
+   * Admit a task on this connection.
+   *
+   * @return False if the connection is full, dead, or the task needs the binary lane which is
+   *     taken.
+   */
+  synchronized boolean register(String taskId, TaskEntry entry) {
+    if (!usable || tasks.size() >= maxTasks) {
+      return false;
+    }
+    if (entry.usesBinary) {
+      if (binaryOwner != null) {
+        return false;
+      }
+      binaryOwner = taskId;
+    }
+    tasks.put(taskId, entry);
+    return true;
+  }
+
+  /** Remove a task which never ran, with its binary lane. */
+  void unregister(String taskId) {
+    tasks.remove(taskId);
+    releaseBinaryLane(taskId);
+  }
+
+  /**
+   * Terminate a task locally, messages of the task arriving later are dropped. The sending of its
+   * data stops and the server is asked to end the task.
+   *
+   * @param taskId The task id.
+   * @param error Complete with this error, or complete normally if null.
+   */
+  void abort(String taskId, Throwable error) {
+    terminate(taskId, error, true);
+  }
+
+  private void terminate(String taskId, Throwable error, boolean local) {
+    TaskEntry entry;
+    synchronized (this) {
+      // remove and terminate once, even if the server and the caller race.
+      entry = tasks.remove(taskId);
+    }
+    if (entry == null) {
+      return;
+    }
+    entry.terminate();
+    if (local && usable && entry.finishMessage != null && entry.markFinishSent()) {
+      if (!webSocket.send(entry.finishMessage)) {
+        log.warn(String.format("Send finish-task of task: %s failed.", taskId));
+      }
+    }
+    if (local && entry.usesBinary) {
+      releaseBinaryLaneLater(taskId, entry);
+    }
+    entry.onTerminated.run();
+    if (error == null) {
+      entry.processor.onComplete();
+    } else {
+      entry.processor.onError(error);
+    }
+  }
+
+  void sendText(String message) {
+    log.debug("Sending message: " + message);
+    // okhttp queues the frame and returns at once, a slow task never blocks others' sends.
+    if (!webSocket.send(message)) {
+      throw sendFailed();
+    }
+  }
+
+  void sendBinary(ByteString message) {
+    if (!webSocket.send(message)) {
+      throw sendFailed();
+    }
+  }
+
+  private ApiException sendFailed() {
+    return new ApiException(
+        Status.builder()
+            .code("ConnectionError")
+            .message("Send request failed, the connection may closed.")
+            .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+            .build());
+  }
+
+  private void failAll(Throwable t) {
+    List<String> taskIds = new ArrayList<>(tasks.keySet());
+    for (String taskId : taskIds) {
+      terminate(taskId, t, false);
+    }
+  }
+
+  @Override
+  public void onOpen(WebSocket webSocket, Response response) {
+    opened.complete(null);
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, String text) {
+    log.debug(text);
+    WebSocketResponse response;
+    try {
+      response = JsonUtils.fromJson(text, WebSocketResponse.class);
+    } catch (Throwable ex) {
+      log.error(String.format("Receive message: %s, json deserialize exception", text));
+      return;
+    }
+    String taskId = response.header == null ? null : response.header.taskId;
+    if (taskId != null
+        && (response.header.event == WebSocketEventType.TASK_FINISHED
+            || response.header.event == WebSocketEventType.TASK_FAILED)) {
+      // the binary frames of the task all arrived before its end.
+      releaseBinaryLane(taskId);
+    }
+    TaskEntry entry = taskId == null ? null : tasks.get(taskId);
+    if (entry == null) {
+      log.warn(String.format("Receive message of unknown or finished task: %s", text));
+      return;
+    }
+    try {
+      switch (response.header.event) {
+        case TASK_STARTED:
+          entry.markStarted();
+          if (response.payload.output != null || response.payload.usage != null) {
+            entry.processor.onNext(toResult(text, entry));
+          } else if (entry.passTaskStarted) {
+            DashScopeResult startMessage = toResult(text, entry);
+            startMessage.setEvent(WebSocketEventType.TASK_STARTED.getValue());
+            entry.processor.onNext(startMessage);
+          }
+          break;
+        case RESULT_GENERATED:
+          entry.processor.onNext(toResult(text, entry));
+          break;
+        case TASK_FINISHED:
+          if (response.payload.output != null || response.payload.usage != null) {
+            entry.processor.onNext(toResult(text, entry));
+          }
+          terminate(taskId, null, false);
+          break;
+        case TASK_FAILED:
+          log.error(String.format("Receive task_failed message: %s", text));
+          terminate(
+              taskId,
+              new ApiException(
+                  Status.builder()
+                      .code(response.header.code)
+                      .message(response.header.message)
+                      .requestId(response.header.taskId)
+                      .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+                      .isJson(true)
+                      .build()),
+              false);
+          break;
+        default:
+          abort(
+              taskId,
+              new ApiException(
+                  Status.builder()
+                      .code("UnknownMessage")
+                      .message(String.format("Receive unknown message: %s", text))
+                      .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+                      .build()));
+      }
+    } catch (Throwable ex) {
+      abort(
+          taskId,
+          new ApiException(
+              Status.builder()
+                  .code("MessageFormatError")
+                  .message(String.format("Receive message: %s, json deserialize exception", text))
+                  .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+                  .build()));
+    }
+  }
+
+  /**
+   * Release the binary lane of a task terminated locally. A task the server never started has no
+   * binary frames on the way, its lane is released at once. Otherwise the lane is released when the
+   * server ends the task, or after the finish timeout if the server never does.
+   */
+  private void releaseBinaryLaneLater(String taskId, TaskEntry entry) {
+    if (!entry.isStarted()) {
+      releaseBinaryLane(taskId);
+      return;
+    }
+    scheduler.schedule(
+        () -> {
+          if (releaseBinaryLane(taskId)) {
+            log.warn(
+                String.format(
+                    "Task: %s not ended by the server in %s, release its binary lane.",
+                    taskId, finishTimeout));
+          }
+        },
+        finishTimeout.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  /** @return True if the task owned the binary lane. */
+  private synchronized boolean releaseBinaryLane(String taskId) {
+    if (taskId.equals(binaryOwner)) {
+      binaryOwner = null;
+      return true;
+    }
+    return false;
+  }
+
+  private DashScopeResult toResult(String text, TaskEntry entry) {
+    return new DashScopeResult()
+        .fromResponse(
+            Protocol.WEBSOCKET, NetworkResponse.builder().message(text).build(), entry.isFlatten);
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, ByteString bytes) {
+    String owner = binaryOwner;
+    TaskEntry entry = owner == null ? null : tasks.get(owner);
+    if (entry == null) {
+      log.warn(String.format("Drop %d bytes binary message, no task owns it.", bytes.size()));
+      return;
+    }
+    entry.processor.onNext(
+        new DashScopeResult()
+            .fromResponse(
+                Protocol.WEBSOCKET,
+                NetworkResponse.builder().binary(bytes.asByteBuffer()).build(),
+                entry.isFlatten));
+  }
+
+  @Override
+  public void onClosing(WebSocket webSocket, int code, String reason) {
+    log.debug(String.format("Websocket is closing, code: %s, reason: %s", code, reason));
+    usable = false;
+    webSocket.close(code, null);
+    for (String taskId : new ArrayList<>(tasks.keySet())) {
+      terminate(taskId, null, false);
+    }
+  }
+
+  @Override
+  public void onClosed(WebSocket webSocket, int code, String reason) {
+    log.debug(String.format("WebSocket %s closed: %d, %s", webSocket.toString(), code, reason));
+    usable = false;
+  }
+
+  @Override
+  public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+    usable = false;
+    String responseBody = "";
+    if (response != null && response.body() != null) {
+      try {
+        responseBody = response.body().string();
+      } catch (IOException ex) {
+        log.error(ex.getMessage());
+      }
+    }
+    String failureMessage =
+        String.format(
+            "Websocket failure %s, cause: %s, body: %s",
+            t.getMessage(), t.getCause(), responseBody);
+    log.error(failureMessage);
+    if (!opened.isDone()) {
+      opened.completeExceptionally(new Exception(failureMessage, t));
+    }
+    failAll(new Exception(failureMessage, t));
+  }
+
+  void close(int code, String reason) {
+    usable = false;
+    if (webSocket != null) {
+      webSocket.close(code, reason);
+    }
+  }
+}
@@ -0,0 +1,359 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.utils.ApiKey;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Builder;
+import lombok.Data;
+import lombok.ToString;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+
+/**
+ * Keeps warm, authenticated websocket sessions and leases them for one run-task ... task-finished
+ * cycle. Sessions are keyed by everything that goes into the upgrade request (url, api key,
+ * workspace, data inspection and custom headers) and the settings of the http client connecting
+ * them, so a leased session is indistinguishable from a freshly connected one.
+ */
+@Slf4j
+public final class WebSocketSessionPool {
+  private static final int CLOSE_CODE_NORMAL = 1000;
+
+  private final Map<SessionKey, Deque<IdleSession>> idleSessions = new ConcurrentHashMap<>();
+  private final AtomicInteger idleCount = new AtomicInteger(0);
+  private final OkHttpClient client;
+  private final Duration pingInterval;
+  // the clients of sessions with other settings than the default ones.
+  private final Map<ClientSettings, OkHttpClient> clients = new ConcurrentHashMap<>();
+  private final int maxSize;
+  private final int maxSizePerKey;
+  private final long idleTimeoutMillis;
+  private final ScheduledExecutorService evictor;
+
+  private final AtomicLong handshakes = new AtomicLong(0);
+  private final AtomicLong handshakesSaved = new AtomicLong(0);
+  private final AtomicLong evictions = new AtomicLong(0);
+  private final AtomicLong discards = new AtomicLong(0);
+
+  private static class Holder {
+    private static final WebSocketSessionPool INSTANCE = createInstance();
+
+    private static WebSocketSessionPool createInstance() {
+      ConnectionConfigurations connectionConfigurations = Constants.connectionConfigurations;
+      if (connectionConfigurations == null) {
+        connectionConfigurations = ConnectionConfigurations.builder().build();
+      }
+      return new WebSocketSessionPool(connectionConfigurations);
+    }
+  }
+
+  /**
+   * The process wide pool, configured by `Constants.connectionConfigurations`.
+   *
+   * @return The shared pool.
+   */
+  public static WebSocketSessionPool getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  public WebSocketSessionPool(ConnectionConfigurations configurations) {
+    // websocket ping frames keep idle sessions alive through proxies and fail dead ones, a failed
+    // session is marked not open and dropped on the next lease.
+    this.pingInterval = configurations.getWebSocketPingInterval();
+    this.client = ClientSettings.DEFAULT.newClient(pingInterval);
+    this.maxSize = configurations.getWebSocketPoolMaxSize();
+    this.maxSizePerKey = configurations.getWebSocketPoolMaxSizePerKey();
+    this.idleTimeoutMillis = configurations.getWebSocketPoolIdleTimeout().toMillis();
+    this.evictor = SdkExecutors.newScheduler("dashscope-websocket-pool-evictor");
+    long period = Math.max(1000, idleTimeoutMillis / 2);
+    evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Lease a session for one task, reuse an open idle session if there is one, otherwise create a
+   * new one, which handshakes on its first send.
+   *
+   * @param key The session key.
+   * @param passTaskStarted Whether to pass through task-started events.
+   * @return The leased session.
+   */
+  OkHttpWebSocketClient acquire(SessionKey key, boolean passTaskStarted) {
+    Deque<IdleSession> sessions = idleSessions.get(key);
+    if (sessions != null) {
+      IdleSession idle;
+      while ((idle = sessions.pollFirst()) != null) {
+        idleCount.decrementAndGet();
+        if (idle.session.isReusable()) {
+          idle.session.setPassTaskStarted(passTaskStarted);
+          handshakesSaved.incrementAndGet();
+          return idle.session;
+        }
+        discards.incrementAndGet();
+        idle.session.cancel();
+      }
+    }
+    handshakes.incrementAndGet();
+    return new OkHttpWebSocketClient(clientOf(key.getSettings()), passTaskStarted);
+  }
+
+  /** The client connecting the sessions of the settings. */
+  OkHttpClient clientOf(ClientSettings settings) {
+    if (ClientSettings.DEFAULT.equals(settings)) {
+      return client;
+    }
+    return clients.computeIfAbsent(settings, s -> s.newClient(pingInterval));
+  }
+
+  /**
+   * Return a leased session, the session is kept only if the task completed normally, the socket
+   * is still open and the pool has room.
+   *
+   * @param key The session key.
+   * @param session The session to return.
+   * @param reusable False if the task failed or was abandoned half way.
+   */
+  void release(SessionKey key, OkHttpWebSocketClient session, boolean reusable) {
+    if (!reusable || !session.isReusable()) {
+      discard(session);
+      return;
+    }
+    Deque<IdleSession> sessions =
+        idleSessions.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+    if (sessions.size() >= maxSizePerKey) {
+      discard(session);
+      return;
+    }
+    if (idleCount.incrementAndGet() > maxSize) {
+      idleCount.decrementAndGet();
+      discard(session);
+      return;
+    }
+    // most recently used first, so that the tail ages out.
+    sessions.offerFirst(new IdleSession(session, System.currentTimeMillis()));
+  }
+
+  /**
+   * Open sessions of a key ahead of its first task, until it has the given number of idle
+   * sessions. The idle sessions it already has are marked used, so they are not evicted.
+   *
+   * @param key The session key.
+   * @param sessions The number of idle sessions to keep.
+   * @return Completes when the new sessions are open and idle in the pool.
+   */
+  CompletableFuture<Void> prewarm(SessionKey key, int sessions) {
+    int idle = 0;
+    Deque<IdleSession> existing = idleSessions.get(key);
+    if (existing != null) {
+      long now = System.currentTimeMillis();
+      for (IdleSession session : existing) {
+        if (session.session.isReusable()) {
+          session.lastUsed = now;
+          idle += 1;
+        }
+      }
+    }
+    List<CompletableFuture<Void>> connects = new ArrayList<>();
+    for (int i = idle; i < sessions; i++) {
+      handshakes.incrementAndGet();
+      OkHttpWebSocketClient session = new OkHttpWebSocketClient(clientOf(key.getSettings()), false);
+      CompletableFuture<Void> connect;
+      try {
+        connect = session.connect(key);
+      } catch (NoApiKeyException e) {
+        connect = new CompletableFuture<>();
+        connect.completeExceptionally(e);
+      }
+      connects.add(
+          connect.whenComplete(
+              (v, e) -> {
+                if (e == null) {
+                  release(key, session, true);
+                } else {
+                  session.cancel();
+                }
+              }));
+    }
+    return CompletableFuture.allOf(connects.toArray(new CompletableFuture<?>[0]));
+  }
+
+  private void discard(OkHttpWebSocketClient session) {
+    discards.incrementAndGet();
+    session.close(CLOSE_CODE_NORMAL, "bye");
+  }
+
+  /** Close sessions idle longer than the idle timeout, or found dead. */
+  public void evictIdle() {
+    long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+    for (Map.Entry<SessionKey, Deque<IdleSession>> entry : idleSessions.entrySet()) {
+      Iterator<IdleSession> it = entry.getValue().iterator();
+      while (it.hasNext()) {
+        IdleSession idle = it.next();
+        if (idle.lastUsed < deadline || !idle.session.isReusable()) {
+          if (entry.getValue().removeFirstOccurrence(idle)) {
+            idleCount.decrementAndGet();
+            evictions.incrementAndGet();
+            idle.session.close(CLOSE_CODE_NORMAL, "idle timeout");
+          }
+        }
+      }
+    }
+  }
+
+  /** Close all idle sessions. */
+  public void clear() {
+    for (Deque<IdleSession> sessions : idleSessions.values()) {
+      IdleSession idle;
+      while ((idle = sessions.pollFirst()) != null) {
+        idleCount.decrementAndGet();
+        idle.session.close(CLOSE_CODE_NORMAL, "bye");
+      }
+    }
+    idleSessions.clear();
+  }
+
+  /** Close all idle sessions and stop the evictor, the pool can not be used after shutdown. */
+  public void shutdown() {
+    evictor.shutdownNow();
+    clear();
+  }
+
+  public Metrics getMetrics() {
+    return Metrics.builder()
+        .handshakes(handshakes.get())
+        .handshakesSaved(handshakesSaved.get())
+        .evictions(evictions.get())
+        .discards(discards.get())
+        .idleSessions(idleCount.get())
+        .build();
+  }
+
+  @Data
+  @Builder
+  public static class Metrics {
+    /** Number of sessions created, each of them pays a full TLS and upgrade handshake. */
+    private long handshakes;
+    /** Number of leases served by an already open session. */
+    private long handshakesSaved;
+    /** Number of idle sessions closed by idle timeout or failed health check. */
+    private long evictions;
+    /** Number of returned sessions closed because of failure or pool limits. */
+    private long discards;
+    /** Number of sessions currently idle in the pool. */
+    private int idleSessions;
+  }
+
+  private static class IdleSession {
+    final OkHttpWebSocketClient session;
+    volatile long lastUsed;
+
+    IdleSession(OkHttpWebSocketClient session, long lastUsed) {
+      this.session = session;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  @Data
+  static class SessionKey {
+    private final String url;
+    @ToString.Exclude private final String apiKey;
+    private final String workspace;
+    private final boolean securityCheck;
+    private final Map<String, String> headers;
+    private final ClientSettings settings;
+
+    static SessionKey of(String url, String apiKey) throws NoApiKeyException {
+      return of(url, apiKey, null, false, null);
+    }
+
+    static SessionKey of(FullDuplexRequest req) throws NoApiKeyException {
+      return of(
+          req.getBaseWebSocketUrl(),
+          req.getApiKey(),
+          req.getWorkspace(),
+          req.isSecurityCheck(),
+          req.getHeaders());
+    }
+
+    static SessionKey of(HalfDuplexRequest req) throws NoApiKeyException {
+      return of(
+          req.getBaseWebSocketUrl(),
+          req.getApiKey(),
+          req.getWorkspace(),
+          req.isSecurityCheck(),
+          req.getHeaders());
+    }
+
+    private static SessionKey of(
+        String url,
+        String apiKey,
+        String workspace,
+        boolean securityCheck,
+        Map<String, String> headers)
+        throws NoApiKeyException {
+      return new SessionKey(
+          url == null ? Constants.baseWebsocketApiUrl : url,
+          ApiKey.getApiKey(apiKey),
+          workspace == null ? "" : workspace,
+          securityCheck,
+          headers == null
+              ? Collections.<String, String>emptyMap()
+              : Collections.unmodifiableMap(new HashMap<>(headers)),
+          ClientSettings.DEFAULT);
+    }
+
+    /** The same key for a client of other settings, sessions are only shared by equal ones. */
+    SessionKey withSettings(ClientSettings settings) {
+      return new SessionKey(url, apiKey, workspace, securityCheck, headers, settings);
+    }
+  }
+
+  /** The service family and connection options of the http client a session connects with. */
+  @Value
+  static class ClientSettings {
+    static final ClientSettings DEFAULT = new ClientSettings(ClientProfile.DEFAULT, null);
+
+    ClientProfile profile;
+    ConnectionOptions options;
+
+    static ClientSettings of(ClientProfile profile, ConnectionOptions options) {
+      // a profile without a client of its own connects with the default client.
+      if (profile == null || OkHttpClientFactory.profileConfigurations(profile) == null) {
+        profile = ClientProfile.DEFAULT;
+      }
+      return new ClientSettings(profile, options);
+    }
+
+    /** A client of the settings, its ping frames keep idle connections alive. */
+    OkHttpClient newClient(Duration pingInterval) {
+      OkHttpClient base =
+          options == null
+              ? OkHttpClientFactory.getOkHttpClient(profile)
+              : OkHttpClientFactory.getNewOkHttpClient(profile, options);
+      return base.newBuilder().pingInterval(pingInterval).build();
+    }
+  }
+}
@@ -7,6 +7,9 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -77,8 +80,39 @@ public final class TextReRank {
   public TextReRankResult call(TextReRankParam param)
           throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    serviceOption.setStreamingMode(StreamingMode.NONE);
-    return TextReRankResult.fromDashScopeResult(syncApi.call(param));
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    return TextReRankResult.fromDashScopeResult(syncApi.call(param, option));
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `TextReRankParam`.
+   * @return Completes with the `TextReRankResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<TextReRankResult> callAsync(TextReRankParam param)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    return callAsync(param, null);
+  }
+
+  /**
+   * Call the server without holding a thread until the response, only http protocol.
+   *
+   * @param param The input param of class `TextReRankParam`.
+   * @param timeout The timeout of the whole call, null for the client default.
+   * @return Completes with the `TextReRankResult`, canceling it cancels the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException The request can not be built.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<TextReRankResult> callAsync(TextReRankParam param, Duration timeout)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    param.validate();
+    ApiServiceOption option = serviceOption.withStreaming(StreamingMode.NONE, false);
+    return FutureUtils.map(
+        syncApi.callAsync(param, option, timeout), TextReRankResult::fromDashScopeResult);
   }
 }
@@ -41,9 +41,8 @@ public final class Threads {
   }
 
   public AssistantThread create(ThreadParam param) throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads"));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option = serviceOption.withPath(HttpMethod.POST, String.format("threads"));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, AssistantThread.class);
   }
 
@@ -52,9 +51,9 @@ public final class Threads {
     if (threadId == null || threadId.equals("")) {
       throw new InputRequiredException("threadId is required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s", threadId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/%s", threadId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, AssistantThread.class);
   }
 
@@ -64,10 +63,10 @@ public final class Threads {
 
   public AssistantThread retrieve(String threadId, String apiKey)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s", threadId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.GET, String.format("threads/%s", threadId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, AssistantThread.class);
   }
 
@@ -77,10 +76,10 @@ public final class Threads {
 
   public DeletionStatus delete(String threadId, String apiKey)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.DELETE);
-    serviceOption.setPath(String.format("threads/%s", threadId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.DELETE, String.format("threads/%s", threadId));
     DashScopeResult result =
-        api.delete(GeneralGetParam.builder().apiKey(apiKey).build(), serviceOption);
+        api.delete(GeneralGetParam.builder().apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, DeletionStatus.class);
   }
 }
@@ -47,13 +47,13 @@ public final class Messages {
 
   public ThreadMessage create(String threadId, MessageParamBase param)
       throws ApiException, NoApiKeyException, InputRequiredException {
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/messages", threadId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/%s/messages", threadId));
     if (threadId == null || threadId.equals("")) {
       throw new InputRequiredException("The threadId is required.");
     }
     param.validate();
-    DashScopeResult result = api.call(param, serviceOption);
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, ThreadMessage.class);
   }
 
@@ -62,20 +62,21 @@ public final class Messages {
     if (threadId == null || threadId.isEmpty() || messageId == null || messageId.isEmpty()) {
       throw new InputRequiredException("threadId  and messageId  are required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/messages/%s", threadId, messageId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.POST, String.format("threads/%s/messages/%s", threadId, messageId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, ThreadMessage.class);
   }
 
   public ListResult<ThreadMessage> list(String threadId, GeneralListParam listParam)
       throws ApiException, NoApiKeyException, InputRequiredException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/messages", threadId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.GET, String.format("threads/%s/messages", threadId));
     if (threadId == null || threadId.equals("")) {
       throw new InputRequiredException("The threadId is required.");
     }
-    DashScopeResult result = api.get(listParam, serviceOption);
+    DashScopeResult result = api.get(listParam, option);
     Type typeOfT = new TypeToken<ListResult<ThreadMessage>>() {}.getType();
     return FlattenResultBase.fromDashScopeResult(result, typeOfT);
   }
@@ -96,10 +97,11 @@ public final class Messages {
     if (threadId == null || threadId.isEmpty() || messageId == null || messageId.isEmpty()) {
       throw new InputRequiredException("The threadId and messageId are required.");
     }
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/messages/%s", threadId, messageId));
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET, String.format("threads/%s/messages/%s", threadId, messageId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, ThreadMessage.class);
   }
 
@@ -124,11 +126,12 @@ public final class Messages {
         || fileId.isEmpty()) {
       throw new InputRequiredException("The threadId, messageId and fileId are required.");
     }
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(
-        String.format("threads/%s/messages/%s/files/%s", threadId, messageId, fileId));
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET,
+            String.format("threads/%s/messages/%s/files/%s", threadId, messageId, fileId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, MessageFile.class);
   }
 
@@ -138,9 +141,10 @@ public final class Messages {
     if (threadId == null || threadId.isEmpty() || messageId == null || messageId.isEmpty()) {
       throw new InputRequiredException("The threadId and messageId are required.");
     }
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/messages/%s/files", threadId, messageId));
-    DashScopeResult result = api.get(listParam, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET, String.format("threads/%s/messages/%s/files", threadId, messageId));
+    DashScopeResult result = api.get(listParam, option);
     Type typeOfT = new TypeToken<ListResult<MessageFile>>() {}.getType();
     return FlattenResultBase.fromDashScopeResult(result, typeOfT);
   }
@@ -66,9 +66,9 @@ public final class Runs {
     if (param.getStream()) {
       throw new InvalidateParameter("Request with stream=true should use createStream");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs", threadId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/%s/runs", threadId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, Run.class);
   }
 
@@ -91,9 +91,9 @@ public final class Runs {
     if (!param.getStream()) {
       throw new InvalidateParameter("Request with stream=false should use create");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs", threadId));
-    Flowable<DashScopeResult> result = api.streamCall(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/%s/runs", threadId));
+    Flowable<DashScopeResult> result = api.streamCall(param, option);
     return result.map(
         item -> FlattenResultBase.fromDashScopeResult(item, AssistantStreamMessage.class, true));
   }
@@ -117,10 +117,10 @@ public final class Runs {
     if (!param.getStream()) {
       throw new InvalidateParameter("Request with stream=false should use create");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs", threadId));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/%s/runs", threadId));
 
-    api.streamCall(param, serviceOption, new StreamEventProcessingCallback(handler));
+    api.streamCall(param, option, new StreamEventProcessingCallback(handler));
   }
 
   /**
@@ -137,9 +137,9 @@ public final class Runs {
     if (param.getStream()) {
       throw new InvalidateParameter("Request with stream=false should use create");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/runs"));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/runs"));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, Run.class);
   }
 
@@ -157,9 +157,9 @@ public final class Runs {
     if (!param.getStream()) {
       throw new InvalidateParameter("Request with stream=false should use create");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/runs"));
-    return api.streamCall(param, serviceOption)
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/runs"));
+    return api.streamCall(param, option)
         .map(
             dashscopeResult ->
                 FlattenResultBase.fromDashScopeResult(
@@ -180,9 +180,9 @@ public final class Runs {
     if (!param.getStream()) {
       throw new InvalidateParameter("Request with stream=false should use create");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/runs"));
-    api.streamCall(param, serviceOption, new StreamEventProcessingCallback(handler));
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.POST, String.format("threads/runs"));
+    api.streamCall(param, option, new StreamEventProcessingCallback(handler));
   }
 
   /**
@@ -201,9 +201,10 @@ public final class Runs {
     if (threadId == null || threadId.equals("") || runId == null || runId.isEmpty()) {
       throw new InputRequiredException("threadId and runId are required!");
     }
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs/%s", threadId, runId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.POST, String.format("threads/%s/runs/%s", threadId, runId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, Run.class);
   }
 
@@ -218,9 +219,9 @@ public final class Runs {
    */
   public ListResult<Run> list(String threadId, GeneralListParam listParam)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/runs", threadId));
-    DashScopeResult result = api.get(listParam, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(HttpMethod.GET, String.format("threads/%s/runs", threadId));
+    DashScopeResult result = api.get(listParam, option);
     Type typeOfT = new TypeToken<ListResult<Run>>() {}.getType();
     return FlattenResultBase.fromDashScopeResult(result, typeOfT);
   }
@@ -237,9 +238,10 @@ public final class Runs {
    */
   public ListResult<RunStep> listSteps(String threadId, String runId, GeneralListParam listParam)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/runs/%s/steps", threadId, runId));
-    DashScopeResult result = api.get(listParam, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET, String.format("threads/%s/runs/%s/steps", threadId, runId));
+    DashScopeResult result = api.get(listParam, option);
     Type typeOfT = new TypeToken<ListResult<RunStep>>() {}.getType();
     return FlattenResultBase.fromDashScopeResult(result, typeOfT);
   }
@@ -274,10 +276,11 @@ public final class Runs {
 
   public Run retrieve(String threadId, String runId, String apiKey, Map<String, String> headers)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/runs/%s", threadId, runId));
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET, String.format("threads/%s/runs/%s", threadId, runId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, Run.class);
   }
 
@@ -315,10 +318,11 @@ public final class Runs {
   public RunStep retrieveStep(
       String threadId, String runId, String stepId, String apiKey, Map<String, String> headers)
       throws ApiException, NoApiKeyException {
-    serviceOption.setHttpMethod(HttpMethod.GET);
-    serviceOption.setPath(String.format("threads/%s/runs/%s/steps/%s", threadId, runId, stepId));
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.GET, String.format("threads/%s/runs/%s/steps/%s", threadId, runId, stepId));
     DashScopeResult result =
-        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), serviceOption);
+        api.get(GeneralGetParam.builder().headers(headers).apiKey(apiKey).build(), option);
     return FlattenResultBase.fromDashScopeResult(result, RunStep.class);
   }
 
@@ -339,9 +343,11 @@ public final class Runs {
       throw new InputRequiredException("threadId and runId are required!");
     }
     param.validate();
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs/%s/submit_tool_outputs", threadId, runId));
-    DashScopeResult result = api.call(param, serviceOption);
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.POST,
+            String.format("threads/%s/runs/%s/submit_tool_outputs", threadId, runId));
+    DashScopeResult result = api.call(param, option);
     return FlattenResultBase.fromDashScopeResult(result, Run.class);
   }
 
@@ -363,9 +369,11 @@ public final class Runs {
       throw new InputRequiredException("threadId and runId are required!");
     }
     param.validate();
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs/%s/submit_tool_outputs", threadId, runId));
-    return api.streamCall(param, serviceOption)
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.POST,
+            String.format("threads/%s/runs/%s/submit_tool_outputs", threadId, runId));
+    return api.streamCall(param, option)
         .map(
             dashscopeResult ->
                 FlattenResultBase.fromDashScopeResult(
@@ -390,8 +398,10 @@ public final class Runs {
       throw new InputRequiredException("threadId and runId are required!");
     }
     param.validate();
-    serviceOption.setHttpMethod(HttpMethod.POST);
-    serviceOption.setPath(String.format("threads/%s/runs/%s/submit_tool_outputs", threadId, runId));
-    api.streamCall(param, serviceOption, new StreamEventProcessingCallback(handler));
+    GeneralServiceOption option =
+        serviceOption.withPath(
+            HttpMethod.POST,
+            String.format("threads/%s/runs/%s/submit_tool_outputs", threadId, runId));
+    api.streamCall(param, option, new StreamEventProcessingCallback(handler));
   }
 }
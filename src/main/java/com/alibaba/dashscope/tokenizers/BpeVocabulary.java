@@ -0,0 +1,240 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.tokenizers;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BPE vocabulary in flat arrays, loaded from a compact binary file compiled from the tiktoken
+ * file at build time, so loading is one bulk read instead of decoding and hashing every token.
+ *
+ * <p>The binary file is big endian: magic "QBPE", version, token count, byte count, pair count,
+ * the length of each token as an unsigned byte, the bytes of all tokens in rank order, the number
+ * of mergeable pairs of each token as an unsigned byte, then the left and right token ids of each
+ * pair in rank order.
+ *
+ * <p>Regenerate after changing the tiktoken file: mvn -P vocabulary compile exec:java
+ */
+public final class BpeVocabulary {
+  private static final int MAGIC = 0x51425045;
+  private static final int VERSION = 1;
+
+  // the bytes of token i are bytes[offsets[i], offsets[i + 1]).
+  private final byte[] bytes;
+  private final int[] offsets;
+  private final BytePairRanks ranks;
+
+  private BpeVocabulary(byte[] bytes, int[] offsets, BytePairRanks ranks) {
+    this.bytes = bytes;
+    this.offsets = offsets;
+    this.ranks = ranks;
+  }
+
+  BytePairRanks ranks() {
+    return ranks;
+  }
+
+  /**
+   * The string of the tokens. Their bytes are joined before decoding, as a char may be split
+   * across tokens, a partial utf-8 sequence left is decoded as replacement chars.
+   */
+  String decode(List<Integer> tokens) {
+    int size = 0;
+    for (int token : tokens) {
+      size += offsets[token + 1] - offsets[token];
+    }
+    byte[] joined = new byte[size];
+    int position = 0;
+    for (int token : tokens) {
+      int length = offsets[token + 1] - offsets[token];
+      System.arraycopy(bytes, offsets[token], joined, position, length);
+      position += length;
+    }
+    return new String(joined, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Load a compiled vocabulary from the classpath.
+   *
+   * @param resource The resource name of the compiled vocabulary.
+   * @param specialTokens The special tokens, numbered consecutively after the mergeable tokens.
+   * @return The vocabulary.
+   */
+  static BpeVocabulary load(String resource, Map<String, Integer> specialTokens) {
+    ByteBuffer buffer;
+    try {
+      buffer = readResource(resource);
+    } catch (IOException e) {
+      throw new RuntimeException("Could not load " + resource + " from resources", e);
+    }
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+      throw new IllegalStateException("Invalid vocabulary file " + resource);
+    }
+    int tokenCount = buffer.getInt();
+    int byteCount = buffer.getInt();
+    int pairCount = buffer.getInt();
+    byte[] lengths = new byte[tokenCount];
+    buffer.get(lengths);
+    int specialBytes = 0;
+    for (String token : specialTokens.keySet()) {
+      specialBytes += token.getBytes(StandardCharsets.UTF_8).length;
+    }
+    byte[] bytes = new byte[byteCount + specialBytes];
+    buffer.get(bytes, 0, byteCount);
+    byte[] pairCounts = new byte[tokenCount];
+    buffer.get(pairCounts);
+    int[] pairs = new int[pairCount * 2];
+    buffer.asIntBuffer().get(pairs);
+
+    int[] offsets = new int[tokenCount + specialTokens.size() + 1];
+    BytePairRanks ranks = new BytePairRanks(pairCount);
+    for (int rank = 0, pair = 0; rank < tokenCount; ++rank) {
+      int length = lengths[rank] & 0xff;
+      offsets[rank + 1] = offsets[rank] + length;
+      if (length == 1) {
+        ranks.putByteToken(bytes[offsets[rank]], rank);
+      }
+      for (int end = pair + (pairCounts[rank] & 0xff) * 2; pair < end; pair += 2) {
+        ranks.put(pairs[pair], pairs[pair + 1], rank);
+      }
+    }
+    int id = tokenCount;
+    for (Map.Entry<String, Integer> entry : specialTokens.entrySet()) {
+      if (entry.getValue() != id) {
+        throw new IllegalStateException("Special token not in order: " + entry.getKey());
+      }
+      byte[] token = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      System.arraycopy(token, 0, bytes, offsets[id], token.length);
+      offsets[id + 1] = offsets[id] + token.length;
+      id += 1;
+    }
+    return new BpeVocabulary(bytes, offsets, ranks);
+  }
+
+  private static ByteBuffer readResource(String resource) throws IOException {
+    URL url = BpeVocabulary.class.getClassLoader().getResource(resource);
+    if (url == null) {
+      throw new IOException(resource + " not found");
+    }
+    URLConnection connection = url.openConnection();
+    int length = connection.getContentLength();
+    try (InputStream inputStream = connection.getInputStream()) {
+      if (length >= 0) {
+        // one read into an exactly sized array, the jar entry size is known.
+        byte[] content = new byte[length];
+        new DataInputStream(inputStream).readFully(content);
+        return ByteBuffer.wrap(content);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 22);
+      byte[] buffer = new byte[1 << 16];
+      for (int n; (n = inputStream.read(buffer)) > 0; ) {
+        out.write(buffer, 0, n);
+      }
+      return ByteBuffer.wrap(out.toByteArray());
+    }
+  }
+
+  /**
+   * Compile a tiktoken file, lines of base64 token and rank ordered by rank, to the binary format.
+   *
+   * @param tiktoken The tiktoken file.
+   * @param out The binary vocabulary is written to.
+   * @throws IOException Read or write failed, or the tiktoken file is invalid.
+   */
+  public static void compile(InputStream tiktoken, OutputStream out) throws IOException {
+    // ref: https://github.com/openai/tiktoken/blob/main/tiktoken/load.py#L143
+    List<byte[]> tokens = new ArrayList<>();
+    Map<EncodeBytesEntity, Integer> tokenRanks = new HashMap<>();
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(tiktoken, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      // 8J+Vkw== 149934
+      String[] splits = line.split(" ");
+      if (splits.length != 2 || Integer.parseInt(splits[1]) != tokens.size()) {
+        throw new IOException("Invalid line in tiktoken file: " + line);
+      }
+      byte[] token = Base64.getDecoder().decode(splits[0]);
+      if (token.length == 0 || token.length > 0xff) {
+        throw new IOException("Invalid token length in tiktoken file: " + line);
+      }
+      tokenRanks.put(new EncodeBytesEntity(token), tokens.size());
+      tokens.add(token);
+    }
+    // every split of a token into two tokens is a mergeable pair.
+    byte[] pairCounts = new byte[tokens.size()];
+    IntArray pairs = new IntArray();
+    int byteCount = 0;
+    for (int rank = 0; rank < tokens.size(); ++rank) {
+      byte[] token = tokens.get(rank);
+      byteCount += token.length;
+      for (int split = 1; split < token.length; ++split) {
+        Integer left = tokenRanks.get(new EncodeBytesEntity(Arrays.copyOfRange(token, 0, split)));
+        if (left == null) {
+          continue;
+        }
+        Integer right =
+            tokenRanks.get(new EncodeBytesEntity(Arrays.copyOfRange(token, split, token.length)));
+        if (right != null) {
+          pairs.add(left);
+          pairs.add(right);
+          pairCounts[rank] += 1;
+        }
+      }
+    }
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(tokens.size());
+    data.writeInt(byteCount);
+    data.writeInt(pairs.size() / 2);
+    for (byte[] token : tokens) {
+      data.writeByte(token.length);
+    }
+    for (byte[] token : tokens) {
+      data.write(token);
+    }
+    data.write(pairCounts);
+    for (int value : pairs.toArray()) {
+      data.writeInt(value);
+    }
+    data.flush();
+  }
+
+  /**
+   * Compile a tiktoken file.
+   *
+   * @param args The tiktoken file and the output file.
+   * @throws IOException Compile failed.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: BpeVocabulary <tiktoken file> <output file>");
+      System.exit(1);
+    }
+    try (InputStream in = Files.newInputStream(Paths.get(args[0]));
+        OutputStream out = Files.newOutputStream(Paths.get(args[1]))) {
+      compile(in, out);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.Arrays;
+
+/**
+ * Merge ranks of the byte pair encoding, keyed by the token ids of the pair in an open addressing
+ * table of primitives. The rank of a pair is the rank, which is also the id, of the merged token.
+ */
+final class BytePairRanks {
+  private static final long EMPTY = -1L;
+
+  private final int[] byteTokens = new int[256];
+  private final long[] keys;
+  private final int[] ranks;
+  private final int shift;
+  private int size = 0;
+
+  /**
+   * Allocate for the pairs of a vocabulary, the table is at most 2/3 full.
+   *
+   * @param pairCount The number of mergeable pairs.
+   */
+  BytePairRanks(int pairCount) {
+    Arrays.fill(byteTokens, -1);
+    int capacity = Integer.highestOneBit(Math.max(pairCount * 3 / 2, 1)) << 1;
+    keys = new long[capacity];
+    ranks = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+  }
+
+  void putByteToken(byte b, int rank) {
+    byteTokens[b & 0xff] = rank;
+  }
+
+  /** The token of a single byte. */
+  int byteToken(byte b) {
+    return byteTokens[b & 0xff];
+  }
+
+  /**
+   * The merge rank of a pair.
+   *
+   * @return The rank of the merged token, -1 if the pair can not be merged.
+   */
+  int rank(int left, int right) {
+    long key = key(left, right);
+    int mask = keys.length - 1;
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      long current = keys[slot];
+      if (current == key) {
+        return ranks[slot];
+      }
+      if (current == EMPTY) {
+        return -1;
+      }
+    }
+  }
+
+  private static long key(int left, int right) {
+    return ((long) left << 32) | (right & 0xffffffffL);
+  }
+
+  private int slot(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+  }
+
+  /** Add the pair merged to the token of `rank`, the table never grows beyond its capacity. */
+  void put(int left, int right, int rank) {
+    long key = key(left, right);
+    int mask = keys.length - 1;
+    int slot = slot(key);
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    if (keys[slot] == EMPTY) {
+      if ((size + 1) * 3 > keys.length * 2) {
+        throw new IllegalStateException("Too many byte pairs");
+      }
+      size += 1;
+    }
+    keys[slot] = key;
+    ranks[slot] = rank;
+  }
+}
@@ -0,0 +1,71 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Growable array of token ids, or only their count. */
+final class IntArray {
+  private final boolean countOnly;
+  private int[] values;
+  private int size = 0;
+
+  IntArray() {
+    this(false);
+  }
+
+  private IntArray(boolean countOnly) {
+    this.countOnly = countOnly;
+    this.values = countOnly ? null : new int[16];
+  }
+
+  /** An array that only counts the added ids. */
+  static IntArray counter() {
+    return new IntArray(true);
+  }
+
+  boolean isCountOnly() {
+    return countOnly;
+  }
+
+  void add(int value) {
+    if (countOnly) {
+      size += 1;
+      return;
+    }
+    if (size == values.length) {
+      values = Arrays.copyOf(values, size << 1);
+    }
+    values[size++] = value;
+  }
+
+  void addAll(IntArray other) {
+    if (countOnly) {
+      size += other.size;
+      return;
+    }
+    if (size + other.size > values.length) {
+      values = Arrays.copyOf(values, Math.max(size << 1, size + other.size));
+    }
+    System.arraycopy(other.values, 0, values, size, other.size);
+    size += other.size;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+
+  List<Integer> toList() {
+    List<Integer> list = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      list.add(values[i]);
+    }
+    return list;
+  }
+}
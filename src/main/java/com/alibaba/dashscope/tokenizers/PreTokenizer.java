@@ -0,0 +1,147 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into the pieces the BPE is applied to. {@link #next} is a hand-written equivalent
+ * of {@link #PATTERN}, it scans each piece once without backtracking or allocation, so long
+ * inputs and long whitespace runs split in linear time.
+ */
+public final class PreTokenizer {
+  public static final String PATTERN_STRING =
+      "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+
+  /** The split regex, kept as the reference of the state machine. */
+  public static final Pattern PATTERN = Pattern.compile(PATTERN_STRING);
+
+  private PreTokenizer() {}
+
+  /**
+   * Find the piece starting at `start`, the same as `PATTERN` matching from there.
+   *
+   * @param text The text.
+   * @param start The start of the piece, less than the text length.
+   * @return The end of the piece, exclusive.
+   */
+  public static int next(CharSequence text, int start) {
+    int length = text.length();
+    int c = Character.codePointAt(text, start);
+    int afterC = start + Character.charCount(c);
+    // (?i:'s|'t|'re|'ve|'m|'ll|'d)
+    if (c == '\'') {
+      int end = contraction(text, afterC, length);
+      if (end > 0) {
+        return end;
+      }
+    }
+    // [^\r\n\p{L}\p{N}]?\p{L}+
+    if (isLetter(c)) {
+      return skipLetters(text, afterC, length);
+    }
+    boolean isNumber = isNumber(c);
+    if (c != '\r'
+        && c != '\n'
+        && !isNumber
+        && afterC < length
+        && isLetter(Character.codePointAt(text, afterC))) {
+      return skipLetters(text, afterC, length);
+    }
+    // \p{N}
+    if (isNumber) {
+      return afterC;
+    }
+    // ' ?[^\s\p{L}\p{N}]+[\r\n]*'
+    int end = c == ' ' ? afterC : start;
+    if (end < length && isOther(Character.codePointAt(text, end))) {
+      while (end < length) {
+        int cp = Character.codePointAt(text, end);
+        if (!isOther(cp)) {
+          break;
+        }
+        end += Character.charCount(cp);
+      }
+      while (end < length && isNewline(text.charAt(end))) {
+        end += 1;
+      }
+      return end;
+    }
+    // c is a whitespace here.
+    int lastNewline = isNewline(c) ? start : -1;
+    end = afterC;
+    while (end < length && isSpace(text.charAt(end))) {
+      if (isNewline(text.charAt(end))) {
+        lastNewline = end;
+      }
+      end += 1;
+    }
+    // \s*[\r\n]+ ends at the last newline of the run.
+    if (lastNewline >= 0) {
+      return lastNewline + 1;
+    }
+    // \s+(?!\S) leaves the last whitespace to the next word, \s+ takes a single one.
+    if (end == length || end - start == 1) {
+      return end;
+    }
+    return end - 1;
+  }
+
+  private static int contraction(CharSequence text, int i, int length) {
+    if (i >= length) {
+      return -1;
+    }
+    char first = toLowerAscii(text.charAt(i));
+    if (first == 's' || first == 't' || first == 'm' || first == 'd') {
+      return i + 1;
+    }
+    if (i + 1 < length) {
+      char second = toLowerAscii(text.charAt(i + 1));
+      if ((first == 'r' && second == 'e')
+          || (first == 'v' && second == 'e')
+          || (first == 'l' && second == 'l')) {
+        return i + 2;
+      }
+    }
+    return -1;
+  }
+
+  private static int skipLetters(CharSequence text, int i, int length) {
+    while (i < length) {
+      int cp = Character.codePointAt(text, i);
+      if (!isLetter(cp)) {
+        break;
+      }
+      i += Character.charCount(cp);
+    }
+    return i;
+  }
+
+  private static char toLowerAscii(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  // \s without UNICODE_CHARACTER_CLASS.
+  private static boolean isSpace(int c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+  }
+
+  private static boolean isNewline(int c) {
+    return c == '\r' || c == '\n';
+  }
+
+  private static boolean isLetter(int cp) {
+    return Character.isLetter(cp);
+  }
+
+  private static boolean isNumber(int cp) {
+    int type = Character.getType(cp);
+    return type == Character.DECIMAL_DIGIT_NUMBER
+        || type == Character.LETTER_NUMBER
+        || type == Character.OTHER_NUMBER;
+  }
+
+  private static boolean isOther(int cp) {
+    return !isSpace(cp) && !isLetter(cp) && !isNumber(cp);
+  }
+}
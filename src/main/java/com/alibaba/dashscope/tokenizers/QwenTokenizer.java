@@ -3,21 +3,12 @@ package com.alibaba.dashscope.tokenizers;
 import com.alibaba.dashscope.exception.NoSpecialTokenExists;
 import com.alibaba.dashscope.exception.UnSupportedSpecialTokenMode;
 import com.alibaba.dashscope.utils.StringUtils;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * BPE encode and decode, implementation reference https://github.com/openai/tiktoken and
@@ -29,14 +20,14 @@ public class QwenTokenizer implements Tokenizer {
   private static final String ENDOFTEXT = "<|endoftext|>";
   private static final String IMSTART = "<|im_start|>";
   private static final String IMEND = "<|im_end|>";
-  private static final String PATTEN_STRING =
-      "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
   private static final int SPECIAL_START_ID = 151643;
-  private static final String TOKEN_RANK_SEPARATOR = " ";
-  private static final String vocabularyBpeFile = "qwen.tiktoken";
-  private static final Map<EncodeBytesEntity, Integer> mergeableRanks;
+  // compiled from qwen.tiktoken, see BpeVocabulary. qwen.tiktoken is still shipped in the jar
+  // for code reading the resource.
+  private static final String vocabularyBpeFile = "qwen.bpe";
+  // inputs of at least this many chars are encoded in parallel segments of about SEGMENT_SIZE.
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  private static final int SEGMENT_SIZE = 1 << 14;
   private static final Map<String, Integer> specialTokens;
-  private static final byte[][] decodeMap;
 
   static {
     Map<String, Integer> map = new LinkedHashMap<>();
@@ -51,130 +42,111 @@ public class QwenTokenizer implements Tokenizer {
     specialTokens = Collections.unmodifiableMap(map);
   }
 
-  static {
-    // ref: https://github.com/openai/tiktoken/blob/main/tiktoken/load.py#L143
-    mergeableRanks = new LinkedHashMap<>();
-    ClassLoader classLoader = QwenTokenizer.class.getClassLoader();
-    try {
-      InputStream inputStream = classLoader.getResourceAsStream(vocabularyBpeFile);
-
-      BufferedReader reader =
-          new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        // 8J+Vkw== 149934 split
-        String[] splits = line.split(TOKEN_RANK_SEPARATOR);
-        assert splits.length == 2 : "Invalid line in " + vocabularyBpeFile + ": " + line;
+  /** The vocabulary is loaded on first encode or decode, not with the class. */
+  private static final class Vocabulary {
+    static final BpeVocabulary QWEN = BpeVocabulary.load(vocabularyBpeFile, specialTokens);
+  }
 
-        byte[] token = Base64.getDecoder().decode(splits[0].getBytes(StandardCharsets.UTF_8));
-        int rank = Integer.valueOf(splits[1]);
+  public QwenTokenizer() {}
 
-        mergeableRanks.put(new EncodeBytesEntity(token, rank), rank);
+  /**
+   * Encode one chunk with byte pair merges. The parts of the chunk are kept in a linked list and
+   * the mergeable adjacent pairs in a min heap ordered by rank then position, so each merge is
+   * O(log n) instead of a rescan of the chunk.
+   *
+   * @param bytes The utf-8 bytes of the chunk.
+   * @param n The number of bytes in the chunk.
+   * @param out The token ids are appended to.
+   */
+  private static void encodeChunk(byte[] bytes, int n, IntArray out) {
+    BytePairRanks bytePairRanks = Vocabulary.QWEN.ranks();
+    if (n == 1) {
+      out.add(bytePairRanks.byteToken(bytes[0]));
+      return;
+    }
+    // tokens[i] is -1 once the part is merged into its left neighbour.
+    int[] tokens = new int[n];
+    int[] prev = new int[n];
+    int[] next = new int[n];
+    for (int i = 0; i < n; ++i) {
+      tokens[i] = bytePairRanks.byteToken(bytes[i]);
+      prev[i] = i - 1;
+      next[i] = i + 1 < n ? i + 1 : -1;
+    }
+    // each entry is rank << 32 | position, at most n - 1 initial pairs and 2 per merge.
+    long[] heap = new long[3 * n];
+    int heapSize = 0;
+    for (int i = 0; i + 1 < n; ++i) {
+      int rank = bytePairRanks.rank(tokens[i], tokens[i + 1]);
+      if (rank >= 0) {
+        heapSize = heapPush(heap, heapSize, (long) rank << 32 | i);
       }
-      // init decodeMap
-      decodeMap = new byte[mergeableRanks.size() + specialTokens.size()][];
-      for (Entry<EncodeBytesEntity, Integer> entry : mergeableRanks.entrySet()) {
-        decodeMap[entry.getValue()] =
-            Arrays.copyOf(entry.getKey().bytes, entry.getKey().bytes.length);
+    }
+    while (heapSize > 0) {
+      long top = heap[0];
+      heapSize = heapPop(heap, heapSize);
+      int i = (int) top;
+      int rank = (int) (top >>> 32);
+      int j = next[i];
+      // skip stale pairs, the rank identifies the merged token so a changed pair never matches.
+      if (tokens[i] < 0 || j < 0 || bytePairRanks.rank(tokens[i], tokens[j]) != rank) {
+        continue;
       }
-      for (Entry<String, Integer> entry : specialTokens.entrySet()) {
-        byte[] b = entry.getKey().getBytes(StandardCharsets.UTF_8);
-        decodeMap[entry.getValue()] = Arrays.copyOf(b, b.length);
+      tokens[i] = rank;
+      tokens[j] = -1;
+      next[i] = next[j];
+      if (next[j] >= 0) {
+        prev[next[j]] = i;
       }
-    } catch (IOException e) {
-      throw new RuntimeException("Could not load " + vocabularyBpeFile + " from resources", e);
-    }
-  }
-
-  public QwenTokenizer() {}
-
-  private EncodeBytesEntity mergePair(EncodeBytesEntity first, EncodeBytesEntity second) {
-    byte[] bytesPair = Arrays.copyOf(first.bytes, first.bytes.length + second.bytes.length);
-    System.arraycopy(second.bytes, 0, bytesPair, first.bytes.length, second.bytes.length);
-    return new EncodeBytesEntity(bytesPair);
-  }
-
-  private EncodeBytesEntity getLowestIndexBytePair(EncodeBytesEntity[] ids) {
-    List<EncodeBytesEntity> bytePairs = new ArrayList<>();
-    Integer minRank = Integer.MAX_VALUE;
-    EncodeBytesEntity minRankPair = null;
-    for (int i = 0; i < ids.length - 1; ++i) {
-      EncodeBytesEntity bytePair = mergePair(ids[i], ids[i + 1]);
-      if (bytePairs.indexOf(bytePair) == -1) {
-        Integer rank = mergeableRanks.get(bytePair);
-        if (rank == null) {
-          bytePair.rank = Integer.MAX_VALUE;
-        } else {
-          bytePair.rank = rank;
-          if (rank < minRank) {
-            minRank = rank;
-            minRankPair = bytePair;
-          }
+      if (prev[i] >= 0) {
+        int left = bytePairRanks.rank(tokens[prev[i]], rank);
+        if (left >= 0) {
+          heapSize = heapPush(heap, heapSize, (long) left << 32 | prev[i]);
         }
-        bytePairs.add(bytePair);
       }
+      if (next[i] >= 0) {
+        int right = bytePairRanks.rank(rank, tokens[next[i]]);
+        if (right >= 0) {
+          heapSize = heapPush(heap, heapSize, (long) right << 32 | i);
+        }
+      }
+    }
+    for (int i = 0; i >= 0; i = next[i]) {
+      out.add(tokens[i]);
     }
-    return minRankPair;
   }
 
-  private EncodeBytesEntity[] merge(EncodeBytesEntity[] ids, EncodeBytesEntity bytePair) {
-    EncodeBytesEntity[] merged = new EncodeBytesEntity[ids.length];
-    int mergedIndex = 0;
-    for (int i = 0; i < ids.length; ) {
-      if (i < ids.length - 1) {
-        EncodeBytesEntity mergePair = mergePair(ids[i], ids[i + 1]);
-        if (mergePair.equals(bytePair)) {
-          merged[mergedIndex++] = bytePair;
-          i += 2;
-        } else {
-          merged[mergedIndex++] = ids[i];
-          i += 1;
-        }
-      } else {
-        merged[mergedIndex++] = ids[i];
-        i += 1;
+  private static int heapPush(long[] heap, int size, long value) {
+    int i = size;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= value) {
+        break;
       }
+      heap[i] = heap[parent];
+      i = parent;
     }
-    return Arrays.copyOfRange(merged, 0, mergedIndex);
+    heap[i] = value;
+    return size + 1;
   }
 
-  /**
-   * Encode chunk return the token ids.
-   *
-   * @param chunk the input chunk
-   * @return the token ids.
-   */
-  private List<Integer> encodeChunk(String chunk) {
-    byte[] chunkBytes = chunk.getBytes(StandardCharsets.UTF_8);
-    EncodeBytesEntity[] ids = new EncodeBytesEntity[chunkBytes.length];
-    // convert bytes to integers range 0..255
-    int idx = 0;
-    for (byte b : chunkBytes) {
-      EncodeBytesEntity rankKey = new EncodeBytesEntity(new byte[] {b});
-      rankKey.rank = mergeableRanks.get(rankKey);
-      ids[idx++] = rankKey;
-    }
-    List<Integer> tokens = new ArrayList<>();
-    if (ids.length < 2) {
-      for (EncodeBytesEntity key : ids) {
-        tokens.add(key.rank);
+  private static int heapPop(long[] heap, int size) {
+    long last = heap[--size];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child += 1;
       }
-      return tokens;
-    }
-    // merge the byte pair
-    while (ids.length >= 2) {
-      // find the lowest rank mergeable byte pair
-      EncodeBytesEntity bytePair = getLowestIndexBytePair(ids);
-      if (bytePair == null) { // no more token can be merged.
+      if (last <= heap[child]) {
         break;
       }
-      // merge the lowest merge index
-      ids = merge(ids, bytePair);
+      heap[i] = heap[child];
+      i = child;
     }
-    for (EncodeBytesEntity key : ids) {
-      tokens.add(key.rank);
-    }
-    return tokens;
+    heap[i] = last;
+    return size;
   }
 
   /**
@@ -184,17 +156,85 @@ public class QwenTokenizer implements Tokenizer {
    * @return The list of token ids.
    */
   public List<Integer> encodeOrdinary(String text) {
-    List<Integer> tokenIds = new ArrayList<>();
-    // 1. split the input text to trunks use regex
-    Pattern pattern = Pattern.compile(PATTEN_STRING);
-    for (Matcher matcher = pattern.matcher(text); matcher.find(); ) {
-      // encode the chunk.
-      tokenIds.addAll(encodeChunk(matcher.group()));
+    IntArray tokenIds = new IntArray();
+    encodeOrdinary(text, tokenIds);
+    return tokenIds.toList();
+  }
+
+  /**
+   * Encoding that ignores any special tokens, without boxing the ids.
+   *
+   * @param text The input.
+   * @return The token ids.
+   */
+  public int[] encodeOrdinaryToArray(String text) {
+    IntArray tokenIds = new IntArray();
+    encodeOrdinary(text, tokenIds);
+    return tokenIds.toArray();
+  }
+
+  private static void encodeOrdinary(String text, IntArray tokenIds) {
+    if (text.length() >= PARALLEL_THRESHOLD) {
+      encodeParallel(Collections.singletonList(text), Collections.emptyMap(), tokenIds);
+    } else {
+      encodeOrdinary(text, 0, text.length(), tokenIds);
     }
-    return tokenIds;
   }
 
-  private List<String> splitWithSpecial(String text) {
+  /**
+   * Encode text[from, to), `from` and `to` must be chunk boundaries of the text.
+   *
+   * @param tokenIds The token ids are appended to.
+   */
+  private static void encodeOrdinary(String text, int from, int to, IntArray tokenIds) {
+    byte[] chunk = new byte[64];
+    for (int start = from, end; start < to; start = end) {
+      // 1. split the input text to chunks, see PreTokenizer.
+      end = PreTokenizer.next(text, start);
+      if (chunk.length < (end - start) * 3) {
+        chunk = new byte[(end - start) * 3];
+      }
+      // 2. encode the chunk.
+      encodeChunk(chunk, encodeUtf8(text, start, end, chunk), tokenIds);
+    }
+  }
+
+  /**
+   * Utf-8 encode text[start, end) like `String.getBytes`, a lone surrogate is encoded as '?'.
+   *
+   * @return The number of bytes written, at most 3 bytes per char.
+   */
+  private static int encodeUtf8(String text, int start, int end, byte[] out) {
+    int size = 0;
+    for (int i = start; i < end; ++i) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        out[size++] = (byte) c;
+      } else if (c < 0x800) {
+        out[size++] = (byte) (0xc0 | (c >> 6));
+        out[size++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c)
+            && i + 1 < end
+            && Character.isLowSurrogate(text.charAt(i + 1))) {
+          int cp = Character.toCodePoint(c, text.charAt(++i));
+          out[size++] = (byte) (0xf0 | (cp >> 18));
+          out[size++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+          out[size++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+          out[size++] = (byte) (0x80 | (cp & 0x3f));
+        } else {
+          out[size++] = '?';
+        }
+      } else {
+        out[size++] = (byte) (0xe0 | (c >> 12));
+        out[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        out[size++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    return size;
+  }
+
+  private static List<String> splitWithSpecial(String text) {
     List<String> chunks = new ArrayList<>();
     if (text.contains(SPECIAL_START) && text.contains(SPECIAL_END)) {
       chunks = StringUtils.splitByStrings(text, specialTokens.keySet());
@@ -218,6 +258,29 @@ public class QwenTokenizer implements Tokenizer {
   @Override
   public List<Integer> encode(String text, String allowedSpecial)
       throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
+    IntArray tokens = new IntArray();
+    encode(text, allowedSpecial, tokens);
+    return tokens.toList();
+  }
+
+  /**
+   * Encode the input text, handles special tokens, without boxing the ids.
+   *
+   * @param text The input to be encode.
+   * @param allowedSpecial The special token options, see {@link #encode(String, String)}.
+   * @return The token ids.
+   * @throws NoSpecialTokenExists No special token in the input.
+   * @throws UnSupportedSpecialTokenMode the allowedSpecial is not["all"|"none"|"none_raise"]
+   */
+  public int[] encodeToArray(String text, String allowedSpecial)
+      throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
+    IntArray tokens = new IntArray();
+    encode(text, allowedSpecial, tokens);
+    return tokens.toArray();
+  }
+
+  private void encode(String text, String allowedSpecial, IntArray tokens)
+      throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
     if (allowedSpecial == null) {
       allowedSpecial = "all";
     }
@@ -242,9 +305,14 @@ public class QwenTokenizer implements Tokenizer {
       throw new UnSupportedSpecialTokenMode(
           String.format("UnSupport allowedSpecial: %s", allowedSpecial));
     }
+    encode(text, specialTokensUse, tokens);
+  }
+
+  private static void encode(String text, Map<String, Integer> specialTokensUse, IntArray tokens) {
     if (specialTokensUse.isEmpty()) {
       // use ordinary encode
-      return encodeOrdinary(text);
+      encodeOrdinary(text, tokens);
+      return;
     }
     // 1. process special tokens. split the text with special tokens.
     // eg: "<|im_start|>system\nYour are a helpful
@@ -254,25 +322,129 @@ public class QwenTokenizer implements Tokenizer {
     // "<|im_end|>", "\n", "<|im_start|>", "user\nSan Francisco is a",
     // "<|im_end|>", "\n", "<|im_start|>", "assistant\n"]
     List<String> chunks = splitWithSpecial(text);
+    if (text.length() >= PARALLEL_THRESHOLD) {
+      encodeParallel(chunks, specialTokensUse, tokens);
+      return;
+    }
     // 2. process the chunks
-    List<Integer> tokens = new ArrayList<>();
     for (String chunk : chunks) {
       if (specialTokensUse.containsKey(chunk)) {
         tokens.add(specialTokensUse.get(chunk)); // is special token
       } else {
-        tokens.addAll(encodeOrdinary(chunk)); // ordinary inputs
+        encodeOrdinary(chunk, 0, chunk.length(), tokens); // ordinary inputs
       }
     }
-    return tokens;
   }
 
+  /**
+   * Encode a large input in parallel. The ordinary chunks are cut into segments at chunk
+   * boundaries of the pre-tokenizer, so every segment encodes the same as in place, the segments
+   * are encoded on the fork-join pool and joined in order.
+   */
+  private static void encodeParallel(
+      List<String> chunks, Map<String, Integer> specialTokensUse, IntArray tokens) {
+    List<Segment> segments = new ArrayList<>();
+    for (String chunk : chunks) {
+      Integer special = specialTokensUse.get(chunk);
+      if (special != null) {
+        segments.add(new Segment(chunk, 0, 0, special));
+        continue;
+      }
+      int segmentStart = 0;
+      for (int start = 0; start < chunk.length(); ) {
+        start = PreTokenizer.next(chunk, start);
+        if (start - segmentStart >= SEGMENT_SIZE || start == chunk.length()) {
+          segments.add(new Segment(chunk, segmentStart, start, -1));
+          segmentStart = start;
+        }
+      }
+    }
+    boolean countOnly = tokens.isCountOnly();
+    List<IntArray> encoded =
+        segments.parallelStream()
+            .map(
+                segment -> {
+                  IntArray segmentTokens = countOnly ? IntArray.counter() : new IntArray();
+                  if (segment.special >= 0) {
+                    segmentTokens.add(segment.special);
+                  } else {
+                    encodeOrdinary(segment.text, segment.start, segment.end, segmentTokens);
+                  }
+                  return segmentTokens;
+                })
+            .collect(Collectors.toList());
+    for (IntArray segmentTokens : encoded) {
+      tokens.addAll(segmentTokens);
+    }
+  }
+
+  private static final class Segment {
+    final String text;
+    final int start;
+    final int end;
+    final int special;
+
+    Segment(String text, int start, int end, int special) {
+      this.text = text;
+      this.start = start;
+      this.end = end;
+      this.special = special;
+    }
+  }
+
+  /**
+   * Encode the inputs in parallel, handles special tokens as `encode(text, "all")`.
+   *
+   * @param texts The inputs.
+   * @return The token ids of each input.
+   */
+  @Override
+  public List<List<Integer>> encodeBatch(List<String> texts) {
+    return texts.parallelStream()
+        .map(
+            text -> {
+              IntArray tokens = new IntArray();
+              encode(text, specialTokens, tokens);
+              return tokens.toList();
+            })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Count the tokens of the input as `encode(text, "all")`, no token list is built.
+   *
+   * @param text The input.
+   * @return The number of tokens.
+   */
+  @Override
+  public int countTokens(String text) {
+    IntArray counter = IntArray.counter();
+    encode(text, specialTokens, counter);
+    return counter.size();
+  }
+
+  /**
+   * Count the tokens of the inputs in parallel.
+   *
+   * @param texts The inputs.
+   * @return The number of tokens of each input.
+   */
+  @Override
+  public int[] countTokensBatch(List<String> texts) {
+    return texts.parallelStream().mapToInt(this::countTokens).toArray();
+  }
+
+  /**
+   * Decode token ids to String. The bytes of all tokens are joined and decoded once, so a char
+   * split across tokens is decoded whole, only a partial utf-8 sequence left at the end or between
+   * complete chars is decoded as replacement chars. Decoding token by token, as earlier versions
+   * did, turned each part of a split char into replacement chars.
+   *
+   * @param tokens The input token ids.
+   * @return The string of the tokens.
+   */
   @Override
   public String decode(List<Integer> tokens) {
-    StringBuilder sb = new StringBuilder();
-    for (Integer token : tokens) {
-      byte[] bytes = decodeMap[token];
-      sb.append(new String(bytes, StandardCharsets.UTF_8));
-    }
-    return sb.toString();
+    return Vocabulary.QWEN.decode(tokens);
   }
 }
@@ -2,6 +2,7 @@ package com.alibaba.dashscope.tokenizers;
 
 import com.alibaba.dashscope.exception.NoSpecialTokenExists;
 import com.alibaba.dashscope.exception.UnSupportedSpecialTokenMode;
+import java.util.ArrayList;
 import java.util.List;
 
 public interface Tokenizer {
@@ -42,4 +43,52 @@ public interface Tokenizer {
    * @return The token ids corresponding string.
    */
   String decode(List<Integer> ids);
+
+  /**
+   * Encode the inputs, special tokens are handled as `encode(text, "all")`.
+   *
+   * @param texts The inputs.
+   * @return The token ids of each input.
+   */
+  default List<List<Integer>> encodeBatch(List<String> texts) {
+    List<List<Integer>> results = new ArrayList<>(texts.size());
+    try {
+      for (String text : texts) {
+        results.add(encode(text, "all"));
+      }
+    } catch (NoSpecialTokenExists | UnSupportedSpecialTokenMode e) {
+      // not thrown when all special tokens are allowed.
+      throw new IllegalStateException(e);
+    }
+    return results;
+  }
+
+  /**
+   * Count the tokens of the input, special tokens are handled as `encode(text, "all")`.
+   *
+   * @param text The input.
+   * @return The number of tokens.
+   */
+  default int countTokens(String text) {
+    try {
+      return encode(text, "all").size();
+    } catch (NoSpecialTokenExists | UnSupportedSpecialTokenMode e) {
+      // not thrown when all special tokens are allowed.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Count the tokens of the inputs.
+   *
+   * @param texts The inputs.
+   * @return The number of tokens of each input.
+   */
+  default int[] countTokensBatch(List<String> texts) {
+    int[] counts = new int[texts.size()];
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] = countTokens(texts.get(i));
+    }
+    return counts;
+  }
 }
@@ -2,6 +2,8 @@
 package com.alibaba.dashscope.utils;
 
 import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.RateLimiter;
+import com.alibaba.dashscope.protocol.SdkMetrics;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -43,6 +45,18 @@ public final class Constants {
   public static final String DASHSCOPE_WRITE_TIMEOUT_ENV = "DASHSCOPE_WRITE_TIMEOUT";
   public static final String DASHSCOPE_READ_TIMEOUT_ENV = "DASHSCOPE_READ_TIMEOUT";
   public static final String DASHSCOPE_CONNECTION_TIMEOUT_ENV = "DASHSCOPE_CONNECTION_TIMEOUT";
+  // The number of local files uploaded concurrently.
+  public static final String DASHSCOPE_UPLOAD_CONCURRENCY_ENV = "DASHSCOPE_UPLOAD_CONCURRENCY";
+  // The number of uploaded file urls cached, and the file the cache is persisted to.
+  public static final String DASHSCOPE_UPLOAD_CACHE_SIZE_ENV = "DASHSCOPE_UPLOAD_CACHE_SIZE";
+  public static final String DASHSCOPE_UPLOAD_CACHE_FILE_ENV = "DASHSCOPE_UPLOAD_CACHE_FILE";
+  // Encrypted requests, seconds the public key is cached, and the requests and seconds an AES
+  // session key is reused for.
+  public static final String DASHSCOPE_ENCRYPTION_KEY_TTL_ENV = "DASHSCOPE_ENCRYPTION_KEY_TTL";
+  public static final String DASHSCOPE_ENCRYPTION_SESSION_KEY_MAX_USES_ENV =
+      "DASHSCOPE_ENCRYPTION_SESSION_KEY_MAX_USES";
+  public static final String DASHSCOPE_ENCRYPTION_SESSION_KEY_TTL_ENV =
+      "DASHSCOPE_ENCRYPTION_SESSION_KEY_TTL";
 
   public static final int DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE = 44;
 
@@ -67,6 +81,21 @@ public final class Constants {
 
   public static String apiKeyFilePath = null;
 
+  public static int uploadConcurrency = getIntEnv(DASHSCOPE_UPLOAD_CONCURRENCY_ENV, 8);
+
+  public static int uploadCacheSize = getIntEnv(DASHSCOPE_UPLOAD_CACHE_SIZE_ENV, 4096);
+
+  public static String uploadCacheFile = System.getenv(DASHSCOPE_UPLOAD_CACHE_FILE_ENV);
+
+  public static int encryptionKeyTtl = getIntEnv(DASHSCOPE_ENCRYPTION_KEY_TTL_ENV, 3600);
+
+  // 1 for a new session key per request.
+  public static int encryptionSessionKeyMaxUses =
+      getIntEnv(DASHSCOPE_ENCRYPTION_SESSION_KEY_MAX_USES_ENV, 1);
+
+  public static int encryptionSessionKeyTtl =
+      getIntEnv(DASHSCOPE_ENCRYPTION_SESSION_KEY_TTL_ENV, 300);
+
   public static String baseHttpApiUrl =
       System.getenv()
           .getOrDefault(
@@ -78,11 +107,24 @@ public final class Constants {
               DASHSCOPE_WEBSOCKET_BASE_URL_ENV,
               String.format("wss://dashscope.aliyuncs.com/api-ws/%s/inference/", apiVersion));
   public static ConnectionConfigurations connectionConfigurations = null;
+  // the client side quota of http requests, null to not limit them.
+  public static RateLimiter rateLimiter = null;
+  // the metrics of the requests, null to not measure them.
+  public static SdkMetrics sdkMetrics = null;
 
   public static final int MAX_PROMPT_LENGTH = 500;
 
   public static void init() {}
 
+  /** An integer environment variable, the default if it is not set or not a number. */
+  private static int getIntEnv(String name, int defaultValue) {
+    try {
+      return Integer.parseInt(System.getenv(name));
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
   static {
     init();
   }
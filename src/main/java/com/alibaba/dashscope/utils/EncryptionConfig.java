@@ -12,6 +12,8 @@ public class EncryptionConfig {
   @NotNull private String publicKeyId;
   @NotNull private String base64PublicKey;
   @NotNull private SecretKey AESEncryptKey;
+  /** The base64 RSA cipher of the AES key, encrypted on use if null. */
+  private String encryptedAESKey;
   /** default iv. */
   @Default private byte[] iv = "000000000000".getBytes();
 }
@@ -0,0 +1,174 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.SecretKey;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the encryption public key of each api key, so an encrypted request does not fetch
+ * public-keys/latest first. A key older than 80% of its ttl is refreshed in the background while
+ * requests keep using it, and fetched in the request once the ttl passed.
+ *
+ * <p>The AES session key, with its RSA cipher for the request header, can be reused for a number
+ * of requests within a time window, see Constants.encryptionSessionKeyMaxUses. Every request still
+ * gets its own iv. A new public key id drops the session key of the old one.
+ */
+@Slf4j
+public final class EncryptionKeyCache {
+  private static final double REFRESH_AHEAD_RATIO = 0.8;
+
+  private final Map<String, CachedKey> keys = new ConcurrentHashMap<>();
+  private final SecureRandom random = new SecureRandom();
+  private final ExecutorService refresher;
+
+  private static class Holder {
+    private static final EncryptionKeyCache INSTANCE = new EncryptionKeyCache();
+  }
+
+  public static EncryptionKeyCache getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  private EncryptionKeyCache() {
+    refresher = SdkExecutors.newBoundedPool("dashscope-encryption-key-refresh", 1);
+  }
+
+  /**
+   * A new encryption config of a request, with the cached public key and a fresh iv.
+   *
+   * @param apiKey The api key, null for the default.
+   * @return The encryption config.
+   * @throws NoApiKeyException No api key provided.
+   */
+  public EncryptionConfig newEncryptionConfig(String apiKey)
+      throws ApiException, NoApiKeyException {
+    CachedKey key = getKey(apiKey);
+    Session session = key.session();
+    byte[] iv = new byte[12];
+    random.nextBytes(iv);
+    return EncryptionConfig.builder()
+        .base64PublicKey(key.encryptionKey.getPublicKey())
+        .publicKeyId(key.encryptionKey.getPublicKeyId())
+        .AESEncryptKey(session.aesKey)
+        .encryptedAESKey(session.encryptedAESKey)
+        .iv(iv)
+        .build();
+  }
+
+  /**
+   * Drop the cached public key of an api key, the next request fetches it again. Called when an
+   * encrypted request is rejected, the key may have been rotated.
+   *
+   * @param apiKey The api key, null for the default.
+   */
+  public void invalidate(String apiKey) {
+    try {
+      keys.remove(cacheKey(apiKey));
+    } catch (NoApiKeyException e) {
+      // nothing cached without an api key.
+    }
+  }
+
+  private static String cacheKey(String apiKey) throws NoApiKeyException {
+    return String.join("\n", ApiKey.getApiKey(apiKey), Constants.baseHttpApiUrl);
+  }
+
+  private CachedKey getKey(String apiKey) throws NoApiKeyException {
+    String cacheKey = cacheKey(apiKey);
+    long now = System.currentTimeMillis();
+    CachedKey key = keys.get(cacheKey);
+    if (key == null || now >= key.expiresAt) {
+      synchronized (this) {
+        key = keys.get(cacheKey);
+        if (key == null || now >= key.expiresAt) {
+          key = fetch(apiKey, key);
+          keys.put(cacheKey, key);
+        }
+      }
+    } else if (now >= key.refreshAt && key.refreshing.compareAndSet(false, true)) {
+      CachedKey stale = key;
+      refresher.execute(
+          () -> {
+            try {
+              keys.put(cacheKey, fetch(apiKey, stale));
+            } catch (Exception e) {
+              log.warn("Refresh encryption key failed: {}", e.getMessage());
+              stale.refreshing.set(false);
+            }
+          });
+    }
+    return key;
+  }
+
+  private CachedKey fetch(String apiKey, CachedKey previous) throws NoApiKeyException {
+    EncryptionKey encryptionKey = new EncryptionKeys().get(apiKey);
+    CachedKey key = new CachedKey(encryptionKey);
+    if (previous != null
+        && previous.encryptionKey.getPublicKeyId().equals(encryptionKey.getPublicKeyId())) {
+      // same key, keep its session.
+      key.session.set(previous.session.get());
+    }
+    return key;
+  }
+
+  private static final class CachedKey {
+    private final EncryptionKey encryptionKey;
+    private final PublicKey publicKey;
+    private final long refreshAt;
+    private final long expiresAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicReference<Session> session = new AtomicReference<>();
+
+    private CachedKey(EncryptionKey encryptionKey) {
+      this.encryptionKey = encryptionKey;
+      this.publicKey = EncryptionUtils.parseRSAPublicKey(encryptionKey.getPublicKey());
+      long now = System.currentTimeMillis();
+      long ttl = Constants.encryptionKeyTtl * 1000L;
+      this.refreshAt = now + (long) (ttl * REFRESH_AHEAD_RATIO);
+      this.expiresAt = now + ttl;
+    }
+
+    private Session session() {
+      Session current = session.get();
+      if (current != null && current.tryUse()) {
+        return current;
+      }
+      Session created = new Session(publicKey);
+      created.tryUse();
+      session.set(created);
+      return created;
+    }
+  }
+
+  private static final class Session {
+    private final SecretKey aesKey;
+    private final String encryptedAESKey;
+    private final AtomicInteger uses = new AtomicInteger(0);
+    private final long expiresAt;
+
+    private Session(PublicKey publicKey) {
+      this.aesKey = EncryptionUtils.generateAESKey();
+      this.encryptedAESKey =
+          EncryptionUtils.RSAEncrypt(
+              Base64.getEncoder().encodeToString(aesKey.getEncoded()), publicKey);
+      this.expiresAt = System.currentTimeMillis() + Constants.encryptionSessionKeyTtl * 1000L;
+    }
+
+    private boolean tryUse() {
+      return uses.incrementAndGet() <= Constants.encryptionSessionKeyMaxUses
+          && System.currentTimeMillis() < expiresAt;
+    }
+  }
+}
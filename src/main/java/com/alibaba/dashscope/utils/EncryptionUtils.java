@@ -7,6 +7,7 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
@@ -23,6 +24,65 @@ public class EncryptionUtils {
   private static final String algorithm = "AES/GCM/NoPadding";
   private static final Integer keyLength = 256;
 
+  // Cipher.getInstance looks up the provider every time, reuse one cipher per thread.
+  private static final ThreadLocal<Cipher> aesCiphers =
+      ThreadLocal.withInitial(() -> newCipher(algorithm));
+  private static final ThreadLocal<Cipher> rsaCiphers =
+      ThreadLocal.withInitial(() -> newCipher("RSA"));
+
+  // the decrypt cipher of this thread with the key and parameters it was initialized with, the
+  // events of an encrypted stream share them and are decrypted without init per event.
+  private static final ThreadLocal<DecryptCipher> decryptCiphers =
+      ThreadLocal.withInitial(DecryptCipher::new);
+
+  private static final class DecryptCipher {
+    private final Cipher cipher = newCipher(algorithm);
+    private SecretKey secretKey;
+    private GCMParameterSpec gcmParameterSpec;
+  }
+
+  private static Cipher newCipher(String transformation) {
+    try {
+      return Cipher.getInstance(transformation);
+    } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+      throw new ApiException(e);
+    }
+  }
+
+  /**
+   * The AES cipher of this thread initialized with the key and iv. GCM refuses to encrypt twice
+   * with the same key and iv on one cipher, a new cipher is used then.
+   */
+  private static Cipher aesCipher(int mode, SecretKey secretKey, byte[] iv)
+      throws InvalidKeyException, InvalidAlgorithmParameterException {
+    GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, iv);
+    Cipher cipher = aesCiphers.get();
+    try {
+      cipher.init(mode, secretKey, gcmParameterSpec);
+    } catch (InvalidAlgorithmParameterException e) {
+      cipher = newCipher(algorithm);
+      cipher.init(mode, secretKey, gcmParameterSpec);
+      aesCiphers.set(cipher);
+    }
+    return cipher;
+  }
+
+  /**
+   * Parse a base64 encoded X.509 RSA public key.
+   *
+   * @param base64PublicKey The base64 encoded public key.
+   * @return The public key.
+   * @throws ApiException The key is invalid.
+   */
+  public static PublicKey parseRSAPublicKey(String base64PublicKey) throws ApiException {
+    try {
+      byte[] keyBytes = Base64.getDecoder().decode(base64PublicKey);
+      return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(keyBytes));
+    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+      throw new ApiException(e);
+    }
+  }
+
   /**
    * RSA encrypt the input string, return the base64 encoded cipher text.
    *
@@ -32,20 +92,24 @@ public class EncryptionUtils {
    * @throws ApiException
    */
   public static String RSAEncrypt(String input, String base64AESEncryptKey) throws ApiException {
+    return RSAEncrypt(input, parseRSAPublicKey(base64AESEncryptKey));
+  }
+
+  /**
+   * RSA encrypt the input string, return the base64 encoded cipher text.
+   *
+   * @param input The string to be encrypted.
+   * @param publicKey The RSA public key.
+   * @return The base64 encoded cipher of the input.
+   * @throws ApiException
+   */
+  public static String RSAEncrypt(String input, PublicKey publicKey) throws ApiException {
     try {
-      Cipher cipher = Cipher.getInstance("RSA");
-      byte[] keyBytes = Base64.getDecoder().decode(base64AESEncryptKey);
-      X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-      KeyFactory kf = KeyFactory.getInstance("RSA");
-      cipher.init(1, kf.generatePublic(spec));
+      Cipher cipher = rsaCiphers.get();
+      cipher.init(Cipher.ENCRYPT_MODE, publicKey);
       byte[] cipherBytes = cipher.doFinal(input.getBytes());
       return Base64.getEncoder().encodeToString(cipherBytes);
-    } catch (NoSuchAlgorithmException
-        | NoSuchPaddingException
-        | InvalidKeyException
-        | IllegalBlockSizeException
-        | BadPaddingException
-        | InvalidKeySpecException e) {
+    } catch (InvalidKeyException | IllegalBlockSizeException | BadPaddingException e) {
       throw new ApiException(e);
     }
   }
@@ -79,15 +143,11 @@ public class EncryptionUtils {
   public static String AESEncrypt(String input, SecretKey secretKey, byte[] iv)
       throws ApiException {
     try {
-      Cipher cipher = Cipher.getInstance(algorithm);
-      GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, iv);
-      cipher.init(Cipher.ENCRYPT_MODE, secretKey, gcmParameterSpec);
+      Cipher cipher = aesCipher(Cipher.ENCRYPT_MODE, secretKey, iv);
       byte[] cipherInput = cipher.doFinal(input.getBytes(StandardCharsets.UTF_8));
       return Base64.getEncoder().encodeToString(cipherInput);
     } catch (IllegalBlockSizeException
         | BadPaddingException
-        | NoSuchAlgorithmException
-        | NoSuchPaddingException
         | InvalidKeyException
         | InvalidAlgorithmParameterException e) {
       throw new ApiException(e);
@@ -106,15 +166,11 @@ public class EncryptionUtils {
   public static String AESEncrypt(byte[] input, SecretKey secretKey, byte[] iv)
       throws ApiException {
     try {
-      Cipher cipher = Cipher.getInstance(algorithm);
-      GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, iv);
-      cipher.init(Cipher.ENCRYPT_MODE, secretKey, gcmParameterSpec);
+      Cipher cipher = aesCipher(Cipher.ENCRYPT_MODE, secretKey, iv);
       byte[] cipherInput = cipher.doFinal(input);
       return Base64.getEncoder().encodeToString(cipherInput);
     } catch (IllegalBlockSizeException
         | BadPaddingException
-        | NoSuchAlgorithmException
-        | NoSuchPaddingException
         | InvalidKeyException
         | InvalidAlgorithmParameterException e) {
       throw new ApiException(e);
@@ -133,35 +189,52 @@ public class EncryptionUtils {
   public static String AESDecrypt(String cipherText, SecretKey secretKey, byte[] iv)
       throws ApiException {
     try {
-      Cipher cipher = Cipher.getInstance(algorithm);
-      GCMParameterSpec gcmParameterSpec = new GCMParameterSpec(128, iv);
-      cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmParameterSpec);
+      Cipher cipher = aesCipher(Cipher.DECRYPT_MODE, secretKey, iv);
       byte[] plainText = cipher.doFinal(Base64.getDecoder().decode(cipherText));
       return new String(plainText, StandardCharsets.UTF_8);
-    } catch (NoSuchAlgorithmException
-        | NoSuchPaddingException
-        | InvalidKeyException
+    } catch (InvalidKeyException
+        | IllegalBlockSizeException
+        | BadPaddingException
+        | InvalidAlgorithmParameterException e) {
+      throw new ApiException(e);
+    }
+  }
+
+  /**
+   * AES decrypt cipher bytes to plain bytes. The cipher of this thread is only initialized when the
+   * key or parameters change, pass the same parameters instance for every event of a stream.
+   *
+   * @param cipherBytes The cipher bytes.
+   * @param secretKey The secret key to use.
+   * @param gcmParameterSpec The GCM parameters of the encryption iv.
+   * @return The plain bytes.
+   * @throws ApiException
+   */
+  public static byte[] AESDecrypt(
+      byte[] cipherBytes, SecretKey secretKey, GCMParameterSpec gcmParameterSpec)
+      throws ApiException {
+    DecryptCipher decrypt = decryptCiphers.get();
+    try {
+      if (decrypt.secretKey != secretKey || decrypt.gcmParameterSpec != gcmParameterSpec) {
+        decrypt.secretKey = null;
+        decrypt.cipher.init(Cipher.DECRYPT_MODE, secretKey, gcmParameterSpec);
+        decrypt.secretKey = secretKey;
+        decrypt.gcmParameterSpec = gcmParameterSpec;
+      }
+      return decrypt.cipher.doFinal(cipherBytes);
+    } catch (InvalidKeyException
         | IllegalBlockSizeException
         | BadPaddingException
         | InvalidAlgorithmParameterException e) {
+      // init again on the next call.
+      decrypt.secretKey = null;
       throw new ApiException(e);
     }
   }
 
-  /** Generate a EncryptionConfig. */
+  /** Generate a EncryptionConfig, with the public key from the {@link EncryptionKeyCache}. */
   public static EncryptionConfig generateEncryptionConfig(String apiKey)
       throws ApiException, NoApiKeyException {
-    EncryptionKeys encryptionKeys = new EncryptionKeys();
-    EncryptionKey encryptionKey = encryptionKeys.get(apiKey);
-    byte[] iv = new byte[12];
-    new SecureRandom().nextBytes(iv);
-    EncryptionConfig encryptionConfig =
-        EncryptionConfig.builder()
-            .base64PublicKey(encryptionKey.getPublicKey())
-            .publicKeyId(encryptionKey.getPublicKeyId())
-            .AESEncryptKey(EncryptionUtils.generateAESKey())
-            .iv(iv)
-            .build();
-    return encryptionConfig;
+    return EncryptionKeyCache.getInstance().newEncryptionConfig(apiKey);
   }
 }
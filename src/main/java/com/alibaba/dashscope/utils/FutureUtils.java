@@ -0,0 +1,30 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public final class FutureUtils {
+  private FutureUtils() {}
+
+  /**
+   * Like `source.thenApply(mapper)`, but canceling the returned future also cancels the source, so
+   * a canceled call stops its request.
+   *
+   * @param source The source future.
+   * @param mapper Converts the result of the source.
+   * @return The converted future.
+   */
+  public static <T, R> CompletableFuture<R> map(
+      CompletableFuture<T> source, Function<? super T, ? extends R> mapper) {
+    CompletableFuture<R> result = source.thenApply(mapper);
+    result.whenComplete(
+        (r, e) -> {
+          if (result.isCancelled()) {
+            source.cancel(false);
+          }
+        });
+    return result;
+  }
+}
@@ -68,8 +68,8 @@ public final class GeneralHalfDuplexApi {
   public DashScopeResult call(HalfDuplexServiceParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
-    return syncApi.call(param);
+    ApiServiceOption option = serviceOption.toBuilder().isSSE(false).build();
+    return syncApi.call(param, option);
   }
 
   /**
@@ -84,9 +84,10 @@ public final class GeneralHalfDuplexApi {
   public void call(HalfDuplexServiceParam param, ResultCallback<DashScopeResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(false);
+    ApiServiceOption option = serviceOption.toBuilder().isSSE(false).build();
     syncApi.call(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult message) {
@@ -117,16 +118,17 @@ public final class GeneralHalfDuplexApi {
   public Flowable<DashScopeResult> streamCall(HalfDuplexServiceParam param)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
-    return syncApi.streamCall(param);
+    ApiServiceOption option = serviceOption.toBuilder().isSSE(true).build();
+    return syncApi.streamCall(param, option);
   }
 
   public void streamCall(HalfDuplexServiceParam param, ResultCallback<DashScopeResult> callback)
       throws ApiException, NoApiKeyException, InputRequiredException {
     param.validate();
-    serviceOption.setIsSSE(true);
+    ApiServiceOption option = serviceOption.toBuilder().isSSE(true).build();
     syncApi.streamCall(
         param,
+        option,
         new ResultCallback<DashScopeResult>() {
           @Override
           public void onEvent(DashScopeResult msg) {
@@ -49,6 +49,7 @@ public class JsonUtils {
           .registerTypeAdapter(AnnotationBase.class, new AnnotationDeserializer())
           .registerTypeAdapter(StepDetailBase.class, new StepDetailDeserializer())
           .registerTypeAdapter(ToolCallBase.class, new ToolCallGsonDeserializer())
+          .registerTypeAdapterFactory(new ResultTypeAdapterFactory())
           .addSerializationExclusionStrategy(new AnnotationExclusionStrategy())
           .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
           .disableHtmlEscaping()
@@ -149,6 +150,22 @@ public class JsonUtils {
     }
   }
 
+  /**
+   * Read an integer member of a json object, such as a token count of a usage.
+   *
+   * @param object The json object.
+   * @param member The member name.
+   * @param defaultValue The value if the member is missing or not a number.
+   * @return The integer value.
+   */
+  public static int getInt(JsonObject object, String member, int defaultValue) {
+    JsonElement value = object.get(member);
+    if (value == null || !value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+      return defaultValue;
+    }
+    return value.getAsInt();
+  }
+
   public static JsonObject merge(JsonObject dest, JsonObject src) {
     for (Map.Entry<String, JsonElement> srcEntry : src.entrySet()) {
       String key = srcEntry.getKey();
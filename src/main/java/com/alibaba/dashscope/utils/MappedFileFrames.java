@@ -0,0 +1,77 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a file as frames of a read only memory mapping, so streaming a large audio or video file
+ * does not copy it to the heap. The file is mapped in segments as it is read, the frames stay
+ * valid after close.
+ */
+public final class MappedFileFrames implements Iterator<ByteBuffer>, Closeable {
+  private static final long SEGMENT_SIZE = 64L << 20;
+
+  private final FileChannel channel;
+  private final long size;
+  private final int frameSize;
+  private long position = 0;
+  private long segmentStart = 0;
+  private MappedByteBuffer segment;
+
+  /**
+   * Open a file.
+   *
+   * @param file The file to read.
+   * @param frameSize The size of each frame, the last frame of a segment may be shorter.
+   * @throws IOException The file can not be opened.
+   */
+  public MappedFileFrames(File file, int frameSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.size = channel.size();
+    // frames do not cross segments.
+    this.frameSize = (int) Math.min(frameSize, SEGMENT_SIZE);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return position < size;
+  }
+
+  @Override
+  public ByteBuffer next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (segment == null || position >= segmentStart + segment.capacity()) {
+      try {
+        segmentStart = position;
+        segment =
+            channel.map(
+                FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+      } catch (IOException e) {
+        throw new IllegalStateException("Map file failed", e);
+      }
+    }
+    int offset = (int) (position - segmentStart);
+    int length = Math.min(frameSize, segment.capacity() - offset);
+    ByteBuffer frame = segment.duplicate();
+    frame.position(offset);
+    frame.limit(offset + length);
+    position += length;
+    return frame.slice();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -5,6 +5,7 @@ import com.alibaba.dashscope.common.ErrorType;
 import com.alibaba.dashscope.common.Status;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.exception.UploadFileException;
 import com.alibaba.dashscope.protocol.DashScopeHeaders;
 import com.alibaba.dashscope.protocol.NetworkResponse;
 import com.alibaba.dashscope.protocol.Protocol;
@@ -18,9 +19,20 @@ import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.nio.file.spi.FileTypeDetector;
+import java.security.MessageDigest;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Headers;
 import okhttp3.HttpUrl;
@@ -30,23 +42,184 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 
 @Slf4j
 public final class OSSUtils {
+  /** Refetch the upload policy this long before it expires. */
+  private static final long POLICY_EXPIRY_MARGIN_MILLIS = 30_000;
+
+  private static final int MAX_CACHED_ENTRIES = 1024;
+
+  // (model, api key, base url) to the policy.
+  private static final Map<String, Expiring<CompletableFuture<JsonObject>>> policies =
+      new BoundedMap<>(MAX_CACHED_ENTRIES);
+  // (model, api key, sha256) of the files being uploaded, finished uploads are in the UploadCache.
+  private static final Map<String, CompletableFuture<String>> uploads = new HashMap<>();
+  // absolute path to the sha256 of the file, valid while its size, mtime and file key (the inode
+  // on unix) are unchanged. A file rewritten in place to the same size within the mtime resolution
+  // of its file system keeps all three, so the digest of a file modified less than
+  // RACY_MODIFICATION_MILLIS before it is read is not kept. A file whose mtime is set back
+  // explicitly, e.g. by touch -d, can still hit a stale digest.
+  private static final Map<String, FileDigest> digests = new BoundedMap<>(MAX_CACHED_ENTRIES);
+  // the coarsest mtime resolution of common file systems, 2s on FAT.
+  private static final long RACY_MODIFICATION_MILLIS = 2_000;
+
+  private static class ExecutorHolder {
+    private static final ExecutorService EXECUTOR = newUploadExecutor();
+  }
+
+  /**
+   * Upload a local file to the temporary storage. The upload policy is cached per model and api
+   * key until it expires, and a file with the same content found in the {@link UploadCache} is not
+   * uploaded again.
+   *
+   * @param model The model the file is uploaded for.
+   * @param filePath The local file path.
+   * @param apiKey The api key, null for the default.
+   * @return The oss:// url of the file.
+   * @throws NoApiKeyException No api key provided.
+   */
   public static String upload(String model, String filePath, String apiKey)
       throws NoApiKeyException {
+    return upload(model, filePath, apiKey, null);
+  }
+
+  /**
+   * Upload a local file to the temporary storage, see {@link #upload(String, String, String)}. The
+   * file is streamed from disk, so a large file is not held in memory.
+   *
+   * @param model The model the file is uploaded for.
+   * @param filePath The local file path.
+   * @param apiKey The api key, null for the default.
+   * @param listener Receives the upload progress, not called if the file is found in the cache.
+   * @return The oss:// url of the file.
+   * @throws NoApiKeyException No api key provided.
+   */
+  public static String upload(
+      String model, String filePath, String apiKey, UploadProgressListener listener)
+      throws NoApiKeyException {
+    String resolvedApiKey = ApiKey.getApiKey(apiKey);
+    File uploadFile = new File(filePath);
+    String sha256 = digest(uploadFile.getAbsoluteFile());
+    String uploadKey = String.join("\n", model, resolvedApiKey, sha256);
+    UploadCache cache = UploadCache.getInstance();
+    CompletableFuture<String> upload = new CompletableFuture<>();
+    CompletableFuture<String> uploading;
+    synchronized (uploads) {
+      String url = cache.get(sha256, model, resolvedApiKey);
+      if (url != null) {
+        return url;
+      }
+      uploading = uploads.putIfAbsent(uploadKey, upload);
+    }
+    if (uploading != null) {
+      // being uploaded by another call.
+      return await(uploading);
+    }
+    try {
+      String url = doUpload(model, uploadFile, resolvedApiKey, listener);
+      cache.put(sha256, model, resolvedApiKey, url);
+      upload.complete(url);
+    } catch (Throwable e) {
+      upload.completeExceptionally(e);
+    } finally {
+      synchronized (uploads) {
+        uploads.remove(uploadKey);
+      }
+    }
+    return await(upload);
+  }
+
+  /**
+   * Upload local files in parallel with bounded concurrency, see {@link #upload(String, String,
+   * String)}.
+   *
+   * @param model The model the files are uploaded for.
+   * @param filePaths The local file paths.
+   * @param apiKey The api key, null for the default.
+   * @return The oss:// url of each file path.
+   * @throws NoApiKeyException No api key provided.
+   */
+  public static Map<String, String> uploadAll(
+      String model, Collection<String> filePaths, String apiKey) throws NoApiKeyException {
+    return uploadAll(model, filePaths, apiKey, null);
+  }
+
+  /**
+   * Upload local files in parallel with bounded concurrency, see {@link #upload(String, String,
+   * String, UploadProgressListener)}.
+   *
+   * @param model The model the files are uploaded for.
+   * @param filePaths The local file paths.
+   * @param apiKey The api key, null for the default.
+   * @param listener Receives the upload progress of each file, called concurrently.
+   * @return The oss:// url of each file path.
+   * @throws NoApiKeyException No api key provided.
+   */
+  public static Map<String, String> uploadAll(
+      String model, Collection<String> filePaths, String apiKey, UploadProgressListener listener)
+      throws NoApiKeyException {
+    String resolvedApiKey = ApiKey.getApiKey(apiKey);
+    Map<String, Future<String>> futures = new LinkedHashMap<>();
+    for (String filePath : filePaths) {
+      if (!futures.containsKey(filePath)) {
+        futures.put(
+            filePath,
+            ExecutorHolder.EXECUTOR.submit(
+                () -> upload(model, filePath, resolvedApiKey, listener)));
+      }
+    }
+    Map<String, String> urls = new LinkedHashMap<>();
+    try {
+      for (Map.Entry<String, Future<String>> entry : futures.entrySet()) {
+        urls.put(entry.getKey(), entry.getValue().get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ApiException) {
+        throw (ApiException) e.getCause();
+      }
+      throw new ApiException(e.getCause());
+    } finally {
+      for (Future<String> future : futures.values()) {
+        future.cancel(true);
+      }
+    }
+    return urls;
+  }
+
+  private static String doUpload(
+      String model, File uploadFile, String apiKey, UploadProgressListener listener) {
     OkHttpClient client = OkHttpClientFactory.getOkHttpClient();
-    DashScopeResult uploadInfo = get_upload_certificate(model, apiKey);
-    JsonObject outputData = ((JsonObject) uploadInfo.getOutput()).getAsJsonObject("data");
+    JsonObject outputData = getUploadPolicy(model, apiKey);
+    if (outputData.has("max_file_size_mb")
+        && uploadFile.length() > outputData.get("max_file_size_mb").getAsLong() << 20) {
+      throw new ApiException(
+          new UploadFileException(
+              String.format(
+                  "File: %s exceeds the maximum size %sMB",
+                  uploadFile.getPath(), outputData.get("max_file_size_mb").getAsString())));
+    }
     Map<String, String> headers = new HashMap<>();
     headers.put("user-agent", DashScopeHeaders.userAgent());
     headers.put("Accept", "application/json");
-    File uploadFile = new File(filePath);
+    String filePath = uploadFile.getPath();
     String host = outputData.get("upload_host").getAsString();
     String ossAccessKeyId = outputData.get("oss_access_key_id").getAsString();
     String signature = outputData.get("signature").getAsString();
     String policy = outputData.get("policy").getAsString();
-    String key = outputData.get("upload_dir").getAsString() + "/" + uploadFile.getName();
+    // the policy is shared by uploads, a unique directory keeps files of the same name apart.
+    String key =
+        String.format(
+            "%s/%s/%s",
+            outputData.get("upload_dir").getAsString(),
+            UUID.randomUUID().toString().replace("-", ""),
+            uploadFile.getName());
     String xOssObjectAcl = outputData.get("x_oss_object_acl").getAsString();
     String xOssForbidOverwrite = outputData.get("x_oss_forbid_overwrite").getAsString();
 
@@ -64,7 +237,8 @@ public final class OSSUtils {
             .addFormDataPart(
                 "file",
                 uploadFile.getName(),
-                RequestBody.create(MediaType.parse(getContentType(filePath)), uploadFile))
+                new FileRequestBody(
+                    uploadFile, MediaType.parse(getContentType(filePath)), listener))
             .build();
 
     Request request = new Request.Builder().url(host).post(requestBody).build();
@@ -79,6 +253,187 @@ public final class OSSUtils {
     }
   }
 
+  /** The cached upload policy of the model and api key, fetched again when it expires. */
+  private static JsonObject getUploadPolicy(String model, String apiKey) {
+    String cacheKey = String.join("\n", model, apiKey, Constants.baseHttpApiUrl);
+    CompletableFuture<JsonObject> fetch = new CompletableFuture<>();
+    Expiring<CompletableFuture<JsonObject>> policy;
+    synchronized (policies) {
+      policy = policies.get(cacheKey);
+      if (policy == null || policy.isExpired() || policy.value.isCompletedExceptionally()) {
+        policy = null;
+        // concurrent uploads wait for this fetch, the expiry is known after it.
+        policies.put(cacheKey, new Expiring<>(fetch, Long.MAX_VALUE));
+      }
+    }
+    if (policy != null) {
+      return await(policy.value);
+    }
+    try {
+      long now = System.currentTimeMillis();
+      DashScopeResult uploadInfo = get_upload_certificate(model, apiKey);
+      JsonObject outputData = ((JsonObject) uploadInfo.getOutput()).getAsJsonObject("data");
+      long expiresAt = now;
+      if (outputData.has("expire_in_seconds")) {
+        expiresAt +=
+            outputData.get("expire_in_seconds").getAsLong() * 1000 - POLICY_EXPIRY_MARGIN_MILLIS;
+      }
+      synchronized (policies) {
+        policies.put(cacheKey, new Expiring<>(fetch, expiresAt));
+      }
+      fetch.complete(outputData);
+    } catch (Throwable e) {
+      synchronized (policies) {
+        policies.remove(cacheKey);
+      }
+      fetch.completeExceptionally(e);
+    }
+    return await(fetch);
+  }
+
+  /** The hex sha256 of a file, reading it in chunks. */
+  private static String digest(File file) {
+    String path = file.getPath();
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+    } catch (IOException e) {
+      throw new ApiException(e);
+    }
+    synchronized (digests) {
+      FileDigest digest = digests.get(path);
+      if (digest != null && digest.matches(attributes)) {
+        return digest.sha256;
+      }
+    }
+    long digestedAt = System.currentTimeMillis();
+    MessageDigest messageDigest = UploadCache.newSha256();
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      byte[] buffer = new byte[1 << 16];
+      for (int n; (n = in.read(buffer)) > 0; ) {
+        messageDigest.update(buffer, 0, n);
+      }
+    } catch (IOException e) {
+      throw new ApiException(e);
+    }
+    String sha256 = UploadCache.hex(messageDigest.digest());
+    if (attributes.lastModifiedTime().toMillis() < digestedAt - RACY_MODIFICATION_MILLIS) {
+      synchronized (digests) {
+        digests.put(path, new FileDigest(attributes, sha256));
+      }
+    }
+    return sha256;
+  }
+
+  private static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof ApiException) {
+        throw (ApiException) e.getCause();
+      }
+      throw new ApiException(e.getCause());
+    }
+  }
+
+  private static ExecutorService newUploadExecutor() {
+    return SdkExecutors.newBoundedPool("dashscope-upload", Constants.uploadConcurrency);
+  }
+
+  /** Streams a file to the request in okio segments, reporting the progress. */
+  private static final class FileRequestBody extends RequestBody {
+    private static final long SEGMENT_SIZE = 64 << 10;
+    private static final long PROGRESS_STEP = 1 << 20;
+
+    private final File file;
+    private final MediaType contentType;
+    private final UploadProgressListener listener;
+
+    private FileRequestBody(File file, MediaType contentType, UploadProgressListener listener) {
+      this.file = file;
+      this.contentType = contentType;
+      this.listener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+      return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+      return file.length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      long total = contentLength();
+      long uploaded = 0;
+      long reported = 0;
+      try (Source source = Okio.source(file)) {
+        for (long n; (n = source.read(sink.getBuffer(), SEGMENT_SIZE)) != -1; ) {
+          sink.emitCompleteSegments();
+          uploaded += n;
+          if (listener != null && (uploaded - reported >= PROGRESS_STEP || uploaded == total)) {
+            reported = uploaded;
+            listener.onProgress(file.getPath(), uploaded, total);
+          }
+        }
+      }
+    }
+  }
+
+  private static final class Expiring<T> {
+    private final T value;
+    private final long expiresAt;
+
+    private Expiring(T value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+  }
+
+  private static final class FileDigest {
+    private final long size;
+    private final FileTime lastModified;
+    private final Object fileKey;
+    private final String sha256;
+
+    private FileDigest(BasicFileAttributes attributes, String sha256) {
+      this.size = attributes.size();
+      this.lastModified = attributes.lastModifiedTime();
+      this.fileKey = attributes.fileKey();
+      this.sha256 = sha256;
+    }
+
+    private boolean matches(BasicFileAttributes attributes) {
+      return size == attributes.size()
+          && lastModified.equals(attributes.lastModifiedTime())
+          && Objects.equals(fileKey, attributes.fileKey());
+    }
+  }
+
+  /** Drops the oldest entry beyond the capacity. */
+  private static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+    private final int capacity;
+
+    private BoundedMap(int capacity) {
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > capacity;
+    }
+  }
+
   public static DashScopeResult get_upload_certificate(String model, String apiKey)
       throws NoApiKeyException {
     OkHttpClient client = OkHttpClientFactory.getOkHttpClient();
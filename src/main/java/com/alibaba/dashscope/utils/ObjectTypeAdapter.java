@@ -0,0 +1,186 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base of the hand-written adapters of hot result classes. Fields are matched by name in a single
+ * streaming pass and unknown fields are skipped, the output is the same as the reflective binding
+ * of Gson without its per field reflection.
+ *
+ * @param <T> The bound class.
+ */
+public abstract class ObjectTypeAdapter<T> extends TypeAdapter<T> {
+  /** Reads one value from the reader. */
+  protected interface ValueReader<V> {
+    V read(JsonReader in) throws IOException;
+  }
+
+  /** Writes one value to the writer. */
+  protected interface ValueWriter<V> {
+    void write(JsonWriter out, V value) throws IOException;
+  }
+
+  protected abstract T newInstance();
+
+  /**
+   * Read the value of a field into the object.
+   *
+   * @param in The reader, positioned at the field value.
+   * @param name The field name in json.
+   * @param value The object to fill.
+   * @return False if the field is unknown, the value is then skipped.
+   */
+  protected abstract boolean readField(JsonReader in, String name, T value) throws IOException;
+
+  /** Write the non null fields of the object, in declaration order. */
+  protected abstract void writeFields(JsonWriter out, T value) throws IOException;
+
+  @Override
+  public void write(JsonWriter out, T value) throws IOException {
+    if (value == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    writeFields(out, value);
+    out.endObject();
+  }
+
+  @Override
+  public T read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    T value = newInstance();
+    in.beginObject();
+    while (in.hasNext()) {
+      if (!readField(in, in.nextName(), value)) {
+        in.skipValue();
+      }
+    }
+    in.endObject();
+    return value;
+  }
+
+  protected static String readString(JsonReader in) throws IOException {
+    JsonToken token = in.peek();
+    if (token == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    if (token == JsonToken.BOOLEAN) {
+      return Boolean.toString(in.nextBoolean());
+    }
+    return in.nextString();
+  }
+
+  protected static Integer readInteger(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    try {
+      return in.nextInt();
+    } catch (NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  protected static Long readLong(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    try {
+      return in.nextLong();
+    } catch (NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  protected static Double readDouble(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextDouble();
+  }
+
+  protected static Boolean readBoolean(JsonReader in) throws IOException {
+    JsonToken token = in.peek();
+    if (token == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    if (token == JsonToken.STRING) {
+      return Boolean.parseBoolean(in.nextString());
+    }
+    return in.nextBoolean();
+  }
+
+  protected static <V> List<V> readList(JsonReader in, ValueReader<V> reader) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    List<V> values = new ArrayList<>();
+    in.beginArray();
+    while (in.hasNext()) {
+      values.add(reader.read(in));
+    }
+    in.endArray();
+    return values;
+  }
+
+  protected static void writeField(JsonWriter out, String name, String value) throws IOException {
+    if (value != null) {
+      out.name(name).value(value);
+    }
+  }
+
+  protected static void writeField(JsonWriter out, String name, Number value) throws IOException {
+    if (value != null) {
+      out.name(name).value(value);
+    }
+  }
+
+  protected static void writeField(JsonWriter out, String name, Boolean value) throws IOException {
+    if (value != null) {
+      out.name(name).value(value);
+    }
+  }
+
+  protected static <V> void writeField(
+      JsonWriter out, String name, TypeAdapter<V> adapter, V value) throws IOException {
+    if (value != null) {
+      out.name(name);
+      adapter.write(out, value);
+    }
+  }
+
+  protected static <V> void writeList(
+      JsonWriter out, String name, List<V> values, ValueWriter<V> writer) throws IOException {
+    if (values == null) {
+      return;
+    }
+    out.name(name).beginArray();
+    for (V value : values) {
+      if (value == null) {
+        out.nullValue();
+      } else {
+        writer.write(out, value);
+      }
+    }
+    out.endArray();
+  }
+}
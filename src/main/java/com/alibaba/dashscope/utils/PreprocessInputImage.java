@@ -6,6 +6,8 @@ import com.alibaba.dashscope.exception.UploadFileException;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public final class PreprocessInputImage {
@@ -15,6 +17,17 @@ public final class PreprocessInputImage {
             throws NoApiKeyException, UploadFileException {
         boolean isUpload = false;
 
+        List<String> filePaths = new ArrayList<>();
+        for (String v : values.values()) {
+            if (v != null && v.startsWith(ApiKeywords.FILE_PATH_SCHEMA)) {
+                String filePath = PreprocessMessageInput.localFilePath(v);
+                if (filePath != null) {
+                    filePaths.add(filePath);
+                }
+            }
+        }
+        PreprocessMessageInput.uploadInParallel(model, filePaths, apiKey);
+
         for (Map.Entry<String, String> entry : values.entrySet()) {
             String v = entry.getValue();
             if (v == null || v.isEmpty()) {
@@ -10,6 +10,7 @@ import java.net.URISyntaxException;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,8 +69,52 @@ public final class PreprocessMessageInput {
     return isUpload;
   }
 
+  /**
+   * The absolute path of an existing local file the value refers to, or null if it is not one.
+   *
+   * @param value A file:// url or a local path.
+   * @return The absolute path or null.
+   */
+  static String localFilePath(String value) {
+    File f;
+    if (value.startsWith(ApiKeywords.FILE_PATH_SCHEMA)) {
+      try {
+        f = new File(new URI(value));
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        return null;
+      }
+    } else if (!value.startsWith("http") && !value.startsWith("oss://") && isValidPath(value)) {
+      f = new File(value);
+    } else {
+      return null;
+    }
+    return f.exists() ? f.getAbsolutePath() : null;
+  }
+
+  /**
+   * Upload the local files in parallel before the inputs are checked one by one, which then find
+   * them in the upload cache. Inputs not found here, such as missing files, are still reported by
+   * the check of each input.
+   */
+  static void uploadInParallel(String model, List<String> filePaths, String apiKey)
+      throws NoApiKeyException {
+    if (filePaths.size() > 1) {
+      OSSUtils.uploadAll(model, filePaths, apiKey);
+    }
+  }
+
   public static <T extends MultiModalMessageItemBase> boolean preProcessMessageInputs(
       String model, List<T> messages, String apiKey) throws NoApiKeyException, UploadFileException {
+    List<String> filePaths = new ArrayList<>();
+    for (MultiModalMessageItemBase elem : messages) {
+      if (!elem.getModal().equals("text")) {
+        String filePath = localFilePath(elem.getContent());
+        if (filePath != null) {
+          filePaths.add(filePath);
+        }
+      }
+    }
+    uploadInParallel(model, filePaths, apiKey);
     boolean hasUpload = false;
     for (MultiModalMessageItemBase elem : messages) {
       boolean isUpload = checkAndUpload(model, elem, apiKey);
@@ -158,9 +203,26 @@ public final class PreprocessMessageInput {
       throws NoApiKeyException, UploadFileException {
     boolean hasUpload = false;
     List<Map<String, Object>> content = new ArrayList<>();
+    List<String> filePaths = new ArrayList<>();
     for (Map<String, Object> item : messages.getContent()) {
       content.add(new HashMap<>(item));
+      for (Map.Entry<String, Object> entry : item.entrySet()) {
+        if (entry.getKey().equals("text")) {
+          continue;
+        }
+        List<?> values =
+            entry.getValue() instanceof List
+                ? (List<?>) entry.getValue()
+                : Collections.singletonList(entry.getValue());
+        for (Object value : values) {
+          String filePath = value instanceof String ? localFilePath((String) value) : null;
+          if (filePath != null) {
+            filePaths.add(filePath);
+          }
+        }
+      }
     }
+    uploadInParallel(model, filePaths, apiKey);
     for (Map<String, Object> item : content) {
       for (Map.Entry<String, Object> entry : item.entrySet()) {
         boolean isUpload = checkAndUploadMultiModalMessage(model, entry, apiKey);
@@ -0,0 +1,69 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import com.alibaba.dashscope.aigc.completion.ChatCompletionChunk;
+import com.alibaba.dashscope.aigc.completion.ChatCompletionChunkAdapter;
+import com.alibaba.dashscope.aigc.generation.GenerationOutput;
+import com.alibaba.dashscope.aigc.generation.GenerationOutputAdapter;
+import com.alibaba.dashscope.aigc.generation.GenerationUsage;
+import com.alibaba.dashscope.aigc.generation.GenerationUsageAdapter;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationOutput;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationOutputAdapter;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationUsage;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationUsageAdapter;
+import com.alibaba.dashscope.audio.asr.recognition.timestamp.Sentence;
+import com.alibaba.dashscope.audio.asr.recognition.timestamp.SentenceAdapter;
+import com.alibaba.dashscope.audio.asr.recognition.timestamp.Word;
+import com.alibaba.dashscope.audio.asr.recognition.timestamp.WordAdapter;
+import com.alibaba.dashscope.embeddings.TextEmbeddingOutput;
+import com.alibaba.dashscope.embeddings.TextEmbeddingOutputAdapter;
+import com.alibaba.dashscope.embeddings.TextEmbeddingResultItem;
+import com.alibaba.dashscope.embeddings.TextEmbeddingResultItemAdapter;
+import com.alibaba.dashscope.embeddings.TextEmbeddingUsage;
+import com.alibaba.dashscope.embeddings.TextEmbeddingUsageAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Hand-written adapters of the result classes decoded for every chat, embedding and recognition
+ * event. Only the exact classes are matched, subclasses keep the reflective binding.
+ */
+public class ResultTypeAdapterFactory implements TypeAdapterFactory {
+  private static final Map<Class<?>, Function<Gson, TypeAdapter<?>>> adapters = new HashMap<>();
+
+  static {
+    adapters.put(GenerationOutput.class, GenerationOutputAdapter::new);
+    adapters.put(GenerationUsage.class, GenerationUsageAdapter::new);
+    adapters.put(ChatCompletionChunk.class, ChatCompletionChunkAdapter::new);
+    adapters.put(MultiModalConversationOutput.class, MultiModalConversationOutputAdapter::new);
+    adapters.put(MultiModalConversationUsage.class, MultiModalConversationUsageAdapter::new);
+    adapters.put(TextEmbeddingOutput.class, TextEmbeddingOutputAdapter::new);
+    adapters.put(TextEmbeddingResultItem.class, TextEmbeddingResultItemAdapter::new);
+    adapters.put(TextEmbeddingUsage.class, gson -> new TextEmbeddingUsageAdapter());
+    adapters.put(Sentence.class, SentenceAdapter::new);
+    adapters.put(Word.class, gson -> new WordAdapter());
+  }
+
+  /** The classes bound by a hand-written adapter. */
+  public static Set<Class<?>> getBoundClasses() {
+    return Collections.unmodifiableSet(adapters.keySet());
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+    Function<Gson, TypeAdapter<?>> adapter = adapters.get(type.getRawType());
+    if (adapter == null) {
+      return null;
+    }
+    return (TypeAdapter<T>) adapter.apply(gson);
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The threads of the SDK. Blocking work, the audio file readers and the websocket send loops, runs
+ * on the blocking executor: virtual threads on JDK 21+, a bounded pool of daemon threads before,
+ * see ConnectionConfigurations.blockingExecutor. The common fork join pool is not used, and every
+ * other thread of the SDK is a named daemon thread of {@link #newThreadFactory(String)}.
+ */
+@Slf4j
+public final class SdkExecutors {
+  private static volatile ExecutorService blocking;
+
+  private SdkExecutors() {}
+
+  /** The executor of blocking work, created on first use. */
+  public static ExecutorService blocking() {
+    ExecutorService executor = blocking;
+    if (executor == null) {
+      synchronized (SdkExecutors.class) {
+        executor = blocking;
+        if (executor == null) {
+          executor = newBlockingExecutor();
+          blocking = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Run blocking work on an executor of the application instead, it is not shut down by the SDK.
+   *
+   * @param executor The executor, null to create the default again on next use.
+   */
+  public static void setBlocking(ExecutorService executor) {
+    blocking = executor;
+  }
+
+  /**
+   * A factory of daemon threads, the threads are named by the name and a sequence number after the
+   * first one.
+   *
+   * @param name The name of the threads.
+   * @return The factory.
+   */
+  public static ThreadFactory newThreadFactory(String name) {
+    AtomicInteger count = new AtomicInteger(0);
+    return r -> {
+      int n = count.getAndIncrement();
+      Thread thread = new Thread(r, n == 0 ? name : name + "-" + n);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * A single thread scheduler on a daemon thread, for timers of the SDK.
+   *
+   * @param name The name of the thread.
+   * @return The scheduler.
+   */
+  public static ScheduledExecutorService newScheduler(String name) {
+    ScheduledThreadPoolExecutor scheduler =
+        new ScheduledThreadPoolExecutor(1, newThreadFactory(name));
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  /**
+   * A pool of daemon threads, the threads are stopped when idle for a minute.
+   *
+   * @param name The name of the threads.
+   * @param size The maximum number of threads, more tasks wait in the queue.
+   * @return The pool.
+   */
+  public static ExecutorService newBoundedPool(String name, int size) {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            size, size, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), newThreadFactory(name));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static ExecutorService newBlockingExecutor() {
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    if (configurations == null) {
+      configurations = ConnectionConfigurations.builder().build();
+    }
+    if (ConnectionConfigurations.VIRTUAL_THREADS.equalsIgnoreCase(
+        configurations.getBlockingExecutor())) {
+      ExecutorService executor = VirtualThreads.newExecutor("dashscope-blocking");
+      if (executor != null) {
+        return executor;
+      }
+      log.debug("Virtual threads are not supported, use a pool of platform threads");
+    }
+    return newBoundedPool("dashscope-blocking", configurations.getBlockingPoolSize());
+  }
+}
@@ -0,0 +1,239 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content addressed cache of uploaded files, the SHA-256 of the file content, the model and the
+ * api key map to the oss:// url returned by {@link OSSUtils#upload(String, String, String)}, so
+ * the same file is uploaded once while the temporary storage keeps it.
+ *
+ * <p>The cache is a size bounded LRU, entries expire after the ttl. If a cache file is set, entries
+ * are appended to it and loaded back on start, api keys are stored as their SHA-256 only.
+ */
+@Slf4j
+public final class UploadCache {
+  /** Uploaded files are kept 48 hours, reuse them for a shorter time so they outlive the call. */
+  public static final Duration DEFAULT_TTL = Duration.ofHours(47);
+
+  private final int maxSize;
+  private final long ttlMillis;
+  private final Path cacheFile;
+  private final Map<String, Entry> entries;
+  private final AtomicLong hits = new AtomicLong(0);
+  private final AtomicLong misses = new AtomicLong(0);
+
+  private static class Holder {
+    private static final UploadCache INSTANCE =
+        new UploadCache(
+            Constants.uploadCacheSize,
+            DEFAULT_TTL,
+            Constants.uploadCacheFile == null ? null : Paths.get(Constants.uploadCacheFile));
+  }
+
+  /**
+   * The cache used by OSSUtils, sized by DASHSCOPE_UPLOAD_CACHE_SIZE and persisted to
+   * DASHSCOPE_UPLOAD_CACHE_FILE if set.
+   */
+  public static UploadCache getInstance() {
+    return Holder.INSTANCE;
+  }
+
+  /**
+   * Create a cache.
+   *
+   * @param maxSize The maximum number of entries, the least recently used is evicted beyond it.
+   * @param ttl How long an uploaded url is reused.
+   * @param cacheFile The file the cache is persisted to, null to keep it in memory only.
+   */
+  public UploadCache(int maxSize, Duration ttl, Path cacheFile) {
+    this.maxSize = maxSize;
+    this.ttlMillis = ttl.toMillis();
+    this.cacheFile = cacheFile;
+    this.entries =
+        new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > UploadCache.this.maxSize;
+          }
+        };
+    if (cacheFile != null) {
+      load();
+    }
+  }
+
+  /**
+   * The oss:// url of a file uploaded before.
+   *
+   * @param sha256 The hex SHA-256 of the file content.
+   * @param model The model the file was uploaded for.
+   * @param apiKey The api key the file was uploaded with.
+   * @return The url, or null if not cached or expired.
+   */
+  public String get(String sha256, String model, String apiKey) {
+    String key = key(sha256, model, apiKey);
+    synchronized (entries) {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+        hits.incrementAndGet();
+        return entry.url;
+      }
+      if (entry != null) {
+        entries.remove(key);
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Cache the oss:// url of an uploaded file.
+   *
+   * @param sha256 The hex SHA-256 of the file content.
+   * @param model The model the file was uploaded for.
+   * @param apiKey The api key the file was uploaded with.
+   * @param url The oss:// url.
+   */
+  public void put(String sha256, String model, String apiKey, String url) {
+    String key = key(sha256, model, apiKey);
+    Entry entry = new Entry(url, System.currentTimeMillis() + ttlMillis);
+    synchronized (entries) {
+      entries.put(key, entry);
+      if (cacheFile != null) {
+        try {
+          Files.write(
+              cacheFile,
+              entry.toLine(key).getBytes(StandardCharsets.UTF_8),
+              StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND);
+        } catch (IOException e) {
+          log.warn("Write upload cache file {} failed: {}", cacheFile, e.getMessage());
+        }
+      }
+    }
+  }
+
+  /** The number of lookups that found a url. */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /** The number of lookups that did not find a url. */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /** Remove all entries, and the cache file. */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+      if (cacheFile != null) {
+        try {
+          Files.deleteIfExists(cacheFile);
+        } catch (IOException e) {
+          log.warn("Delete upload cache file {} failed: {}", cacheFile, e.getMessage());
+        }
+      }
+    }
+  }
+
+  /** Load the live entries of the cache file, then rewrite it without the stale ones. */
+  private void load() {
+    if (!Files.exists(cacheFile)) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    try {
+      List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+      for (String line : lines) {
+        // expires at, model, api key hash, content hash, url
+        String[] fields = line.split("\t");
+        if (fields.length != 5) {
+          continue;
+        }
+        long expiresAt;
+        try {
+          expiresAt = Long.parseLong(fields[0]);
+        } catch (NumberFormatException e) {
+          continue;
+        }
+        if (expiresAt > now) {
+          String key = String.join("\t", fields[1], fields[2], fields[3]);
+          entries.put(key, new Entry(fields[4], expiresAt));
+        }
+      }
+      if (lines.size() > entries.size()) {
+        Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+          for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            writer.write(entry.getValue().toLine(entry.getKey()));
+          }
+        }
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      log.warn("Load upload cache file {} failed: {}", cacheFile, e.getMessage());
+    }
+  }
+
+  private static String key(String sha256, String model, String apiKey) {
+    return String.join("\t", model, sha256(apiKey), sha256);
+  }
+
+  /** The hex SHA-256 of a string. */
+  static String sha256(String value) {
+    return hex(newSha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  static MessageDigest newSha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static final class Entry {
+    private final String url;
+    private final long expiresAt;
+
+    private Entry(String url, long expiresAt) {
+      this.url = url;
+      this.expiresAt = expiresAt;
+    }
+
+    private String toLine(String key) {
+      return expiresAt + "\t" + key + "\t" + url + "\n";
+    }
+  }
+}
@@ -0,0 +1,16 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+/** Receives the progress of a local file upload, on the uploading thread. */
+@FunctionalInterface
+public interface UploadProgressListener {
+  /**
+   * Called as the file is written to the request, and once it is complete.
+   *
+   * @param filePath The local file path.
+   * @param uploadedBytes The bytes written so far.
+   * @param totalBytes The size of the file.
+   */
+  void onProgress(String filePath, long uploadedBytes, long totalBytes);
+}
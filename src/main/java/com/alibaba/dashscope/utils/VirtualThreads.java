@@ -0,0 +1,23 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Virtual threads of the running JDK. This version is for JDKs without them, the multi-release jar
+ * replaces it on JDK 21+, see src/main/java21.
+ */
+final class VirtualThreads {
+  private VirtualThreads() {}
+
+  /**
+   * An executor starting a virtual thread per task.
+   *
+   * @param name The name prefix of the threads.
+   * @return The executor, null if the JDK has no virtual threads.
+   */
+  static ExecutorService newExecutor(String name) {
+    return null;
+  }
+}
@@ -0,0 +1,21 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Virtual threads of JDK 21+, packed in META-INF/versions/21 of the multi-release jar. */
+final class VirtualThreads {
+  private VirtualThreads() {}
+
+  /**
+   * An executor starting a virtual thread per task.
+   *
+   * @param name The name prefix of the threads.
+   * @return The executor.
+   */
+  static ExecutorService newExecutor(String name) {
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+  }
+}
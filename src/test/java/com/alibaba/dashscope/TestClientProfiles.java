@@ -0,0 +1,134 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ClientProfileStats;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpHttpClient;
+import com.alibaba.dashscope.utils.Constants;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestClientProfiles {
+  MockWebServer server;
+  CountDownLatch release = new CountDownLatch(1);
+  ConnectionConfigurations connectionConfigurations;
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            release.await(10, TimeUnit.SECONDS);
+            return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"request_id\":\"1\",\"output\":{\"text\":\"hello\"}}");
+          }
+        });
+    server.start();
+    connectionConfigurations = Constants.connectionConfigurations;
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    release.countDown();
+    Constants.connectionConfigurations = connectionConfigurations;
+    server.close();
+  }
+
+  @Test
+  public void testProfileOfService() {
+    ApiServiceOption.ApiServiceOptionBuilder<?, ?> builder =
+        ApiServiceOption.builder().protocol(Protocol.HTTP).streamingMode(StreamingMode.OUT);
+    assertEquals(ClientProfile.GENERATION, ClientProfile.of(builder.taskGroup("aigc").build()));
+    assertEquals(
+        ClientProfile.EMBEDDING, ClientProfile.of(builder.taskGroup("embeddings").build()));
+    assertEquals(ClientProfile.EMBEDDING, ClientProfile.of(builder.taskGroup("rerank").build()));
+    assertEquals(
+        ClientProfile.TASK, ClientProfile.of(builder.taskGroup("aigc").isAsyncTask(true).build()));
+    assertEquals(
+        ClientProfile.AUDIO,
+        ClientProfile.of(builder.protocol(Protocol.WEBSOCKET).taskGroup("audio").build()));
+  }
+
+  @Test
+  public void testProfileBulkhead() throws Exception {
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder()
+            .profile(
+                ClientProfile.EMBEDDING,
+                ConnectionConfigurations.builder()
+                    .maximumAsyncRequests(1)
+                    .maximumQueuedRequests(1)
+                    .build())
+            .build();
+    OkHttpClient okHttpClient = OkHttpClientFactory.getOkHttpClient(ClientProfile.EMBEDDING);
+    // generation has no profile, it uses the default client.
+    assertSame(
+        OkHttpClientFactory.getOkHttpClient(),
+        OkHttpClientFactory.getOkHttpClient(ClientProfile.GENERATION));
+    assertNotSame(OkHttpClientFactory.getOkHttpClient(), okHttpClient);
+    assertEquals(1, okHttpClient.dispatcher().getMaxRequests());
+
+    OkHttpHttpClient client = new OkHttpHttpClient(okHttpClient);
+    HalfDuplexRequest request =
+        new HalfDuplexRequest(
+            HalfDuplexTestParam.builder().model("text-embedding-v4").prompt("hello").build(),
+            ApiServiceOption.builder()
+                .protocol(Protocol.HTTP)
+                .streamingMode(StreamingMode.NONE)
+                .outputMode(OutputMode.ACCUMULATE)
+                .taskGroup("embeddings")
+                .task("text-embedding")
+                .function("text-embedding")
+                .baseHttpUrl(server.url("/api/v1").toString())
+                .build());
+    CompletableFuture<DashScopeResult> running = client.sendAsync(request, null);
+    // waits for the running call.
+    CompletableFuture<DashScopeResult> queued = client.sendAsync(request, null);
+    ApiException e = assertThrows(ApiException.class, () -> client.sendAsync(request, null));
+    assertEquals(429, e.getStatus().getStatusCode());
+    ClientProfileStats stats = OkHttpClientFactory.getStats(ClientProfile.EMBEDDING);
+    assertEquals(1, stats.getRunningCalls());
+    assertEquals(1, stats.getQueuedCalls());
+    assertEquals(1, stats.getSaturatedCalls());
+    assertEquals(1, stats.getRejectedCalls());
+
+    release.countDown();
+    assertEquals("1", running.get(10, TimeUnit.SECONDS).getRequestId());
+    assertEquals("1", queued.get(10, TimeUnit.SECONDS).getRequestId());
+  }
+}
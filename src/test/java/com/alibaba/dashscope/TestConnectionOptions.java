@@ -5,6 +5,7 @@ package com.alibaba.dashscope;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.ConnectionConfigurations;
@@ -71,6 +72,18 @@ public class TestConnectionOptions {
     assertEquals(clConnectionOptions.getWriteTimeout(), Duration.ofSeconds(60));
     assertEquals(clConnectionOptions.getReadTimeout(), Duration.ofSeconds(300));
     assertEquals(clConnectionOptions.getConnectionIdleTimeout(), Duration.ofSeconds(300));
+    assertEquals(clConnectionOptions.getHttpProtocol(), ConnectionConfigurations.HTTP_1_1);
+  }
+
+  @Test
+  @SetEnvironmentVariable(key = "DASHSCOPE_HTTP_PROTOCOL", value = "h2")
+  public void testSetHttpProtocolWithEnv() throws NoApiKeyException {
+    ConnectionConfigurations clConnectionOptions = ConnectionConfigurations.builder().build();
+    assertEquals(clConnectionOptions.getHttpProtocol(), ConnectionConfigurations.H2);
+    assertTrue(clConnectionOptions.isHttp2());
+    // streams are multiplexed, more of them run concurrently.
+    assertEquals(clConnectionOptions.getMaximumAsyncRequests(), 1024);
+    assertEquals(clConnectionOptions.getMaximumAsyncRequestsPerHost(), 1024);
   }
 
   @Test
@@ -0,0 +1,156 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.ConnectionWarmer;
+import com.alibaba.dashscope.protocol.okhttp.PooledWebSocketClient;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.WebSocket;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestConnectionWarmer {
+  MockWebServer server;
+  ConnectionWarmer warmer;
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s/api/v1", server.getPort());
+    warmer =
+        new ConnectionWarmer(
+            ConnectionConfigurations.builder()
+                .warmHttpConnections(3)
+                .warmWebSocketSessions(0)
+                .build());
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    warmer.stop();
+    server.close();
+  }
+
+  @Test
+  public void testWarmOpensAndReusesConnections() throws Exception {
+    // slow enough that the requests of a warm are all in flight together.
+    for (int i = 0; i < 6; i++) {
+      server.enqueue(
+          new MockResponse().setResponseCode(404).setHeadersDelay(200, TimeUnit.MILLISECONDS));
+    }
+    assertFalse(warmer.isReady());
+    warmer.warm().get(10, TimeUnit.SECONDS);
+    assertTrue(warmer.isReady());
+    for (int i = 0; i < 3; i++) {
+      RecordedRequest request = server.takeRequest();
+      assertEquals("HEAD", request.getMethod());
+      assertEquals("/api/v1", request.getPath());
+      // a new connection each.
+      assertEquals(0, request.getSequenceNumber());
+    }
+
+    // the keep alive uses the same connections.
+    warmer.warm().get(10, TimeUnit.SECONDS);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(1, server.takeRequest().getSequenceNumber());
+    }
+    ConnectionWarmer.Readiness readiness = warmer.getReadiness();
+    assertTrue(readiness.isReady());
+    assertTrue(readiness.getHttpConnections() >= 3);
+    assertTrue(readiness.getLastWarmedAt() > 0);
+    assertNull(readiness.getLastError());
+  }
+
+  @Test
+  public void testNotReadyWhenWarmFails() throws Exception {
+    server.close();
+    assertThrows(ExecutionException.class, () -> warmer.warm().get(10, TimeUnit.SECONDS));
+    assertFalse(warmer.isReady());
+    assertNotNull(warmer.getReadiness().getLastError());
+  }
+
+  @Test
+  public void testWarmedSessionLeasedByAudioClient() throws Exception {
+    WebSocketRecorder serverListener = new WebSocketRecorder("server");
+    // only one upgrade is served, the task must lease the warmed session.
+    server.enqueue(new MockResponse().withWebSocketUpgrade(serverListener));
+    Constants.baseWebsocketApiUrl =
+        String.format("ws://127.0.0.1:%s/api-ws/v1/inference/", server.getPort());
+    ConnectionOptions options =
+        ConnectionOptions.builder().readTimeout(Duration.ofSeconds(30)).build();
+    WebSocketSessionPool pool = WebSocketSessionPool.getInstance();
+    pool.clear();
+    warmer.warmWebSocket(null, null, options, 1).get(10, TimeUnit.SECONDS);
+    WebSocket wsServer = serverListener.assertOpen();
+    long handshakes = pool.getMetrics().getHandshakes();
+
+    // the client a full duplex service with connection options gets.
+    PooledWebSocketClient client =
+        new PooledWebSocketClient(pool, false, ClientProfile.AUDIO, options);
+    ApiServiceOption serviceOption =
+        ApiServiceOption.builder()
+            .protocol(Protocol.WEBSOCKET)
+            .streamingMode(StreamingMode.DUPLEX)
+            .outputMode(OutputMode.ACCUMULATE)
+            .taskGroup("group")
+            .task("task")
+            .function("function")
+            .build();
+    FullDuplexTestParam param =
+        FullDuplexTestParam.builder()
+            .model("duplexModel")
+            .streamData(Flowable.<Object>fromArray("text"))
+            .build();
+    Flowable<DashScopeResult> results = client.duplex(new FullDuplexRequest(param, serviceOption));
+    Semaphore receiveCompleted = new Semaphore(0);
+    results.subscribe(
+        msg -> {}, err -> receiveCompleted.release(), () -> receiveCompleted.release());
+    wsServer.send(JsonUtils.toJson(WebSocketServerMessage.getTaskStartMessage()));
+    wsServer.send(JsonUtils.toJson(WebSocketServerMessage.getTaskFinishedMessage(null, null)));
+    assertTrue(receiveCompleted.tryAcquire(10, TimeUnit.SECONDS));
+
+    assertEquals(handshakes, pool.getMetrics().getHandshakes());
+    assertEquals(1, server.getRequestCount());
+    // the recorder does not answer a close of the client, the server closes and the client
+    // answers, so the server can shut down. The pool then drops the closed session.
+    wsServer.close(1000, "bye");
+    serverListener.awaitClosed();
+    pool.clear();
+  }
+}
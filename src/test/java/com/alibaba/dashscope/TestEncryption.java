@@ -1,7 +1,10 @@
 package com.alibaba.dashscope;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import com.alibaba.dashscope.aigc.generation.Generation;
 import com.alibaba.dashscope.aigc.generation.GenerationParam;
@@ -15,13 +18,24 @@ import com.alibaba.dashscope.exception.InvalidateParameter;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.EncryptionConfig;
+import com.alibaba.dashscope.utils.EncryptionKeyCache;
+import com.alibaba.dashscope.utils.EncryptionUtils;
 import com.alibaba.dashscope.utils.JsonUtils;
 import com.google.gson.JsonObject;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.concurrent.Semaphore;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -106,4 +120,165 @@ public class TestEncryption {
     assertNotNull(encryptKey);
     assertNotNull(ivs);
   }
+
+  @Test
+  public void TestEncryptionKeyCached() throws IOException, ApiException, NoApiKeyException {
+    String publicKey =
+        "MIIBIjANBgkqhkiG9w0BAQEFAAOCAQ8AMIIBCgKCAQEAnojrB579xgPQN5f46SvoRAiQBPWBaPzWh7hp51fWI+OsQk7KqH0qMcw8i0eK5rfOvJIPujOQgnes1ph9/gKAst9NzXVIl9JJYUSPtzTvOabhp4yvS3KBf9g3xHYVjYgW33SOY74Ue/tgbCXn717rV6gXb4sVvq9XK/1BrDcGbEOQEZEgBTFkm/g3lpWLQtACwwqHffoA9eQtkkz15ZFKosAgbR8LedfIvxAl2zk15REzxXiRcFgc9/tLF0U1t2Sxt9FkQefxYwn6EZawTsRJvf4kqF3MaPdTcDbOp0iSNvCl2qzPSf/F+Oll2CUM1tFAEu81oaaaaWaDR3UtvqOtyQIDAQAB";
+    String keyBody =
+        String.format(
+            "{\"data\":{\"public_key_id\":\"2\",\"public_key\":\"%s\"},\"request_id\":\"1\"}",
+            publicKey);
+    String baseUrl = Constants.baseHttpApiUrl;
+    int maxUses = Constants.encryptionSessionKeyMaxUses;
+    try (MockWebServer keyServer = new MockWebServer()) {
+      keyServer.enqueue(TestUtils.createMockResponse(keyBody, 200));
+      keyServer.enqueue(TestUtils.createMockResponse(keyBody, 200));
+      Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s/api/v1/", keyServer.getPort());
+      Constants.encryptionSessionKeyMaxUses = 2;
+      EncryptionKeyCache cache = EncryptionKeyCache.getInstance();
+      EncryptionConfig first = cache.newEncryptionConfig("cached-key");
+      EncryptionConfig second = cache.newEncryptionConfig("cached-key");
+      EncryptionConfig third = cache.newEncryptionConfig("cached-key");
+      assertEquals(1, keyServer.getRequestCount());
+      // the session key is reused for two requests, each with its own iv.
+      assertEquals(first.getAESEncryptKey(), second.getAESEncryptKey());
+      assertEquals(first.getEncryptedAESKey(), second.getEncryptedAESKey());
+      assertNotEquals(first.getAESEncryptKey(), third.getAESEncryptKey());
+      assertFalse(Arrays.equals(first.getIv(), second.getIv()));
+
+      cache.invalidate("cached-key");
+      cache.newEncryptionConfig("cached-key");
+      assertEquals(2, keyServer.getRequestCount());
+    } finally {
+      Constants.baseHttpApiUrl = baseUrl;
+      Constants.encryptionSessionKeyMaxUses = maxUses;
+    }
+  }
+
+  @Test
+  public void TestEncryptionStream() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    String keyBody =
+        String.format(
+            "{\"data\":{\"public_key_id\":\"3\",\"public_key\":\"%s\"},\"request_id\":\"1\"}",
+            Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+    String baseUrl = Constants.baseHttpApiUrl;
+    try (MockWebServer streamServer = new MockWebServer()) {
+      streamServer.setDispatcher(
+          new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+              if (request.getPath().endsWith("public-keys/latest")) {
+                return TestUtils.createMockResponse(keyBody, 200);
+              }
+              try {
+                // the server side, unwrap the AES key and encrypt every event output with it.
+                JsonObject encryptInfo =
+                    JsonUtils.parse(request.getHeader("X-DashScope-EncryptionKey"));
+                Cipher rsa = Cipher.getInstance("RSA");
+                rsa.init(Cipher.DECRYPT_MODE, keyPair.getPrivate());
+                byte[] base64Key =
+                    rsa.doFinal(
+                        Base64.getDecoder().decode(encryptInfo.get("encrypt_key").getAsString()));
+                SecretKey secretKey =
+                    new SecretKeySpec(Base64.getDecoder().decode(new String(base64Key)), "AES");
+                byte[] iv = Base64.getDecoder().decode(encryptInfo.get("iv").getAsString());
+                List<String> events = new ArrayList<>();
+                for (String text : Arrays.asList("Hello", "Hello world")) {
+                  String output =
+                      String.format(
+                          "{\"choices\":[{\"finish_reason\":\"null\","
+                              + "\"message\":{\"role\":\"assistant\",\"content\":\"%s\"}}]}",
+                          text);
+                  events.add(
+                      String.format(
+                          "{\"output\":\"%s\",\"usage\":{\"output_tokens\":%d},"
+                              + "\"request_id\":\"1\"}",
+                          EncryptionUtils.AESEncrypt(output, secretKey, iv), events.size() + 1));
+                }
+                return TestUtils.createStreamMockResponse(events, 200);
+              } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+              }
+            }
+          });
+      Constants.baseHttpApiUrl =
+          String.format("http://127.0.0.1:%s/api/v1/", streamServer.getPort());
+      Generation gen = new Generation(Protocol.HTTP.getValue());
+      Message userMsg = Message.builder().role(Role.USER.getValue()).content("Hello").build();
+      GenerationParam param =
+          GenerationParam.builder()
+              .apiKey("stream-key")
+              .model("qwen-plus")
+              .resultFormat("message")
+              .messages(Arrays.asList(userMsg))
+              .enableEncrypt(true)
+              .build();
+      List<GenerationResult> results = new ArrayList<>();
+      gen.streamCall(param).blockingForEach(results::add);
+      assertEquals(2, results.size());
+      assertEquals(
+          "Hello world",
+          results.get(1).getOutput().getChoices().get(0).getMessage().getContent());
+      assertEquals(2, (int) results.get(1).getUsage().getOutputTokens());
+      assertEquals("1", results.get(1).getRequestId());
+    } finally {
+      Constants.baseHttpApiUrl = baseUrl;
+    }
+  }
+
+  @Test
+  public void TestEncryptionKeyInvalidatedOnlyWhenRejected() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    KeyPair keyPair = generator.generateKeyPair();
+    String keyBody =
+        String.format(
+            "{\"data\":{\"public_key_id\":\"4\",\"public_key\":\"%s\"},\"request_id\":\"1\"}",
+            Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+    String baseUrl = Constants.baseHttpApiUrl;
+    try (MockWebServer rejectServer = new MockWebServer()) {
+      rejectServer.enqueue(TestUtils.createMockResponse(keyBody, 200));
+      // a bad input keeps the key, an unauthorized request drops it.
+      rejectServer.enqueue(
+          TestUtils.createMockResponse("{\"code\":\"InvalidParameter\"}", 400));
+      rejectServer.enqueue(
+          TestUtils.createMockResponse("{\"code\":\"InvalidApiKey\"}", 401));
+      rejectServer.enqueue(TestUtils.createMockResponse(keyBody, 200));
+      rejectServer.enqueue(
+          TestUtils.createMockResponse("{\"code\":\"InvalidParameter\"}", 400));
+      Constants.baseHttpApiUrl =
+          String.format("http://127.0.0.1:%s/api/v1/", rejectServer.getPort());
+      Generation gen = new Generation(Protocol.HTTP.getValue());
+      Message userMsg = Message.builder().role(Role.USER.getValue()).content("Hello").build();
+      GenerationParam param =
+          GenerationParam.builder()
+              .apiKey("rejected-key")
+              .model("qwen-plus")
+              .resultFormat("message")
+              .messages(Arrays.asList(userMsg))
+              .enableEncrypt(true)
+              .build();
+      for (int i = 0; i < 3; ++i) {
+        try {
+          gen.call(param);
+        } catch (ApiException e) {
+          // rejected.
+        }
+      }
+      assertEquals(5, rejectServer.getRequestCount());
+      List<String> paths = new ArrayList<>();
+      for (int i = 0; i < 5; ++i) {
+        paths.add(rejectServer.takeRequest().getPath());
+      }
+      assertTrue(paths.get(0).endsWith("public-keys/latest"));
+      assertFalse(paths.get(2).endsWith("public-keys/latest"));
+      assertTrue(paths.get(3).endsWith("public-keys/latest"));
+    } finally {
+      Constants.baseHttpApiUrl = baseUrl;
+    }
+  }
 }
@@ -3,6 +3,7 @@
 package com.alibaba.dashscope;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.alibaba.dashscope.aigc.generation.Generation;
@@ -20,10 +21,14 @@ import com.google.gson.JsonObject;
 import io.reactivex.Flowable;
 import io.reactivex.functions.Action;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.MediaType;
 import okhttp3.WebSocket;
@@ -361,4 +366,66 @@ public class TestGeneration {
     assertEquals(
         results.get(0).getUsage().getInputTokens(), (Integer) usage.get("input_tokens").getAsInt());
   }
+
+  @Test
+  public void testHttpCallAsync() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setBody(JsonUtils.toJson(rsp))
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    QwenParam param =
+        QwenParam.builder()
+            .model(Generation.Models.QWEN_TURBO)
+            .resultFormat(QwenParam.ResultFormat.TEXT)
+            .prompt("如何做土豆炖猪脚?")
+            .topP(0.8)
+            .build();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    Generation generation = new Generation();
+    GenerationResult result = generation.callAsync(param).get(10, TimeUnit.SECONDS);
+    RecordedRequest request = server.takeRequest();
+    checkResult(result, request, expectTextBody);
+  }
+
+  @Test
+  public void testHttpCallAsyncTimeoutAndCancel() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setBody(JsonUtils.toJson(rsp))
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON)
+            .setHeadersDelay(3, TimeUnit.SECONDS));
+    server.enqueue(
+        new MockResponse()
+            .setBody(JsonUtils.toJson(rsp))
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON)
+            .setHeadersDelay(1, TimeUnit.SECONDS));
+    server.enqueue(
+        new MockResponse()
+            .setBody(JsonUtils.toJson(rsp))
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    QwenParam param =
+        QwenParam.builder()
+            .model(Generation.Models.QWEN_TURBO)
+            .resultFormat(QwenParam.ResultFormat.TEXT)
+            .prompt("如何做土豆炖猪脚?")
+            .build();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    Generation generation = new Generation();
+    CompletableFuture<GenerationResult> timedOut =
+        generation.callAsync(param, Duration.ofMillis(200));
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> timedOut.get(2, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof ApiException);
+    server.takeRequest();
+
+    // canceling the future cancels the http call, its connection is closed instead of pooled.
+    CompletableFuture<GenerationResult> canceled = generation.callAsync(param);
+    server.takeRequest(2, TimeUnit.SECONDS);
+    assertTrue(canceled.cancel(true));
+    Thread.sleep(1500);
+    generation.call(param);
+    RecordedRequest next = server.takeRequest(2, TimeUnit.SECONDS);
+    assertEquals(0, next.getSequenceNumber());
+    assertEquals(3, server.getRequestCount());
+  }
 }
@@ -0,0 +1,98 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpHttpClient;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestHttp2 {
+  private static final String EVENTS =
+      "id:1\nevent:result\n:HTTP_STATUS/200\ndata:{\"output\":{\"text\":\"Hello\"}}\n\n"
+          + "id:2\nevent:result\n:HTTP_STATUS/200\ndata:{\"output\":{\"text\":\"Hi\"}}\n\n";
+  MockWebServer server;
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    server.setProtocols(Collections.singletonList(okhttp3.Protocol.H2_PRIOR_KNOWLEDGE));
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            // chunked encoding is http/1.1 only, the events are sent as a plain body.
+            return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(EVENTS);
+          }
+        });
+    server.start();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    server.close();
+  }
+
+  @Test
+  public void testH2cStreamsShareOneConnection() throws Exception {
+    OkHttpClient okHttpClient =
+        OkHttpClientFactory.createOkHttpClient(
+            ConnectionConfigurations.builder().httpProtocol(ConnectionConfigurations.H2C).build());
+    OkHttpHttpClient client = new OkHttpHttpClient(okHttpClient);
+    HalfDuplexRequest request =
+        new HalfDuplexRequest(
+            HalfDuplexTestParam.builder().model("qwen-turbo").prompt("hello").build(),
+            ApiServiceOption.builder()
+                .protocol(Protocol.HTTP)
+                .streamingMode(StreamingMode.OUT)
+                .outputMode(OutputMode.ACCUMULATE)
+                .taskGroup("aigc")
+                .task("text-generation")
+                .function("generation")
+                .isSSE(true)
+                .baseHttpUrl(server.url("/api/v1").toString())
+                .build());
+    int streams = 64;
+    List<Flowable<DashScopeResult>> flowables = new ArrayList<>();
+    for (int i = 0; i < streams; ++i) {
+      flowables.add(client.streamOut(request));
+    }
+    assertEquals(streams * 2, (long) Flowable.merge(flowables).count().blockingGet());
+    int maxSequenceNumber = 0;
+    for (int i = 0; i < streams; ++i) {
+      maxSequenceNumber = Math.max(maxSequenceNumber, server.takeRequest().getSequenceNumber());
+    }
+    // the requests are numbered per connection, all streams were multiplexed over one.
+    assertEquals(streams - 1, maxSequenceNumber);
+    assertEquals(1, okHttpClient.connectionPool().connectionCount());
+  }
+}
@@ -0,0 +1,291 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.WebSocketResponse;
+import com.alibaba.dashscope.protocol.okhttp.MultiplexedWebSocketClient;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonObject;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestMultiplexedWebSocketClient {
+  private static final Duration TASK_FINISH_TIMEOUT = Duration.ofSeconds(10);
+  private ApiServiceOption serviceOption =
+      ApiServiceOption.builder()
+          .protocol(Protocol.WEBSOCKET)
+          .streamingMode(StreamingMode.DUPLEX)
+          .outputMode(OutputMode.ACCUMULATE)
+          .taskGroup("group")
+          .task("task")
+          .function("function")
+          .build();
+  MockWebServer server;
+  // the run-task messages received by the server.
+  BlockingQueue<String> runTaskIds = new LinkedBlockingQueue<>();
+  // the finish-task messages received by the server.
+  BlockingQueue<String> finishTaskIds = new LinkedBlockingQueue<>();
+  AtomicInteger continueTasks = new AtomicInteger(0);
+  AtomicInteger upgrades = new AtomicInteger(0);
+  volatile WebSocket wsServer;
+  // the server side of each connection, in order of upgrade.
+  List<WebSocket> wsServers = new CopyOnWriteArrayList<>();
+
+  private MockResponse upgrade() {
+    return new MockResponse()
+        .withWebSocketUpgrade(
+            new WebSocketListener() {
+              @Override
+              public void onOpen(WebSocket webSocket, Response response) {
+                upgrades.incrementAndGet();
+                wsServer = webSocket;
+                wsServers.add(webSocket);
+              }
+
+              @Override
+              public void onMessage(WebSocket webSocket, String text) {
+                JsonObject header = JsonUtils.parse(text).getAsJsonObject("header");
+                String action = header.get("action").getAsString();
+                if ("run-task".equals(action)) {
+                  runTaskIds.add(header.get("task_id").getAsString());
+                } else if ("continue-task".equals(action)) {
+                  continueTasks.incrementAndGet();
+                } else if ("finish-task".equals(action)) {
+                  finishTaskIds.add(header.get("task_id").getAsString());
+                }
+              }
+
+              @Override
+              public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(code, null);
+              }
+            });
+  }
+
+  @BeforeEach
+  public void before() {
+    server = new MockWebServer();
+    // only one upgrade is served, all tasks must share the connection.
+    server.enqueue(upgrade());
+    int port = this.server.getPort();
+    Constants.baseWebsocketApiUrl = String.format("ws://127.0.0.1:%s/api-ws/v1/inference/", port);
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    MultiplexedWebSocketClient.closeIdleConnections();
+    server.close();
+    server.shutdown();
+  }
+
+  private FullDuplexTestParam getStreamTextParam() {
+    return FullDuplexTestParam.builder()
+        .model("duplexModel")
+        .streamData(Flowable.<Object>fromArray(UUID.randomUUID().toString()))
+        .build();
+  }
+
+  private static WebSocketResponse withTaskId(WebSocketResponse response, String taskId) {
+    response.header.setTaskId(taskId);
+    return response;
+  }
+
+  @Test
+  public void testTasksRoutedByTaskId()
+      throws ApiException, NoApiKeyException, InterruptedException {
+    int taskCount = 3;
+    List<BlockingQueue<Object>> received = new ArrayList<>();
+    for (int i = 0; i < taskCount; ++i) {
+      MultiplexedWebSocketClient client =
+          new MultiplexedWebSocketClient(new OkHttpClient(), false, 8, TASK_FINISH_TIMEOUT);
+      Flowable<DashScopeResult> results =
+          client.duplex(new FullDuplexRequest(getStreamTextParam(), serviceOption));
+      BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+      received.add(events);
+      results.subscribe(
+          msg -> events.add(((JsonObject) msg.getOutput()).get("text").getAsString()),
+          err -> events.add(err),
+          () -> events.add("completed"));
+    }
+    List<String> taskIds = new ArrayList<>();
+    for (int i = 0; i < taskCount; ++i) {
+      taskIds.add(runTaskIds.poll(10, TimeUnit.SECONDS));
+    }
+    // answer in reverse order, each task must still receive only its own results.
+    for (int i = taskCount - 1; i >= 0; --i) {
+      String taskId = taskIds.get(i);
+      JsonObject output = new JsonObject();
+      output.addProperty("text", taskId);
+      wsServer.send(
+          JsonUtils.toJson(
+              withTaskId(WebSocketServerMessage.getTaskGeneratedMessage(output, null), taskId)));
+      wsServer.send(
+          JsonUtils.toJson(
+              withTaskId(WebSocketServerMessage.getTaskFinishedMessage(null, null), taskId)));
+    }
+    for (int i = 0; i < taskCount; ++i) {
+      assertEquals(taskIds.get(i), received.get(i).poll(10, TimeUnit.SECONDS));
+      assertEquals("completed", received.get(i).poll(10, TimeUnit.SECONDS));
+    }
+    assertEquals(1, upgrades.get());
+  }
+
+  @Test
+  public void testBinaryLaneKeptUntilCanceledTaskEnds()
+      throws ApiException, NoApiKeyException, InterruptedException {
+    server.enqueue(upgrade());
+    ApiServiceOption audioOption = serviceOption.toBuilder().taskGroup("audio").build();
+    MultiplexedWebSocketClient canceledClient =
+        new MultiplexedWebSocketClient(new OkHttpClient(), true, 8, TASK_FINISH_TIMEOUT);
+    Flowable<DashScopeResult> canceled =
+        canceledClient.duplex(new FullDuplexRequest(getStreamTextParam(), audioOption));
+    BlockingQueue<Object> canceledEvents = new LinkedBlockingQueue<>();
+    canceled.subscribe(msg -> canceledEvents.add(msg), err -> canceledEvents.add(err));
+    String canceledTaskId = runTaskIds.poll(10, TimeUnit.SECONDS);
+    wsServer.send(
+        JsonUtils.toJson(withTaskId(WebSocketServerMessage.getTaskStartMessage(), canceledTaskId)));
+    assertTrue(canceledEvents.poll(10, TimeUnit.SECONDS) instanceof DashScopeResult);
+    canceledClient.cancel();
+    assertTrue(canceledEvents.poll(10, TimeUnit.SECONDS) instanceof ApiException);
+
+    // the server may still send audio of the canceled task, the next one needs a new connection.
+    MultiplexedWebSocketClient client =
+        new MultiplexedWebSocketClient(new OkHttpClient(), false, 8, TASK_FINISH_TIMEOUT);
+    Flowable<DashScopeResult> results =
+        client.duplex(new FullDuplexRequest(getStreamTextParam(), audioOption));
+    BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    results.subscribe(
+        msg -> events.add(msg.getOutput() == null ? "binary" : "text"),
+        err -> events.add(err),
+        () -> events.add("completed"));
+    String taskId = runTaskIds.poll(10, TimeUnit.SECONDS);
+    assertEquals(2, upgrades.get());
+    wsServers.get(0).send(ByteString.of(new byte[] {1, 2, 3}));
+    wsServers
+        .get(0)
+        .send(
+            JsonUtils.toJson(
+                withTaskId(
+                    WebSocketServerMessage.getTaskFinishedMessage(null, null), canceledTaskId)));
+    JsonObject output = new JsonObject();
+    output.addProperty("text", taskId);
+    wsServers
+        .get(1)
+        .send(
+            JsonUtils.toJson(
+                withTaskId(WebSocketServerMessage.getTaskGeneratedMessage(output, null), taskId)));
+    wsServers
+        .get(1)
+        .send(
+            JsonUtils.toJson(
+                withTaskId(WebSocketServerMessage.getTaskFinishedMessage(null, null), taskId)));
+    assertEquals("text", events.poll(10, TimeUnit.SECONDS));
+    assertEquals("completed", events.poll(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testBinaryLaneReleasedWhenCanceledTaskNeverEnds()
+      throws ApiException, NoApiKeyException, InterruptedException {
+    ApiServiceOption audioOption = serviceOption.toBuilder().taskGroup("audio").build();
+    MultiplexedWebSocketClient canceledClient =
+        new MultiplexedWebSocketClient(new OkHttpClient(), true, 8, Duration.ofMillis(500));
+    Flowable<DashScopeResult> canceled =
+        canceledClient.duplex(new FullDuplexRequest(getStreamTextParam(), audioOption));
+    BlockingQueue<Object> canceledEvents = new LinkedBlockingQueue<>();
+    canceled.subscribe(msg -> canceledEvents.add(msg), err -> canceledEvents.add(err));
+    String canceledTaskId = runTaskIds.poll(10, TimeUnit.SECONDS);
+    wsServer.send(
+        JsonUtils.toJson(withTaskId(WebSocketServerMessage.getTaskStartMessage(), canceledTaskId)));
+    assertTrue(canceledEvents.poll(10, TimeUnit.SECONDS) instanceof DashScopeResult);
+    canceledClient.cancel();
+    assertTrue(canceledEvents.poll(10, TimeUnit.SECONDS) instanceof ApiException);
+    // the server never ends the canceled task, its lane is released after the finish timeout.
+    assertEquals(canceledTaskId, finishTaskIds.poll(10, TimeUnit.SECONDS));
+    Thread.sleep(1000);
+
+    MultiplexedWebSocketClient client =
+        new MultiplexedWebSocketClient(new OkHttpClient(), false, 8, TASK_FINISH_TIMEOUT);
+    Flowable<DashScopeResult> results =
+        client.duplex(new FullDuplexRequest(getStreamTextParam(), audioOption));
+    BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    results.subscribe(
+        msg -> events.add(((JsonObject) msg.getOutput()).get("text").getAsString()),
+        err -> events.add(err),
+        () -> events.add("completed"));
+    String taskId = runTaskIds.poll(10, TimeUnit.SECONDS);
+    JsonObject output = new JsonObject();
+    output.addProperty("text", taskId);
+    wsServer.send(
+        JsonUtils.toJson(
+            withTaskId(WebSocketServerMessage.getTaskGeneratedMessage(output, null), taskId)));
+    wsServer.send(
+        JsonUtils.toJson(
+            withTaskId(WebSocketServerMessage.getTaskFinishedMessage(null, null), taskId)));
+    assertEquals(taskId, events.poll(10, TimeUnit.SECONDS));
+    assertEquals("completed", events.poll(10, TimeUnit.SECONDS));
+    assertEquals(1, upgrades.get());
+  }
+
+  @Test
+  public void testCancelStopsStreamingAndFinishesTask()
+      throws ApiException, NoApiKeyException, InterruptedException {
+    MultiplexedWebSocketClient client =
+        new MultiplexedWebSocketClient(new OkHttpClient(), false, 8, TASK_FINISH_TIMEOUT);
+    FullDuplexTestParam param =
+        FullDuplexTestParam.builder()
+            .model("duplexModel")
+            .streamData(Flowable.interval(20, TimeUnit.MILLISECONDS).map(i -> (Object) "text"))
+            .build();
+    // never subscribed, the cancel alone must terminate the task.
+    client.duplex(new FullDuplexRequest(param, serviceOption));
+    String taskId = runTaskIds.poll(10, TimeUnit.SECONDS);
+    Thread.sleep(100);
+    client.cancel();
+    assertEquals(taskId, finishTaskIds.poll(10, TimeUnit.SECONDS));
+    int sent = continueTasks.get();
+    assertTrue(sent > 0);
+    Thread.sleep(200);
+    assertEquals(sent, continueTasks.get());
+    // a terminated task is forgotten, canceling again sends nothing.
+    client.cancel();
+    assertEquals(null, finishTaskIds.poll(200, TimeUnit.MILLISECONDS));
+  }
+}
@@ -0,0 +1,196 @@
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.MappedFileFrames;
+import com.alibaba.dashscope.utils.OSSUtils;
+import com.alibaba.dashscope.utils.UploadCache;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestOSSUtils {
+  private static final MediaType MEDIA_TYPE_APPLICATION_JSON =
+      MediaType.parse("application/json; charset=utf-8");
+  MockWebServer server;
+  AtomicInteger policies = new AtomicInteger(0);
+  AtomicInteger uploads = new AtomicInteger(0);
+
+  @TempDir Path tempDir;
+
+  @BeforeEach
+  public void before() {
+    this.server = new MockWebServer();
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            if (request.getPath().startsWith("/uploads?action=getPolicy")) {
+              policies.incrementAndGet();
+              String data =
+                  String.format(
+                      "{\"upload_host\":\"http://127.0.0.1:%s/oss\",\"oss_access_key_id\":\"id\","
+                          + "\"signature\":\"sig\",\"policy\":\"policy\","
+                          + "\"upload_dir\":\"dashscope-instant/dir\",\"expire_in_seconds\":300,"
+                          + "\"x_oss_object_acl\":\"private\",\"x_oss_forbid_overwrite\":\"true\"}",
+                      server.getPort());
+              return new MockResponse()
+                  .setBody(String.format("{\"request_id\":\"1\",\"data\":%s}", data))
+                  .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON);
+            }
+            uploads.incrementAndGet();
+            return new MockResponse().setResponseCode(200);
+          }
+        });
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    server.close();
+  }
+
+  private Path file(String name, String content) throws IOException {
+    return Files.write(tempDir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testUploadAllOnePolicyAndDeduplicated() throws Exception {
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    String content = UUID.randomUUID().toString();
+    List<String> filePaths = new ArrayList<>();
+    filePaths.add(file("a.png", content).toString());
+    filePaths.add(file("b.png", content).toString());
+    filePaths.add(file("c.png", UUID.randomUUID().toString()).toString());
+    Map<String, String> urls = OSSUtils.uploadAll("qwen-vl-plus", filePaths, null);
+    assertEquals(3, urls.size());
+    assertTrue(urls.get(filePaths.get(0)).startsWith("oss://dashscope-instant/dir/"));
+    assertEquals(urls.get(filePaths.get(0)), urls.get(filePaths.get(1)));
+    assertNotEquals(urls.get(filePaths.get(0)), urls.get(filePaths.get(2)));
+    assertEquals(1, policies.get());
+    assertEquals(2, uploads.get());
+
+    // uploaded again within the validity, no request.
+    assertEquals(
+        urls.get(filePaths.get(2)), OSSUtils.upload("qwen-vl-plus", filePaths.get(2), null));
+    assertEquals(3, server.getRequestCount());
+  }
+
+  @Test
+  public void testRewrittenFileWithSameSizeAndMtimeUploadedAgain() throws Exception {
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    // a file system of 1s mtime resolution, the rewrite keeps size, mtime and inode.
+    FileTime mtime = FileTime.fromMillis(System.currentTimeMillis() / 1000 * 1000);
+    Path path = file("same.png", UUID.randomUUID().toString());
+    Files.setLastModifiedTime(path, mtime);
+    String first = OSSUtils.upload("qwen-vl-plus", path.toString(), null);
+    Files.write(path, UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(path, mtime);
+    String second = OSSUtils.upload("qwen-vl-plus", path.toString(), null);
+    assertNotEquals(first, second);
+    assertEquals(2, uploads.get());
+  }
+
+  @Test
+  public void testUploadCacheLruTtlAndPersistence() throws Exception {
+    Path cacheFile = tempDir.resolve("upload-cache");
+    UploadCache cache = new UploadCache(2, Duration.ofHours(1), cacheFile);
+    cache.put("sha-a", "qwen-vl-plus", "key", "oss://dir/a.png");
+    cache.put("sha-b", "qwen-vl-plus", "key", "oss://dir/b.png");
+    assertEquals("oss://dir/a.png", cache.get("sha-a", "qwen-vl-plus", "key"));
+    // b is the least recently used.
+    cache.put("sha-c", "qwen-vl-plus", "key", "oss://dir/c.png");
+    assertNull(cache.get("sha-b", "qwen-vl-plus", "key"));
+    assertNull(cache.get("sha-a", "qwen-vl-plus", "other-key"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    // api keys are not stored.
+    String persisted = new String(Files.readAllBytes(cacheFile), StandardCharsets.UTF_8);
+    assertFalse(persisted.contains("\tkey\t"));
+
+    UploadCache loaded = new UploadCache(2, Duration.ofHours(1), cacheFile);
+    assertEquals(2, loaded.size());
+    assertEquals("oss://dir/c.png", loaded.get("sha-c", "qwen-vl-plus", "key"));
+    // the stale entries are dropped from the file.
+    assertEquals(2, Files.readAllLines(cacheFile).size());
+
+    UploadCache expired = new UploadCache(2, Duration.ZERO, null);
+    expired.put("sha-a", "qwen-vl-plus", "key", "oss://dir/a.png");
+    assertNull(expired.get("sha-a", "qwen-vl-plus", "key"));
+  }
+
+  @Test
+  public void testUploadLargeFileWithProgress() throws Exception {
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    byte[] content = new byte[3 << 20];
+    new Random().nextBytes(content);
+    Path path = Files.write(tempDir.resolve("meeting.wav"), content);
+    List<Long> progress = new ArrayList<>();
+    String url =
+        OSSUtils.upload(
+            "paraformer-v2",
+            path.toString(),
+            null,
+            (filePath, uploadedBytes, totalBytes) -> {
+              assertEquals(content.length, totalBytes);
+              progress.add(uploadedBytes);
+            });
+    assertTrue(url.endsWith("/meeting.wav"));
+    assertEquals(3, progress.size());
+    assertEquals(content.length, (long) progress.get(progress.size() - 1));
+    server.takeRequest();
+    assertTrue(server.takeRequest().getBodySize() > content.length);
+  }
+
+  @Test
+  public void testMappedFileFrames() throws Exception {
+    byte[] content = new byte[100000];
+    new Random().nextBytes(content);
+    Path path = Files.write(tempDir.resolve("audio.pcm"), content);
+    ByteArrayOutputStream read = new ByteArrayOutputStream();
+    int frames = 0;
+    try (MappedFileFrames mapped = new MappedFileFrames(path.toFile(), 4096 * 4)) {
+      while (mapped.hasNext()) {
+        ByteBuffer frame = mapped.next();
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        read.write(bytes);
+        frames += 1;
+      }
+    }
+    assertEquals(7, frames);
+    assertArrayEquals(content, read.toByteArray());
+  }
+}
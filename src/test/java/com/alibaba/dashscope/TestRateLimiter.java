@@ -0,0 +1,181 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.aigc.generation.Generation;
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.TokenBucketRateLimiter;
+import com.alibaba.dashscope.protocol.TokenBucketRateLimiter.Quota;
+import com.alibaba.dashscope.utils.Constants;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestRateLimiter {
+  private static final String KEY = "1234";
+  private static final String MODEL = "qwen-turbo";
+  MockWebServer server;
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    Constants.rateLimiter = null;
+    Constants.connectionConfigurations = null;
+    server.close();
+  }
+
+  @Test
+  public void testFailFastWhenQuotaIsUsedUp() throws Exception {
+    TokenBucketRateLimiter limiter =
+        TokenBucketRateLimiter.builder()
+            .quota(MODEL, Quota.of(2, 0))
+            .maxWait(Duration.ZERO)
+            .build();
+    assertEquals(0, limiter.acquire(KEY, MODEL, () -> 10).get().intValue());
+    assertEquals(0, limiter.acquire(KEY, MODEL, () -> 10).get().intValue());
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> limiter.acquire(KEY, MODEL, () -> 10).get());
+    assertEquals(429, ((ApiException) e.getCause()).getStatus().getStatusCode());
+    // other keys and models without a quota are not limited.
+    assertTrue(limiter.acquire("other", MODEL, () -> 10).isDone());
+    assertTrue(limiter.acquire(KEY, "qwen-max", () -> 10).isDone());
+  }
+
+  @Test
+  public void testWaitersAreServedInOrder() throws Exception {
+    // one request a second.
+    TokenBucketRateLimiter limiter =
+        TokenBucketRateLimiter.builder().quota(MODEL, Quota.of(60, 0)).build();
+    for (int i = 0; i < 60; i++) {
+      limiter.acquire(KEY, MODEL, () -> 0).get();
+    }
+    CompletableFuture<Integer> first = limiter.acquire(KEY, MODEL, () -> 0);
+    CompletableFuture<Integer> second = limiter.acquire(KEY, MODEL, () -> 0);
+    assertEquals(2, limiter.getWaitingRequests(KEY, MODEL));
+    first.get(5, TimeUnit.SECONDS);
+    assertFalse(second.isDone());
+    second.get(5, TimeUnit.SECONDS);
+    assertEquals(0, limiter.getWaitingRequests(KEY, MODEL));
+  }
+
+  @Test
+  public void testCanceledWaiterGivesUpItsPlace() throws Exception {
+    // one request a second.
+    TokenBucketRateLimiter limiter =
+        TokenBucketRateLimiter.builder().quota(MODEL, Quota.of(60, 0)).build();
+    for (int i = 0; i < 60; i++) {
+      limiter.acquire(KEY, MODEL, () -> 0).get();
+    }
+    CompletableFuture<Integer> canceled = limiter.acquire(KEY, MODEL, () -> 0);
+    CompletableFuture<Integer> next = limiter.acquire(KEY, MODEL, () -> 0);
+    assertTrue(canceled.cancel(false));
+    assertEquals(1, limiter.getWaitingRequests(KEY, MODEL));
+    // served with the first quota, not after the canceled waiter.
+    next.get(1500, TimeUnit.MILLISECONDS);
+  }
+
+  @Test
+  public void testUsedTokensAreCharged() throws Exception {
+    TokenBucketRateLimiter limiter =
+        TokenBucketRateLimiter.builder()
+            .quota(MODEL, Quota.of(0, 6000))
+            .maxWait(Duration.ZERO)
+            .build();
+    int taken = limiter.acquire(KEY, MODEL, () -> 1000).get();
+    assertEquals(1000, taken);
+    // the output tokens used up the rest of the minute.
+    limiter.release(KEY, MODEL, taken, 6000);
+    assertThrows(ExecutionException.class, () -> limiter.acquire(KEY, MODEL, () -> 1000).get());
+    // a refund makes room again.
+    limiter.release(KEY, MODEL, 5000, 0);
+    assertEquals(1000, limiter.acquire(KEY, MODEL, () -> 1000).get().intValue());
+  }
+
+  @Test
+  public void testRetryAfterPausesTheBucket() throws Exception {
+    TokenBucketRateLimiter limiter =
+        TokenBucketRateLimiter.builder().quota(MODEL, Quota.of(600, 0)).build();
+    limiter.rateLimited(KEY, MODEL, Duration.ofMillis(500));
+    long start = System.currentTimeMillis();
+    limiter.acquire(KEY, MODEL, () -> 0).get(5, TimeUnit.SECONDS);
+    assertTrue(System.currentTimeMillis() - start >= 400);
+  }
+
+  @Test
+  public void testServerRateLimitPausesRequests() throws Exception {
+    Constants.rateLimiter =
+        TokenBucketRateLimiter.builder().quota(MODEL, Quota.of(600, 100000)).build();
+    // the 429 is not retried, the next call waits for the paused bucket.
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder().httpRetryMaxAttempts(1).build();
+    server.enqueue(
+        TestUtils.createMockResponse(
+                "{\"code\":\"Throttling\",\"message\":\"Requests rate limit exceeded\"}", 429)
+            .setHeader("Retry-After", "1"));
+    server.enqueue(
+        TestUtils.createMockResponse(
+            "{\"output\":{\"text\":\"hello\"},"
+                + "\"usage\":{\"input_tokens\":3,\"output_tokens\":2},\"request_id\":\"1\"}",
+            200));
+    Generation generation = new Generation();
+    GenerationParam param = GenerationParam.builder().model(MODEL).prompt("hello").build();
+    ApiException e = assertThrows(ApiException.class, () -> generation.call(param));
+    assertEquals(429, e.getStatus().getStatusCode());
+    long start = System.currentTimeMillis();
+    assertEquals("hello", generation.call(param).getOutput().getText());
+    assertTrue(System.currentTimeMillis() - start >= 800);
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void testCanceledAsyncCallIsNotSent() throws Exception {
+    // one request a second.
+    TokenBucketRateLimiter limiter =
+        TokenBucketRateLimiter.builder().quota(MODEL, Quota.of(60, 0)).build();
+    Constants.rateLimiter = limiter;
+    for (int i = 0; i < 60; i++) {
+      limiter.acquire(KEY, MODEL, () -> 0).get();
+    }
+    server.enqueue(
+        TestUtils.createMockResponse(
+            "{\"output\":{\"text\":\"hello\"},\"request_id\":\"1\"}", 200));
+    Generation generation = new Generation();
+    GenerationParam param = GenerationParam.builder().model(MODEL).prompt("hello").build();
+    CompletableFuture<GenerationResult> canceled = generation.callAsync(param);
+    assertEquals(1, limiter.getWaitingRequests(KEY, MODEL));
+    assertTrue(canceled.cancel(false));
+    assertEquals(0, limiter.getWaitingRequests(KEY, MODEL));
+    // the next quota goes to the next call, the canceled one is never sent.
+    assertEquals("hello", generation.call(param).getOutput().getText());
+    Thread.sleep(1500);
+    assertEquals(1, server.getRequestCount());
+  }
+}
@@ -0,0 +1,198 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.aigc.completion.ChatCompletionChunk;
+import com.alibaba.dashscope.aigc.generation.GenerationOutput;
+import com.alibaba.dashscope.aigc.generation.GenerationUsage;
+import com.alibaba.dashscope.aigc.multimodalconversation.MultiModalConversationOutput;
+import com.alibaba.dashscope.audio.asr.recognition.timestamp.Sentence;
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.MessageAdapter;
+import com.alibaba.dashscope.common.MultiModalMessage;
+import com.alibaba.dashscope.common.MultiModalMessageAdapter;
+import com.alibaba.dashscope.embeddings.TextEmbeddingOutput;
+import com.alibaba.dashscope.tools.ToolCallBase;
+import com.alibaba.dashscope.tools.ToolCallGsonDeserializer;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.ResultTypeAdapterFactory;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.annotations.SerializedName;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import org.junit.jupiter.api.Test;
+
+public class TestResultTypeAdapters {
+  // JsonUtils.gson without the hand-written result adapters.
+  private static final Gson reflective =
+      new GsonBuilder()
+          .registerTypeAdapter(Message.class, new MessageAdapter())
+          .registerTypeAdapter(MultiModalMessage.class, new MultiModalMessageAdapter())
+          .registerTypeAdapter(ToolCallBase.class, new ToolCallGsonDeserializer())
+          .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+          .disableHtmlEscaping()
+          .create();
+
+  private <T> void assertSameBinding(String json, Class<T> clazz) {
+    T typed = JsonUtils.gson.fromJson(json, clazz);
+    T expected = reflective.fromJson(json, clazz);
+    assertEquals(expected, typed);
+    assertEquals(reflective.toJson(expected), JsonUtils.gson.toJson(typed));
+    assertEquals(JsonParser.parseString(json), JsonParser.parseString(JsonUtils.toJson(typed)));
+  }
+
+  @Test
+  public void testGeneration() {
+    assertSameBinding(
+        "{\"text\":\"hi\",\"finish_reason\":\"stop\",\"choices\":[{\"finish_reason\":\"stop\","
+            + "\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"hello\"}}],"
+            + "\"model_name\":\"qwen-plus\"}",
+        GenerationOutput.class);
+    assertSameBinding(
+        "{\"input_tokens\":10,\"output_tokens\":2,\"total_tokens\":12,"
+            + "\"prompt_tokens_details\":{\"cached_tokens\":8}}",
+        GenerationUsage.class);
+  }
+
+  @Test
+  public void testChatCompletionChunk() {
+    assertSameBinding(
+        "{\"id\":\"chatcmpl-1\",\"choices\":[{\"finish_reason\":\"stop\",\"index\":0,"
+            + "\"delta\":{\"role\":\"assistant\",\"content\":\"hi\"}}],\"created\":1700000000,"
+            + "\"model\":\"qwen-plus\",\"object\":\"chat.completion.chunk\","
+            + "\"usage\":{\"completion_tokens\":1,\"prompt_tokens\":3,\"total_tokens\":4}}",
+        ChatCompletionChunk.class);
+  }
+
+  @Test
+  public void testMultiModalConversation() {
+    assertSameBinding(
+        "{\"choices\":[{\"finish_reason\":\"stop\",\"message\":{\"role\":\"assistant\","
+            + "\"content\":[{\"text\":\"a cat\"}]}}],\"finish_reason\":\"stop\"}",
+        MultiModalConversationOutput.class);
+  }
+
+  @Test
+  public void testTextEmbedding() {
+    assertSameBinding(
+        "{\"embeddings\":[{\"text_index\":0,\"embedding\":[0.25,-0.5,1.0E-4]},"
+            + "{\"text_index\":1,\"embedding\":[0.125]}]}",
+        TextEmbeddingOutput.class);
+  }
+
+  @Test
+  public void testSentence() {
+    assertSameBinding(
+        "{\"begin_time\":100,\"end_time\":1200,\"text\":\"hello\",\"words\":[{\"begin_time\":100,"
+            + "\"end_time\":500,\"text\":\"hello\",\"punctuation\":\"\",\"fixed\":true}],"
+            + "\"heartbeat\":false,\"sentence_id\":1,\"vad_pre_end\":false,"
+            + "\"pre_end_failed\":false,\"sentence_begin\":true,\"sentence_end\":true}",
+        Sentence.class);
+  }
+
+  @Test
+  public void testUnknownAndNullFields() {
+    GenerationOutput output =
+        JsonUtils.fromJson(
+            "{\"text\":null,\"extra\":{\"a\":[1,2]},\"choices\":null,\"model_name\":\"m\"}",
+            GenerationOutput.class);
+    assertEquals(null, output.getText());
+    assertEquals(null, output.getChoices());
+    assertEquals("m", output.getModelName());
+  }
+
+  /** A json value of a type, with the fields of objects set down to the depth. */
+  private static String sampleJson(Type type, int depth) {
+    Class<?> raw =
+        type instanceof ParameterizedType
+            ? (Class<?>) ((ParameterizedType) type).getRawType()
+            : type instanceof Class ? (Class<?>) type : Object.class;
+    if (raw == String.class) {
+      return "\"x\"";
+    }
+    if (raw == boolean.class || raw == Boolean.class) {
+      return "true";
+    }
+    if (raw.isPrimitive() || Number.class.isAssignableFrom(raw)) {
+      return "1";
+    }
+    if (raw.isEnum()) {
+      return reflective.toJson(raw.getEnumConstants()[0]);
+    }
+    if (raw.isArray()) {
+      return "[" + sampleJson(raw.getComponentType(), depth) + "]";
+    }
+    if (Collection.class.isAssignableFrom(raw)) {
+      Type element =
+          type instanceof ParameterizedType
+              ? ((ParameterizedType) type).getActualTypeArguments()[0]
+              : Object.class;
+      return "[" + sampleJson(element, depth) + "]";
+    }
+    if (raw == ToolCallBase.class) {
+      // the type picks the subclass.
+      return "{\"type\":\"function\",\"id\":\"x\",\"function\":{\"name\":\"x\"}}";
+    }
+    if (Map.class.isAssignableFrom(raw) || raw == Object.class || depth == 0) {
+      return "{\"k\":\"v\"}";
+    }
+    StringJoiner fields = new StringJoiner(",", "{", "}");
+    for (Field field : boundFields(raw)) {
+      SerializedName serializedName = field.getAnnotation(SerializedName.class);
+      String name = serializedName == null ? field.getName() : serializedName.value();
+      fields.add("\"" + name + "\":" + sampleJson(field.getGenericType(), depth - 1));
+    }
+    return fields.toString();
+  }
+
+  /** The fields of a class and its superclasses bound by the reflective binding of Gson. */
+  private static List<Field> boundFields(Class<?> clazz) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+      for (Field field : c.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers)
+            && !Modifier.isTransient(modifiers)
+            && !field.isSynthetic()) {
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  @Test
+  public void testAdaptersBindAllFields() throws Exception {
+    for (Class<?> clazz : ResultTypeAdapterFactory.getBoundClasses()) {
+      for (Field field : boundFields(clazz)) {
+        // only this field is set, so the adapter must read and write it to match.
+        Object value = reflective.fromJson("{}", clazz);
+        Type type = field.getGenericType();
+        field.setAccessible(true);
+        field.set(value, reflective.fromJson(sampleJson(type, 3), type));
+        String name = clazz.getSimpleName() + "." + field.getName();
+        JsonElement expected = reflective.toJsonTree(value);
+        assertTrue(expected.getAsJsonObject().size() > 0, name);
+        assertEquals(expected, JsonUtils.gson.toJsonTree(value), "write " + name);
+        assertEquals(
+            reflective.toJsonTree(reflective.fromJson(expected, clazz)),
+            reflective.toJsonTree(JsonUtils.gson.fromJson(expected, clazz)),
+            "read " + name);
+      }
+    }
+  }
+}
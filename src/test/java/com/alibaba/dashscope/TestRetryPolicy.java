@@ -0,0 +1,248 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.aigc.generation.Generation;
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.embeddings.TextEmbedding;
+import com.alibaba.dashscope.embeddings.TextEmbeddingParam;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ClientProfileStats;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.protocol.okhttp.RetryPolicy;
+import com.alibaba.dashscope.utils.Constants;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestRetryPolicy {
+  private static final String OUTPUT = "{\"output\":{\"text\":\"hello\"},\"request_id\":\"1\"}";
+  MockWebServer server;
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder()
+            .httpRetryMaxAttempts(3)
+            .httpRetryInitialBackoff(Duration.ofMillis(10))
+            .httpRetryMaxBackoff(Duration.ofMillis(50))
+            .build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    Constants.connectionConfigurations = null;
+    server.close();
+  }
+
+  private static Response response(int code, String retryAfter) {
+    Response.Builder builder =
+        new Response.Builder()
+            .request(new Request.Builder().url("http://127.0.0.1/").build())
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("");
+    if (retryAfter != null) {
+      builder.header("Retry-After", retryAfter);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testRetryDelay() {
+    RetryPolicy policy = RetryPolicy.builder().maxAttempts(3).build();
+    long now = System.currentTimeMillis();
+    assertTrue(policy.retryDelayMillis(1, now, response(503, null), null, false) >= 250);
+    assertEquals(-1, policy.retryDelayMillis(1, now, response(400, null), null, false));
+    assertEquals(-1, policy.retryDelayMillis(3, now, response(503, null), null, false));
+    // the server may have worked on a request that failed with 500, only idempotent ones are sent
+    // again.
+    assertEquals(-1, policy.retryDelayMillis(1, now, response(500, null), null, false));
+    assertTrue(policy.retryDelayMillis(1, now, response(500, null), null, true) >= 0);
+    // the Retry-After is waited for, unless it is over the budget.
+    assertTrue(policy.retryDelayMillis(1, now, response(429, "2"), null, false) >= 2000);
+    assertEquals(-1, policy.retryDelayMillis(1, now, response(429, "60"), null, false));
+    // a timeout may have reached the server, it is only retried for idempotent calls.
+    IOException timeout = new SocketTimeoutException("timeout");
+    assertEquals(-1, policy.retryDelayMillis(1, now, null, timeout, false));
+    assertTrue(policy.retryDelayMillis(1, now, null, timeout, true) >= 0);
+    IOException reset = new SocketException("reset");
+    assertEquals(-1, policy.retryDelayMillis(1, now, null, reset, false));
+    assertTrue(policy.retryDelayMillis(1, now, null, reset, true) >= 0);
+    IOException refused = new ConnectException("refused");
+    assertTrue(policy.retryDelayMillis(1, now, null, refused, false) >= 0);
+  }
+
+  @Test
+  @SetEnvironmentVariable(key = "DASHSCOPE_HTTP_RETRY_INITIAL_BACKOFF", value = "200")
+  @SetEnvironmentVariable(key = "DASHSCOPE_HTTP_RETRY_MAX_BACKOFF", value = "1500")
+  public void testRetryBackoffsOfEnvAreMillis() {
+    ConnectionConfigurations configurations = ConnectionConfigurations.builder().build();
+    assertEquals(Duration.ofMillis(200), configurations.getHttpRetryInitialBackoff());
+    assertEquals(Duration.ofMillis(1500), configurations.getHttpRetryMaxBackoff());
+  }
+
+  @Test
+  public void testCallIsRetried() throws Exception {
+    long retries = OkHttpClientFactory.getStats(ClientProfile.GENERATION).getRetries();
+    server.enqueue(TestUtils.createMockResponse("{\"code\":\"InternalError\"}", 503));
+    server.enqueue(TestUtils.createMockResponse("{\"code\":\"Throttling\"}", 429));
+    server.enqueue(TestUtils.createMockResponse(OUTPUT, 200));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    assertEquals("hello", new Generation().call(param).getOutput().getText());
+    assertEquals(3, server.getRequestCount());
+    assertEquals(retries + 2, OkHttpClientFactory.getStats(ClientProfile.GENERATION).getRetries());
+  }
+
+  @Test
+  public void testCallIsNotRetriedByDefault() throws Exception {
+    Constants.connectionConfigurations = null;
+    server.enqueue(TestUtils.createMockResponse("{\"code\":\"InternalError\"}", 503));
+    server.enqueue(TestUtils.createMockResponse(OUTPUT, 200));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    ApiException e = assertThrows(ApiException.class, () -> new Generation().call(param));
+    assertEquals(503, e.getStatus().getStatusCode());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testBadRequestIsNotRetried() throws Exception {
+    server.enqueue(TestUtils.createMockResponse("{\"code\":\"InvalidParameter\"}", 400));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    ApiException e = assertThrows(ApiException.class, () -> new Generation().call(param));
+    assertEquals(400, e.getStatus().getStatusCode());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testInternalErrorOfCallIsNotRetried() throws Exception {
+    server.enqueue(TestUtils.createMockResponse("{\"code\":\"InternalError\"}", 500));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    ApiException e = assertThrows(ApiException.class, () -> new Generation().call(param));
+    assertEquals(500, e.getStatus().getStatusCode());
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testInterruptStopsRetries() throws Exception {
+    server.enqueue(
+        TestUtils.createMockResponse("{\"code\":\"Throttling\"}", 429)
+            .setHeader("Retry-After", "2"));
+    server.enqueue(TestUtils.createMockResponse(OUTPUT, 200));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    Thread caller = Thread.currentThread();
+    Thread interrupter =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(300);
+                caller.interrupt();
+              } catch (InterruptedException e) {
+                // the call finished.
+              }
+            });
+    interrupter.start();
+    try {
+      assertThrows(ApiException.class, () -> new Generation().call(param));
+      // the interrupt is kept.
+      assertTrue(Thread.interrupted());
+    } finally {
+      interrupter.interrupt();
+      Thread.interrupted();
+    }
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testTimeoutBoundsAllAttempts() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      server.enqueue(
+          TestUtils.createMockResponse("{\"code\":\"Throttling\"}", 429)
+              .setHeadersDelay(150, TimeUnit.MILLISECONDS));
+    }
+    server.enqueue(
+        TestUtils.createMockResponse(OUTPUT, 200).setHeadersDelay(150, TimeUnit.MILLISECONDS));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    // every attempt is faster than the timeout, the call with its retries is not.
+    CompletableFuture<GenerationResult> future =
+        new Generation().callAsync(param, Duration.ofMillis(350));
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof ApiException);
+  }
+
+  @Test
+  public void testStreamIsRetriedBeforeFirstEvent() throws Exception {
+    server.enqueue(TestUtils.createMockResponse("{\"code\":\"Throttling\"}", 429));
+    server.enqueue(TestUtils.createStreamMockResponse(Arrays.asList(OUTPUT, OUTPUT), 200));
+    GenerationParam param =
+        GenerationParam.builder().model(Generation.Models.QWEN_TURBO).prompt("hello").build();
+    List<GenerationResult> results = new Generation().streamCall(param).toList().blockingGet();
+    assertEquals(2, results.size());
+    assertEquals("hello", results.get(1).getOutput().getText());
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void testIdempotentCallIsHedged() throws Exception {
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder().httpRetryMaxAttempts(2).httpHedgingEnabled(true).build();
+    ClientProfileStats before = OkHttpClientFactory.getStats(ClientProfile.EMBEDDING);
+    String embedding =
+        "{\"output\":{\"embeddings\":[{\"text_index\":0,\"embedding\":[0.1]}]},"
+            + "\"request_id\":\"1\"}";
+    // the first request is stuck, its hedge answers.
+    server.enqueue(
+        TestUtils.createMockResponse(embedding, 200).setHeadersDelay(3, TimeUnit.SECONDS));
+    server.enqueue(TestUtils.createMockResponse(embedding, 200));
+    TextEmbeddingParam param =
+        TextEmbeddingParam.builder()
+            .model(TextEmbedding.Models.TEXT_EMBEDDING_V1)
+            .texts(Arrays.asList("hello"))
+            .build();
+    long start = System.currentTimeMillis();
+    assertEquals(1, new TextEmbedding().call(param).getOutput().getEmbeddings().size());
+    assertTrue(System.currentTimeMillis() - start < 2500);
+    assertEquals(2, server.getRequestCount());
+    ClientProfileStats after = OkHttpClientFactory.getStats(ClientProfile.EMBEDDING);
+    assertEquals(before.getHedges() + 1, after.getHedges());
+    assertEquals(before.getHedgeWins() + 1, after.getHedgeWins());
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.utils.SdkExecutors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestSdkExecutors {
+
+  @Test
+  public void testThreadFactory() {
+    ThreadFactory factory = SdkExecutors.newThreadFactory("dashscope-test");
+    Thread first = factory.newThread(() -> {});
+    Thread second = factory.newThread(() -> {});
+    assertEquals("dashscope-test", first.getName());
+    assertEquals("dashscope-test-1", second.getName());
+    assertTrue(first.isDaemon());
+  }
+
+  @Test
+  public void testBlockingExecutor() throws Exception {
+    String name =
+        CompletableFuture.supplyAsync(
+                () -> Thread.currentThread().getName(), SdkExecutors.blocking())
+            .get(10, TimeUnit.SECONDS);
+    assertTrue(name.startsWith("dashscope-blocking"));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      SdkExecutors.setBlocking(executor);
+      assertSame(executor, SdkExecutors.blocking());
+    } finally {
+      SdkExecutors.setBlocking(null);
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  @SetEnvironmentVariable(key = "DASHSCOPE_BLOCKING_EXECUTOR", value = "platform")
+  @SetEnvironmentVariable(key = "DASHSCOPE_BLOCKING_POOL_SIZE", value = "16")
+  public void testBlockingExecutorWithEnv() {
+    ConnectionConfigurations configurations = ConnectionConfigurations.builder().build();
+    assertEquals(ConnectionConfigurations.PLATFORM_THREADS, configurations.getBlockingExecutor());
+    assertEquals(16, configurations.getBlockingPoolSize());
+  }
+}
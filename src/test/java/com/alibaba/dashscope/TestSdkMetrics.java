@@ -0,0 +1,151 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.aigc.generation.Generation;
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.SdkMetrics;
+import com.alibaba.dashscope.utils.Constants;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestSdkMetrics {
+  private static final String MODEL = "qwen-turbo";
+  private static final String OUTPUT =
+      "{\"output\":{\"text\":\"hello\"},"
+          + "\"usage\":{\"input_tokens\":3,\"output_tokens\":2},\"request_id\":\"1\"}";
+  MockWebServer server;
+  Recorder recorder;
+
+  /** Records the metrics of the calls. */
+  static class Recorder implements SdkMetrics {
+    final List<String> finished = new CopyOnWriteArrayList<>();
+    final List<String> tokens = new CopyOnWriteArrayList<>();
+    final List<Long> bytes = new CopyOnWriteArrayList<>();
+    final List<Duration> firstBytes = new CopyOnWriteArrayList<>();
+    final List<Duration> firstTokens = new CopyOnWriteArrayList<>();
+    final List<Duration> interTokens = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void requestFinished(Tags tags, String errorCode, Duration latency) {
+      finished.add(
+          String.join(",", tags.getService(), tags.getModel(), tags.getProtocol(), errorCode));
+    }
+
+    @Override
+    public void firstByte(Tags tags, Duration delay) {
+      firstBytes.add(delay);
+    }
+
+    @Override
+    public void firstToken(Tags tags, Duration delay) {
+      firstTokens.add(delay);
+    }
+
+    @Override
+    public void interTokenLatency(Tags tags, Duration latency) {
+      interTokens.add(latency);
+    }
+
+    @Override
+    public void bytes(Tags tags, long sent, long received) {
+      bytes.add(sent);
+      bytes.add(received);
+    }
+
+    @Override
+    public void tokenUsage(Tags tags, int inputTokens, int outputTokens) {
+      tokens.add(inputTokens + "," + outputTokens);
+    }
+  }
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    server.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    recorder = new Recorder();
+    Constants.sdkMetrics = recorder;
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    Constants.sdkMetrics = null;
+    server.close();
+  }
+
+  @Test
+  public void testCallIsMeasured() throws Exception {
+    server.enqueue(TestUtils.createMockResponse(OUTPUT, 200));
+    GenerationParam param = GenerationParam.builder().model(MODEL).prompt("hello").build();
+    assertEquals("hello", new Generation().call(param).getOutput().getText());
+    assertEquals(Arrays.asList("text-generation,qwen-turbo,http,null"), recorder.finished);
+    assertEquals(Arrays.asList("3,2"), recorder.tokens);
+    assertEquals(1, recorder.firstBytes.size());
+    assertTrue(recorder.bytes.get(0) > 0);
+    assertEquals(OUTPUT.length(), recorder.bytes.get(1).longValue());
+    // results of a call are not tokens of a stream.
+    assertTrue(recorder.firstTokens.isEmpty());
+  }
+
+  @Test
+  public void testStreamIsMeasured() throws Exception {
+    server.enqueue(TestUtils.createStreamMockResponse(Arrays.asList(OUTPUT, OUTPUT, OUTPUT), 200));
+    GenerationParam param = GenerationParam.builder().model(MODEL).prompt("hello").build();
+    List<GenerationResult> results = new Generation().streamCall(param).toList().blockingGet();
+    assertEquals(3, results.size());
+    assertEquals(Arrays.asList("text-generation,qwen-turbo,sse,null"), recorder.finished);
+    assertEquals(1, recorder.firstTokens.size());
+    assertEquals(2, recorder.interTokens.size());
+    assertEquals(Arrays.asList("3,2"), recorder.tokens);
+    assertEquals(3L * OUTPUT.length(), recorder.bytes.get(1).longValue());
+  }
+
+  @Test
+  public void testErrorCodeIsMeasured() throws Exception {
+    server.enqueue(
+        TestUtils.createMockResponse(
+            "{\"code\":\"InvalidParameter\",\"message\":\"bad input\"}", 400));
+    GenerationParam param = GenerationParam.builder().model(MODEL).prompt("hello").build();
+    assertThrows(ApiException.class, () -> new Generation().call(param));
+    assertEquals(
+        Arrays.asList("text-generation,qwen-turbo,http,InvalidParameter"), recorder.finished);
+    assertTrue(recorder.tokens.isEmpty());
+  }
+
+  @Test
+  public void testCancelledCallIsMeasured() throws Exception {
+    // never answered, the server lets the connection go once the cancel closes it.
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+    GenerationParam param = GenerationParam.builder().model(MODEL).prompt("hello").build();
+    CompletableFuture<GenerationResult> future = new Generation().callAsync(param);
+    server.takeRequest();
+    assertTrue(future.cancel(true));
+    // a cancelled call is not an error of the server.
+    assertEquals(
+        Arrays.asList("text-generation,qwen-turbo,http,request_cancelled"), recorder.finished);
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.alibaba.dashscope.aigc.generation.Generation;
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.utils.Constants;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestServiceConcurrency {
+  private static final int THREADS = 16;
+  private static final int CALLS_PER_THREAD = 20;
+  MockWebServer server;
+
+  @BeforeEach
+  public void before() throws IOException {
+    server = new MockWebServer();
+    // echo the prompt, streamed only if the request asked for sse.
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            JsonObject body =
+                JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+            String prompt = body.getAsJsonObject("input").get("prompt").getAsString();
+            if ("enable".equals(request.getHeader("X-DashScope-SSE"))) {
+              return TestUtils.createStreamMockResponse(
+                  Arrays.asList(output("stream:" + prompt), output("stream:" + prompt)), 200);
+            }
+            return TestUtils.createMockResponse(output("call:" + prompt), 200);
+          }
+        });
+    server.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    server.close();
+  }
+
+  private static String output(String text) {
+    return String.format("{\"output\":{\"text\":\"%s\"},\"request_id\":\"1\"}", text);
+  }
+
+  @Test
+  public void testSharedGenerationMixesCallAndStreamCall() throws Exception {
+    Generation generation = new Generation();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        int thread = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    String prompt = String.format("p-%d-%d", thread, i);
+                    GenerationParam param =
+                        GenerationParam.builder()
+                            .model(Generation.Models.QWEN_TURBO)
+                            .prompt(prompt)
+                            .build();
+                    if ((thread + i) % 2 == 0) {
+                      assertEquals(
+                          "call:" + prompt, generation.call(param).getOutput().getText());
+                    } else {
+                      List<GenerationResult> results =
+                          generation.streamCall(param).toList().blockingGet();
+                      assertEquals(2, results.size());
+                      for (GenerationResult result : results) {
+                        assertEquals("stream:" + prompt, result.getOutput().getText());
+                      }
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(THREADS * CALLS_PER_THREAD, server.getRequestCount());
+  }
+}
@@ -0,0 +1,80 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.NetworkResponse;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonSyntaxException;
+import java.util.HashMap;
+import org.junit.jupiter.api.Test;
+
+public class TestStreamEventResult {
+  private static final String EVENT_DATA =
+      "{\"output\":{\"choices\":[{\"finish_reason\":\"null\",\"message\":{\"role\":\"assistant\","
+          + "\"content\":\"hello\"}}]},\"usage\":{\"total_tokens\":12,\"output_tokens\":2,"
+          + "\"input_tokens\":10},\"request_id\":\"e8a6a7f1\"}";
+
+  private DashScopeResult decode(boolean isStreamEvent) {
+    return decode(EVENT_DATA, isStreamEvent, false);
+  }
+
+  private DashScopeResult decode(String data, boolean isStreamEvent, boolean isFlatten) {
+    HalfDuplexRequest req =
+        new HalfDuplexRequest(
+            HalfDuplexTestParam.builder().model("qwen-turbo").build(),
+            ApiServiceOption.builder()
+                .protocol(Protocol.HTTP)
+                .streamingMode(StreamingMode.OUT)
+                .outputMode(OutputMode.ACCUMULATE)
+                .taskGroup("aigc")
+                .task("text-generation")
+                .function("generation")
+                .build());
+    return new DashScopeResult()
+        .fromResponse(
+            Protocol.HTTP,
+            NetworkResponse.builder()
+                .headers(new HashMap<>())
+                .message(data)
+                .httpStatusCode(200)
+                .streamEvent(isStreamEvent)
+                .build(),
+            isFlatten,
+            req);
+  }
+
+  @Test
+  public void testStreamEventSameAsTree() {
+    DashScopeResult eager = decode(false);
+    DashScopeResult lazy = decode(true);
+    assertEquals(eager.getRequestId(), lazy.getRequestId());
+    assertEquals(eager.getStatusCode(), lazy.getStatusCode());
+    assertEquals(eager.getCode(), lazy.getCode());
+    assertEquals(
+        GenerationResult.fromDashScopeResult(eager), GenerationResult.fromDashScopeResult(lazy));
+    // the tree is still built on demand.
+    assertEquals(eager.getOutput(), lazy.getOutput());
+    assertEquals(eager.getUsage(), lazy.getUsage());
+  }
+
+  @Test
+  public void testSerializedBeforeAccess() {
+    assertEquals(JsonUtils.toJson(decode(false)), JsonUtils.toJson(decode(true)));
+  }
+
+  @Test
+  public void testMalformedEventFailsOnArrival() {
+    assertThrows(JsonSyntaxException.class, () -> decode("{\"output\":{\"text\"", true, true));
+    assertThrows(JsonSyntaxException.class, () -> decode("{\"output\":[1]}", true, false));
+  }
+}
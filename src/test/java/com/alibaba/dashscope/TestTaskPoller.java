@@ -0,0 +1,159 @@
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.api.AsynchronousApi;
+import com.alibaba.dashscope.base.HalfDuplexServiceParam;
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.utils.Constants;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestTaskPoller {
+  private static final MediaType MEDIA_TYPE_APPLICATION_JSON =
+      MediaType.parse("application/json; charset=utf-8");
+  MockWebServer server;
+
+  @BeforeEach
+  public void before() {
+    this.server = new MockWebServer();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    server.close();
+  }
+
+  private static MockResponse task(String taskId, String status) {
+    return new MockResponse()
+        .setBody(
+            String.format(
+                "{\"request_id\":\"1\",\"output\":{\"task_id\":\"%s\",\"task_status\":\"%s\"}}",
+                taskId, status))
+        .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON);
+  }
+
+  @Test
+  public void testWaitUntilSucceeded() throws Exception {
+    server.enqueue(task("task-1", "PENDING"));
+    server.enqueue(task("task-1", "RUNNING"));
+    server.enqueue(task("task-1", "SUCCEEDED"));
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    AsynchronousApi<HalfDuplexServiceParam> api = new AsynchronousApi<>();
+    DashScopeResult result =
+        api.waitAsync("task-1", null, null, null).get(20, TimeUnit.SECONDS);
+    assertEquals("SUCCEEDED", ((JsonObject) result.getOutput()).get("task_status").getAsString());
+    assertEquals(3, server.getRequestCount());
+    assertEquals("/tasks/task-1", server.takeRequest().getPath());
+  }
+
+  @Test
+  public void testListManyTasks() throws Exception {
+    AtomicInteger lists = new AtomicInteger(0);
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            if (path.startsWith("/tasks?")) {
+              lists.incrementAndGet();
+              assertTrue(path.contains("status=SUCCEEDED"));
+              StringBuilder data = new StringBuilder();
+              for (int i = 0; i < 5; ++i) {
+                data.append(i == 0 ? "" : ",")
+                    .append(String.format("{\"task_id\":\"task-%d\",\"status\":\"SUCCEEDED\"}", i));
+              }
+              return new MockResponse()
+                  .setBody(String.format("{\"request_id\":\"1\",\"data\":[%s]}", data))
+                  .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON);
+            }
+            return task(path.substring("/tasks/".length()), "SUCCEEDED");
+          }
+        });
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    AsynchronousApi<HalfDuplexServiceParam> api = new AsynchronousApi<>();
+    List<CompletableFuture<DashScopeResult>> futures = new ArrayList<>();
+    for (int i = 0; i < 5; ++i) {
+      futures.add(api.waitAsync(String.format("task-%d", i), null, null, null));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(20, TimeUnit.SECONDS);
+    // one list finds the finished tasks, then only those are fetched.
+    assertEquals(1, lists.get());
+    assertEquals(6, server.getRequestCount());
+  }
+
+  @Test
+  public void testListReadsNextPages() throws Exception {
+    AtomicInteger lists = new AtomicInteger(0);
+    server.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            if (path.startsWith("/tasks?")) {
+              lists.incrementAndGet();
+              // task-0 to task-3 on the first page, task-4 to task-7 on the second.
+              int first = path.contains("page_no=2") ? 4 : 0;
+              StringBuilder data = new StringBuilder();
+              for (int i = first; i < first + 4; ++i) {
+                data.append(i == first ? "" : ",")
+                    .append(String.format("{\"task_id\":\"task-%d\",\"status\":\"SUCCEEDED\"}", i));
+              }
+              return new MockResponse()
+                  .setBody(
+                      String.format(
+                          "{\"request_id\":\"1\",\"total_page\":2,\"data\":[%s]}", data))
+                  .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON);
+            }
+            return task(path.substring("/tasks/".length()), "SUCCEEDED");
+          }
+        });
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    AsynchronousApi<HalfDuplexServiceParam> api = new AsynchronousApi<>();
+    List<CompletableFuture<DashScopeResult>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; ++i) {
+      futures.add(api.waitAsync(String.format("task-%d", i), null, null, null));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(20, TimeUnit.SECONDS);
+    assertEquals(2, lists.get());
+    assertEquals(10, server.getRequestCount());
+  }
+
+  @Test
+  public void testMalformedResultFailsTask() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setBody("{\"request_id\":\"1\",\"output\":[\"task-1\"]}")
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    AsynchronousApi<HalfDuplexServiceParam> api = new AsynchronousApi<>();
+    CompletableFuture<DashScopeResult> future = api.waitAsync("task-1", null, null, null);
+    ExecutionException e =
+        assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof ApiException);
+  }
+}
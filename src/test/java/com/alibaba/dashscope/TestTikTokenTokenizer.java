@@ -3,9 +3,14 @@ package com.alibaba.dashscope;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import com.alibaba.dashscope.exception.NoSpecialTokenExists;
 import com.alibaba.dashscope.exception.UnSupportedSpecialTokenMode;
+import com.alibaba.dashscope.tokenizers.BpeVocabulary;
+import com.alibaba.dashscope.tokenizers.PreTokenizer;
+import com.alibaba.dashscope.tokenizers.QwenTokenizer;
 import com.alibaba.dashscope.tokenizers.Tokenizer;
 import com.alibaba.dashscope.tokenizers.TokenizerFactory;
 import com.alibaba.dashscope.utils.JsonUtils;
@@ -13,8 +18,10 @@ import com.alibaba.dashscope.utils.StringUtils;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -22,6 +29,8 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
 import org.junit.Ignore;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -180,4 +189,89 @@ public class TestTikTokenTokenizer {
     parts = StringUtils.splitByString(s, "<|im_start|>");
     assert parts.size() == 2;
   }
+
+  @Test
+  public void testEncodeToArray() throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
+    QwenTokenizer tokenizer = new QwenTokenizer();
+    // repeated pairs merge left to right.
+    String prompt = "aaaaaaa bbbbbbbb You are a helpful assistant.<|im_end|>";
+    int[] ids = tokenizer.encodeToArray(prompt, "all");
+    List<Integer> expected = tokenizer.encode(prompt, "all");
+    assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), ids);
+    assertArrayEquals(
+        new int[] {2610, 525, 264, 10950, 17847, 13},
+        tokenizer.encodeOrdinaryToArray("You are a helpful assistant."));
+    assertTrue(tokenizer.decode(expected).equals(prompt));
+  }
+
+  @Test
+  public void testPreTokenizerSameAsRegex() {
+    String[] pieces = {
+      " ", "  ", "\t", "\n", "\r\n", "\f", "'", "'S", "'Re", "'ll", "'d", "'x", "a", "Z", "中文",
+      "é", "1", "٣", "½", "😀", "\ud800", "!", "?!", ".", "_", "\u3000", "-"
+    };
+    Random random = new Random(7);
+    for (int n = 0; n < 20000; ++n) {
+      StringBuilder builder = new StringBuilder();
+      for (int i = random.nextInt(30); i >= 0; --i) {
+        builder.append(pieces[random.nextInt(pieces.length)]);
+      }
+      String text = builder.toString();
+      int start = 0;
+      for (Matcher matcher = PreTokenizer.PATTERN.matcher(text); matcher.find(); ) {
+        int end = PreTokenizer.next(text, start);
+        assertEquals(matcher.end(), end, text);
+        start = end;
+      }
+      assertEquals(text.length(), start);
+    }
+  }
+
+  @Test
+  public void testCountAndBatch() throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    StringBuilder builder = new StringBuilder();
+    while (builder.length() < 100000) {
+      // large enough to be encoded in parallel segments.
+      builder.append("<|im_start|>user\nSan Francisco is a city,  它位于加利福尼亚州。\n\n<|im_end|>");
+    }
+    List<String> texts = Arrays.asList("You are a helpful assistant.", "", builder.toString());
+    List<List<Integer>> batch = tokenizer.encodeBatch(texts);
+    int[] counts = tokenizer.countTokensBatch(texts);
+    for (int i = 0; i < texts.size(); ++i) {
+      List<Integer> ids = tokenizer.encode(texts.get(i), "all");
+      assertEquals(ids, batch.get(i));
+      assertEquals(ids.size(), counts[i]);
+      assertEquals(ids.size(), tokenizer.countTokens(texts.get(i)));
+      assertEquals(texts.get(i), tokenizer.decode(ids));
+    }
+    assertEquals(6, counts[0]);
+  }
+
+  @Test
+  public void testVocabularyUpToDate() throws IOException {
+    // qwen.bpe must be recompiled after qwen.tiktoken changes, see BpeVocabulary.
+    // qwen.tiktoken is read from the classpath, it is still a resource of the jar.
+    ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+    try (InputStream tiktoken =
+        TestTikTokenTokenizer.class.getClassLoader().getResourceAsStream("qwen.tiktoken")) {
+      assertNotNull(tiktoken);
+      BpeVocabulary.compile(tiktoken, compiled);
+    }
+    assertArrayEquals(
+        Files.readAllBytes(Paths.get("src/main/resources/qwen.bpe")), compiled.toByteArray());
+  }
+
+  @Test
+  public void testDecodeCharSplitAcrossTokens() throws UnSupportedSpecialTokenMode {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    // 龘 is not one token, its utf-8 bytes are split across tokens.
+    String text = "龘";
+    List<Integer> ids = tokenizer.encodeOrdinary(text);
+    assertTrue(ids.size() > 1);
+    for (Integer id : ids) {
+      assertTrue(tokenizer.decode(Arrays.asList(id)).contains("\uFFFD"));
+    }
+    assertEquals(text, tokenizer.decode(ids));
+  }
 }
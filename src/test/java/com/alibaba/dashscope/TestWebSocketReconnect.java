@@ -0,0 +1,189 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.CircuitBreaker;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpWebSocketClient;
+import com.alibaba.dashscope.utils.Constants;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestWebSocketReconnect {
+  private ApiServiceOption serviceOption =
+      ApiServiceOption.builder()
+          .protocol(Protocol.WEBSOCKET)
+          .streamingMode(StreamingMode.DUPLEX)
+          .outputMode(OutputMode.ACCUMULATE)
+          .taskGroup("group")
+          .task("task")
+          .function("function")
+          .build();
+  MockWebServer server;
+
+  @BeforeEach
+  public void before() {
+    server = new MockWebServer();
+    int port = this.server.getPort();
+    Constants.baseWebsocketApiUrl = String.format("ws://127.0.0.1:%s/api-ws/v1/inference/", port);
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder()
+            .webSocketReconnectInitialBackoff(Duration.ofMillis(50))
+            .webSocketConnectDeadline(Duration.ofSeconds(10))
+            .build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    Constants.connectionConfigurations = null;
+    // the failures of this suite do not open the circuit of later ones.
+    CircuitBreaker.resetAll();
+    server.close();
+    server.shutdown();
+  }
+
+  @Test
+  public void testReconnectWithBackoff() throws Exception {
+    // the first upgrade fails, the second succeeds.
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketRecorder("server")));
+    OkHttpWebSocketClient client =
+        new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(), false);
+    FullDuplexTestParam param =
+        FullDuplexTestParam.builder()
+            .model("duplexModel")
+            .streamData(Flowable.<Object>fromArray("text"))
+            .build();
+    long start = System.currentTimeMillis();
+    client.connect(new FullDuplexRequest(param, serviceOption)).get(10, TimeUnit.SECONDS);
+    assertTrue(System.currentTimeMillis() - start < 5000);
+    assertEquals(2, server.getRequestCount());
+    // the recorder never answers a close frame, drop the connection instead.
+    client.cancel();
+  }
+
+  @Test
+  public void testUnauthorizedIsNotRetried() throws Exception {
+    // the status code tells, whatever the reason phrase is.
+    server.enqueue(new MockResponse().setStatus("HTTP/1.1 401 InvalidApiKey"));
+    server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketRecorder("server")));
+    OkHttpWebSocketClient client =
+        new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(), false);
+    FullDuplexTestParam param =
+        FullDuplexTestParam.builder()
+            .model("duplexModel")
+            .streamData(Flowable.<Object>fromArray("text"))
+            .build();
+    ExecutionException e =
+        assertThrows(
+            ExecutionException.class,
+            () ->
+                client
+                    .connect(new FullDuplexRequest(param, serviceOption))
+                    .get(10, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof ApiException);
+    assertEquals(1, server.getRequestCount());
+  }
+
+  @Test
+  public void testUnauthorizedDoesNotResetCircuit() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(503));
+    server.enqueue(new MockResponse().setResponseCode(401));
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder()
+            .webSocketReconnectInitialBackoff(Duration.ofMillis(50))
+            .webSocketReconnectMaxAttempts(2)
+            .webSocketCircuitBreakerThreshold(3)
+            .webSocketCircuitBreakerOpenTime(Duration.ofSeconds(60))
+            .build();
+    FullDuplexTestParam param =
+        FullDuplexTestParam.builder()
+            .model("duplexModel")
+            .streamData(Flowable.<Object>fromArray("text"))
+            .build();
+    // the first connect fails twice with 503, the second with 401.
+    for (int i = 0; i < 2; i++) {
+      OkHttpWebSocketClient client =
+          new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(), false);
+      assertThrows(
+          ExecutionException.class,
+          () ->
+              client
+                  .connect(new FullDuplexRequest(param, serviceOption))
+                  .get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(3, server.getRequestCount());
+    CircuitBreaker breaker =
+        CircuitBreaker.forEndpoint(
+            "127.0.0.1", server.getPort(), Constants.connectionConfigurations);
+    // the 401 kept the two failures, one more opens the circuit.
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  @Test
+  public void testCircuitBreaker() throws InterruptedException {
+    CircuitBreaker breaker = new CircuitBreaker("test", 2, Duration.ofMillis(100));
+    assertTrue(breaker.tryAcquire());
+    breaker.onFailure();
+    assertTrue(breaker.tryAcquire());
+    breaker.onFailure();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertFalse(breaker.tryAcquire());
+    Thread.sleep(150);
+    // one trial after the open time.
+    assertTrue(breaker.tryAcquire());
+    assertFalse(breaker.tryAcquire());
+    // a trial rejected for its credentials lets the next call try again.
+    breaker.onIgnored();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertTrue(breaker.tryAcquire());
+    breaker.onSuccess();
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testCircuitBreakerPerEndpoint() {
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    CircuitBreaker breaker = CircuitBreaker.forEndpoint("127.0.0.1", 1, configurations);
+    assertSame(breaker, CircuitBreaker.forEndpoint("127.0.0.1", 1, configurations));
+    assertNotSame(breaker, CircuitBreaker.forEndpoint("127.0.0.1", 2, configurations));
+    assertNotSame(
+        breaker,
+        CircuitBreaker.forEndpoint(
+            "127.0.0.1",
+            1,
+            ConnectionConfigurations.builder().webSocketCircuitBreakerThreshold(1).build()));
+  }
+}
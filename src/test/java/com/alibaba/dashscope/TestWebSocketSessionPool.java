@@ -0,0 +1,176 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.ClientProfile;
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.FullDuplexRequest;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.protocol.okhttp.ConnectionWarmer;
+import com.alibaba.dashscope.protocol.okhttp.PooledWebSocketClient;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketSessionPool;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.WebSocket;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junitpioneer.jupiter.SetEnvironmentVariable;
+
+@Execution(ExecutionMode.SAME_THREAD)
+@Slf4j
+@SetEnvironmentVariable(key = "DASHSCOPE_API_KEY", value = "1234")
+public class TestWebSocketSessionPool {
+  private ApiServiceOption serviceOption =
+      ApiServiceOption.builder()
+          .protocol(Protocol.WEBSOCKET)
+          .streamingMode(StreamingMode.DUPLEX)
+          .outputMode(OutputMode.ACCUMULATE)
+          .taskGroup("group")
+          .task("task")
+          .function("function")
+          .build();
+  MockWebServer server;
+  WebSocketRecorder serverListener;
+  WebSocketSessionPool pool;
+
+  @BeforeEach
+  public void before() {
+    server = new MockWebServer();
+    serverListener = new WebSocketRecorder("server");
+    // only one upgrade is served, the second task must reuse the pooled session.
+    server.enqueue(new MockResponse().withWebSocketUpgrade(serverListener));
+    int port = this.server.getPort();
+    Constants.baseWebsocketApiUrl = String.format("ws://127.0.0.1:%s/api-ws/v1/inference/", port);
+    pool = new WebSocketSessionPool(ConnectionConfigurations.builder().build());
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    pool.shutdown();
+    server.close();
+    server.shutdown();
+  }
+
+  private FullDuplexTestParam getStreamTextParam() {
+    String[] textData = new String[3];
+    for (int i = 0; i < 3; ++i) {
+      textData[i] = UUID.randomUUID().toString();
+    }
+    return FullDuplexTestParam.builder()
+        .model("duplexModel")
+        .streamData(Flowable.<Object>fromArray((Object[]) textData))
+        .topP(1.0)
+        .str(UUID.randomUUID().toString())
+        .build();
+  }
+
+  @Test
+  public void testSessionReused() throws ApiException, NoApiKeyException, InterruptedException {
+    PooledWebSocketClient client = new PooledWebSocketClient(pool, false);
+    WebSocket wsServer = null;
+    for (int i = 0; i < 2; ++i) {
+      Flowable<DashScopeResult> results =
+          client.duplex(new FullDuplexRequest(getStreamTextParam(), serviceOption));
+      Semaphore receiveCompleted = new Semaphore(0);
+      results.subscribe(
+          msg -> {}, err -> receiveCompleted.release(), () -> receiveCompleted.release());
+      if (wsServer == null) {
+        wsServer = serverListener.assertOpen();
+      }
+      wsServer.send(JsonUtils.toJson(WebSocketServerMessage.getTaskStartMessage()));
+      wsServer.send(JsonUtils.toJson(WebSocketServerMessage.getTaskFinishedMessage(null, null)));
+      receiveCompleted.acquire();
+    }
+    WebSocketSessionPool.Metrics metrics = pool.getMetrics();
+    assertEquals(1, metrics.getHandshakes());
+    assertEquals(1, metrics.getHandshakesSaved());
+    assertEquals(1, metrics.getIdleSessions());
+    wsServer.close(1000, "bye");
+  }
+
+  @Test
+  public void testSessionsNotSharedAcrossConnectionOptions()
+      throws ApiException, NoApiKeyException, InterruptedException {
+    WebSocketRecorder secondListener = new WebSocketRecorder("second");
+    server.enqueue(new MockResponse().withWebSocketUpgrade(secondListener));
+    PooledWebSocketClient custom =
+        new PooledWebSocketClient(
+            pool,
+            false,
+            ClientProfile.DEFAULT,
+            ConnectionOptions.builder().readTimeout(Duration.ofSeconds(30)).build());
+    WebSocket first = runTask(custom, serverListener);
+    // the idle session of the custom options is not leased by a client of the default ones.
+    WebSocket second = runTask(new PooledWebSocketClient(pool, false), secondListener);
+    WebSocketSessionPool.Metrics metrics = pool.getMetrics();
+    assertEquals(2, metrics.getHandshakes());
+    assertEquals(0, metrics.getHandshakesSaved());
+    first.close(1000, "bye");
+    second.close(1000, "bye");
+  }
+
+  @Test
+  public void testPrewarmConnectsWithClientOfKey() throws Exception {
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    // the host is only reachable by the audio client, through the mock server as its proxy.
+    Constants.connectionConfigurations =
+        ConnectionConfigurations.builder()
+            .profile(
+                ClientProfile.AUDIO,
+                ConnectionConfigurations.builder()
+                    .proxyHost("127.0.0.1")
+                    .proxyPort(server.getPort())
+                    .build())
+            .build();
+    Constants.baseWebsocketApiUrl = "ws://dashscope.invalid/api-ws/v1/inference/";
+    WebSocketSessionPool shared = WebSocketSessionPool.getInstance();
+    try {
+      new ConnectionWarmer(ConnectionConfigurations.builder().build())
+          .warmWebSocket(null, null, 1)
+          .get(10, TimeUnit.SECONDS);
+      WebSocket wsServer = serverListener.assertOpen();
+      RecordedRequest upgrade = server.takeRequest();
+      assertEquals("dashscope.invalid", upgrade.getHeader("Host"));
+      wsServer.close(1000, "bye");
+    } finally {
+      shared.clear();
+      Constants.connectionConfigurations = configurations;
+    }
+  }
+
+  private WebSocket runTask(PooledWebSocketClient client, WebSocketRecorder listener)
+      throws ApiException, NoApiKeyException, InterruptedException {
+    Flowable<DashScopeResult> results =
+        client.duplex(new FullDuplexRequest(getStreamTextParam(), serviceOption));
+    Semaphore receiveCompleted = new Semaphore(0);
+    results.subscribe(
+        msg -> {}, err -> receiveCompleted.release(), () -> receiveCompleted.release());
+    WebSocket wsServer = listener.assertOpen();
+    wsServer.send(JsonUtils.toJson(WebSocketServerMessage.getTaskStartMessage()));
+    wsServer.send(JsonUtils.toJson(WebSocketServerMessage.getTaskFinishedMessage(null, null)));
+    receiveCompleted.acquire();
+    return wsServer;
+  }
+}
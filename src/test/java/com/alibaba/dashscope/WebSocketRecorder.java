@@ -137,6 +137,19 @@ public final class WebSocketRecorder extends WebSocketListener {
     return ((Open) event).webSocket;
   }
 
+  /** Wait until both peers closed the websocket, messages received before are skipped. */
+  public void awaitClosed() {
+    while (true) {
+      Object event = nextEvent();
+      if (event instanceof Closed) {
+        return;
+      }
+      if (!(event instanceof Message) && !(event instanceof Closing)) {
+        throw new AssertionError("Expected Closed but was " + event);
+      }
+    }
+  }
+
   public void assertFailure(Throwable t) {
     Object event = nextEvent();
     if (!(event instanceof Failure)) {